@@ -1,12 +1,32 @@
 package com.apirest.api.Config;
 
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Open-in-view registrado à mão (spring.jpa.open-in-view=false) para poder excluir o registro de venda,
+    // o lote, a importação de produtos e a pré-autorização: nelas a conexão só pode ser usada dentro da transação,
+    // nunca durante o BCrypt do PIN (nem durante a leitura do corpo do lote ou do arquivo importado). O painel ao vivo (SSE) fica aberto por minutos e não usa o banco,
+    // e o leitor de códigos e a busca por nome respondem da memória.
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(openInView)
+                .excludePathPatterns("/vendas", "/vendas/lote", "/vendas/pre-autorizacao", "/caixas/painel/eventos", "/produtos/leitura/*", "/produtos/busca",
+                        "/produtos/importacao");
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**") // Aplica a todas as rotas da API
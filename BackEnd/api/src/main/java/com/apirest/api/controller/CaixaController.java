@@ -6,12 +6,20 @@ import com.apirest.api.entity.CaixaMovimentacao;
 import com.apirest.api.entity.FiltroPeriodo;
 import com.apirest.api.entity.StatusCaixa;
 import com.apirest.api.service.CaixaService;
+import com.apirest.api.service.ExportacaoService;
+import com.apirest.api.service.LivroCaixaService;
+import com.apirest.api.service.PainelCaixasService;
+import com.apirest.api.service.RelatorioGrupoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.apirest.api.dto.CaixaResponseDTO;
 
 import java.math.BigDecimal;
@@ -19,7 +27,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,6 +35,10 @@ import java.util.Map;
 public class CaixaController {
 
     private final CaixaService caixaService;
+    private final ExportacaoService exportacaoService;
+    private final PainelCaixasService painelCaixasService;
+    private final RelatorioGrupoService relatorioGrupoService;
+    private final LivroCaixaService livroCaixaService;
 
     // ABRIR CAIXA
     @PostMapping("/abrir")
@@ -76,6 +87,14 @@ public class CaixaController {
         return ResponseEntity.ok(caixaService.buscarPorId(id));
     }
 
+    // Saldo do caixa num instante pelo livro do caixa (sem momento = agora)
+    @GetMapping("/{id}/saldo")
+    public ResponseEntity<SaldoCaixaDTO> saldo(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime momento) {
+        return ResponseEntity.ok(livroCaixaService.saldoEm(id, momento));
+    }
+
     @GetMapping("/meu-resumo/{idFuncionario}")
     public ResponseEntity<RelatorioIndividualDTO> meuResumo(@PathVariable Long idFuncionario) {
         RelatorioIndividualDTO relatorio = caixaService.gerarRelatorioIndividual(idFuncionario);
@@ -88,27 +107,49 @@ public class CaixaController {
             @RequestParam(required = false) Long idFuncionario,
             @RequestParam(required = false) StatusCaixa status,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) String cursor, // proximoCursor da página anterior
+            @RequestParam(required = false) Integer limite
     ) {
         LocalDateTime inicio = (dataInicio != null) ? dataInicio.atStartOfDay() : LocalDate.now().atStartOfDay();
         LocalDateTime fim = (dataFim != null) ? dataFim.atTime(LocalTime.MAX) : LocalDate.now().atTime(LocalTime.MAX);
 
-        List<Caixa> listaEntidades = caixaService.listarComFiltros(idFuncionario, status, inicio, fim);
-
-        // Converte para DTO leve
-        List<CaixaResponseDTO> listaDTOs = listaEntidades.stream()
-                .map(caixaService::toResponseDTO)
-                .toList();
-
-        DashboardResumoDTO resumo = caixaService.calcularResumoDashboard(listaEntidades);
+        // Página de caixas (DTO leve) + resumo do filtro inteiro
+        PaginaDTO<CaixaResponseDTO> pagina = caixaService.listarComFiltros(idFuncionario, status, inicio, fim, cursor, limite);
+        DashboardResumoDTO resumo = caixaService.resumirComFiltros(idFuncionario, status, inicio, fim);
 
         Map<String, Object> response = new HashMap<>();
         response.put("resumo", resumo);
-        response.put("caixas", listaDTOs);
+        response.put("caixas", pagina.getItens());
+        response.put("proximoCursor", pagina.getProximoCursor());
 
         return ResponseEntity.ok(response);
     }
 
+    // Exportação de caixas abertos no período: CSV ou NDJSON, opcionalmente gzip (gerado enquanto é enviado)
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarCaixas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportacaoService.Formato tipo = ExportacaoService.Formato.de(formato);
+        exportacaoService.validarPeriodo(dataInicio, dataFim);
+
+        String arquivo = "caixas_" + dataInicio + "_" + dataFim + "." + tipo.extensao() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + arquivo + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? "application/gzip" : tipo.tipoConteudo() + ";charset=UTF-8")
+                .body(saida -> exportacaoService.exportarCaixas(dataInicio, dataFim, tipo, gzip, saida));
+    }
+
+    // Painel ao vivo (Server-Sent Events): deltas de vendas, cancelamentos, movimentações e fechamentos.
+    // Assine primeiro e depois carregue GET /caixas; cada evento traz só o quanto o caixa mudou.
+    @GetMapping(value = "/painel/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter painelEventos(@RequestParam(required = false) Long idUnidade) {
+        return painelCaixasService.assinar(idUnidade);
+    }
+
     // RELATÓRIO AVANÇADO
     @GetMapping("/relatorio")
     public ResponseEntity<Map<String, Object>> getRelatorio(
@@ -153,4 +194,16 @@ public class CaixaController {
         if (ano == 0) ano = hoje.getYear();
         return ResponseEntity.ok(caixaService.gerarRelatorioDoMes(ano, mes));
     }
+
+    // Relatório do Mês de todas as unidades do grupo econômico (unidades consultadas em paralelo, com prazo)
+    @GetMapping("/mensal/grupo/{grupoEconomicoId}")
+    public ResponseEntity<RelatorioGrupoDTO> relatorioMensalGrupo(
+            @PathVariable Long grupoEconomicoId,
+            @RequestParam(defaultValue = "0") int mes,
+            @RequestParam(defaultValue = "0") int ano) {
+        LocalDate hoje = LocalDate.now();
+        if (mes == 0) mes = hoje.getMonthValue();
+        if (ano == 0) ano = hoje.getYear();
+        return ResponseEntity.ok(relatorioGrupoService.gerarRelatorioDoMes(grupoEconomicoId, ano, mes));
+    }
 }
\ No newline at end of file
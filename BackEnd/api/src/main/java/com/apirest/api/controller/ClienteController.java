@@ -3,6 +3,7 @@ package com.apirest.api.controller;
 import com.apirest.api.dto.ClienteDTO;
 import com.apirest.api.dto.ClientePatchDTO;
 import com.apirest.api.dto.ClienteResponseDTO;
+import com.apirest.api.dto.PaginaDTO;
 import com.apirest.api.entity.Cliente;
 import com.apirest.api.service.ClienteService;
 import jakarta.validation.Valid;
@@ -10,7 +11,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/clientes")
@@ -25,9 +25,12 @@ public class ClienteController {
         return ResponseEntity.ok(response);
     }
 
+    // Clientes ativos paginados por cursor: ?limite=50 e, nas páginas seguintes, ?cursor=<proximoCursor>
     @GetMapping
-    public ResponseEntity<List<Cliente>> listar() {
-        return ResponseEntity.ok(service.listarTodos());
+    public ResponseEntity<PaginaDTO<Cliente>> listar(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(service.listarTodos(cursor, limite));
     }
 
     @GetMapping("/{id}")
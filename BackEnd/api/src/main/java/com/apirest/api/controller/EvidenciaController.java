@@ -0,0 +1,50 @@
+package com.apirest.api.controller;
+
+import com.apirest.api.dto.EvidenciaUploadResponseDTO;
+import com.apirest.api.service.ArmazenamentoBlobService;
+import com.apirest.api.service.EvidenciaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+// Assinaturas e comprovantes do crediário (arquivos binários fora do banco)
+@RestController
+@RequestMapping("/evidencias")
+@RequiredArgsConstructor
+public class EvidenciaController {
+
+    private final EvidenciaService evidenciaService;
+    private final ArmazenamentoBlobService armazenamentoBlobService;
+
+    // Envia o arquivo (multipart, campo "arquivo") e devolve o hash para usar em VendaDTO.assinaturaHash
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<EvidenciaUploadResponseDTO> enviar(@RequestParam("arquivo") MultipartFile arquivo) {
+        return new ResponseEntity<>(evidenciaService.enviar(arquivo), HttpStatus.CREATED);
+    }
+
+    // Download pelo hash (conteúdo imutável: pode ficar em cache no navegador)
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> baixar(@PathVariable String hash) {
+        return arquivo(hash);
+    }
+
+    // Download pela venda: tipo = assinatura | comprovante
+    @GetMapping("/venda/{idVenda}/{tipo}")
+    public ResponseEntity<Resource> baixarDaVenda(@PathVariable Long idVenda, @PathVariable String tipo) {
+        return arquivo(evidenciaService.buscarHash(idVenda, tipo));
+    }
+
+    private ResponseEntity<Resource> arquivo(String hash) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(armazenamentoBlobService.tipoConteudo(hash)))
+                .contentLength(armazenamentoBlobService.tamanho(hash))
+                .eTag("\"" + hash + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable")
+                .body(armazenamentoBlobService.recurso(hash));
+    }
+}
@@ -1,9 +1,11 @@
 package com.apirest.api.controller;
 
+import com.apirest.api.dto.ComissaoFuncionarioDTO;
 import com.apirest.api.dto.FuncionarioDTO;
 import com.apirest.api.dto.FuncionarioPatchDTO;
 import com.apirest.api.dto.FuncionarioResponseDTO;
 import com.apirest.api.entity.Funcionario;
+import com.apirest.api.service.ComissaoService;
 import com.apirest.api.service.FuncionarioService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +21,7 @@ import java.util.Map;
 public class FuncionarioController {
 
     private final FuncionarioService service;
+    private final ComissaoService comissaoService;
 
     @PostMapping
     public ResponseEntity<FuncionarioResponseDTO> criar(@Valid @RequestBody FuncionarioDTO dto) {
@@ -35,6 +38,12 @@ public class FuncionarioController {
         return ResponseEntity.ok(service.buscarPorId(id));
     }
 
+    // Comissão acumulada ao vivo (descarregada + pendente)
+    @GetMapping("/{id}/comissao")
+    public ResponseEntity<ComissaoFuncionarioDTO> consultarComissao(@PathVariable Long id) {
+        return ResponseEntity.ok(comissaoService.consultar(id));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<FuncionarioResponseDTO> atualizar(@PathVariable Long id, @Valid @RequestBody FuncionarioDTO dto) {
         return ResponseEntity.ok(service.atualizar(id, dto));
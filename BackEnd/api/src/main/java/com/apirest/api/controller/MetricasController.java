@@ -0,0 +1,69 @@
+package com.apirest.api.controller;
+
+import com.apirest.api.dto.MetricasAnaliseVendasDTO;
+import com.apirest.api.dto.MetricasIndiceCodigosDTO;
+import com.apirest.api.dto.MetricasPinDTO;
+import com.apirest.api.dto.MetricasProdutoCacheDTO;
+import com.apirest.api.dto.MetricasRelatorioCacheDTO;
+import com.apirest.api.dto.MetricasReservasDTO;
+import com.apirest.api.service.AnaliseVendasService;
+import com.apirest.api.service.IndiceCodigosService;
+import com.apirest.api.service.ProdutoSnapshotCache;
+import com.apirest.api.service.RelatorioCaixaCache;
+import com.apirest.api.service.ReservaEstoqueService;
+import com.apirest.api.service.VerificacaoPinService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Métricas operacionais internas (fila, cache, tempos)
+@RestController
+@RequestMapping("/metricas")
+@RequiredArgsConstructor
+public class MetricasController {
+
+    private final VerificacaoPinService verificacaoPinService;
+    private final ProdutoSnapshotCache produtoSnapshotCache;
+    private final RelatorioCaixaCache relatorioCaixaCache;
+    private final AnaliseVendasService analiseVendasService;
+    private final IndiceCodigosService indiceCodigosService;
+    private final ReservaEstoqueService reservaEstoqueService;
+
+    // Executor de verificação de PIN do crediário: fila, rejeições e acertos do cache
+    @GetMapping("/pin")
+    public ResponseEntity<MetricasPinDTO> metricasPin() {
+        return ResponseEntity.ok(verificacaoPinService.metricas());
+    }
+
+    // Cache de snapshots de produto do caixa: taxa de acerto, despejos e invalidações
+    @GetMapping("/produtos")
+    public ResponseEntity<MetricasProdutoCacheDTO> metricasProdutos() {
+        return ResponseEntity.ok(produtoSnapshotCache.metricas());
+    }
+
+    // Cache de relatórios de caixa: acertos, faltas, despejos, expirações e invalidações por fechamento
+    @GetMapping("/relatorios")
+    public ResponseEntity<MetricasRelatorioCacheDTO> metricasRelatorios() {
+        return ResponseEntity.ok(relatorioCaixaCache.metricas());
+    }
+
+    // Snapshot colunar da análise de vendas: linhas carregadas, memória e até onde está atualizado
+    @GetMapping("/analise")
+    public ResponseEntity<MetricasAnaliseVendasDTO> metricasAnalise() {
+        return ResponseEntity.ok(analiseVendasService.metricas());
+    }
+
+    // Índice de códigos de barras/SKU do leitor: pronto ou não, tamanho, consultas e atualizações
+    @GetMapping("/leitura")
+    public ResponseEntity<MetricasIndiceCodigosDTO> metricasLeitura() {
+        return ResponseEntity.ok(indiceCodigosService.metricas());
+    }
+
+    // Reservas de estoque dos carrinhos: carrinhos ativos, recusas, conversões em venda e vencimentos
+    @GetMapping("/reservas")
+    public ResponseEntity<MetricasReservasDTO> metricasReservas() {
+        return ResponseEntity.ok(reservaEstoqueService.metricas());
+    }
+}
@@ -1,13 +1,27 @@
 package com.apirest.api.controller;
 
+import com.apirest.api.dto.BuscaProdutoDTO;
 import com.apirest.api.dto.CadastroProdutoDTO;
+import com.apirest.api.dto.ImportacaoProdutosResultadoDTO;
+import com.apirest.api.dto.LeituraProdutoDTO;
+import com.apirest.api.dto.PaginaDTO;
 import com.apirest.api.dto.ProdutoResponseDTO;
+import com.apirest.api.service.BuscaProdutosService;
+import com.apirest.api.service.ExportacaoService;
+import com.apirest.api.service.ImportacaoProdutosService;
+import com.apirest.api.service.IndiceCodigosService;
 import com.apirest.api.service.ProdutoService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -16,6 +30,9 @@ import java.util.List;
 public class ProdutoController {
 
     private final ProdutoService service;
+    private final IndiceCodigosService indiceCodigosService;
+    private final BuscaProdutosService buscaProdutosService;
+    private final ImportacaoProdutosService importacaoProdutosService;
 
     // CRIAR (POST)
     @PostMapping
@@ -24,13 +41,51 @@ public class ProdutoController {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
-    // LISTAR TUDO (GET)
+    // IMPORTAÇÃO (POST) - catálogo do fornecedor no corpo: CSV (cabeçalho + uma variação por linha) ou NDJSON
+    // (um produto por linha, mesmo JSON do POST). O arquivo é lido em fluxo; as linhas com erro voltam no resultado.
+    @PostMapping("/importacao")
+    public ResponseEntity<ImportacaoProdutosResultadoDTO> importar(
+            @RequestParam Long idFuncionario,
+            @RequestParam(defaultValue = "csv") String formato,
+            HttpServletRequest request) throws IOException {
+        ExportacaoService.Formato tipo = ExportacaoService.Formato.de(formato);
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+            return ResponseEntity.ok(importacaoProdutosService.importar(idFuncionario, tipo, entrada));
+        }
+    }
+
+    // LISTAR TUDO (GET) - todos os produtos ativos, em lista
     @GetMapping
     public ResponseEntity<List<ProdutoResponseDTO>> listar(
             @RequestParam(required = false) Long idFuncionario) {
         return ResponseEntity.ok(service.listarTudo(idFuncionario));
     }
 
+    // LISTAR PAGINADO (GET) - paginado por cursor, só produtos ativos
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaDTO<ProdutoResponseDTO>> listarPagina(
+            @RequestParam(required = false) Long idFuncionario,
+            @RequestParam(required = false) String cursor, // proximoCursor da página anterior
+            @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(service.listarPagina(idFuncionario, cursor, limite));
+    }
+
+    // LEITOR DO CAIXA (GET) - código de barras ou SKU, respondido pelo índice em memória
+    @GetMapping("/leitura/{codigo}")
+    public ResponseEntity<LeituraProdutoDTO> buscarPorCodigo(@PathVariable String codigo) {
+        return indiceCodigosService.buscar(codigo)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // BUSCA POR NOME (GET) - tolera palavras incompletas e erros de digitação, mais parecidos primeiro
+    @GetMapping("/busca")
+    public ResponseEntity<List<BuscaProdutoDTO>> buscarPorNome(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(buscaProdutosService.buscar(q, limite));
+    }
+
     // BUSCAR POR ID (GET)
     @GetMapping("/{id}")
     public ResponseEntity<ProdutoResponseDTO> buscarPorId(
@@ -1,4 +1,98 @@
 package com.apirest.api.controller;
 
+import com.apirest.api.dto.AnaliseDescontoDTO;
+import com.apirest.api.dto.AnaliseGrupoDTO;
+import com.apirest.api.dto.AnaliseTicketDTO;
+import com.apirest.api.service.AnaliseVendasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Análise de vendas (snapshot em memória, não consulta as tabelas de venda).
+// Período padrão: últimos 30 dias até hoje. idUnidade opcional filtra a loja.
+@RestController
+@RequestMapping("/relatorios")
+@RequiredArgsConstructor
 public class RelatorioController {
+
+    private final AnaliseVendasService analiseVendasService;
+
+    // Vendas por hora do dia (00h a 23h)
+    @GetMapping("/vendas/por-hora")
+    public ResponseEntity<List<AnaliseGrupoDTO>> porHora(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.porHora(inicio(dataInicio, fim), fim, idUnidade));
+    }
+
+    // Produtos mais vendidos (por valor)
+    @GetMapping("/vendas/por-produto")
+    public ResponseEntity<List<AnaliseGrupoDTO>> porProduto(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade,
+            @RequestParam(defaultValue = "20") int limite) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.porProduto(inicio(dataInicio, fim), fim, idUnidade, limite));
+    }
+
+    @GetMapping("/vendas/por-categoria")
+    public ResponseEntity<List<AnaliseGrupoDTO>> porCategoria(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.porCategoria(inicio(dataInicio, fim), fim, idUnidade));
+    }
+
+    @GetMapping("/vendas/por-unidade")
+    public ResponseEntity<List<AnaliseGrupoDTO>> porUnidade(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.porUnidade(inicio(dataInicio, fim), fim));
+    }
+
+    @GetMapping("/vendas/por-vendedor")
+    public ResponseEntity<List<AnaliseGrupoDTO>> porVendedor(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.porVendedor(inicio(dataInicio, fim), fim, idUnidade));
+    }
+
+    // Distribuição do ticket (média, mediana, p90 e faixas de valor)
+    @GetMapping("/vendas/ticket")
+    public ResponseEntity<AnaliseTicketDTO> ticket(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.ticket(inicio(dataInicio, fim), fim, idUnidade));
+    }
+
+    // Participação dos descontos no valor bruto
+    @GetMapping("/vendas/descontos")
+    public ResponseEntity<AnaliseDescontoDTO> descontos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) Long idUnidade) {
+        LocalDate fim = fim(dataFim);
+        return ResponseEntity.ok(analiseVendasService.descontos(inicio(dataInicio, fim), fim, idUnidade));
+    }
+
+    private LocalDate fim(LocalDate dataFim) {
+        return dataFim != null ? dataFim : LocalDate.now();
+    }
+
+    private LocalDate inicio(LocalDate dataInicio, LocalDate fim) {
+        return dataInicio != null ? dataInicio : fim.minusDays(29);
+    }
 }
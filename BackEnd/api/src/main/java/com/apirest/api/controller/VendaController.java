@@ -1,17 +1,40 @@
 package com.apirest.api.controller;
 
 
+import com.apirest.api.dto.PaginaDTO;
+import com.apirest.api.dto.PreAutorizacaoCrediarioDTO;
+import com.apirest.api.dto.PreAutorizacaoCrediarioResponseDTO;
+import com.apirest.api.dto.ReservaEstoqueDTO;
+import com.apirest.api.dto.ReservaEstoqueResponseDTO;
 import com.apirest.api.dto.VendaDTO;
+import com.apirest.api.dto.VendaLoteResultadoDTO;
 import com.apirest.api.dto.VendaResponseDTO;
+import com.apirest.api.service.ExportacaoService;
+import com.apirest.api.service.IdempotenciaVendaService;
+import com.apirest.api.service.PreAutorizacaoCrediarioService;
+import com.apirest.api.service.ReservaEstoqueService;
+import com.apirest.api.service.VendaLoteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import com.apirest.api.service.VendaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.apirest.api.entity.StatusVenda;
 
-import java.util.List;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/vendas")
@@ -19,20 +42,100 @@ import java.util.List;
 public class VendaController {
 
     private final VendaService vendaService;
+    private final IdempotenciaVendaService idempotenciaVendaService;
+    private final PreAutorizacaoCrediarioService preAutorizacaoCrediarioService;
+    private final VendaLoteService vendaLoteService;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final ExportacaoService exportacaoService;
+    private final ObjectMapper objectMapper;
 
     // Registrar uma nova venda
+    // Com o cabeçalho Idempotency-Key, reenvios do terminal (ex: Wi-Fi instável) devolvem a venda já registrada
     @PostMapping
-    public ResponseEntity<VendaResponseDTO> registrarVenda(@Valid @RequestBody VendaDTO vendaDTO) {
-        VendaResponseDTO novaVenda = vendaService.registrarVenda(vendaDTO);
+    public ResponseEntity<VendaResponseDTO> registrarVenda(
+            @Valid @RequestBody VendaDTO vendaDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
+        String chave = chaveIdempotencia != null ? chaveIdempotencia : vendaDTO.getChaveIdempotencia();
+        VendaResponseDTO novaVenda = (chave == null)
+                ? vendaService.registrarVenda(vendaDTO, null)
+                : idempotenciaVendaService.executar(chave, vendaDTO,
+                        () -> vendaService.registrarVenda(vendaDTO, chave));
         return new ResponseEntity<>(novaVenda, HttpStatus.CREATED);
     }
 
-    // Listar todas as vendas
+    // Pré-autorização do crediário (PIN, atraso e limite), chamada enquanto os itens ainda estão sendo passados.
+    // Devolve um token de uso único e curta duração para enviar em VendaDTO.tokenPreAutorizacao
+    @PostMapping("/pre-autorizacao")
+    public ResponseEntity<PreAutorizacaoCrediarioResponseDTO> preAutorizarCrediario(
+            @Valid @RequestBody PreAutorizacaoCrediarioDTO dto) {
+        return ResponseEntity.ok(preAutorizacaoCrediarioService.preAutorizar(dto));
+    }
+
+    // Reserva de estoque do item passado no caixa (quantidade total do item no carrinho; 0 libera).
+    // idCarrinho é gerado pelo terminal e enviado depois em VendaDTO.idCarrinho no fechamento.
+    @PutMapping("/reservas/{idCarrinho}")
+    public ResponseEntity<ReservaEstoqueResponseDTO> reservarItem(
+            @PathVariable String idCarrinho,
+            @Valid @RequestBody ReservaEstoqueDTO dto) {
+        return ResponseEntity.ok(reservaEstoqueService.reservar(idCarrinho, dto));
+    }
+
+    // Carrinho abandonado: devolve as reservas sem esperar o vencimento
+    @DeleteMapping("/reservas/{idCarrinho}")
+    public ResponseEntity<Void> cancelarReservas(@PathVariable String idCarrinho) {
+        reservaEstoqueService.cancelar(idCarrinho);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Vendas guardadas pelo terminal durante queda de conexão: corpo NDJSON (um VendaDTO com chaveIdempotencia por linha).
+    // A resposta também é NDJSON, uma linha por venda ({linha, status, idVenda | erro, repetida}), enviada conforme os blocos terminam.
+    @PostMapping(value = "/lote", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void registrarLote(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        OutputStream saida = response.getOutputStream();
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            vendaLoteService.processar(entrada, resultados -> {
+                try {
+                    for (VendaLoteResultadoDTO resultado : resultados) {
+                        saida.write(objectMapper.writeValueAsBytes(resultado));
+                        saida.write('\n');
+                    }
+                    saida.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Listar vendas paginadas por cursor (mais recentes primeiro): ?limite=50 e depois ?cursor=<proximoCursor>
     @GetMapping
-    public ResponseEntity<List<VendaResponseDTO>> listarVendas(
-            @RequestParam(required = false) StatusVenda status) {
-        List<VendaResponseDTO> vendas = vendaService.listarVendas(status);
-        return ResponseEntity.ok(vendas);
+    public ResponseEntity<PaginaDTO<VendaResponseDTO>> listarVendas(
+            @RequestParam(required = false) StatusVenda status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(vendaService.listarVendas(status, cursor, limite));
+    }
+
+    // Exportação de vendas por período (contabilidade): CSV ou NDJSON, opcionalmente gzip.
+    // As linhas saem do cursor do banco direto para a resposta, sem montar a lista em memória.
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarVendas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportacaoService.Formato tipo = ExportacaoService.Formato.de(formato);
+        exportacaoService.validarPeriodo(dataInicio, dataFim);
+
+        String arquivo = "vendas_" + dataInicio + "_" + dataFim + "." + tipo.extensao() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + arquivo + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? "application/gzip" : tipo.tipoConteudo() + ";charset=UTF-8")
+                .body(saida -> exportacaoService.exportarVendas(dataInicio, dataFim, tipo, gzip, saida));
     }
 
     // Buscar venda por ID
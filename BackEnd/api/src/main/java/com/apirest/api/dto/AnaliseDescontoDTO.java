@@ -0,0 +1,23 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Peso dos descontos nas vendas do período
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnaliseDescontoDTO {
+    private long quantidadeVendas;
+    private long vendasComDesconto;
+    private double participacaoVendasComDesconto; // vendasComDesconto / quantidadeVendas
+    private BigDecimal valorBruto;
+    private BigDecimal valorDesconto;
+    private BigDecimal valorLiquido;
+    private double participacaoDesconto;          // valorDesconto / valorBruto
+}
@@ -0,0 +1,23 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Uma linha da análise de vendas agrupada (hora do dia, produto, categoria, unidade ou vendedor)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnaliseGrupoDTO {
+    private Long id;                // Hora (0-23) ou ID do produto/categoria/unidade/vendedor
+    private String nome;
+    private long quantidadeVendas;  // Vendas em que o grupo aparece
+    private long quantidadeItens;   // Unidades vendidas
+    private BigDecimal valor;       // Produto/categoria: soma dos itens (antes do desconto da venda)
+    private BigDecimal ticketMedio; // valor / quantidadeVendas
+    private double participacao;    // Fração do valor total do período
+}
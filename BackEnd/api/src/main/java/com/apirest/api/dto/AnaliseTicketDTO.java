@@ -0,0 +1,35 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Distribuição do valor das vendas (ticket) no período
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnaliseTicketDTO {
+    private long quantidadeVendas;
+    private BigDecimal valorTotal;
+    private BigDecimal ticketMedio;
+    private BigDecimal mediana;
+    private BigDecimal percentil90;
+    private BigDecimal maior;
+    private List<Faixa> faixas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Faixa {
+        private BigDecimal de;       // Inclusive
+        private BigDecimal ate;      // Exclusive (null = sem limite)
+        private long quantidade;
+        private double participacao; // Fração das vendas do período
+    }
+}
@@ -0,0 +1,22 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Resultado da busca de produtos por nome (GET /produtos/busca), do mais parecido para o menos
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuscaProdutoDTO {
+    private Long idVariacao;
+    private String nomeCompleto;
+    private String marca;
+    private String categoria;
+    private BigDecimal precoVenda;
+    private double pontuacao; // Fração dos trigramas da busca encontrados (1.0 por palavra que casa inteira)
+}
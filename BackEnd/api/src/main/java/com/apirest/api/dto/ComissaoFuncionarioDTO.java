@@ -0,0 +1,19 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComissaoFuncionarioDTO {
+    private Long idFuncionario;
+    private BigDecimal acumulado; // Já descarregado em funcionarios.valor_comissao_acumulado
+    private BigDecimal pendente;  // Vendas recentes ainda não descarregadas
+    private BigDecimal total;
+}
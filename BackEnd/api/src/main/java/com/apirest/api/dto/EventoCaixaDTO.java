@@ -0,0 +1,29 @@
+package com.apirest.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Evento do painel de caixas (GET /caixas/painel/eventos): o quanto um caixa mudou com a operação commitada.
+// O painel carrega GET /caixas uma vez e soma os deltas que chegam.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventoCaixaDTO {
+    private String tipo;            // VENDA, CANCELAMENTO, REATIVACAO, SANGRIA, SUPRIMENTO, ENTRADA, FECHAMENTO
+    private Long idCaixa;
+    private Long idFuncionario;
+    private Long idUnidade;
+    private LocalDateTime momento;
+
+    private DashboardResumoDTO delta; // Só os campos afetados vêm preenchidos (os demais não mudaram)
+    private BigDecimal sangrias;      // Delta de sangrias (não faz parte do resumo)
+    private BigDecimal suprimentos;   // Delta de suprimentos
+}
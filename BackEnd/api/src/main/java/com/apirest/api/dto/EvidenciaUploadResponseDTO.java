@@ -0,0 +1,15 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EvidenciaUploadResponseDTO {
+    private String hash;   // SHA-256 do conteúdo (usar em VendaDTO.assinaturaHash)
+    private long tamanho;  // Bytes
+}
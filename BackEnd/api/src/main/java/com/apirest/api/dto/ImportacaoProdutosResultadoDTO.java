@@ -0,0 +1,33 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Resultado de POST /produtos/importacao: totais do arquivo e as linhas que ficaram de fora
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoProdutosResultadoDTO {
+    private long linhasLidas;
+    private int produtosImportados;
+    private int variacoesImportadas;
+    private int categoriasCriadas;
+    private int linhasComErro;
+    private boolean errosTruncados;   // true = mais erros do que os listados (produtos.importacao.maximo-erros)
+    private long tempoMs;
+    private List<ErroLinha> erros;    // Ordenados pela linha do arquivo
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErroLinha {
+        private int linha;             // Número da linha no arquivo enviado (começa em 1, cabeçalho do CSV incluso)
+        private String erro;
+    }
+}
@@ -0,0 +1,22 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Variação encontrada pelo leitor de código de barras / SKU (GET /produtos/leitura/{codigo})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeituraProdutoDTO {
+    private Long idVariacao;
+    private String nomeCompleto;
+    private String sku;
+    private String codigoBarras;
+    private BigDecimal precoVenda;
+    private Integer versaoPreco; // Versão do preço exibido (a venda confere com a atual)
+}
@@ -0,0 +1,25 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Situação do snapshot colunar em memória usado pelos relatórios de análise de vendas
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasAnaliseVendasDTO {
+    private int vendas;
+    private int itens;
+    private long memoriaBytes;               // Tamanho aproximado das colunas (capacidade alocada)
+    private LocalDate inicioJanela;          // Vendas anteriores não são carregadas
+    private LocalDateTime carregadoAte;      // data_venda da última venda carregada
+    private LocalDateTime ultimaAtualizacao;
+    private LocalDateTime ultimaReconstrucao;
+    private long alteracoesStatus;           // Cancelamentos/reativações aplicados no snapshot
+}
@@ -0,0 +1,24 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Situação do índice em memória de códigos de barras e SKUs (leitura no caixa)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasIndiceCodigosDTO {
+    private boolean pronto;            // false = construção inicial ainda em andamento (leituras vão ao banco)
+    private int variacoes;             // Variações ativas no índice
+    private long consultas;
+    private long naoEncontrados;
+    private long consultasAoBanco;     // Leituras feitas antes do índice ficar pronto
+    private long atualizacoes;         // Variações recarregadas por alteração no cadastro
+    private long tempoConstrucaoMs;    // Última construção completa
+    private LocalDateTime ultimaConstrucao;
+}
@@ -0,0 +1,24 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Situação do executor de verificação de PIN (BCrypt) e do cache de PINs conferidos
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasPinDTO {
+    private int threads;
+    private int threadsAtivas;
+    private int fila;             // Verificações aguardando thread
+    private int capacidadeFila;
+    private long verificacoes;    // BCrypt executados
+    private long rejeitadas;      // Recusadas por fila cheia ou tempo esgotado
+    private long acertosCache;    // PINs aceitos sem rehash
+    private int entradasCache;
+    private double esperaMediaMs; // Tempo médio na fila
+    private double hashMedioMs;   // Tempo médio do BCrypt
+}
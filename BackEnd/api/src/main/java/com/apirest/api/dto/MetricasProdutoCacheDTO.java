@@ -0,0 +1,23 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Situação do cache de snapshots de produto usado no caixa
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasProdutoCacheDTO {
+    private int entradas;
+    private int capacidade;
+    private long acertos;       // Variações servidas pelo cache
+    private long faltas;        // Variações lidas do banco
+    private double taxaAcerto;  // acertos / (acertos + faltas)
+    private long despejos;      // Removidas por falta de espaço (LRU)
+    private long invalidacoes;  // Removidas por alteração no cadastro
+    private long expirados;     // Removidas por idade (TTL)
+    private long versoesDivergentes; // Recarregadas no fechamento da venda por versão do preço diferente do banco
+}
@@ -0,0 +1,23 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Situação do cache de relatórios de caixa (/caixas/diario, /caixas/mensal, /caixas/relatorio)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasRelatorioCacheDTO {
+    private int entradas;
+    private int imutaveis;      // Períodos encerrados (sem expiração)
+    private int capacidade;
+    private long acertos;
+    private long faltas;
+    private double taxaAcerto;  // acertos / (acertos + faltas)
+    private long despejos;      // Removidos por falta de espaço (LRU)
+    private long expiracoes;    // Períodos em aberto que passaram do TTL
+    private long invalidacoes;  // Períodos em aberto removidos no fechamento de um caixa
+}
@@ -0,0 +1,21 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Situação das reservas de estoque dos carrinhos em andamento
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasReservasDTO {
+    private int carrinhosAtivos;
+    private int itensReservados;       // Itens com reserva nos carrinhos ativos
+    private long reservas;             // Pedidos de reserva atendidos (contadores desta instância da API)
+    private long recusas;              // Pedidos recusados por falta de saldo disponível
+    private long convertidas;          // Carrinhos fechados em venda
+    private long canceladas;
+    private long expiradas;
+}
@@ -0,0 +1,18 @@
+package com.apirest.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+// Pedido de pré-autorização do crediário (feito pelo terminal enquanto os itens ainda estão sendo passados)
+@Data
+public class PreAutorizacaoCrediarioDTO {
+    @NotNull(message = "idFuncionario é obrigatório")
+    private Long idFuncionario; // Operador do caixa
+
+    @NotNull(message = "idCliente é obrigatório")
+    private Long idCliente;
+
+    @NotBlank(message = "O PIN é obrigatório")
+    private String pin;
+}
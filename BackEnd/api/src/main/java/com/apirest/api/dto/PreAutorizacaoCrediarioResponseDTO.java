@@ -0,0 +1,19 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreAutorizacaoCrediarioResponseDTO {
+    private String token;               // Enviar em VendaDTO.tokenPreAutorizacao
+    private LocalDateTime expiraEm;
+    private BigDecimal limiteDisponivel; // Informativo: limite - dívida aberta no momento da pré-autorização
+}
@@ -0,0 +1,21 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Relatório do mês de todas as unidades de um grupo econômico (consolidado + uma linha por unidade)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelatorioGrupoDTO {
+    private Long grupoEconomicoId;
+    private boolean completo;                  // false = alguma unidade não terminou no prazo (consolidado parcial)
+    private long tempoMs;
+    private RelatorioPeriodoDTO consolidado;   // Soma das unidades que terminaram
+    private List<RelatorioUnidadeDTO> unidades;
+}
@@ -0,0 +1,22 @@
+package com.apirest.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Parte de uma unidade no relatório do grupo econômico
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RelatorioUnidadeDTO {
+    private Long idUnidade;
+    private String nomeUnidade;
+    private String status;                 // "OK", "TEMPO_ESGOTADO" ou "ERRO"
+    private String erro;
+    private Long tempoMs;                  // Duração da consulta da unidade
+    private RelatorioPeriodoDTO relatorio; // null quando a unidade não terminou a tempo
+}
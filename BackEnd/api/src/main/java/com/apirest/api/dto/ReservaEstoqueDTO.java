@@ -0,0 +1,20 @@
+package com.apirest.api.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+// Reserva de um item do carrinho (feita pelo terminal a cada item passado). A quantidade é o total desejado
+// do item no carrinho, não um acréscimo: reenviar o mesmo pedido não reserva duas vezes, e 0 libera o item.
+@Data
+public class ReservaEstoqueDTO {
+    @NotNull(message = "idFuncionario é obrigatório")
+    private Long idFuncionario; // Operador do caixa (define a unidade do estoque)
+
+    @NotNull(message = "idProduto é obrigatório")
+    private Long idProduto; // ID da variação
+
+    @NotNull(message = "A quantidade é obrigatória")
+    @Min(value = 0, message = "A quantidade não pode ser negativa")
+    private Integer quantidade;
+}
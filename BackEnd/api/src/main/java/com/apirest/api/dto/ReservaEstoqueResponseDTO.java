@@ -0,0 +1,20 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaEstoqueResponseDTO {
+    private String idCarrinho;         // Enviar em VendaDTO.idCarrinho no fechamento
+    private Long idProduto;
+    private int quantidadeReservada;   // Total do item neste carrinho
+    private int disponivel;            // Saldo da unidade menos todas as reservas ativas (inclusive esta)
+    private LocalDateTime expiraEm;    // Renovado a cada item reservado no carrinho
+}
@@ -0,0 +1,32 @@
+package com.apirest.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Saldo do caixa num instante, pelo livro do caixa (snapshot + lançamentos posteriores)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoCaixaDTO {
+    private Long idCaixa;
+    private LocalDateTime momento;
+    private long seq;               // Último lançamento incluído no saldo
+    private int lancamentosRelidos; // Lançamentos somados depois do snapshot
+
+    // Vendas por forma de pagamento (estornos já descontados)
+    private BigDecimal dinheiro;
+    private BigDecimal pix;
+    private BigDecimal debito;
+    private BigDecimal credito;
+    private BigDecimal crediario;
+
+    private BigDecimal sangrias;
+    private BigDecimal suprimentos;
+    private BigDecimal recebimentos; // Parcelas do crediário recebidas e entradas manuais (movimentações ENTRADA)
+}
@@ -1,11 +1,13 @@
 package com.apirest.api.dto;
 
 import com.apirest.api.entity.MetodoPagamento;
+import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -44,5 +46,23 @@ public class VendaDTO {
     private BigDecimal valorPagoCliente; // Valor pago fisico pelo cliente
 
     private String pin; // A senha numérica (Ex: "1234")
-    private String assinaturaBase64;
+    private String assinaturaBase64; // Legado: preferir enviar o arquivo em POST /evidencias e informar assinaturaHash
+    private String assinaturaHash;   // SHA-256 devolvido por POST /evidencias
+
+    // Idempotency-Key da venda no corpo: obrigatória em cada linha de POST /vendas/lote (reenvio do arquivo
+    // não duplica as vendas já gravadas). Em POST /vendas o cabeçalho Idempotency-Key tem precedência.
+    @Size(max = 100, message = "chaveIdempotencia não pode ter mais que 100 caracteres")
+    private String chaveIdempotencia;
+
+    // Horário em que o terminal fez a venda (horário de Brasília). Só é usado em POST /vendas/lote;
+    // em POST /vendas a venda é sempre registrada com o horário do servidor.
+    @JsonFormat(pattern = "dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime dataVenda;
+
+    // Token de POST /vendas/pre-autorizacao (crediário): dispensa PIN e checagem de atraso no fechamento
+    private String tokenPreAutorizacao;
+
+    // Carrinho de PUT /vendas/reservas/{idCarrinho}: as reservas dele viram a baixa desta venda
+    @Size(max = 64, message = "idCarrinho não pode ter mais que 64 caracteres")
+    private String idCarrinho;
 }
\ No newline at end of file
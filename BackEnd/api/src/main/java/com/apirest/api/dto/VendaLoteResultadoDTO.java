@@ -0,0 +1,24 @@
+package com.apirest.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Resultado de uma linha de POST /vendas/lote (uma linha NDJSON de resposta por linha recebida)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class VendaLoteResultadoDTO {
+    private int linha;             // Número da linha no arquivo enviado (começa em 1)
+    private String status;         // "OK" ou "ERRO"
+    private Long idVenda;
+    private BigDecimal valorTotal;
+    private String erro;
+    private Boolean repetida;      // true = chave já registrada: devolve a venda original, sem gravar de novo
+}
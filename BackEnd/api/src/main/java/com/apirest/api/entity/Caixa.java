@@ -65,6 +65,35 @@ public class Caixa {
     @Column(precision = 12, scale = 2)
     private BigDecimal quebraDeCaixa;      // Diferença entre o que foi conferido e o que o sistema calculou
 
+    // --- Totais correntes (atualizados só por UPDATE atômico no CaixaRepository, nunca pela entidade) ---
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaDinheiro = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaPix = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaDebito = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaCredito = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaCrediario = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaSangrias = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, precision = 12, scale = 2)
+    private BigDecimal sistemaSuprimentos = BigDecimal.ZERO;
+
     @Column(length = 500)
     private String observacoes;
 
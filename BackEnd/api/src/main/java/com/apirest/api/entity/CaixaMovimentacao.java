@@ -23,7 +23,7 @@ public class CaixaMovimentacao {
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
-    private TipoMovimentacao tipo; // SANGRIA, SUPRIMENTO
+    private TipoMovimentacao tipo; // SANGRIA, SUPRIMENTO, ENTRADA
 
     @Column(nullable = false, precision = 12, scale = 2)
     private BigDecimal valor;
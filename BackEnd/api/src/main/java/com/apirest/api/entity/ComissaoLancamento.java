@@ -0,0 +1,39 @@
+package com.apirest.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Lançamento do livro de comissões (negativo quando é estorno de venda cancelada)
+@Entity
+@Table(name = "comissao_lancamentos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ComissaoLancamento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comissao_lancamentos_seq")
+    @SequenceGenerator(name = "comissao_lancamentos_seq", sequenceName = "comissao_lancamentos_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "id_funcionario", nullable = false)
+    private Long idFuncionario;
+
+    @Column(name = "id_venda", nullable = false)
+    private Long idVenda;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal valor;
+
+    // Já somado em funcionarios.valor_comissao_acumulado
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean aplicado = false;
+
+    @Column(name = "data_lancamento")
+    private LocalDateTime dataLancamento;
+}
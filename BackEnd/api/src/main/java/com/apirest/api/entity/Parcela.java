@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class Parcela {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parcelas_seq")
+    @SequenceGenerator(name = "parcelas_seq", sequenceName = "parcelas_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -40,4 +40,9 @@ public class ProdutoVariacao {
 
     @Builder.Default
     private boolean ativo = true;
+
+    // Incrementada a cada alteração de preço/ativação (ver ProdutoSnapshotCache)
+    @Builder.Default
+    @Column(name = "versao_preco", nullable = false)
+    private Integer versaoPreco = 1;
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.apirest.api.entity;
+
+// Tipos de lançamento do livro do caixa (caixa_lancamentos)
+public enum TipoLancamentoCaixa {
+    VENDA,
+    ESTORNO, // Cancelamento de venda (valor negativo)
+    REATIVACAO,
+    SANGRIA,
+    SUPRIMENTO,
+    RECEBIMENTO_PARCELA,
+    ENTRADA // Entrada manual lançada pelo operador (movimentação ENTRADA)
+}
@@ -3,6 +3,7 @@ package com.apirest.api.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -10,8 +11,8 @@ import java.time.ZoneId;
 
 @Entity
 @Table(name = "venda", indexes = {
-        @Index(name = "idx_venda_data", columnList = "data_venda"),
-        @Index(name = "idx_venda_status", columnList = "status_venda"),
+        @Index(name = "idx_venda_data_id", columnList = "data_venda, id_venda"),
+        @Index(name = "idx_venda_status_data_id", columnList = "status_venda, data_venda, id_venda"),
         @Index(name = "idx_venda_caixa", columnList = "id_caixa"),
         @Index(name = "idx_venda_funcionario", columnList = "id_funcionario")
 })
@@ -21,7 +22,8 @@ import java.time.ZoneId;
 @Builder
 public class Venda {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_seq")
+    @SequenceGenerator(name = "venda_seq", sequenceName = "venda_seq", allocationSize = 50)
     @Column(name = "id_venda")
     private Long idVenda;
 
@@ -44,6 +46,7 @@ public class Venda {
 
     // Lista de itens da venda
     @OneToMany(mappedBy = "venda", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 100) // Listagem paginada: itens de várias vendas numa consulta só
     @NotEmpty(message = "A venda deve conter ao menos um item.")
     private List<VendaItem> itens;
 
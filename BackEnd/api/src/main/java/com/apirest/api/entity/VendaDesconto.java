@@ -12,7 +12,8 @@ import java.math.BigDecimal;
 @Builder
 public class VendaDesconto {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_descontos_seq")
+    @SequenceGenerator(name = "venda_descontos_seq", sequenceName = "venda_descontos_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -20,11 +20,18 @@ public class VendaEvidencia {
     @JoinColumn(name = "id_venda", nullable = false)
     private Venda venda;
 
-    @Column(name = "assinatura_base64", columnDefinition = "TEXT")
-    private String assinaturaBase64;
+    // Os arquivos ficam no ArmazenamentoBlobService; aqui só o SHA-256 (nome do arquivo) e o tamanho
+    @Column(name = "assinatura_hash", length = 64)
+    private String assinaturaHash;
 
-    @Column(name = "foto_comprovante_base64", columnDefinition = "TEXT")
-    private String fotoComprovanteBase64;
+    @Column(name = "assinatura_tamanho")
+    private Long assinaturaTamanho;
+
+    @Column(name = "foto_comprovante_hash", length = 64)
+    private String fotoComprovanteHash;
+
+    @Column(name = "foto_comprovante_tamanho")
+    private Long fotoComprovanteTamanho;
 
     @Column(name = "data_registro")
     private LocalDateTime dataRegistro;
@@ -0,0 +1,58 @@
+package com.apirest.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "venda_idempotencia")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+// Persistable: a chave é atribuída pelo terminal, então o save() precisa sempre fazer INSERT (persist).
+// Com merge, uma segunda gravação da mesma chave sobrescreveria a primeira em vez de violar a PK.
+public class VendaIdempotencia implements Persistable<String> {
+
+    // Valor do cabeçalho Idempotency-Key
+    @Id
+    @Column(length = 100)
+    private String chave;
+
+    // SHA-256 do corpo da requisição original
+    @Column(name = "hash_requisicao", nullable = false, length = 64)
+    private String hashRequisicao;
+
+    @Column(name = "id_venda", nullable = false)
+    private Long idVenda;
+
+    // Resposta original serializada em JSON
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String resposta;
+
+    @Column(name = "data_criacao")
+    private LocalDateTime dataCriacao;
+
+    // true até ser gravado ou carregado do banco
+    @Transient
+    @Builder.Default
+    private boolean novo = true;
+
+    @Override
+    public String getId() {
+        return chave;
+    }
+
+    @Override
+    public boolean isNew() {
+        return novo;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarPersistido() {
+        novo = false;
+    }
+}
@@ -7,7 +7,9 @@ import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "venda_item")
+@Table(name = "venda_item", indexes = {
+        @Index(name = "idx_venda_item_venda", columnList = "id_venda")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,7 +18,8 @@ public class VendaItem {
 
     // Primary Key
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_item_seq")
+    @SequenceGenerator(name = "venda_item_seq", sequenceName = "venda_item_seq", allocationSize = 50)
     @Column(name = "id_venda_item")
     private Long idVendaItem;
 
@@ -49,4 +52,8 @@ public class VendaItem {
     @Digits(integer = 10, fraction = 2)
     @Column(nullable = false, precision = 12, scale = 2)
     private BigDecimal subtotal;
+
+    // Versão do preço da variação usada nesta venda
+    @Column(name = "versao_preco")
+    private Integer versaoPreco;
 }
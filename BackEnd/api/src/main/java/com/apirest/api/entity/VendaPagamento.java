@@ -13,7 +13,8 @@ import java.math.BigDecimal;
 public class VendaPagamento {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_pagamentos_seq")
+    @SequenceGenerator(name = "venda_pagamentos_seq", sequenceName = "venda_pagamentos_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
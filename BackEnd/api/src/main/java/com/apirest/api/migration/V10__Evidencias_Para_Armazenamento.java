@@ -0,0 +1,121 @@
+package com.apirest.api.migration;
+
+import com.apirest.api.service.ArmazenamentoBlobService;
+import com.apirest.api.service.ArmazenamentoBlobService.BlobSalvo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// Copia as assinaturas/comprovantes base64 de venda_evidencias para o armazenamento de arquivos.
+// É um bean Spring (o Spring Boot entrega os JavaMigration do contexto ao Flyway) para usar o ArmazenamentoBlobService.
+// Roda fora de transação única: cada lote é commitado, então uma interrupção no meio não perde o que já foi copiado
+// e a nova execução continua das linhas que ainda têm base64 (os arquivos são deduplicados pelo hash).
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class V10__Evidencias_Para_Armazenamento extends BaseJavaMigration {
+
+    private static final int TAMANHO_LOTE = 200;
+
+    private static final String SQL_LOTE = """
+            SELECT id, assinatura_base64, foto_comprovante_base64
+            FROM venda_evidencias
+            WHERE id > ? AND (assinatura_base64 IS NOT NULL OR foto_comprovante_base64 IS NOT NULL)
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String SQL_ATUALIZAR = """
+            UPDATE venda_evidencias
+            SET assinatura_hash = COALESCE(?, assinatura_hash),
+                assinatura_tamanho = COALESCE(?, assinatura_tamanho),
+                foto_comprovante_hash = COALESCE(?, foto_comprovante_hash),
+                foto_comprovante_tamanho = COALESCE(?, foto_comprovante_tamanho),
+                assinatura_base64 = NULL,
+                foto_comprovante_base64 = NULL
+            WHERE id = ?
+            """;
+
+    private final ArmazenamentoBlobService armazenamento;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection conexao = context.getConnection();
+        boolean autoCommitOriginal = conexao.getAutoCommit();
+        conexao.setAutoCommit(false);
+
+        long ultimoId = 0;
+        int total = 0;
+        try (PreparedStatement lote = conexao.prepareStatement(SQL_LOTE);
+             PreparedStatement atualizar = conexao.prepareStatement(SQL_ATUALIZAR)) {
+            while (true) {
+                lote.setLong(1, ultimoId);
+                lote.setInt(2, TAMANHO_LOTE);
+
+                int linhas = 0;
+                try (ResultSet rs = lote.executeQuery()) {
+                    while (rs.next()) {
+                        ultimoId = rs.getLong("id");
+                        BlobSalvo assinatura = salvar(rs.getString("assinatura_base64"), ultimoId);
+                        BlobSalvo foto = salvar(rs.getString("foto_comprovante_base64"), ultimoId);
+
+                        preencher(atualizar, 1, assinatura);
+                        preencher(atualizar, 3, foto);
+                        atualizar.setLong(5, ultimoId);
+                        atualizar.addBatch();
+                        linhas++;
+                    }
+                }
+                if (linhas == 0) break;
+
+                atualizar.executeBatch();
+                conexao.commit();
+                total += linhas;
+                log.info("Evidências movidas para o armazenamento: {} (até id {})", total, ultimoId);
+            }
+        } catch (Exception e) {
+            conexao.rollback();
+            throw e;
+        } finally {
+            conexao.setAutoCommit(autoCommitOriginal);
+        }
+    }
+
+    // A coluna base64 só é apagada depois que o conteúdo está no armazenamento. Base64 que não decodifica
+    // é guardado como está (o texto em UTF-8), para não perder a evidência quando a V11 remover as colunas.
+    private BlobSalvo salvar(String base64, long id) {
+        if (base64 == null || base64.isBlank()) return null;
+        try {
+            return armazenamento.salvarBase64(base64);
+        } catch (RuntimeException e) {
+            BlobSalvo bruto = armazenamento.salvar(base64.getBytes(StandardCharsets.UTF_8));
+            log.warn("Evidência {} com base64 inválido ({}): texto original guardado sem decodificar, hash {}",
+                    id, e.getMessage(), bruto.hash());
+            return bruto;
+        }
+    }
+
+    private void preencher(PreparedStatement ps, int indice, BlobSalvo blob) throws SQLException {
+        if (blob == null) {
+            ps.setNull(indice, Types.VARCHAR);
+            ps.setNull(indice + 1, Types.BIGINT);
+        } else {
+            ps.setString(indice, blob.hash());
+            ps.setLong(indice + 1, blob.tamanho());
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.apirest.api.repository;
 import com.apirest.api.entity.Caixa;
 import com.apirest.api.entity.Funcionario;
 import com.apirest.api.entity.StatusCaixa;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,16 +17,60 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CaixaRepository extends JpaRepository<Caixa, Long> {
+public interface CaixaRepository extends JpaRepository<Caixa, Long>, CaixaRepositoryCustom {
 
     // Verifica se o funcionário já possui um caixa aberto
     boolean existsByFuncionarioAndStatus(Funcionario funcionario, StatusCaixa status);
 
+    // Existe caixa aberto desde antes da data? (período com caixa ainda por fechar não pode ir para o cache definitivo)
+    boolean existsByStatusAndDataAberturaLessThanEqual(StatusCaixa status, LocalDateTime data);
+
     // Busca o caixa aberto de um funcionário específico
     Optional<Caixa> findByFuncionarioAndStatus(Funcionario funcionario, StatusCaixa status);
 
-    // Busca caixas com filtros opcionais
-    @Query("SELECT DISTINCT c FROM Caixa c LEFT JOIN FETCH c.vendas WHERE " +
+    // Trava a linha do caixa para o fechamento (vendas concorrentes aguardam e depois encontram o caixa fechado)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Caixa c WHERE c.idCaixa = :idCaixa")
+    Optional<Caixa> findByIdParaFechamento(@Param("idCaixa") Long idCaixa);
+
+    // Página de caixas com filtros opcionais depois da posição (data de abertura, id), mais recentes primeiro
+    @Query("SELECT c FROM Caixa c JOIN FETCH c.funcionario WHERE " +
+            "(:idFuncionario IS NULL OR c.funcionario.idFuncionario = :idFuncionario) AND " +
+            "(:status IS NULL OR c.status = :status) AND " +
+            "(c.dataAbertura BETWEEN :dataInicio AND :dataFim) AND " +
+            "(c.dataAbertura, c.idCaixa) < (:data, :id) " +
+            "ORDER BY c.dataAbertura DESC, c.idCaixa DESC")
+    List<Caixa> buscarPaginaApos(
+            @Param("idFuncionario") Long idFuncionario,
+            @Param("status") StatusCaixa status,
+            @Param("dataInicio") LocalDateTime dataInicio,
+            @Param("dataFim") LocalDateTime dataFim,
+            @Param("data") LocalDateTime data,
+            @Param("id") Long id,
+            Limit limite
+    );
+
+    // Resumo dos mesmos filtros somado no banco (independe da página)
+    @Query("SELECT COUNT(c) AS quantidade, " +
+            "SUM(c.conferidoDinheiro) AS conferidoDinheiro, SUM(c.conferidoPix) AS conferidoPix, " +
+            "SUM(c.conferidoDebito) AS conferidoDebito, SUM(c.conferidoCredito) AS conferidoCredito, " +
+            "SUM(c.conferidoCrediario) AS conferidoCrediario, SUM(c.quebraDeCaixa) AS quebra, " +
+            "SUM(c.sistemaDinheiro) AS sistemaDinheiro, SUM(c.sistemaPix) AS sistemaPix, " +
+            "SUM(c.sistemaDebito) AS sistemaDebito, SUM(c.sistemaCredito) AS sistemaCredito, " +
+            "SUM(c.sistemaCrediario) AS sistemaCrediario " +
+            "FROM Caixa c WHERE " +
+            "(:idFuncionario IS NULL OR c.funcionario.idFuncionario = :idFuncionario) AND " +
+            "(:status IS NULL OR c.status = :status) AND " +
+            "(c.dataAbertura BETWEEN :dataInicio AND :dataFim)")
+    ResumoCaixas resumirPorFiltros(
+            @Param("idFuncionario") Long idFuncionario,
+            @Param("status") StatusCaixa status,
+            @Param("dataInicio") LocalDateTime dataInicio,
+            @Param("dataFim") LocalDateTime dataFim
+    );
+
+    // Busca caixas com filtros opcionais (os totais já estão nas colunas do caixa, sem carregar as vendas)
+    @Query("SELECT c FROM Caixa c WHERE " +
             "(:idFuncionario IS NULL OR c.funcionario.idFuncionario = :idFuncionario) AND " +
             "(:status IS NULL OR c.status = :status) AND " +
             "(c.dataAbertura BETWEEN :dataInicio AND :dataFim)")
@@ -34,21 +81,54 @@ public interface CaixaRepository extends JpaRepository<Caixa, Long> {
             @Param("dataFim") LocalDateTime dataFim
     );
 
-    // Calcula o total de vendas em um caixa específico
-    @Query("SELECT DISTINCT c FROM Caixa c LEFT JOIN FETCH c.vendas WHERE c.funcionario.idFuncionario = :idFuncionario " +
-            "AND c.status = 'FECHADO' " +
+    // Resumo dos caixas fechados no período somado no banco (uma linha, sem carregar caixas nem vendas).
+    // idFuncionario nulo = todos os funcionários.
+    @Query("SELECT COUNT(c) AS quantidade, " +
+            "SUM(c.conferidoDinheiro) AS conferidoDinheiro, SUM(c.conferidoPix) AS conferidoPix, " +
+            "SUM(c.conferidoDebito) AS conferidoDebito, SUM(c.conferidoCredito) AS conferidoCredito, " +
+            "SUM(c.conferidoCrediario) AS conferidoCrediario, SUM(c.quebraDeCaixa) AS quebra, " +
+            "SUM(c.sistemaDinheiro) AS sistemaDinheiro, SUM(c.sistemaPix) AS sistemaPix, " +
+            "SUM(c.sistemaDebito) AS sistemaDebito, SUM(c.sistemaCredito) AS sistemaCredito, " +
+            "SUM(c.sistemaCrediario) AS sistemaCrediario " +
+            "FROM Caixa c WHERE c.status = 'FECHADO' " +
+            "AND (:idFuncionario IS NULL OR c.funcionario.idFuncionario = :idFuncionario) " +
             "AND c.dataFechamento BETWEEN :inicio AND :fim")
-    List<Caixa> findCaixasFechadosPorPeriodo(
+    ResumoCaixas resumirCaixasFechadosPorPeriodo(
             @Param("idFuncionario") Long idFuncionario,
             @Param("inicio") LocalDateTime inicio,
             @Param("fim") LocalDateTime fim
     );
 
-    // Calcula o total de vendas em todos os caixas fechados em um período
-    @Query("SELECT DISTINCT c FROM Caixa c LEFT JOIN FETCH c.vendas WHERE c.status = 'FECHADO' " +
+    // Mesmo resumo, dos caixas abertos por funcionários de uma unidade
+    @Query("SELECT COUNT(c) AS quantidade, " +
+            "SUM(c.conferidoDinheiro) AS conferidoDinheiro, SUM(c.conferidoPix) AS conferidoPix, " +
+            "SUM(c.conferidoDebito) AS conferidoDebito, SUM(c.conferidoCredito) AS conferidoCredito, " +
+            "SUM(c.conferidoCrediario) AS conferidoCrediario, SUM(c.quebraDeCaixa) AS quebra, " +
+            "SUM(c.sistemaDinheiro) AS sistemaDinheiro, SUM(c.sistemaPix) AS sistemaPix, " +
+            "SUM(c.sistemaDebito) AS sistemaDebito, SUM(c.sistemaCredito) AS sistemaCredito, " +
+            "SUM(c.sistemaCrediario) AS sistemaCrediario " +
+            "FROM Caixa c WHERE c.status = 'FECHADO' " +
+            "AND c.funcionario.unidade.idUnidade = :idUnidade " +
             "AND c.dataFechamento BETWEEN :inicio AND :fim")
-    List<Caixa> findAllCaixasFechadosPorPeriodo(
+    ResumoCaixas resumirCaixasFechadosDaUnidade(
+            @Param("idUnidade") Long idUnidade,
             @Param("inicio") LocalDateTime inicio,
             @Param("fim") LocalDateTime fim
     );
-}
\ No newline at end of file
+
+    // Projeção do resumo (SUM de nenhuma linha vem nulo)
+    interface ResumoCaixas {
+        Long getQuantidade();
+        BigDecimal getConferidoDinheiro();
+        BigDecimal getConferidoPix();
+        BigDecimal getConferidoDebito();
+        BigDecimal getConferidoCredito();
+        BigDecimal getConferidoCrediario();
+        BigDecimal getQuebra();
+        BigDecimal getSistemaDinheiro();
+        BigDecimal getSistemaPix();
+        BigDecimal getSistemaDebito();
+        BigDecimal getSistemaCredito();
+        BigDecimal getSistemaCrediario();
+    }
+}
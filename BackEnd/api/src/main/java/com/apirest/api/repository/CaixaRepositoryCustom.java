@@ -0,0 +1,20 @@
+package com.apirest.api.repository;
+
+import com.apirest.api.entity.MetodoPagamento;
+import com.apirest.api.entity.TipoLancamentoCaixa;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Totais correntes do caixa (sem ler-alterar-gravar na entidade)
+public interface CaixaRepositoryCustom {
+
+    // Grava o lançamento no livro do caixa e soma o valor (negativo no estorno) no total correspondente,
+    // numa instrução só. Só altera caixa ABERTO: retorna o número do lançamento, ou null se o caixa já foi fechado.
+    Long lancar(Long idCaixa, TipoLancamentoCaixa tipo, MetodoPagamento metodo, BigDecimal valor, Long idReferencia);
+
+    // Caixas abertos ou fechados desde 'desde' cujos totais correntes não batem com as vendas e movimentações.
+    // Retorna os IDs dos caixas divergentes.
+    List<Long> buscarTotaisDivergentes(LocalDateTime desde);
+}
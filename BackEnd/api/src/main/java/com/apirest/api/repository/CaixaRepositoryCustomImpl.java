@@ -0,0 +1,102 @@
+package com.apirest.api.repository;
+
+import com.apirest.api.entity.MetodoPagamento;
+import com.apirest.api.entity.TipoLancamentoCaixa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CaixaRepositoryCustomImpl implements CaixaRepositoryCustom {
+
+    // Uma instrução só: soma na coluna do lançamento, numera pelo contador do caixa e insere no livro.
+    // "status = 'ABERTO'" impede alterar caixa fechado (o fechamento trava a linha, então uma venda concorrente
+    // espera e depois não encontra o caixa aberto). A trava da linha também garante números sem buraco, e a hora
+    // é lida depois dela, então data_hora acompanha a ordem dos números.
+    private static final String SQL_LANCAR = """
+            WITH p AS (
+                SELECT CAST(? AS varchar) AS coluna, CAST(? AS numeric) AS valor
+            ), caixa AS (
+                UPDATE caixas c SET
+                    sistema_dinheiro = sistema_dinheiro + CASE WHEN p.coluna = 'DINHEIRO' THEN p.valor ELSE 0 END,
+                    sistema_pix = sistema_pix + CASE WHEN p.coluna = 'PIX' THEN p.valor ELSE 0 END,
+                    sistema_debito = sistema_debito + CASE WHEN p.coluna = 'DEBITO' THEN p.valor ELSE 0 END,
+                    sistema_credito = sistema_credito + CASE WHEN p.coluna = 'CREDITO' THEN p.valor ELSE 0 END,
+                    sistema_crediario = sistema_crediario + CASE WHEN p.coluna = 'CREDIARIO' THEN p.valor ELSE 0 END,
+                    sistema_sangrias = sistema_sangrias + CASE WHEN p.coluna = 'SANGRIA' THEN p.valor ELSE 0 END,
+                    sistema_suprimentos = sistema_suprimentos + CASE WHEN p.coluna = 'SUPRIMENTO' THEN p.valor ELSE 0 END,
+                    livro_seq = livro_seq + 1
+                FROM p
+                WHERE c.id_caixa = ? AND c.status = 'ABERTO'
+                RETURNING c.id_caixa, c.livro_seq
+            )
+            INSERT INTO caixa_lancamentos (id_caixa, seq, tipo, metodo_pagamento, valor, id_referencia, data_hora)
+            SELECT caixa.id_caixa, caixa.livro_seq, ?, ?, p.valor, ?,
+                   CAST(clock_timestamp() AT TIME ZONE 'America/Sao_Paulo' AS timestamp)
+            FROM caixa, p
+            RETURNING seq
+            """;
+
+    // Recalcula os totais a partir das vendas realizadas e das movimentações e compara com as colunas
+    private static final String SQL_DIVERGENTES = """
+            WITH alvo AS (
+                SELECT * FROM caixas
+                WHERE status = 'ABERTO' OR data_fechamento >= ?
+            ), vendas AS (
+                SELECT v.id_caixa,
+                       COALESCE(SUM(v.valor_total) FILTER (WHERE v.metodo_pagamento = 'DINHEIRO'), 0) AS dinheiro,
+                       COALESCE(SUM(v.valor_total) FILTER (WHERE v.metodo_pagamento = 'PIX'), 0) AS pix,
+                       COALESCE(SUM(v.valor_total) FILTER (WHERE v.metodo_pagamento = 'DEBITO'), 0) AS debito,
+                       COALESCE(SUM(v.valor_total) FILTER (WHERE v.metodo_pagamento = 'CREDITO'), 0) AS credito,
+                       COALESCE(SUM(v.valor_total) FILTER (WHERE v.metodo_pagamento = 'CREDIARIO'), 0) AS crediario
+                FROM venda v JOIN alvo a ON a.id_caixa = v.id_caixa
+                WHERE v.status_venda = 'REALIZADA'
+                GROUP BY v.id_caixa
+            ), movimentacoes AS (
+                SELECT m.id_caixa,
+                       COALESCE(SUM(m.valor) FILTER (WHERE m.tipo = 'SANGRIA'), 0) AS sangrias,
+                       COALESCE(SUM(m.valor) FILTER (WHERE m.tipo = 'SUPRIMENTO'), 0) AS suprimentos
+                FROM caixa_movimentacoes m JOIN alvo a ON a.id_caixa = m.id_caixa
+                GROUP BY m.id_caixa
+            )
+            SELECT a.id_caixa FROM alvo a
+            LEFT JOIN vendas v ON v.id_caixa = a.id_caixa
+            LEFT JOIN movimentacoes m ON m.id_caixa = a.id_caixa
+            WHERE a.sistema_dinheiro <> COALESCE(v.dinheiro, 0)
+               OR a.sistema_pix <> COALESCE(v.pix, 0)
+               OR a.sistema_debito <> COALESCE(v.debito, 0)
+               OR a.sistema_credito <> COALESCE(v.credito, 0)
+               OR a.sistema_crediario <> COALESCE(v.crediario, 0)
+               OR a.sistema_sangrias <> COALESCE(m.sangrias, 0)
+               OR a.sistema_suprimentos <> COALESCE(m.suprimentos, 0)
+            ORDER BY a.id_caixa
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Long lancar(Long idCaixa, TipoLancamentoCaixa tipo, MetodoPagamento metodo, BigDecimal valor, Long idReferencia) {
+        List<Long> seq = jdbcTemplate.queryForList(SQL_LANCAR, Long.class,
+                coluna(tipo, metodo), valor, idCaixa,
+                tipo.name(), metodo != null ? metodo.name() : null, idReferencia);
+        return seq.isEmpty() ? null : seq.get(0);
+    }
+
+    @Override
+    public List<Long> buscarTotaisDivergentes(LocalDateTime desde) {
+        return jdbcTemplate.queryForList(SQL_DIVERGENTES, Long.class, Timestamp.valueOf(desde));
+    }
+
+    // Total do caixa afetado pelo lançamento (recebimento de parcela e entrada manual não têm total corrente, ficam só no livro)
+    private String coluna(TipoLancamentoCaixa tipo, MetodoPagamento metodo) {
+        return switch (tipo) {
+            case VENDA, ESTORNO, REATIVACAO -> metodo.name();
+            case SANGRIA, SUPRIMENTO -> tipo.name();
+            case RECEBIMENTO_PARCELA, ENTRADA -> "";
+        };
+    }
+}
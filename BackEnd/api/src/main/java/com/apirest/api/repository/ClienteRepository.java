@@ -1,6 +1,7 @@
 package com.apirest.api.repository;
 
 import com.apirest.api.entity.Cliente;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,7 +13,9 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     boolean existsByEmail(String email);
     boolean existsByCpf(String cpf);
     boolean existsByLogin(String login);
-    List<Cliente> findAllByAtivoTrue();
+
+    // Página de clientes ativos depois do ID informado (índice parcial idx_clientes_ativos)
+    List<Cliente> findByAtivoTrueAndIdClienteGreaterThanOrderByIdClienteAsc(Long idCliente, Limit limite);
 
     Optional<Cliente> findByCpf(String cpf);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.apirest.api.repository;
+
+import com.apirest.api.entity.ComissaoLancamento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ComissaoLancamentoRepository extends JpaRepository<ComissaoLancamento, Long> {
+}
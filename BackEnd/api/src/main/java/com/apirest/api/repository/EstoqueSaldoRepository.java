@@ -5,11 +5,18 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EstoqueSaldoRepository extends JpaRepository<EstoqueSaldo, Long> {
+public interface EstoqueSaldoRepository extends JpaRepository<EstoqueSaldo, Long>, EstoqueSaldoRepositoryCustom {
 
     @Query("SELECT e FROM EstoqueSaldo e WHERE e.unidade.idUnidade = :unidadeId AND e.produtoVariacao.id = :variacaoId")
     Optional<EstoqueSaldo> findByUnidadeIdAndProdutoVariacaoId(@Param("unidadeId") Long unidadeId, @Param("variacaoId") Long variacaoId);
-}
\ No newline at end of file
+
+    // Busca de uma vez os saldos de vários produtos na unidade (carrinho inteiro em uma consulta)
+    @Query("SELECT e FROM EstoqueSaldo e JOIN FETCH e.produtoVariacao v WHERE e.unidade.idUnidade = :unidadeId AND v.id IN :variacaoIds")
+    List<EstoqueSaldo> findByUnidadeIdAndProdutoVariacaoIdIn(@Param("unidadeId") Long unidadeId, @Param("variacaoIds") Collection<Long> variacaoIds);
+}
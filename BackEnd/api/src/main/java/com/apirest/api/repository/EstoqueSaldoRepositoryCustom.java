@@ -0,0 +1,25 @@
+package com.apirest.api.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Operações atômicas de estoque (sem ler-alterar-gravar na entidade)
+public interface EstoqueSaldoRepositoryCustom {
+
+    // Baixa as quantidades (ID da variação -> quantidade) somente onde há saldo suficiente.
+    // Retorna os IDs das variações que NÃO foram baixadas (sem saldo ou sem cadastro na unidade).
+    List<Long> baixarEstoque(Long idUnidade, Map<Long, Integer> quantidades);
+
+    // Igual à anterior, mas o que está reservado (quantidade_reservada) não pode ser vendido, exceto as reservas do
+    // próprio carrinho (ID da variação -> reservado), que são descontadas de quantidade_reservada no mesmo UPDATE.
+    // Variações só com reserva própria (fora da venda) apenas liberam a reserva.
+    List<Long> baixarEstoque(Long idUnidade, Map<Long, Integer> quantidades, Map<Long, Integer> reservasProprias);
+
+    // Disponível para venda (saldo menos o reservado) das variações na unidade; as sem cadastro ficam de fora
+    Map<Long, Integer> disponiveis(Long idUnidade, Collection<Long> idsVariacoes);
+
+    // Devolve as quantidades ao estoque da unidade.
+    // Retorna os IDs das variações sem cadastro de estoque na unidade.
+    List<Long> estornarEstoque(Long idUnidade, Map<Long, Integer> quantidades);
+}
@@ -0,0 +1,99 @@
+package com.apirest.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RequiredArgsConstructor
+public class EstoqueSaldoRepositoryCustomImpl implements EstoqueSaldoRepositoryCustom {
+
+    // A condição garante que duas vendas simultâneas nunca deixem o saldo negativo nem vendam o que outros
+    // carrinhos reservaram: depois de liberar as reservas próprias, o saldo livre tem de cobrir a quantidade.
+    // Quantidade 0 (só liberação de reserva) sempre passa.
+    private static final String SQL_BAIXA = """
+            UPDATE estoque_saldos
+            SET quantidade_atual = quantidade_atual - ?,
+                quantidade_reservada = GREATEST(quantidade_reservada - ?, 0)
+            WHERE unidade_id = ? AND produto_variacao_id = ?
+              AND (? = 0 OR quantidade_atual - GREATEST(quantidade_reservada - ?, 0) >= ?)
+            """;
+
+    private static final String SQL_DISPONIVEIS = """
+            SELECT produto_variacao_id, quantidade_atual - quantidade_reservada AS disponivel
+            FROM estoque_saldos
+            WHERE unidade_id = ? AND produto_variacao_id = ANY(?)
+            """;
+
+    private static final String SQL_ESTORNO = "UPDATE estoque_saldos SET quantidade_atual = quantidade_atual + ? " +
+            "WHERE unidade_id = ? AND produto_variacao_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> baixarEstoque(Long idUnidade, Map<Long, Integer> quantidades) {
+        return baixarEstoque(idUnidade, quantidades, Map.of());
+    }
+
+    @Override
+    public List<Long> baixarEstoque(Long idUnidade, Map<Long, Integer> quantidades, Map<Long, Integer> reservasProprias) {
+        Map<Long, Integer> linhas = new HashMap<>(quantidades);
+        reservasProprias.keySet().forEach(id -> linhas.putIfAbsent(id, 0));
+        List<Long> ids = ordenar(linhas);
+        if (ids.isEmpty()) return ids;
+        int[] afetadas = jdbcTemplate.batchUpdate(SQL_BAIXA, ids, ids.size(), (ps, idVariacao) -> {
+            int qtd = linhas.get(idVariacao);
+            int propria = reservasProprias.getOrDefault(idVariacao, 0);
+            ps.setInt(1, qtd);
+            ps.setInt(2, propria);
+            ps.setLong(3, idUnidade);
+            ps.setLong(4, idVariacao);
+            ps.setInt(5, qtd);
+            ps.setInt(6, propria);
+            ps.setInt(7, qtd);
+        })[0];
+        return naoAfetadas(ids, afetadas);
+    }
+
+    @Override
+    public Map<Long, Integer> disponiveis(Long idUnidade, Collection<Long> idsVariacoes) {
+        Map<Long, Integer> disponiveis = new HashMap<>();
+        jdbcTemplate.query(SQL_DISPONIVEIS, ps -> {
+            ps.setLong(1, idUnidade);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", idsVariacoes.toArray()));
+        }, rs -> {
+            disponiveis.put(rs.getLong("produto_variacao_id"), rs.getInt("disponivel"));
+        });
+        return disponiveis;
+    }
+
+    @Override
+    public List<Long> estornarEstoque(Long idUnidade, Map<Long, Integer> quantidades) {
+        List<Long> ids = ordenar(quantidades);
+        if (ids.isEmpty()) return ids;
+        int[] afetadas = jdbcTemplate.batchUpdate(SQL_ESTORNO, ids, ids.size(), (ps, idVariacao) -> {
+            ps.setInt(1, quantidades.get(idVariacao));
+            ps.setLong(2, idUnidade);
+            ps.setLong(3, idVariacao);
+        })[0];
+        return naoAfetadas(ids, afetadas);
+    }
+
+    // Sempre atualiza as linhas na mesma ordem (por ID) para dois carrinhos concorrentes não gerarem deadlock
+    private List<Long> ordenar(Map<Long, Integer> quantidades) {
+        return new ArrayList<>(new TreeMap<>(quantidades).keySet());
+    }
+
+    private List<Long> naoAfetadas(List<Long> ids, int[] afetadas) {
+        List<Long> falhas = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (afetadas[i] == 0) falhas.add(ids.get(i));
+        }
+        return falhas;
+    }
+}
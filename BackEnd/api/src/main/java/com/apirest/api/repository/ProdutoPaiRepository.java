@@ -1,9 +1,20 @@
 package com.apirest.api.repository;
 
 import com.apirest.api.entity.ProdutoPai;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProdutoPaiRepository extends JpaRepository<ProdutoPai, Long> {
-}
\ No newline at end of file
+
+    // Página do catálogo: só ativos, depois do cursor (id crescente), com a categoria na mesma consulta
+    @Query("SELECT p FROM ProdutoPai p JOIN FETCH p.categoria " +
+            "WHERE p.ativo = true AND p.id > :id " +
+            "ORDER BY p.id")
+    List<ProdutoPai> buscarPaginaAtivosApos(@Param("id") Long id, Limit limite);
+}
@@ -2,12 +2,20 @@ package com.apirest.api.repository;
 
 import com.apirest.api.entity.ProdutoVariacao;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProdutoVariacaoRepository extends JpaRepository<ProdutoVariacao, Long> {
     Optional<ProdutoVariacao> findByCodigoBarras(String ean);
     Optional<ProdutoVariacao> findBySku(String sku);
+
+    // Variações ativas de vários produtos numa consulta (página do catálogo)
+    @Query("SELECT v FROM ProdutoVariacao v WHERE v.produtoPai.id IN :idsProdutos AND v.ativo = true ORDER BY v.produtoPai.id, v.id")
+    List<ProdutoVariacao> buscarAtivasDosProdutos(@Param("idsProdutos") Collection<Long> idsProdutos);
 }
\ No newline at end of file
@@ -4,8 +4,11 @@ import com.apirest.api.entity.Unidade;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UnidadeRepository extends JpaRepository<Unidade, Long> {
     long countByGrupoEconomicoId(Long grupoEconomicoId);
+    List<Unidade> findByGrupoEconomicoIdOrderByIdUnidade(Long grupoEconomicoId);
     boolean existsByDocumentoNumero(String documento);
 }
\ No newline at end of file
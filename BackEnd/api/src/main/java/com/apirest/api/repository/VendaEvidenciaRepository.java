@@ -4,6 +4,10 @@ import com.apirest.api.entity.VendaEvidencia;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface VendaEvidenciaRepository extends JpaRepository<VendaEvidencia, Long> {
+
+    Optional<VendaEvidencia> findByVendaIdVenda(Long idVenda);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.apirest.api.repository;
+
+import com.apirest.api.entity.VendaIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface VendaIdempotenciaRepository extends JpaRepository<VendaIdempotencia, String> {
+
+    // Remove chaves mais antigas que o limite (terminais não reenviam depois disso)
+    @Modifying
+    @Query("DELETE FROM VendaIdempotencia v WHERE v.dataCriacao < :limite")
+    int apagarAnterioresA(@Param("limite") LocalDateTime limite);
+}
@@ -2,13 +2,28 @@ package com.apirest.api.repository;
 
 import com.apirest.api.entity.StatusVenda;
 import com.apirest.api.entity.Venda;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface VendaRepository extends JpaRepository<Venda, Long> {
-    List<Venda> findByStatusVenda(StatusVenda status);
-}
 
+    // Página de vendas depois da posição (data, id), mais recentes primeiro (índice idx_venda_data_id)
+    @Query("SELECT v FROM Venda v JOIN FETCH v.funcionario JOIN FETCH v.cliente " +
+            "WHERE (v.dataVenda, v.idVenda) < (:data, :id) " +
+            "ORDER BY v.dataVenda DESC, v.idVenda DESC")
+    List<Venda> buscarPaginaApos(@Param("data") LocalDateTime data, @Param("id") Long id, Limit limite);
+
+    // Mesma página filtrada por status (índice idx_venda_status_data_id)
+    @Query("SELECT v FROM Venda v JOIN FETCH v.funcionario JOIN FETCH v.cliente " +
+            "WHERE v.statusVenda = :status AND (v.dataVenda, v.idVenda) < (:data, :id) " +
+            "ORDER BY v.dataVenda DESC, v.idVenda DESC")
+    List<Venda> buscarPaginaAposPorStatus(@Param("status") StatusVenda status, @Param("data") LocalDateTime data,
+                                          @Param("id") Long id, Limit limite);
+}
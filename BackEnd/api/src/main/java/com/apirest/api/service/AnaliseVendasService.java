@@ -0,0 +1,782 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.AnaliseDescontoDTO;
+import com.apirest.api.dto.AnaliseGrupoDTO;
+import com.apirest.api.dto.AnaliseTicketDTO;
+import com.apirest.api.dto.MetricasAnaliseVendasDTO;
+import com.apirest.api.entity.Categoria;
+import com.apirest.api.entity.Funcionario;
+import com.apirest.api.entity.StatusVenda;
+import com.apirest.api.entity.Unidade;
+import com.apirest.api.entity.Venda;
+import com.apirest.api.repository.CategoriaRepository;
+import com.apirest.api.repository.FuncionarioRepository;
+import com.apirest.api.repository.UnidadeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Motor de análise de vendas em memória (GET /relatorios/...): as consultas analíticas não tocam venda/venda_item.
+// As vendas ficam num snapshot colunar (arrays primitivos: ids, centavos, segundos), ordenado por (data_venda, id_venda).
+// 1. Um job carrega só as vendas novas, em lotes, pela posição (data_venda, id_venda) da última carregada.
+//    Só entram vendas com mais de alguns segundos (margem): a essa altura a transação delas já terminou.
+// 2. Cancelamentos e reativações alteram o status da linha depois do commit.
+// 3. Vendas gravadas com data anterior à posição (lote offline com o horário original do terminal) não seriam
+//    lidas pela carga incremental: depois do commit o ID entra numa fila e a próxima atualização lê essas vendas
+//    pelo ID e as intercala no snapshot (cópia nova das colunas, na ordem de data).
+// 4. Uma reconstrução noturna recarrega a janela inteira (descarta o que saiu da janela e corrige o que
+//    outra instância da API tenha alterado, inclusive vendas atrasadas gravadas por ela).
+@Service
+@Slf4j
+public class AnaliseVendasService {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    private static final byte REALIZADA = 0;
+    private static final byte CANCELADA = 1;
+
+    private static final String SQL_VENDAS = """
+            SELECT v.id_venda, v.data_venda, v.id_funcionario, COALESCE(f.unidade_id, 0),
+                   COALESCE(v.valor_bruto, v.valor_total), v.valor_total, v.status_venda
+            FROM venda v JOIN funcionarios f ON f.id_funcionario = v.id_funcionario
+            WHERE (v.data_venda, v.id_venda) > (?, ?) AND v.data_venda < ?
+            ORDER BY v.data_venda, v.id_venda
+            LIMIT ?
+            """;
+
+    // Vendas atrasadas: já ficaram para trás da posição (as que estão à frente a carga incremental lê)
+    private static final String SQL_VENDAS_ATRASADAS = """
+            SELECT v.id_venda, v.data_venda, v.id_funcionario, COALESCE(f.unidade_id, 0),
+                   COALESCE(v.valor_bruto, v.valor_total), v.valor_total, v.status_venda
+            FROM venda v JOIN funcionarios f ON f.id_funcionario = v.id_funcionario
+            WHERE v.id_venda = ANY(?) AND (v.data_venda, v.id_venda) <= (?, ?) AND v.data_venda >= ?
+            ORDER BY v.data_venda, v.id_venda
+            """;
+
+    private static final String SQL_ITENS_ATRASADAS = """
+            SELECT i.id_venda, i.id_produto_variacao, COALESCE(p.categoria_id, 0), i.quantidade, i.subtotal
+            FROM venda v
+            JOIN venda_item i ON i.id_venda = v.id_venda
+            JOIN produtos_variacoes pv ON pv.id = i.id_produto_variacao
+            LEFT JOIN produtos_pai p ON p.id = pv.produto_pai_id
+            WHERE v.id_venda = ANY(?)
+            ORDER BY v.data_venda, v.id_venda
+            """;
+
+    // Itens da mesma faixa de vendas, na mesma ordem
+    private static final String SQL_ITENS = """
+            SELECT i.id_venda, i.id_produto_variacao, COALESCE(p.categoria_id, 0), i.quantidade, i.subtotal
+            FROM venda v
+            JOIN venda_item i ON i.id_venda = v.id_venda
+            JOIN produtos_variacoes pv ON pv.id = i.id_produto_variacao
+            LEFT JOIN produtos_pai p ON p.id = pv.produto_pai_id
+            WHERE (v.data_venda, v.id_venda) >= (?, ?) AND (v.data_venda, v.id_venda) <= (?, ?)
+            ORDER BY v.data_venda, v.id_venda
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FuncionarioRepository funcionarioRepository;
+    private final UnidadeRepository unidadeRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final ProdutoSnapshotCache produtoSnapshotCache;
+    private final int diasHistorico;
+    private final int tamanhoLote;
+    private final long margemSegundos;
+    private final long[] faixasTicket; // Limites das faixas, em centavos
+
+    // Snapshot publicado. Leitores pegam a referência uma vez e só leem as linhas que ela enxerga.
+    private volatile Colunas atual = Colunas.vazia();
+
+    // Uma carga (incremental ou reconstrução) por vez; a posição abaixo só é usada dentro dela
+    private final Object carga = new Object();
+    private LocalDateTime posicaoData;
+    private long posicaoId;
+
+    // Escrita nas colunas publicadas (anexar lote, status, troca do snapshot)
+    private final Object trava = new Object();
+    // Alterações de status recebidas enquanto uma carga lê o banco (reaplicadas nas linhas carregadas)
+    private Map<Long, Alteracao> alteracoesDuranteCarga;
+
+    // IDs de vendas com data no passado, confirmadas e ainda não intercaladas no snapshot
+    private final Set<Long> atrasadas = ConcurrentHashMap.newKeySet();
+
+    private volatile LocalDate inicioJanela;
+    private volatile LocalDateTime ultimaAtualizacao;
+    private volatile LocalDateTime ultimaReconstrucao;
+    private final LongAdder alteracoesStatus = new LongAdder();
+
+    private record Alteracao(long segundos, byte status) {
+    }
+
+    private record Recorte(Colunas c, int de, int ate, Long idUnidade) {
+        boolean conta(int linha) {
+            return c.status[linha] == REALIZADA && (idUnidade == null || c.idUnidade[linha] == idUnidade);
+        }
+    }
+
+    public AnaliseVendasService(JdbcTemplate jdbcTemplate,
+                                FuncionarioRepository funcionarioRepository,
+                                UnidadeRepository unidadeRepository,
+                                CategoriaRepository categoriaRepository,
+                                ProdutoSnapshotCache produtoSnapshotCache,
+                                @Value("${analise.vendas.dias-historico:400}") int diasHistorico,
+                                @Value("${analise.vendas.tamanho-lote:5000}") int tamanhoLote,
+                                @Value("${analise.vendas.margem-segundos:120}") long margemSegundos,
+                                @Value("${analise.vendas.faixas-ticket:20,50,100,200,500}") List<BigDecimal> faixasTicket) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.funcionarioRepository = funcionarioRepository;
+        this.unidadeRepository = unidadeRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.produtoSnapshotCache = produtoSnapshotCache;
+        this.diasHistorico = diasHistorico;
+        this.tamanhoLote = tamanhoLote;
+        this.margemSegundos = margemSegundos;
+        this.faixasTicket = faixasTicket.stream().sorted().mapToLong(AnaliseVendasService::centavos).toArray();
+    }
+
+    // --- CARGA ---
+
+    // Carga incremental (a primeira execução carrega a janela inteira, lote a lote)
+    @Scheduled(fixedDelayString = "${analise.vendas.intervalo-ms:60000}")
+    public void atualizar() {
+        synchronized (carga) {
+            if (posicaoData == null) iniciarPosicao();
+            int lidas;
+            int total = 0;
+            do {
+                synchronized (trava) {
+                    alteracoesDuranteCarga = new HashMap<>();
+                }
+                Colunas lote = lerLote(limiteCarga());
+                synchronized (trava) {
+                    Colunas novo = atual.anexar(lote);
+                    aplicarPendentes(novo);
+                    atual = novo;
+                }
+                lidas = lote.vendas;
+                total += lidas;
+            } while (lidas == tamanhoLote);
+            total += intercalarAtrasadas();
+
+            ultimaAtualizacao = LocalDateTime.now(FUSO);
+            if (total > 0) log.debug("Análise de vendas: {} vendas novas (total {}).", total, atual.vendas);
+        }
+    }
+
+    // Recarrega a janela do zero fora da trava e troca o snapshot de uma vez
+    @Scheduled(cron = "${analise.vendas.reconstrucao-cron:0 40 3 * * *}")
+    public void reconstruir() {
+        synchronized (carga) {
+            synchronized (trava) {
+                alteracoesDuranteCarga = new HashMap<>();
+            }
+            iniciarPosicao();
+            Colunas novo = Colunas.vazia();
+            Colunas lote;
+            do {
+                lote = lerLote(limiteCarga());
+                novo = novo.anexar(lote);
+            } while (lote.vendas == tamanhoLote);
+
+            synchronized (trava) {
+                aplicarPendentes(novo);
+                atual = novo;
+            }
+            ultimaReconstrucao = LocalDateTime.now(FUSO);
+            log.info("Análise de vendas reconstruída: {} vendas, {} itens desde {}.", novo.vendas, novo.itens, inicioJanela);
+        }
+    }
+
+    // Cancelamento/reativação: atualiza o status da linha depois do commit
+    public void alterarStatusAposCommit(Venda venda) {
+        Long idVenda = venda.getIdVenda();
+        long segundos = segundos(venda.getDataVenda());
+        byte status = venda.getStatusVenda() == StatusVenda.CANCELADA ? CANCELADA : REALIZADA;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            alterarStatus(idVenda, segundos, status);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                alterarStatus(idVenda, segundos, status);
+            }
+        });
+    }
+
+    // Venda gravada com o horário original do terminal (lote offline): a carga incremental, que anda pela data,
+    // já pode ter passado desse horário. Depois do commit a venda entra na fila da próxima atualização.
+    public void incluirAtrasadaAposCommit(Venda venda) {
+        Long idVenda = venda.getIdVenda();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            atrasadas.add(idVenda);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                atrasadas.add(idVenda);
+            }
+        });
+    }
+
+    public MetricasAnaliseVendasDTO metricas() {
+        Colunas c = atual;
+        return MetricasAnaliseVendasDTO.builder()
+                .vendas(c.vendas)
+                .itens(c.itens)
+                .memoriaBytes(c.memoriaBytes())
+                .inicioJanela(inicioJanela)
+                .carregadoAte(c.vendas == 0 ? null : data(c.segundos[c.vendas - 1]))
+                .ultimaAtualizacao(ultimaAtualizacao)
+                .ultimaReconstrucao(ultimaReconstrucao)
+                .alteracoesStatus(alteracoesStatus.sum())
+                .build();
+    }
+
+    // --- CONSULTAS ---
+
+    public List<AnaliseGrupoDTO> porHora(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        long[] vendas = new long[24];
+        long[] valores = new long[24];
+        long total = 0;
+        for (int i = r.de; i < r.ate; i++) {
+            if (!r.conta(i)) continue;
+            int hora = (int) Math.floorMod(Math.floorDiv(r.c.segundos[i], 3600), 24);
+            vendas[hora]++;
+            valores[hora] += r.c.totalCentavos[i];
+            total += r.c.totalCentavos[i];
+        }
+        List<AnaliseGrupoDTO> resultado = new ArrayList<>(24);
+        for (int hora = 0; hora < 24; hora++) {
+            resultado.add(grupo((long) hora, String.format("%02dh", hora), vendas[hora], 0, valores[hora], total));
+        }
+        return resultado;
+    }
+
+    public List<AnaliseGrupoDTO> porVendedor(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        return agruparVendas(r, r.c.idFuncionario, ids -> nomes(funcionarioRepository.findAllById(ids),
+                Funcionario::getIdFuncionario, Funcionario::getNomeCompleto));
+    }
+
+    public List<AnaliseGrupoDTO> porUnidade(LocalDate inicio, LocalDate fim) {
+        Recorte r = recorte(inicio, fim, null);
+        return agruparVendas(r, r.c.idUnidade, ids -> nomes(unidadeRepository.findAllById(ids),
+                Unidade::getIdUnidade, Unidade::getNomeFantasia));
+    }
+
+    public List<AnaliseGrupoDTO> porCategoria(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        return limitar(agruparItens(r, r.c.idCategoria, ids -> nomes(categoriaRepository.findAllById(ids),
+                Categoria::getIdCategoria, Categoria::getNome)), Integer.MAX_VALUE);
+    }
+
+    // Produtos (variações) mais vendidos por valor; nomes vêm do cache de snapshots do caixa
+    public List<AnaliseGrupoDTO> porProduto(LocalDate inicio, LocalDate fim, Long idUnidade, int limite) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        List<AnaliseGrupoDTO> grupos = limitar(agruparItens(r, r.c.idVariacao, ids -> Map.of()),
+                Math.max(1, Math.min(limite, 500)));
+        Map<Long, ProdutoSnapshotCache.Snapshot> snapshots = produtoSnapshotCache.buscar(
+                grupos.stream().map(AnaliseGrupoDTO::getId).toList());
+        for (AnaliseGrupoDTO g : grupos) {
+            ProdutoSnapshotCache.Snapshot s = snapshots.get(g.getId());
+            g.setNome(s != null ? s.nomeCompleto() : null);
+        }
+        return grupos;
+    }
+
+    public AnaliseTicketDTO ticket(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        long[] valores = new long[r.ate - r.de];
+        int n = 0;
+        long total = 0;
+        for (int i = r.de; i < r.ate; i++) {
+            if (!r.conta(i)) continue;
+            valores[n++] = r.c.totalCentavos[i];
+            total += r.c.totalCentavos[i];
+        }
+        Arrays.sort(valores, 0, n);
+
+        long[] contagem = new long[faixasTicket.length + 1];
+        int faixa = 0;
+        for (int i = 0; i < n; i++) {
+            while (faixa < faixasTicket.length && valores[i] >= faixasTicket[faixa]) faixa++;
+            contagem[faixa]++;
+        }
+        List<AnaliseTicketDTO.Faixa> faixas = new ArrayList<>(contagem.length);
+        for (int f = 0; f < contagem.length; f++) {
+            faixas.add(AnaliseTicketDTO.Faixa.builder()
+                    .de(reais(f == 0 ? 0 : faixasTicket[f - 1]))
+                    .ate(f < faixasTicket.length ? reais(faixasTicket[f]) : null)
+                    .quantidade(contagem[f])
+                    .participacao(fracao(contagem[f], n))
+                    .build());
+        }
+
+        return AnaliseTicketDTO.builder()
+                .quantidadeVendas(n)
+                .valorTotal(reais(total))
+                .ticketMedio(media(total, n))
+                .mediana(n == 0 ? BigDecimal.ZERO : reais(valores[(n - 1) / 2]))
+                .percentil90(n == 0 ? BigDecimal.ZERO : reais(valores[(int) Math.ceil(0.9 * n) - 1]))
+                .maior(n == 0 ? BigDecimal.ZERO : reais(valores[n - 1]))
+                .faixas(faixas)
+                .build();
+    }
+
+    public AnaliseDescontoDTO descontos(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        Recorte r = recorte(inicio, fim, idUnidade);
+        long vendas = 0;
+        long comDesconto = 0;
+        long bruto = 0;
+        long liquido = 0;
+        for (int i = r.de; i < r.ate; i++) {
+            if (!r.conta(i)) continue;
+            vendas++;
+            bruto += r.c.brutoCentavos[i];
+            liquido += r.c.totalCentavos[i];
+            if (r.c.brutoCentavos[i] > r.c.totalCentavos[i]) comDesconto++;
+        }
+        return AnaliseDescontoDTO.builder()
+                .quantidadeVendas(vendas)
+                .vendasComDesconto(comDesconto)
+                .participacaoVendasComDesconto(fracao(comDesconto, vendas))
+                .valorBruto(reais(bruto))
+                .valorDesconto(reais(bruto - liquido))
+                .valorLiquido(reais(liquido))
+                .participacaoDesconto(fracao(bruto - liquido, bruto))
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void iniciarPosicao() {
+        inicioJanela = LocalDate.now(FUSO).minusDays(diasHistorico);
+        posicaoData = inicioJanela.atStartOfDay();
+        posicaoId = 0;
+    }
+
+    private LocalDateTime limiteCarga() {
+        return LocalDateTime.now(FUSO).minusSeconds(margemSegundos);
+    }
+
+    private void adicionarVenda(Colunas lote, ResultSet rs) throws SQLException {
+        LocalDateTime data = rs.getObject(2, LocalDateTime.class);
+        lote.adicionarVenda(rs.getLong(1), segundos(data), rs.getLong(3), rs.getLong(4),
+                centavos(rs.getBigDecimal(5)), centavos(rs.getBigDecimal(6)),
+                "CANCELADA".equals(rs.getString(7)) ? CANCELADA : REALIZADA);
+    }
+
+    // Itens das vendas do lote, na mesma ordem das vendas
+    private void lerItens(Colunas lote, String sql, PreparedStatementSetter parametros) {
+        // [linha da venda do item, próxima venda sem primeiroItem definido]
+        int[] cursor = {0, 0};
+        jdbcTemplate.query(sql, parametros, rs -> {
+            long idVenda = rs.getLong(1);
+            int linha = cursor[0];
+            while (linha < lote.vendas && lote.idVenda[linha] != idVenda) linha++;
+            if (linha == lote.vendas) return; // Venda fora do lote (commit tardio dentro da faixa): fica para a reconstrução
+            cursor[0] = linha;
+            while (cursor[1] <= linha) lote.primeiroItem[cursor[1]++] = lote.itens;
+            lote.adicionarItem(rs.getLong(2), rs.getLong(3), rs.getInt(4), centavos(rs.getBigDecimal(5)));
+        });
+        while (cursor[1] < lote.vendas) lote.primeiroItem[cursor[1]++] = lote.itens;
+    }
+
+    // Lê um lote de vendas a partir da posição e os itens dessas vendas; avança a posição
+    private Colunas lerLote(LocalDateTime limite) {
+        Colunas lote = Colunas.comCapacidade(Math.min(tamanhoLote, 1024), Math.min(tamanhoLote, 1024) * 3);
+        List<Long> idsLidos = new ArrayList<>();
+        jdbcTemplate.query(SQL_VENDAS, rs -> {
+            adicionarVenda(lote, rs);
+            idsLidos.add(rs.getLong(1));
+        }, posicaoData, posicaoId, limite, tamanhoLote);
+        if (lote.vendas == 0) return lote;
+
+        LocalDateTime primeiraData = data(lote.segundos[0]);
+        LocalDateTime ultimaData = data(lote.segundos[lote.vendas - 1]);
+        lerItens(lote, SQL_ITENS, ps -> {
+            ps.setObject(1, primeiraData);
+            ps.setLong(2, lote.idVenda[0]);
+            ps.setObject(3, ultimaData);
+            ps.setLong(4, lote.idVenda[lote.vendas - 1]);
+        });
+
+        posicaoData = ultimaData;
+        posicaoId = lote.idVenda[lote.vendas - 1];
+        return lote;
+    }
+
+    // Chamado dentro da carga, depois da leitura incremental: lê as vendas atrasadas que ficaram para trás da posição
+    // e publica uma cópia do snapshot com elas intercaladas. Devolve quantas entraram.
+    private int intercalarAtrasadas() {
+        if (atrasadas.isEmpty()) return 0;
+        List<Long> ids = new ArrayList<>(atrasadas);
+        atrasadas.removeAll(ids);
+
+        synchronized (trava) {
+            alteracoesDuranteCarga = new HashMap<>();
+        }
+        Colunas lote = Colunas.comCapacidade(ids.size(), ids.size() * 3);
+        jdbcTemplate.query(SQL_VENDAS_ATRASADAS, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+            ps.setObject(2, posicaoData);
+            ps.setLong(3, posicaoId);
+            ps.setObject(4, inicioJanela.atStartOfDay());
+        }, rs -> {
+            adicionarVenda(lote, rs);
+        });
+        if (lote.vendas > 0) {
+            Long[] idsLote = new Long[lote.vendas];
+            for (int v = 0; v < lote.vendas; v++) idsLote[v] = lote.idVenda[v];
+            lerItens(lote, SQL_ITENS_ATRASADAS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", idsLote)));
+        }
+
+        int antes;
+        int depois;
+        synchronized (trava) {
+            antes = atual.vendas;
+            Colunas novo = lote.vendas == 0 ? atual : atual.intercalar(lote);
+            aplicarPendentes(novo);
+            atual = novo;
+            depois = novo.vendas;
+        }
+        return depois - antes;
+    }
+
+    private void alterarStatus(Long idVenda, long segundos, byte status) {
+        synchronized (trava) {
+            Colunas c = atual;
+            int linha = c.linha(segundos, idVenda);
+            if (linha >= 0) c.status[linha] = status;
+            if (alteracoesDuranteCarga != null) alteracoesDuranteCarga.put(idVenda, new Alteracao(segundos, status));
+        }
+        alteracoesStatus.increment();
+    }
+
+    // Chamado com a trava: reaplica no snapshot novo o que mudou enquanto a carga lia o banco
+    private void aplicarPendentes(Colunas novo) {
+        for (Map.Entry<Long, Alteracao> e : alteracoesDuranteCarga.entrySet()) {
+            int linha = novo.linha(e.getValue().segundos(), e.getKey());
+            if (linha >= 0) novo.status[linha] = e.getValue().status();
+        }
+        alteracoesDuranteCarga = null;
+    }
+
+    private Recorte recorte(LocalDate inicio, LocalDate fim, Long idUnidade) {
+        if (inicio.isAfter(fim)) {
+            throw new RuntimeException("A data inicial deve ser anterior ou igual à data final.");
+        }
+        LocalDate janela = inicioJanela;
+        if (janela != null && inicio.isBefore(janela)) {
+            throw new RuntimeException("Análise disponível a partir de " + janela + " (últimos " + diasHistorico + " dias).");
+        }
+        Colunas c = atual;
+        int de = c.primeiraLinha(segundos(inicio.atStartOfDay()));
+        int ate = c.primeiraLinha(segundos(fim.plusDays(1).atStartOfDay()));
+        return new Recorte(c, de, ate, idUnidade);
+    }
+
+    // Agrupa linhas de venda por uma coluna (vendedor, unidade)
+    private List<AnaliseGrupoDTO> agruparVendas(Recorte r, long[] chave, Function<List<Long>, Map<Long, String>> nomes) {
+        Map<Long, long[]> grupos = new HashMap<>(); // [vendas, centavos]
+        long total = 0;
+        for (int i = r.de; i < r.ate; i++) {
+            if (!r.conta(i)) continue;
+            long[] g = grupos.computeIfAbsent(chave[i], k -> new long[2]);
+            g[0]++;
+            g[1] += r.c.totalCentavos[i];
+            total += r.c.totalCentavos[i];
+        }
+        Map<Long, String> nomesPorId = nomes.apply(new ArrayList<>(grupos.keySet()));
+        List<AnaliseGrupoDTO> resultado = new ArrayList<>(grupos.size());
+        for (Map.Entry<Long, long[]> e : grupos.entrySet()) {
+            long[] g = e.getValue();
+            resultado.add(grupo(e.getKey(), nomesPorId.get(e.getKey()), g[0], 0, g[1], total));
+        }
+        resultado.sort(Comparator.comparing(AnaliseGrupoDTO::getValor).reversed());
+        return resultado;
+    }
+
+    // Agrupa itens por uma coluna (produto, categoria). Os itens de uma venda são contíguos,
+    // então "vendas em que aparece" é contado comparando com a última venda vista no grupo.
+    private List<AnaliseGrupoDTO> agruparItens(Recorte r, long[] chave, Function<List<Long>, Map<Long, String>> nomes) {
+        Map<Long, long[]> grupos = new HashMap<>(); // [vendas, unidades, centavos, última linha de venda]
+        long total = 0;
+        for (int v = r.de; v < r.ate; v++) {
+            if (!r.conta(v)) continue;
+            int fimItens = v + 1 < r.c.vendas ? r.c.primeiroItem[v + 1] : r.c.itens;
+            for (int i = r.c.primeiroItem[v]; i < fimItens; i++) {
+                long[] g = grupos.computeIfAbsent(chave[i], k -> new long[]{0, 0, 0, -1});
+                if (g[3] != v) {
+                    g[0]++;
+                    g[3] = v;
+                }
+                g[1] += r.c.quantidade[i];
+                g[2] += r.c.subtotalCentavos[i];
+                total += r.c.subtotalCentavos[i];
+            }
+        }
+        Map<Long, String> nomesPorId = nomes.apply(new ArrayList<>(grupos.keySet()));
+        List<AnaliseGrupoDTO> resultado = new ArrayList<>(grupos.size());
+        for (Map.Entry<Long, long[]> e : grupos.entrySet()) {
+            long[] g = e.getValue();
+            resultado.add(grupo(e.getKey(), nomesPorId.get(e.getKey()), g[0], g[1], g[2], total));
+        }
+        return resultado;
+    }
+
+    private List<AnaliseGrupoDTO> limitar(List<AnaliseGrupoDTO> grupos, int limite) {
+        grupos.sort(Comparator.comparing(AnaliseGrupoDTO::getValor).reversed());
+        return grupos.size() > limite ? new ArrayList<>(grupos.subList(0, limite)) : grupos;
+    }
+
+    private <T> Map<Long, String> nomes(List<T> entidades, Function<T, Long> id, Function<T, String> nome) {
+        Map<Long, String> mapa = new HashMap<>();
+        for (T entidade : entidades) mapa.put(id.apply(entidade), nome.apply(entidade));
+        return mapa;
+    }
+
+    private AnaliseGrupoDTO grupo(Long id, String nome, long vendas, long itens, long centavos, long total) {
+        return AnaliseGrupoDTO.builder()
+                .id(id)
+                .nome(nome)
+                .quantidadeVendas(vendas)
+                .quantidadeItens(itens)
+                .valor(reais(centavos))
+                .ticketMedio(media(centavos, vendas))
+                .participacao(fracao(centavos, total))
+                .build();
+    }
+
+    private static long segundos(LocalDateTime data) {
+        return data.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime data(long segundos) {
+        return LocalDateTime.ofEpochSecond(segundos, 0, ZoneOffset.UTC);
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal reais(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    private static BigDecimal media(long centavos, long quantidade) {
+        return quantidade == 0 ? BigDecimal.ZERO : reais(centavos).divide(BigDecimal.valueOf(quantidade), 2, RoundingMode.HALF_UP);
+    }
+
+    private static double fracao(long parte, long total) {
+        return total == 0 ? 0 : (double) parte / total;
+    }
+
+    // Colunas do snapshot. Uma instância publicada nunca muda de tamanho: anexar escreve além das linhas
+    // que ela enxerga (nos mesmos arrays, se couber) e devolve outra instância. Só o status é alterado no lugar.
+    private static final class Colunas {
+        // Vendas (uma linha por venda, ordenadas por data e ID)
+        long[] idVenda;
+        long[] segundos;       // data_venda em segundos (hora local tratada como UTC)
+        long[] idFuncionario;
+        long[] idUnidade;
+        long[] brutoCentavos;
+        long[] totalCentavos;
+        byte[] status;
+        int[] primeiroItem;    // Índice do primeiro item da venda nas colunas de itens
+        int vendas;
+
+        // Itens (contíguos por venda, na mesma ordem)
+        long[] idVariacao;
+        long[] idCategoria;
+        int[] quantidade;
+        long[] subtotalCentavos;
+        int itens;
+
+        static Colunas vazia() {
+            return comCapacidade(0, 0);
+        }
+
+        static Colunas comCapacidade(int vendas, int itens) {
+            Colunas c = new Colunas();
+            c.idVenda = new long[vendas];
+            c.segundos = new long[vendas];
+            c.idFuncionario = new long[vendas];
+            c.idUnidade = new long[vendas];
+            c.brutoCentavos = new long[vendas];
+            c.totalCentavos = new long[vendas];
+            c.status = new byte[vendas];
+            c.primeiroItem = new int[vendas];
+            c.idVariacao = new long[itens];
+            c.idCategoria = new long[itens];
+            c.quantidade = new int[itens];
+            c.subtotalCentavos = new long[itens];
+            return c;
+        }
+
+        // Usado só em colunas locais (lote em montagem)
+        void adicionarVenda(long id, long seg, long funcionario, long unidade, long bruto, long total, byte st) {
+            if (vendas == idVenda.length) crescerVendas(vendas + 1);
+            idVenda[vendas] = id;
+            segundos[vendas] = seg;
+            idFuncionario[vendas] = funcionario;
+            idUnidade[vendas] = unidade;
+            brutoCentavos[vendas] = bruto;
+            totalCentavos[vendas] = total;
+            status[vendas] = st;
+            primeiroItem[vendas] = itens;
+            vendas++;
+        }
+
+        // Itens chegam na ordem das vendas (primeiroItem é preenchido por quem lê o lote)
+        void adicionarItem(long variacao, long categoria, int qtd, long subtotal) {
+            if (itens == idVariacao.length) crescerItens(itens + 1);
+            idVariacao[itens] = variacao;
+            idCategoria[itens] = categoria;
+            quantidade[itens] = qtd;
+            subtotalCentavos[itens] = subtotal;
+            itens++;
+        }
+
+        Colunas anexar(Colunas lote) {
+            if (lote.vendas == 0) return this;
+            Colunas novo = copiaRasa();
+            if (vendas + lote.vendas > idVenda.length) novo.crescerVendas(vendas + lote.vendas);
+            if (itens + lote.itens > idVariacao.length) novo.crescerItens(itens + lote.itens);
+
+            System.arraycopy(lote.idVenda, 0, novo.idVenda, vendas, lote.vendas);
+            System.arraycopy(lote.segundos, 0, novo.segundos, vendas, lote.vendas);
+            System.arraycopy(lote.idFuncionario, 0, novo.idFuncionario, vendas, lote.vendas);
+            System.arraycopy(lote.idUnidade, 0, novo.idUnidade, vendas, lote.vendas);
+            System.arraycopy(lote.brutoCentavos, 0, novo.brutoCentavos, vendas, lote.vendas);
+            System.arraycopy(lote.totalCentavos, 0, novo.totalCentavos, vendas, lote.vendas);
+            System.arraycopy(lote.status, 0, novo.status, vendas, lote.vendas);
+            for (int v = 0; v < lote.vendas; v++) novo.primeiroItem[vendas + v] = itens + lote.primeiroItem[v];
+
+            System.arraycopy(lote.idVariacao, 0, novo.idVariacao, itens, lote.itens);
+            System.arraycopy(lote.idCategoria, 0, novo.idCategoria, itens, lote.itens);
+            System.arraycopy(lote.quantidade, 0, novo.quantidade, itens, lote.itens);
+            System.arraycopy(lote.subtotalCentavos, 0, novo.subtotalCentavos, itens, lote.itens);
+
+            novo.vendas = vendas + lote.vendas;
+            novo.itens = itens + lote.itens;
+            return novo;
+        }
+
+        // Cópia nova com as vendas do lote (ordenado por data e ID) intercaladas na ordem; as que já estão aqui ficam de fora
+        Colunas intercalar(Colunas lote) {
+            Colunas novo = comCapacidade(vendas + lote.vendas, itens + lote.itens);
+            int a = 0;
+            int b = 0;
+            while (a < vendas || b < lote.vendas) {
+                boolean doLote = b < lote.vendas && (a == vendas || lote.segundos[b] < segundos[a]
+                        || (lote.segundos[b] == segundos[a] && lote.idVenda[b] < idVenda[a]));
+                if (!doLote) {
+                    novo.copiarVenda(this, a++);
+                } else {
+                    if (linha(lote.segundos[b], lote.idVenda[b]) < 0) novo.copiarVenda(lote, b);
+                    b++;
+                }
+            }
+            return novo;
+        }
+
+        // Primeira linha com data >= seg (busca binária)
+        int primeiraLinha(long seg) {
+            int baixo = 0;
+            int alto = vendas;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (segundos[meio] < seg) baixo = meio + 1;
+                else alto = meio;
+            }
+            return baixo;
+        }
+
+        int linha(long seg, long id) {
+            for (int i = primeiraLinha(seg); i < vendas && segundos[i] == seg; i++) {
+                if (idVenda[i] == id) return i;
+            }
+            return -1;
+        }
+
+        long memoriaBytes() {
+            return (long) idVenda.length * (6 * Long.BYTES + 1 + Integer.BYTES)
+                    + (long) idVariacao.length * (3 * Long.BYTES + Integer.BYTES);
+        }
+
+        private void copiarVenda(Colunas origem, int v) {
+            int fimItens = v + 1 < origem.vendas ? origem.primeiroItem[v + 1] : origem.itens;
+            adicionarVenda(origem.idVenda[v], origem.segundos[v], origem.idFuncionario[v], origem.idUnidade[v],
+                    origem.brutoCentavos[v], origem.totalCentavos[v], origem.status[v]);
+            for (int i = origem.primeiroItem[v]; i < fimItens; i++) {
+                adicionarItem(origem.idVariacao[i], origem.idCategoria[i], origem.quantidade[i], origem.subtotalCentavos[i]);
+            }
+        }
+
+        private Colunas copiaRasa() {
+            Colunas c = new Colunas();
+            c.idVenda = idVenda;
+            c.segundos = segundos;
+            c.idFuncionario = idFuncionario;
+            c.idUnidade = idUnidade;
+            c.brutoCentavos = brutoCentavos;
+            c.totalCentavos = totalCentavos;
+            c.status = status;
+            c.primeiroItem = primeiroItem;
+            c.idVariacao = idVariacao;
+            c.idCategoria = idCategoria;
+            c.quantidade = quantidade;
+            c.subtotalCentavos = subtotalCentavos;
+            c.vendas = vendas;
+            c.itens = itens;
+            return c;
+        }
+
+        private void crescerVendas(int minimo) {
+            int capacidade = Math.max(minimo, Math.max(1024, idVenda.length + (idVenda.length >> 1)));
+            idVenda = Arrays.copyOf(idVenda, capacidade);
+            segundos = Arrays.copyOf(segundos, capacidade);
+            idFuncionario = Arrays.copyOf(idFuncionario, capacidade);
+            idUnidade = Arrays.copyOf(idUnidade, capacidade);
+            brutoCentavos = Arrays.copyOf(brutoCentavos, capacidade);
+            totalCentavos = Arrays.copyOf(totalCentavos, capacidade);
+            status = Arrays.copyOf(status, capacidade);
+            primeiroItem = Arrays.copyOf(primeiroItem, capacidade);
+        }
+
+        private void crescerItens(int minimo) {
+            int capacidade = Math.max(minimo, Math.max(4096, idVariacao.length + (idVariacao.length >> 1)));
+            idVariacao = Arrays.copyOf(idVariacao, capacidade);
+            idCategoria = Arrays.copyOf(idCategoria, capacidade);
+            quantidade = Arrays.copyOf(quantidade, capacidade);
+            subtotalCentavos = Arrays.copyOf(subtotalCentavos, capacidade);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.apirest.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Armazenamento de arquivos binários (assinaturas, comprovantes) endereçado por conteúdo.
+// O nome do arquivo é o SHA-256 do conteúdo: o mesmo arquivo enviado duas vezes ocupa disco uma vez só.
+// Layout: <diretorio>/ab/cd/abcd...  (dois níveis para não concentrar milhares de arquivos numa pasta)
+// Não depende de JPA: também é usado pela migração Java que tira as imagens base64 do banco.
+@Service
+@Slf4j
+public class ArmazenamentoBlobService {
+
+    private static final Pattern HASH_VALIDO = Pattern.compile("[0-9a-f]{64}");
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final Path raiz;
+    private final Path temporarios;
+    private final long tamanhoMaximo;
+
+    public record BlobSalvo(String hash, long tamanho) {
+    }
+
+    public ArmazenamentoBlobService(@Value("${armazenamento.blobs.diretorio:./dados/blobs}") String diretorio,
+                                    @Value("${armazenamento.blobs.tamanho-maximo-bytes:5242880}") long tamanhoMaximo) {
+        this.raiz = Paths.get(diretorio).toAbsolutePath().normalize();
+        this.temporarios = raiz.resolve("tmp");
+        this.tamanhoMaximo = tamanhoMaximo;
+        try {
+            Files.createDirectories(temporarios);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório de blobs " + raiz, e);
+        }
+    }
+
+    // Grava o conteúdo do stream calculando o hash no caminho (uma passada só, sem carregar tudo em memória)
+    public BlobSalvo salvar(InputStream conteudo) {
+        MessageDigest digest = novoDigest();
+        Path temporario = null;
+        try (ReadableByteChannel origem = Channels.newChannel(conteudo)) {
+            temporario = Files.createTempFile(temporarios, "upload-", ".tmp");
+            long tamanho = 0;
+            try (FileChannel destino = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+                while (origem.read(buffer) != -1) {
+                    buffer.flip();
+                    tamanho += buffer.remaining();
+                    if (tamanho > tamanhoMaximo) {
+                        throw new RuntimeException("Arquivo maior que o limite de " + tamanhoMaximo + " bytes.");
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) destino.write(buffer);
+                    buffer.clear();
+                }
+                destino.force(true);
+            }
+            if (tamanho == 0) throw new RuntimeException("Arquivo vazio.");
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path definitivo = caminho(hash);
+            if (Files.exists(definitivo)) {
+                // Já existe (deduplicado): descarta a cópia recebida
+                Files.delete(temporario);
+            } else {
+                Files.createDirectories(definitivo.getParent());
+                try {
+                    Files.move(temporario, definitivo, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Outro upload do mesmo conteúdo chegou primeiro
+                    Files.delete(temporario);
+                }
+            }
+            temporario = null;
+            return new BlobSalvo(hash, tamanho);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar arquivo no armazenamento.", e);
+        } finally {
+            if (temporario != null) {
+                try {
+                    Files.deleteIfExists(temporario);
+                } catch (IOException e) {
+                    log.warn("Não foi possível apagar o temporário {}", temporario);
+                }
+            }
+        }
+    }
+
+    public BlobSalvo salvar(byte[] conteudo) {
+        return salvar(new ByteArrayInputStream(conteudo));
+    }
+
+    // Aceita tanto base64 puro quanto data URL ("data:image/png;base64,....")
+    public BlobSalvo salvarBase64(String base64) {
+        String dados = base64.startsWith("data:") ? base64.substring(base64.indexOf(',') + 1) : base64;
+        try {
+            return salvar(Base64.getMimeDecoder().decode(dados));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Conteúdo base64 inválido.");
+        }
+    }
+
+    public boolean existe(String hash) {
+        return HASH_VALIDO.matcher(hash).matches() && Files.exists(caminho(hash));
+    }
+
+    public long tamanho(String hash) {
+        try {
+            return Files.size(caminhoExistente(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Arquivo para o download (ResponseEntity<Resource>). O Spring copia o arquivo para a resposta com buffer;
+    // não é envio zero-copy, mas atende Range e HEAD sem código próprio.
+    public Resource recurso(String hash) {
+        return new FileSystemResource(caminhoExistente(hash));
+    }
+
+    // Tipo do conteúdo pelos primeiros bytes (assinaturas e comprovantes são PNG/JPEG/PDF)
+    public String tipoConteudo(String hash) {
+        byte[] cabecalho = new byte[4];
+        try (InputStream in = Files.newInputStream(caminhoExistente(hash))) {
+            int lidos = in.readNBytes(cabecalho, 0, cabecalho.length);
+            if (lidos >= 4 && (cabecalho[0] & 0xFF) == 0x89 && cabecalho[1] == 'P' && cabecalho[2] == 'N' && cabecalho[3] == 'G') return "image/png";
+            if (lidos >= 3 && (cabecalho[0] & 0xFF) == 0xFF && (cabecalho[1] & 0xFF) == 0xD8 && (cabecalho[2] & 0xFF) == 0xFF) return "image/jpeg";
+            if (lidos >= 4 && cabecalho[0] == '%' && cabecalho[1] == 'P' && cabecalho[2] == 'D' && cabecalho[3] == 'F') return "application/pdf";
+            return "application/octet-stream";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private Path caminhoExistente(String hash) {
+        if (!existe(hash)) throw new RuntimeException("Arquivo não encontrado: " + hash);
+        return caminho(hash);
+    }
+
+    private Path caminho(String hash) {
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private MessageDigest novoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
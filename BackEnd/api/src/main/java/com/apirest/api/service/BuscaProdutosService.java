@@ -0,0 +1,364 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.BuscaProdutoDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Busca de produtos por nome com tolerância a erro de digitação ("camis dry verm" -> "CAMISETA DRY-FIT - VERMELHO").
+// Índice invertido de trigramas em memória sobre nome completo da variação + marca + categoria:
+// - o texto é normalizado (sem acento, minúsculo, só letras e dígitos) e cada palavra vira trigramas com um espaço
+//   nas pontas; com 37 símbolos o trigrama é um int < 37³, então as listas de variações ficam num array por código
+//   (int[][]), sem mapa nem objeto por entrada;
+// - pontuação = para cada palavra da busca, a fração dos seus trigramas presentes na variação, somada entre as palavras.
+//   Prefixo e erro de uma letra ainda casam boa parte dos trigramas; entra quem atinge a similaridade mínima em cada
+//   palavra da busca (uma palavra muito parecida não compensa outra que não casou);
+// - alterações do cadastro entram na hora (depois do commit): a variação antiga é marcada como removida e a nova
+//   é acrescentada no fim das listas. Quando as removidas passam de 1/4 das vivas, o índice é recompactado.
+@Service
+@Slf4j
+public class BuscaProdutosService {
+
+    private static final String SQL_VARIACOES = """
+            SELECT v.id, v.nome_completo_concatenado, p.marca, c.nome AS categoria, v.preco_venda
+            FROM produtos_variacoes v
+            JOIN produtos_pai p ON p.id = v.produto_pai_id
+            LEFT JOIN categorias c ON c.id_categoria = p.categoria_id
+            WHERE v.ativo = true AND p.ativo = true
+            """;
+
+    private static final int SIMBOLOS = 37; // 0 = borda da palavra, 1-26 = a-z, 27-36 = 0-9
+    private static final int TRIGRAMAS = SIMBOLOS * SIMBOLOS * SIMBOLOS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double similaridadeMinima;
+    private final int limiteMaximo;
+
+    // Leituras em paralelo; alterações do cadastro e troca do índice com exclusividade
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private Indice indice; // null até a primeira construção terminar
+
+    // Alterações recebidas durante uma construção: reaplicadas no índice novo
+    private final Set<Long> pendentes = new HashSet<>();
+    private boolean construindo;
+
+    private record Item(long id, String nomeCompleto, String marca, String categoria, BigDecimal precoVenda) {
+    }
+
+    public BuscaProdutosService(JdbcTemplate jdbcTemplate,
+                                @Value("${produtos.busca.similaridade-minima:0.5}") double similaridadeMinima,
+                                @Value("${produtos.busca.limite-maximo:50}") int limiteMaximo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.similaridadeMinima = similaridadeMinima;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirNaSubida() {
+        Thread.ofVirtual().name("busca-produtos").start(this::reconstruir);
+    }
+
+    // Reconstrução completa (corrige qualquer alteração feita direto no banco)
+    @Scheduled(cron = "${produtos.busca.reconstrucao-cron:0 55 3 * * *}")
+    public void reconstruir() {
+        trava.writeLock().lock();
+        try {
+            if (construindo) return;
+            construindo = true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+        try {
+            long comeco = System.nanoTime();
+            Indice novo = new Indice();
+            jdbcTemplate.query(SQL_VARIACOES, rs -> {
+                novo.adicionar(lerItem(rs));
+            });
+            trava.writeLock().lock();
+            try {
+                if (!pendentes.isEmpty()) {
+                    Set<Long> ids = Set.copyOf(pendentes);
+                    novo.substituir(ids, carregar(ids));
+                }
+                indice = novo;
+            } finally {
+                trava.writeLock().unlock();
+            }
+            log.info("Índice de busca de produtos construído: {} variações em {} ms.",
+                    novo.vivos, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco));
+        } catch (RuntimeException e) {
+            log.error("Falha ao construir o índice de busca de produtos: {}", e.getMessage());
+        } finally {
+            trava.writeLock().lock();
+            try {
+                construindo = false;
+                pendentes.clear();
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+    }
+
+    // As 'limite' variações ativas mais parecidas com o texto, da mais parecida para a menos
+    public List<BuscaProdutoDTO> buscar(String texto, int limite) {
+        if (limite < 1) throw new RuntimeException("O limite da busca deve ser maior que zero.");
+        int k = Math.min(limite, limiteMaximo);
+
+        List<int[]> palavras = new ArrayList<>();
+        for (int[] simbolos : palavras(texto)) {
+            palavras.add(trigramas(List.of(simbolos)));
+        }
+        if (palavras.isEmpty()) return List.of();
+
+        trava.readLock().lock();
+        try {
+            if (indice == null) {
+                throw new RuntimeException("Busca de produtos ainda carregando. Tente novamente em instantes.");
+            }
+            return indice.buscar(palavras, similaridadeMinima, k);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Reindexa as variações alteradas no cadastro. Dentro de transação, só depois do commit.
+    public void atualizar(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        Set<Long> copia = Set.copyOf(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(copia);
+                }
+            });
+        } else {
+            aplicar(copia);
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void aplicar(Set<Long> ids) {
+        try {
+            List<Item> recarregados = carregar(ids); // Fora da trava: a busca não espera o banco
+            trava.writeLock().lock();
+            try {
+                if (construindo) pendentes.addAll(ids);
+                if (indice != null) indice.substituir(ids, recarregados);
+            } finally {
+                trava.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao atualizar a busca de produtos para as variações {}: {}", ids, e.getMessage());
+        }
+    }
+
+    private List<Item> carregar(Set<Long> ids) {
+        String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(SQL_VARIACOES + " AND v.id IN (" + marcadores + ")",
+                (rs, linha) -> lerItem(rs), ids.toArray());
+    }
+
+    private Item lerItem(ResultSet rs) throws SQLException {
+        return new Item(rs.getLong("id"), rs.getString("nome_completo_concatenado"), rs.getString("marca"),
+                rs.getString("categoria"), rs.getBigDecimal("preco_venda"));
+    }
+
+    private BuscaProdutoDTO paraDTO(Item item, double pontuacao) {
+        return BuscaProdutoDTO.builder()
+                .idVariacao(item.id())
+                .nomeCompleto(item.nomeCompleto())
+                .marca(item.marca())
+                .categoria(item.categoria())
+                .precoVenda(item.precoVenda())
+                .pontuacao(pontuacao)
+                .build();
+    }
+
+    private static int tamanhoNome(Item item) {
+        return item.nomeCompleto() != null ? item.nomeCompleto().length() : 0;
+    }
+
+    // Palavras do texto normalizado, cada uma como sequência de símbolos 1-36
+    private static List<int[]> palavras(String texto) {
+        List<int[]> palavras = new ArrayList<>();
+        if (texto == null) return palavras;
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD).toLowerCase();
+        int[] atual = new int[normalizado.length()];
+        int tamanho = 0;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            int simbolo = i < normalizado.length() ? simbolo(normalizado.charAt(i)) : 0;
+            if (simbolo > 0) {
+                atual[tamanho++] = simbolo;
+            } else if (simbolo == 0 && tamanho > 0) {
+                palavras.add(Arrays.copyOf(atual, tamanho));
+                tamanho = 0;
+            }
+        }
+        return palavras;
+    }
+
+    // 1-36 para letra/dígito, 0 para separador, -1 para marca de acento (ignorada: "ç" -> "c")
+    private static int simbolo(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a' + 1;
+        if (c >= '0' && c <= '9') return c - '0' + 27;
+        if (Character.getType(c) == Character.NON_SPACING_MARK) return -1;
+        return 0;
+    }
+
+    // Trigramas distintos e ordenados das palavras, com borda (0) antes e depois de cada uma
+    private static int[] trigramas(List<int[]> palavras) {
+        int total = 0;
+        for (int[] palavra : palavras) total += palavra.length;
+        int[] codigos = new int[total];
+        int n = 0;
+        for (int[] palavra : palavras) {
+            for (int i = 0; i < palavra.length; i++) {
+                int antes = i > 0 ? palavra[i - 1] : 0;
+                int depois = i + 1 < palavra.length ? palavra[i + 1] : 0;
+                codigos[n++] = (antes * SIMBOLOS + palavra[i]) * SIMBOLOS + depois;
+            }
+        }
+        Arrays.sort(codigos);
+        int distintos = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || codigos[i] != codigos[i - 1]) codigos[distintos++] = codigos[i];
+        }
+        return Arrays.copyOf(codigos, distintos);
+    }
+
+    // Estrutura mutável, sempre acessada com a trava (leitura para buscar, escrita para alterar)
+    private final class Indice {
+        final int[][] listas = new int[TRIGRAMAS][]; // Trigrama -> posições das variações, em ordem crescente
+        final int[] tamanhos = new int[TRIGRAMAS];
+        final List<Item> itens = new ArrayList<>(); // Posição -> variação (null = removida)
+        final Map<Long, Integer> posicaoPorId = new HashMap<>();
+        int vivos;
+        int removidos;
+
+        void adicionar(Item item) {
+            int posicao = itens.size();
+            itens.add(item);
+            posicaoPorId.put(item.id(), posicao);
+            vivos++;
+            List<int[]> palavras = new ArrayList<>(palavras(item.nomeCompleto()));
+            palavras.addAll(palavras(item.marca()));
+            palavras.addAll(palavras(item.categoria()));
+            for (int trigrama : trigramas(palavras)) {
+                int[] lista = listas[trigrama];
+                if (lista == null) {
+                    lista = listas[trigrama] = new int[4];
+                } else if (tamanhos[trigrama] == lista.length) {
+                    lista = listas[trigrama] = Arrays.copyOf(lista, lista.length * 2);
+                }
+                lista[tamanhos[trigrama]++] = posicao;
+            }
+        }
+
+        // Remove as variações 'ids' e acrescenta as recarregadas (as que ficaram inativas não voltam)
+        void substituir(Set<Long> ids, List<Item> recarregados) {
+            for (Long id : ids) {
+                Integer posicao = posicaoPorId.remove(id);
+                if (posicao != null) {
+                    itens.set(posicao, null);
+                    vivos--;
+                    removidos++;
+                }
+            }
+            for (Item item : recarregados) adicionar(item);
+            if (removidos > Math.max(1000, vivos / 4)) recompactar();
+        }
+
+        // Refaz as listas só com as variações vivas (as posições removidas deixam de ser percorridas)
+        void recompactar() {
+            List<Item> atuais = new ArrayList<>(vivos);
+            for (Item item : itens) {
+                if (item != null) atuais.add(item);
+            }
+            Arrays.fill(listas, null);
+            Arrays.fill(tamanhos, 0);
+            itens.clear();
+            posicaoPorId.clear();
+            vivos = 0;
+            removidos = 0;
+            for (Item item : atuais) adicionar(item);
+        }
+
+        List<BuscaProdutoDTO> buscar(List<int[]> palavras, double similaridadeMinima, int k) {
+            int n = itens.size();
+            float[] pontos = new float[n];
+            int[] aprovadas = new int[n]; // Palavras da busca em que a variação atingiu a similaridade mínima
+            int[] contagem = new int[n];
+            int[] tocadosPalavra = new int[n];
+            int[] tocados = new int[n];
+            int quantidadeTocados = 0;
+
+            for (int[] trigramasPalavra : palavras) {
+                int quantidadePalavra = 0;
+                for (int trigrama : trigramasPalavra) {
+                    int[] lista = listas[trigrama];
+                    for (int i = 0, fim = tamanhos[trigrama]; i < fim; i++) {
+                        int posicao = lista[i];
+                        if (contagem[posicao]++ == 0) tocadosPalavra[quantidadePalavra++] = posicao;
+                    }
+                }
+                for (int i = 0; i < quantidadePalavra; i++) {
+                    int posicao = tocadosPalavra[i];
+                    if (pontos[posicao] == 0) tocados[quantidadeTocados++] = posicao;
+                    float similaridade = (float) contagem[posicao] / trigramasPalavra.length;
+                    pontos[posicao] += similaridade;
+                    if (similaridade >= similaridadeMinima) aprovadas[posicao]++;
+                    contagem[posicao] = 0;
+                }
+            }
+
+            // Os k melhores: heap com o pior no topo. Empate: nome mais curto (mais próximo da busca), depois ID.
+            PriorityQueue<Integer> melhores = new PriorityQueue<>(k + 1, (a, b) -> {
+                int porPontos = Float.compare(pontos[a], pontos[b]);
+                if (porPontos != 0) return porPontos;
+                int porNome = Integer.compare(tamanhoNome(itens.get(b)), tamanhoNome(itens.get(a)));
+                if (porNome != 0) return porNome;
+                return Long.compare(itens.get(b).id(), itens.get(a).id());
+            });
+            for (int i = 0; i < quantidadeTocados; i++) {
+                int posicao = tocados[i];
+                Item item = itens.get(posicao);
+                if (item == null || aprovadas[posicao] < palavras.size()) continue;
+                melhores.add(posicao);
+                if (melhores.size() > k) melhores.poll();
+            }
+
+            List<BuscaProdutoDTO> resultado = new ArrayList<>(melhores.size());
+            while (!melhores.isEmpty()) {
+                int posicao = melhores.poll();
+                resultado.add(paraDTO(itens.get(posicao), pontos[posicao]));
+            }
+            Collections.reverse(resultado);
+            return resultado;
+        }
+    }
+}
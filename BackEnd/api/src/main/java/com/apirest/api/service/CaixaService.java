@@ -4,9 +4,12 @@ import com.apirest.api.dto.*;
 import com.apirest.api.entity.*;
 import com.apirest.api.repository.CaixaMovimentacaoRepository;
 import com.apirest.api.repository.CaixaRepository;
+import com.apirest.api.repository.CaixaRepository.ResumoCaixas;
 import com.apirest.api.repository.FuncionarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.apirest.api.entity.FiltroPeriodo;
@@ -18,6 +21,7 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.temporal.TemporalField;
 import java.time.temporal.WeekFields;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -32,6 +36,11 @@ public class CaixaService {
     private final CaixaRepository caixaRepository;
     private final FuncionarioRepository funcionarioRepository;
     private final CaixaMovimentacaoRepository caixaMovimentacaoRepository;
+    private final ResumoVendasService resumoVendasService; // Dias já consolidados (tabelas de resumo)
+    private final Paginacao paginacao;
+    private final PainelCaixasService painelCaixasService; // Deltas do painel ao vivo (depois do commit)
+    private final RelatorioCaixaCache relatorioCaixaCache; // Relatórios de períodos encerrados não são recalculados
+    private final LivroCaixaService livroCaixaService; // Lançamento no livro + total corrente do caixa
 
     // --- DEFINIÇÃO DOS CARGOS ---
     private static final Set<Cargo> PERMISSAO_CARGO_ALTO = Set.of(
@@ -66,20 +75,15 @@ public class CaixaService {
     public Caixa fecharCaixa(Long idCaixa, CaixaFechamentoDTO dto) {
         log.info("Tentativa de fechamento de caixa ID: {}", idCaixa);
 
-        Caixa caixa = caixaRepository.findById(idCaixa)
+        Caixa caixa = caixaRepository.findByIdParaFechamento(idCaixa)
                 .orElseThrow(() -> new RuntimeException("Caixa não encontrado"));
 
         if (caixa.getStatus() == StatusCaixa.FECHADO) {
             throw new RuntimeException("Este caixa já está fechado.");
         }
 
-        // Calcular total do SISTEMA (Vendas)
-        BigDecimal totalVendasSistema = BigDecimal.ZERO;
-        for (Venda v : caixa.getVendas()) {
-            if (v.getStatusVenda() == StatusVenda.REALIZADA) {
-                totalVendasSistema = totalVendasSistema.add(v.getValorTotal());
-            }
-        }
+        // Calcular total do SISTEMA (Vendas) pelos totais correntes do caixa
+        BigDecimal totalVendasSistema = totalVendas(caixa);
 
         // Calcular total INFORMADO (Conferido pelo funcionário)
         BigDecimal totalInformado = dto.getDinheiro()
@@ -88,12 +92,9 @@ public class CaixaService {
                 .add(dto.getCredito())
                 .add(dto.getCrediario());
 
-        // Calcular suprimentos e sangrias
-        BigDecimal totalSuprimentos = caixaMovimentacaoRepository.somarPorTipo(caixa, CaixaMovimentacao.TipoMovimentacao.SUPRIMENTO);
-        BigDecimal totalSangrias = caixaMovimentacaoRepository.somarPorTipo(caixa, CaixaMovimentacao.TipoMovimentacao.SANGRIA);
-
-        if (totalSuprimentos == null) totalSuprimentos = BigDecimal.ZERO;
-        if (totalSangrias == null) totalSangrias = BigDecimal.ZERO;
+        // Suprimentos e sangrias (totais correntes)
+        BigDecimal totalSuprimentos = caixa.getSistemaSuprimentos();
+        BigDecimal totalSangrias = caixa.getSistemaSangrias();
 
         BigDecimal esperado = caixa.getSaldoInicial()
                 .add(totalVendasSistema)
@@ -117,8 +118,14 @@ public class CaixaService {
             caixa.setObservacoes(caixa.getObservacoes() + " | Fechamento: " + dto.getObservacao());
         }
 
+        // Confere os totais correntes com o livro do caixa (linha travada pelo findByIdParaFechamento)
+        livroCaixaService.conciliarFechamento(caixa);
+
         log.info("Caixa {} fechado. Quebra calculada: {}", idCaixa, quebra);
-        return caixaRepository.save(caixa);
+        Caixa fechado = caixaRepository.save(caixa);
+        painelCaixasService.publicarFechamento(fechado);
+        relatorioCaixaCache.invalidarPeriodosAbertos();
+        return fechado;
     }
 
     @Transactional(readOnly = true)
@@ -128,10 +135,21 @@ public class CaixaService {
         return toResponseDTO(caixa); // Certifique-se de ter o método toResponseDTO
     }
 
-    // OTIMIZAÇÃO: readOnly = true melhora performance de consultas
+    // Paginado por cursor (data de abertura, ID), mais recentes primeiro
     @Transactional(readOnly = true)
-    public List<Caixa> listarComFiltros(Long idFuncionario, StatusCaixa status, LocalDateTime inicio, LocalDateTime fim) {
-        return caixaRepository.findByFiltros(idFuncionario, status, inicio, fim);
+    public PaginaDTO<CaixaResponseDTO> listarComFiltros(Long idFuncionario, StatusCaixa status, LocalDateTime inicio, LocalDateTime fim,
+                                                       String cursor, Integer limitePedido) {
+        int limite = paginacao.limite(limitePedido);
+        Paginacao.Posicao posicao = paginacao.posicaoDecrescente(cursor);
+        List<Caixa> caixas = caixaRepository.buscarPaginaApos(idFuncionario, status, inicio, fim,
+                posicao.data(), posicao.id(), Limit.of(limite + 1));
+        return paginacao.montar(caixas, limite, this::toResponseDTO, Caixa::getDataAbertura, Caixa::getIdCaixa);
+    }
+
+    // Resumo de todos os caixas do filtro (não só da página), somado no banco
+    @Transactional(readOnly = true)
+    public DashboardResumoDTO resumirComFiltros(Long idFuncionario, StatusCaixa status, LocalDateTime inicio, LocalDateTime fim) {
+        return paraResumo(caixaRepository.resumirPorFiltros(idFuncionario, status, inicio, fim));
     }
 
     // RELATÓRIO AVANÇADO (Com filtros complexos)
@@ -202,30 +220,38 @@ public class CaixaService {
                 fim = hoje.atTime(LocalTime.MAX);
             }
         }
-        // Buscar Caixas com os Filtros Aplicados
-        List<Caixa> caixas = caixaRepository.findByFiltros(idFiltroFinal, status, inicio, fim);
-        DashboardResumoDTO resumo = calcularSomaDeCaixas(caixas);
-        List<CaixaResponseDTO> listaDTOs = caixas.stream().map(this::toResponseDTO).toList();
-
-        // Montar Resposta
-        Map<String, Object> response = new HashMap<>();
-        response.put("periodoDescricao", periodo.toString());
-        response.put("dataInicio", inicio);
-        response.put("dataFim", fim);
-        response.put("filtrosAplicados", Map.of(
-                "visualizandoFuncionario", (idFiltroFinal == null ? "TODOS" : idFiltroFinal),
-                "solicitadoPor", solicitante.getNomeCompleto(),
-                "cargoSolicitante", solicitante.getCargo()
-        ));
-        response.put("resumo", resumo);
-        response.put("listaCaixas", listaDTOs);
-
-        return response;
-    }
-
-    // Resumo Dashboard
-    public DashboardResumoDTO calcularResumoDashboard(List<Caixa> caixasFiltrados) {
-        return calcularSomaDeCaixas(caixasFiltrados);
+        // Período encerrado e sem caixa aberto dentro dele não muda mais (vai para o cache sem expiração)
+        boolean imutavel = relatorioCaixaCache.periodoEncerrado(fim)
+                && !caixaRepository.existsByStatusAndDataAberturaLessThanEqual(StatusCaixa.ABERTO, fim);
+        RelatorioCaixaCache.Chave chave = new RelatorioCaixaCache.Chave(
+                "relatorio:" + periodo, inicio, fim, idFiltroFinal, status, idSolicitante);
+        Long idFiltro = idFiltroFinal;
+        FiltroPeriodo periodoFinal = periodo;
+        LocalDateTime inicioFinal = inicio;
+        LocalDateTime fimFinal = fim;
+
+        return relatorioCaixaCache.obter(chave, imutavel, () -> {
+            // Buscar Caixas com os Filtros Aplicados
+            List<Caixa> caixas = caixaRepository.findByFiltros(idFiltro, status, inicioFinal, fimFinal);
+            DashboardResumoDTO resumo = calcularSomaDeCaixas(caixas);
+            List<CaixaResponseDTO> listaDTOs = caixas.stream().map(this::toResponseDTO).toList();
+
+            // Montar Resposta
+            Map<String, Object> response = new HashMap<>();
+            response.put("periodoDescricao", periodoFinal.toString());
+            response.put("dataInicio", inicioFinal);
+            response.put("dataFim", fimFinal);
+            response.put("filtrosAplicados", Map.of(
+                    "visualizandoFuncionario", (idFiltro == null ? "TODOS" : idFiltro),
+                    "solicitadoPor", solicitante.getNomeCompleto(),
+                    "cargoSolicitante", solicitante.getCargo()
+            ));
+            response.put("resumo", resumo);
+            response.put("listaCaixas", listaDTOs);
+
+            // A mesma instância é devolvida a todos que pedirem o período
+            return Collections.unmodifiableMap(response);
+        });
     }
 
     // Relatório Individual
@@ -234,19 +260,10 @@ public class CaixaService {
         Funcionario funcionario = funcionarioRepository.findById(idFuncionario)
                 .orElseThrow(() -> new RuntimeException("Funcionário não encontrado"));
 
-        LocalDateTime agora = LocalDateTime.now(ZoneId.of("America/Sao_Paulo"));
-
-        LocalDateTime inicioDia = agora.toLocalDate().atStartOfDay();
-        LocalDateTime fimDia = agora.toLocalDate().atTime(LocalTime.MAX);
+        LocalDate hoje = LocalDate.now(ZoneId.of("America/Sao_Paulo"));
 
-        LocalDateTime inicioMes = agora.withDayOfMonth(1).toLocalDate().atStartOfDay();
-        LocalDateTime fimMes = agora.toLocalDate().atTime(LocalTime.MAX);
-
-        List<Caixa> caixasHoje = caixaRepository.findCaixasFechadosPorPeriodo(idFuncionario, inicioDia, fimDia);
-        List<Caixa> caixasMes = caixaRepository.findCaixasFechadosPorPeriodo(idFuncionario, inicioMes, fimMes);
-
-        DashboardResumoDTO resumoHoje = calcularSomaDeCaixas(caixasHoje);
-        DashboardResumoDTO resumoMes = calcularSomaDeCaixas(caixasMes);
+        DashboardResumoDTO resumoHoje = paraResumo(resumoVendasService.resumir(idFuncionario, hoje, hoje));
+        DashboardResumoDTO resumoMes = paraResumo(resumoVendasService.resumir(idFuncionario, hoje.withDayOfMonth(1), hoje));
 
         return RelatorioIndividualDTO.builder()
                 .nomeFuncionario(funcionario.getNomeCompleto())
@@ -286,49 +303,84 @@ public class CaixaService {
     }
 
     // Relatório Global (Dia)
-    @Transactional(readOnly = true)
+    // Sem @Transactional: um acerto no cache não precisa pegar conexão
     public RelatorioPeriodoDTO gerarRelatorioDoDia(LocalDate data) {
-        LocalDateTime inicio = data.atStartOfDay();
-        LocalDateTime fim = data.atTime(LocalTime.MAX);
-
-        List<Caixa> caixas = caixaRepository.findAllCaixasFechadosPorPeriodo(inicio, fim);
-        DashboardResumoDTO soma = calcularSomaDeCaixas(caixas);
-
-        return RelatorioPeriodoDTO.builder()
-                .periodo(data.toString())
-                .totalGeral(soma.getTotalConferido())
-                .totalDinheiro(soma.getTotalDinheiro())
-                .totalPix(soma.getTotalPix())
-                .totalDebito(soma.getTotalDebito())
-                .totalCredito(soma.getTotalCredito())
-                .totalCrediario(soma.getTotalCrediario())
-                .quantidadeCaixasFechados(caixas.size())
-                .build();
+        // Dia já consolidado vem da tabela de resumo; o dia corrente é somado direto nos caixas
+        return relatorioPeriodo("diario", data, data, data.toString());
     }
 
     // Relatório Global (Mês)
-    @Transactional(readOnly = true)
     public RelatorioPeriodoDTO gerarRelatorioDoMes(int ano, int mes) {
         LocalDate dataInicial = LocalDate.of(ano, mes, 1);
+        LocalDate dataFinal = dataInicial.withDayOfMonth(dataInicial.lengthOfMonth());
+
+        // Mês encerrado sai inteiro das tabelas de resumo
+        return relatorioPeriodo("mensal", dataInicial, dataFinal, mes + "/" + ano);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Relatórios do dia/mês contam caixas pela data de fechamento: período encerrado não muda mais
+    private RelatorioPeriodoDTO relatorioPeriodo(String relatorio, LocalDate dataInicial, LocalDate dataFinal, String descricao) {
         LocalDateTime inicio = dataInicial.atStartOfDay();
-        LocalDateTime fim = dataInicial.withDayOfMonth(dataInicial.lengthOfMonth()).atTime(LocalTime.MAX);
+        LocalDateTime fim = dataFinal.atTime(LocalTime.MAX);
+        RelatorioCaixaCache.Chave chave = new RelatorioCaixaCache.Chave(relatorio, inicio, fim, null, null, null);
 
-        List<Caixa> caixas = caixaRepository.findAllCaixasFechadosPorPeriodo(inicio, fim);
-        DashboardResumoDTO soma = calcularSomaDeCaixas(caixas);
+        return relatorioCaixaCache.obter(chave, relatorioCaixaCache.periodoEncerrado(fim), () -> {
+            ResumoCaixas resumo = resumoVendasService.resumir(null, dataInicial, dataFinal);
+            return paraRelatorio(descricao, resumo);
+        });
+    }
 
+    // Relatório de um período a partir do resumo somado (também usado pelo relatório do grupo)
+    static RelatorioPeriodoDTO paraRelatorio(String periodo, ResumoCaixas r) {
+        DashboardResumoDTO soma = paraResumo(r);
         return RelatorioPeriodoDTO.builder()
-                .periodo(mes + "/" + ano)
+                .periodo(periodo)
                 .totalGeral(soma.getTotalConferido())
                 .totalDinheiro(soma.getTotalDinheiro())
                 .totalPix(soma.getTotalPix())
                 .totalDebito(soma.getTotalDebito())
                 .totalCredito(soma.getTotalCredito())
                 .totalCrediario(soma.getTotalCrediario())
-                .quantidadeCaixasFechados(caixas.size())
+                .quantidadeCaixasFechados(r.getQuantidade() != null ? r.getQuantidade().intValue() : 0)
                 .build();
     }
 
-    // --- MÉTODOS AUXILIARES PRIVADOS ---
+    // Converte o resumo somado no banco (mesmas regras de calcularSomaDeCaixas)
+    static DashboardResumoDTO paraResumo(ResumoCaixas r) {
+        BigDecimal dinheiro = valor(r.getConferidoDinheiro());
+        BigDecimal pix = valor(r.getConferidoPix());
+        BigDecimal debito = valor(r.getConferidoDebito());
+        BigDecimal credito = valor(r.getConferidoCredito());
+        BigDecimal crediario = valor(r.getConferidoCrediario());
+
+        BigDecimal sisDinheiro = valor(r.getSistemaDinheiro());
+        BigDecimal sisPix = valor(r.getSistemaPix());
+        BigDecimal sisDebito = valor(r.getSistemaDebito());
+        BigDecimal sisCredito = valor(r.getSistemaCredito());
+        BigDecimal sisCrediario = valor(r.getSistemaCrediario());
+
+        return DashboardResumoDTO.builder()
+                .totalPrevisto(sisDinheiro.add(sisPix).add(sisDebito).add(sisCredito).add(sisCrediario))
+                .totalConferido(dinheiro.add(pix).add(debito).add(credito).add(crediario))
+                .totalQuebra(valor(r.getQuebra()))
+                .totalDinheiro(dinheiro)
+                .totalPix(pix)
+                .totalDebito(debito)
+                .totalCredito(credito)
+                .totalCrediario(crediario)
+                .previstoDinheiro(sisDinheiro)
+                .previstoPix(sisPix)
+                .previstoDebito(sisDebito)
+                .previstoCredito(sisCredito)
+                .previstoCrediario(sisCrediario)
+                .build();
+    }
+
+    private static BigDecimal valor(BigDecimal v) {
+        return v != null ? v : BigDecimal.ZERO;
+    }
 
     private DashboardResumoDTO calcularSomaDeCaixas(List<Caixa> listaCaixas) {
         // Conferido (Manual)
@@ -357,22 +409,13 @@ public class CaixaService {
             if (c.getConferidoCrediario() != null) crediario = crediario.add(c.getConferidoCrediario());
             if (c.getQuebraDeCaixa() != null) quebraTotal = quebraTotal.add(c.getQuebraDeCaixa());
 
-            // Soma Previsto (Itera sobre as vendas deste caixa)
-            if (c.getVendas() != null) {
-                for (Venda v : c.getVendas()) {
-                    if (v.getStatusVenda() == StatusVenda.REALIZADA) {
-                        previstoSistemaTotal = previstoSistemaTotal.add(v.getValorTotal());
-
-                        switch (v.getMetodoPagamento()) {
-                            case DINHEIRO -> sisDinheiro = sisDinheiro.add(v.getValorTotal());
-                            case PIX -> sisPix = sisPix.add(v.getValorTotal());
-                            case DEBITO -> sisDebito = sisDebito.add(v.getValorTotal());
-                            case CREDITO -> sisCredito = sisCredito.add(v.getValorTotal());
-                            case CREDIARIO -> sisCrediario = sisCrediario.add(v.getValorTotal());
-                        }
-                    }
-                }
-            }
+            // Soma Previsto (totais correntes do caixa, sem percorrer as vendas)
+            sisDinheiro = sisDinheiro.add(c.getSistemaDinheiro());
+            sisPix = sisPix.add(c.getSistemaPix());
+            sisDebito = sisDebito.add(c.getSistemaDebito());
+            sisCredito = sisCredito.add(c.getSistemaCredito());
+            sisCrediario = sisCrediario.add(c.getSistemaCrediario());
+            previstoSistemaTotal = previstoSistemaTotal.add(totalVendas(c));
         }
 
         BigDecimal totalConferidoGeral = dinheiro.add(pix).add(debito).add(credito).add(crediario);
@@ -409,13 +452,18 @@ public class CaixaService {
             throw new RuntimeException("Só é possível movimentar caixas ABERTOS.");
         }
 
-        // Converte string para Enum (SANGRIA ou SUPRIMENTO)
+        // Converte string para Enum (SANGRIA, SUPRIMENTO ou ENTRADA)
         CaixaMovimentacao.TipoMovimentacao tipoEnum;
         try {
             tipoEnum = CaixaMovimentacao.TipoMovimentacao.valueOf(tipo.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Tipo de movimentação inválido. Use 'SANGRIA' ou 'SUPRIMENTO'.");
         }
+        TipoLancamentoCaixa lancamento = switch (tipoEnum) {
+            case SANGRIA -> TipoLancamentoCaixa.SANGRIA;
+            case SUPRIMENTO -> TipoLancamentoCaixa.SUPRIMENTO;
+            case ENTRADA -> TipoLancamentoCaixa.ENTRADA;
+        };
 
         CaixaMovimentacao mov = CaixaMovimentacao.builder()
                 .caixa(caixa)
@@ -425,6 +473,29 @@ public class CaixaService {
                 .dataHora(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")))
                 .build();
 
-        return caixaMovimentacaoRepository.save(mov);
+        CaixaMovimentacao salva = caixaMovimentacaoRepository.save(mov);
+        if (!livroCaixaService.lancar(idCaixa, lancamento, null, valor, salva.getId())) {
+            throw new RuntimeException("Só é possível movimentar caixas ABERTOS.");
+        }
+        painelCaixasService.publicarMovimentacao(caixa, tipoEnum, valor);
+        return salva;
+    }
+
+    // Verificação dos totais correntes: refaz as somas a partir das vendas e movimentações e aponta divergências
+    @Scheduled(cron = "${caixa.totais.verificacao-cron:0 15 * * * *}")
+    public void verificarTotais() {
+        List<Long> divergentes = caixaRepository.buscarTotaisDivergentes(
+                LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).minusDays(1));
+        if (!divergentes.isEmpty()) {
+            log.warn("Totais correntes divergentes das vendas/movimentações nos caixas: {}", divergentes);
+        }
+    }
+
+    private BigDecimal totalVendas(Caixa c) {
+        return c.getSistemaDinheiro()
+                .add(c.getSistemaPix())
+                .add(c.getSistemaDebito())
+                .add(c.getSistemaCredito())
+                .add(c.getSistemaCrediario());
     }
 }
\ No newline at end of file
@@ -3,11 +3,13 @@ package com.apirest.api.service;
 import com.apirest.api.dto.ClienteDTO;
 import com.apirest.api.dto.ClientePatchDTO;
 import com.apirest.api.dto.ClienteResponseDTO;
+import com.apirest.api.dto.PaginaDTO;
 import com.apirest.api.entity.Cliente;
 import com.apirest.api.repository.ClienteRepository;
 import com.apirest.api.repository.FuncionarioRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -22,6 +24,7 @@ public class ClienteService {
     private final ClienteRepository repository;
     private final FuncionarioRepository funcionarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final Paginacao paginacao;
 
     // metodo para limpar CPF (remover pontos e traços)
     private String limparCPF(String cpf) {
@@ -107,9 +110,12 @@ public class ClienteService {
         return repository.save(cliente);
     }
 
-    // listar todos clientes ativos
-    public List<Cliente> listarTodos() {
-        return repository.findAllByAtivoTrue();
+    // listar clientes ativos, paginado por cursor (ID crescente)
+    public PaginaDTO<Cliente> listarTodos(String cursor, Integer limitePedido) {
+        int limite = paginacao.limite(limitePedido);
+        List<Cliente> clientes = repository.findByAtivoTrueAndIdClienteGreaterThanOrderByIdClienteAsc(
+                paginacao.idCrescente(cursor), Limit.of(limite + 1));
+        return paginacao.montar(clientes, limite, c -> c, c -> null, Cliente::getIdCliente);
     }
 
     // buscar cliente por ID
@@ -0,0 +1,164 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.ComissaoFuncionarioDTO;
+import com.apirest.api.entity.ComissaoLancamento;
+import com.apirest.api.entity.Venda;
+import com.apirest.api.repository.ComissaoLancamentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+// Comissão acumulada por vendedor sem disputa na linha de funcionarios durante a venda.
+// 1. Cada venda grava um lançamento em comissao_lancamentos (mesma transação da venda).
+// 2. Um job descarrega os lançamentos pendentes em funcionarios.valor_comissao_acumulado com um único comando
+//    (marca os lançamentos e soma no funcionário na mesma instrução), então uma queda no meio não perde nem duplica.
+// 3. A consulta ao vivo soma o acumulado e os lançamentos ainda pendentes no mesmo comando.
+// Nenhum estado fica em memória: o livro é a única fonte, então várias instâncias da API podem rodar juntas
+// (a descarga reparte os lançamentos com SKIP LOCKED e a reconciliação trava um funcionário por vez).
+@Service
+@Slf4j
+public class ComissaoService {
+
+    // Marca um lote de lançamentos como aplicados e soma por funcionário, tudo num comando só
+    private static final String SQL_DESCARREGAR = """
+            WITH lote AS (
+                SELECT id FROM comissao_lancamentos
+                WHERE NOT aplicado
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), aplicados AS (
+                UPDATE comissao_lancamentos c SET aplicado = true
+                FROM lote
+                WHERE c.id = lote.id
+                RETURNING c.id_funcionario, c.valor
+            ), totais AS (
+                SELECT id_funcionario, SUM(valor) AS total FROM aplicados GROUP BY id_funcionario
+            )
+            UPDATE funcionarios f
+            SET valor_comissao_acumulado = COALESCE(f.valor_comissao_acumulado, 0) + totais.total
+            FROM totais
+            WHERE f.id_funcionario = totais.id_funcionario
+            RETURNING f.id_funcionario, totais.total
+            """;
+
+    // Acumulado e pendente lidos no mesmo comando (mesmo snapshot): uma descarga no meio não conta duas vezes
+    private static final String SQL_CONSULTAR = """
+            SELECT COALESCE(f.valor_comissao_acumulado, 0),
+                   COALESCE((SELECT SUM(c.valor) FROM comissao_lancamentos c
+                             WHERE c.id_funcionario = f.id_funcionario AND NOT c.aplicado), 0)
+            FROM funcionarios f
+            WHERE f.id_funcionario = ?
+            """;
+
+    private static final String SQL_FUNCIONARIOS = "SELECT id_funcionario FROM funcionarios ORDER BY id_funcionario";
+
+    // A descarga soma no funcionário depois de marcar os lançamentos: com a linha dele travada, a soma lida no
+    // comando seguinte (snapshot novo) já inclui as descargas confirmadas, e as em andamento esperam a trava.
+    private static final String SQL_TRAVAR_FUNCIONARIO =
+            "SELECT id_funcionario FROM funcionarios WHERE id_funcionario = ? FOR UPDATE";
+
+    // Acumulado = soma exata dos lançamentos aplicados (corrige qualquer divergência manual)
+    private static final String SQL_RECONCILIAR = """
+            UPDATE funcionarios f
+            SET valor_comissao_acumulado = s.total
+            FROM (SELECT COALESCE(SUM(valor), 0) AS total FROM comissao_lancamentos
+                  WHERE id_funcionario = ? AND aplicado) s
+            WHERE f.id_funcionario = ? AND f.valor_comissao_acumulado IS DISTINCT FROM s.total
+            """;
+
+    private final ComissaoLancamentoRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoLote;
+
+    public ComissaoService(ComissaoLancamentoRepository repository,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${vendas.comissao.lote-descarga:500}") int tamanhoLote) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    // Lança a comissão da venda (chamado dentro da transação da venda ou da reativação)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Venda venda) {
+        lancar(venda, venda.getValorComissao());
+    }
+
+    // Estorna a comissão de uma venda cancelada
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void estornar(Venda venda) {
+        BigDecimal valor = venda.getValorComissao();
+        lancar(venda, valor == null ? null : valor.negate());
+    }
+
+    // Comissão ao vivo: acumulado no banco + lançamentos ainda não descarregados (de qualquer instância)
+    public ComissaoFuncionarioDTO consultar(Long idFuncionario) {
+        List<BigDecimal[]> linhas = jdbcTemplate.query(SQL_CONSULTAR,
+                (rs, i) -> new BigDecimal[]{rs.getBigDecimal(1), rs.getBigDecimal(2)}, idFuncionario);
+        if (linhas.isEmpty()) throw new RuntimeException("Funcionário não encontrado");
+        BigDecimal acumulado = linhas.get(0)[0];
+        BigDecimal pendente = linhas.get(0)[1];
+        return ComissaoFuncionarioDTO.builder()
+                .idFuncionario(idFuncionario)
+                .acumulado(acumulado)
+                .pendente(pendente)
+                .total(acumulado.add(pendente))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${vendas.comissao.descarga-ms:30000}")
+    public void descarregar() {
+        int atualizados = 0;
+        int aplicados;
+        do {
+            aplicados = jdbcTemplate.query(SQL_DESCARREGAR, (rs, i) -> rs.getLong(1), tamanhoLote).size();
+            atualizados += aplicados;
+        } while (aplicados > 0);
+        if (atualizados > 0) log.debug("Descarga de comissões: {} atualizações de acumulado.", atualizados);
+    }
+
+    // Verificação noturna: recalcula o acumulado a partir do livro, um funcionário por transação.
+    // Só a linha do funcionário fica travada (e só as descargas dele esperam); as vendas não tocam nessa linha.
+    @Scheduled(cron = "${vendas.comissao.reconciliacao-cron:0 0 4 * * *}")
+    public void reconciliar() {
+        int corrigidos = 0;
+        for (Long idFuncionario : jdbcTemplate.queryForList(SQL_FUNCIONARIOS, Long.class)) {
+            Integer atualizados = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList(SQL_TRAVAR_FUNCIONARIO, Long.class, idFuncionario);
+                return jdbcTemplate.update(SQL_RECONCILIAR, idFuncionario, idFuncionario);
+            });
+            if (atualizados != null) corrigidos += atualizados;
+        }
+        if (corrigidos > 0) log.warn("Reconciliação de comissões corrigiu {} funcionários.", corrigidos);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void lancar(Venda venda, BigDecimal valor) {
+        if (valor == null || valor.signum() == 0) return;
+        BigDecimal valorLancado = valor.setScale(2, RoundingMode.HALF_UP);
+        Long idFuncionario = venda.getFuncionario().getIdFuncionario();
+
+        repository.save(ComissaoLancamento.builder()
+                .idFuncionario(idFuncionario)
+                .idVenda(venda.getIdVenda())
+                .valor(valorLancado)
+                .dataLancamento(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")))
+                .build());
+    }
+}
@@ -24,6 +24,7 @@ public class ContaReceberService {
     private final CaixaRepository caixaRepository;
     private final CaixaMovimentacaoRepository caixaMovimentacaoRepository;
     private final FuncionarioRepository funcionarioRepository;
+    private final LivroCaixaService livroCaixaService; // Recebimento de parcela no livro do caixa
 
     // Buscar todas as contas de um cliente (Histórico financeiro)
     @Transactional(readOnly = true)
@@ -134,7 +135,11 @@ public class ContaReceberService {
                 .usuarioAutorizador(recebedor)
                 .build();
 
-        caixaMovimentacaoRepository.save(movimentacao);
+        CaixaMovimentacao salva = caixaMovimentacaoRepository.save(movimentacao);
+        if (!livroCaixaService.lancar(caixa.getIdCaixa(), TipoLancamentoCaixa.RECEBIMENTO_PARCELA,
+                dto.getMetodoPagamento(), dto.getValorPago(), salva.getId())) {
+            throw new RuntimeException("Caixa já fechado.");
+        }
 
         // Verificar se a Conta inteira foi quitada
         boolean todasPagas = todasParcelas.stream()
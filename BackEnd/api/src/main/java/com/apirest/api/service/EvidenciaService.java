@@ -0,0 +1,50 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.EvidenciaUploadResponseDTO;
+import com.apirest.api.entity.VendaEvidencia;
+import com.apirest.api.repository.VendaEvidenciaRepository;
+import com.apirest.api.service.ArmazenamentoBlobService.BlobSalvo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+@Service
+@RequiredArgsConstructor
+public class EvidenciaService {
+
+    private final ArmazenamentoBlobService armazenamentoBlobService;
+    private final VendaEvidenciaRepository vendaEvidenciaRepository;
+
+    // Upload em stream: o conteúdo vai direto para o disco, com o hash calculado durante a cópia
+    public EvidenciaUploadResponseDTO enviar(MultipartFile arquivo) {
+        if (arquivo == null || arquivo.isEmpty()) throw new RuntimeException("Arquivo obrigatório.");
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            BlobSalvo salvo = armazenamentoBlobService.salvar(conteudo);
+            return EvidenciaUploadResponseDTO.builder()
+                    .hash(salvo.hash())
+                    .tamanho(salvo.tamanho())
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler o arquivo enviado.", e);
+        }
+    }
+
+    // Hash do arquivo de assinatura ou do comprovante de uma venda
+    @Transactional(readOnly = true)
+    public String buscarHash(Long idVenda, String tipo) {
+        VendaEvidencia evidencia = vendaEvidenciaRepository.findByVendaIdVenda(idVenda)
+                .orElseThrow(() -> new RuntimeException("Venda sem evidências registradas."));
+        String hash = switch (tipo) {
+            case "assinatura" -> evidencia.getAssinaturaHash();
+            case "comprovante" -> evidencia.getFotoComprovanteHash();
+            default -> throw new RuntimeException("Tipo de evidência inválido: " + tipo);
+        };
+        if (hash == null) throw new RuntimeException("Venda sem " + tipo + " registrada.");
+        return hash;
+    }
+}
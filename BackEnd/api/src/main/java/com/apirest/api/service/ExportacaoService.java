@@ -0,0 +1,264 @@
+package com.apirest.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+// Exportação de vendas e caixas por período direto do cursor JDBC para a resposta (CSV ou NDJSON, opcionalmente gzip).
+// Transação somente leitura + fetch size: o PostgreSQL entrega as linhas aos poucos e cada linha é escrita e descartada,
+// então a memória não cresce com o tamanho do período.
+@Service
+@Slf4j
+public class ExportacaoService {
+
+    private static final String SQL_VENDAS = """
+            SELECT v.id_venda, v.data_venda, v.id_caixa, v.id_funcionario, f.nome_completo AS nome_funcionario,
+                   v.id_cliente, c.nome_completo AS nome_cliente, v.metodo_pagamento, v.status_venda,
+                   v.valor_bruto, v.valor_total, v.troco_total, v.valor_comissao, v.observacoes
+            FROM venda v
+            JOIN funcionarios f ON f.id_funcionario = v.id_funcionario
+            JOIN clientes c ON c.id_cliente = v.id_cliente
+            WHERE v.data_venda >= ? AND v.data_venda < ?
+            ORDER BY v.data_venda, v.id_venda
+            """;
+
+    private static final String SQL_CAIXAS = """
+            SELECT c.id_caixa, c.id_funcionario, f.nome_completo AS nome_funcionario, c.status,
+                   c.data_abertura, c.data_fechamento, c.saldo_inicial,
+                   c.sistema_dinheiro, c.sistema_pix, c.sistema_debito, c.sistema_credito, c.sistema_crediario,
+                   c.sistema_sangrias, c.sistema_suprimentos,
+                   c.conferido_dinheiro, c.conferido_pix, c.conferido_debito, c.conferido_credito, c.conferido_crediario,
+                   c.quebra_de_caixa, c.observacoes
+            FROM caixas c
+            JOIN funcionarios f ON f.id_funcionario = c.id_funcionario
+            WHERE c.data_abertura >= ? AND c.data_abertura < ?
+            ORDER BY c.data_abertura, c.id_caixa
+            """;
+
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String tipoConteudo;
+        private final String extensao;
+
+        Formato(String tipoConteudo, String extensao) {
+            this.tipoConteudo = tipoConteudo;
+            this.extensao = extensao;
+        }
+
+        public String tipoConteudo() {
+            return tipoConteudo;
+        }
+
+        public String extensao() {
+            return extensao;
+        }
+
+        public static Formato de(String valor) {
+            try {
+                return valueOf(valor.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Formato inválido. Use 'csv' ou 'ndjson'.");
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leitura;
+    private final ObjectMapper objectMapper;
+
+    public ExportacaoService(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${exportacao.fetch-size:1000}") int fetchSize) {
+        // JdbcTemplate próprio: o fetch size só vale para as exportações
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // Sem transação o driver do PostgreSQL ignora o fetch size e traz o resultado inteiro
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // Chamado pelo controller antes de abrir o stream (depois disso não dá mais para responder 400)
+    public void validarPeriodo(LocalDate inicio, LocalDate fim) {
+        if (fim.isBefore(inicio)) throw new RuntimeException("dataFim deve ser igual ou posterior a dataInicio.");
+    }
+
+    // Vendas com data_venda entre os dias (inclusive)
+    public long exportarVendas(LocalDate inicio, LocalDate fim, Formato formato, boolean gzip, OutputStream saida) throws IOException {
+        return exportar(SQL_VENDAS, inicio, fim, formato, gzip, saida);
+    }
+
+    // Caixas abertos entre os dias (inclusive)
+    public long exportarCaixas(LocalDate inicio, LocalDate fim, Formato formato, boolean gzip, OutputStream saida) throws IOException {
+        return exportar(SQL_CAIXAS, inicio, fim, formato, gzip, saida);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private long exportar(String sql, LocalDate inicio, LocalDate fim, Formato formato, boolean gzip, OutputStream saida) throws IOException {
+        validarPeriodo(inicio, fim);
+
+        OutputStream destino = gzip ? new GZIPOutputStream(saida, 64 * 1024) : saida;
+        Escritor escritor = formato == Formato.CSV ? new EscritorCsv(destino) : new EscritorNdjson(destino);
+        Timestamp de = Timestamp.valueOf(inicio.atStartOfDay());
+        Timestamp ate = Timestamp.valueOf(fim.plusDays(1).atStartOfDay());
+
+        Long linhas;
+        try {
+            linhas = leitura.execute(status -> jdbcTemplate.query(sql, (ResultSetExtractor<Long>) rs -> {
+                long contador = 0;
+                try {
+                    escritor.cabecalho(rs.getMetaData());
+                    while (rs.next()) {
+                        escritor.linha(rs);
+                        contador++;
+                    }
+                    escritor.concluir(contador);
+                } catch (IOException e) {
+                    // Cliente desconectou: interrompe a leitura do cursor
+                    throw new UncheckedIOException(e);
+                }
+                return contador;
+            }, de, ate));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (destino instanceof GZIPOutputStream gz) gz.finish();
+        log.info("Exportação concluída: {} linhas ({} a {}, {}{})", linhas, inicio, fim, formato, gzip ? ", gzip" : "");
+        return linhas;
+    }
+
+    private interface Escritor {
+        void cabecalho(ResultSetMetaData meta) throws SQLException, IOException;
+
+        void linha(ResultSet rs) throws SQLException, IOException;
+
+        void concluir(long linhas) throws IOException;
+    }
+
+    // RFC 4180: vírgula como separador, aspas quando o texto tem vírgula, aspas ou quebra de linha.
+    // Texto que começa como fórmula recebe o prefixo ' (injeção de fórmula no Excel/LibreOffice).
+    private static class EscritorCsv implements Escritor {
+        private final Writer out;
+        private int colunas;
+
+        EscritorCsv(OutputStream destino) {
+            this.out = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void cabecalho(ResultSetMetaData meta) throws SQLException, IOException {
+            colunas = meta.getColumnCount();
+            for (int i = 1; i <= colunas; i++) {
+                if (i > 1) out.write(',');
+                out.write(meta.getColumnLabel(i));
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        public void linha(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= colunas; i++) {
+                if (i > 1) out.write(',');
+                Object objeto = rs.getObject(i);
+                String valor = texto(objeto);
+                if (valor == null) continue;
+                // Texto livre (observações, nomes) começando com = + - @ vira fórmula na planilha: prefixo ' neutraliza.
+                // Números negativos ficam como estão.
+                if (objeto instanceof String && !valor.isEmpty() && "=+-@\t\r".indexOf(valor.charAt(0)) >= 0) {
+                    valor = "'" + valor;
+                }
+                if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+                    out.write('"');
+                    out.write(valor.replace("\"", "\"\""));
+                    out.write('"');
+                } else {
+                    out.write(valor);
+                }
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        public void concluir(long linhas) throws IOException {
+            out.flush();
+        }
+    }
+
+    // Um objeto JSON por linha, com os nomes das colunas como campos
+    private class EscritorNdjson implements Escritor {
+        private final JsonGenerator gerador;
+        private String[] nomes;
+
+        EscritorNdjson(OutputStream destino) throws IOException {
+            this.gerador = objectMapper.getFactory().createGenerator(destino);
+            this.gerador.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void cabecalho(ResultSetMetaData meta) throws SQLException {
+            nomes = new String[meta.getColumnCount()];
+            for (int i = 0; i < nomes.length; i++) {
+                nomes[i] = meta.getColumnLabel(i + 1);
+            }
+        }
+
+        @Override
+        public void linha(ResultSet rs) throws SQLException, IOException {
+            gerador.writeStartObject();
+            for (int i = 0; i < nomes.length; i++) {
+                Object valor = rs.getObject(i + 1);
+                gerador.writeFieldName(nomes[i]);
+                if (valor == null) gerador.writeNull();
+                else if (valor instanceof BigDecimal numero) gerador.writeNumber(numero);
+                else if (valor instanceof Long numero) gerador.writeNumber(numero);
+                else if (valor instanceof Integer numero) gerador.writeNumber(numero);
+                else if (valor instanceof Boolean logico) gerador.writeBoolean(logico);
+                else gerador.writeString(texto(valor));
+            }
+            gerador.writeEndObject();
+        }
+
+        @Override
+        public void concluir(long linhas) throws IOException {
+            if (linhas > 0) gerador.writeRaw('\n');
+            gerador.flush();
+        }
+    }
+
+    private static String texto(Object valor) {
+        if (valor == null) return null;
+        if (valor instanceof Timestamp ts) return ts.toLocalDateTime().toString();
+        if (valor instanceof Date data) return data.toLocalDate().toString();
+        if (valor instanceof BigDecimal numero) return numero.toPlainString();
+        return valor.toString();
+    }
+}
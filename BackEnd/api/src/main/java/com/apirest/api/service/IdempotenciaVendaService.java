@@ -0,0 +1,209 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.VendaDTO;
+import com.apirest.api.dto.VendaResponseDTO;
+import com.apirest.api.entity.VendaIdempotencia;
+import com.apirest.api.repository.VendaIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Garante que reenvios de POST /vendas com o mesmo Idempotency-Key não registrem a venda duas vezes.
+// Camadas: LRU em memória -> tabela venda_idempotencia -> execução única por chave (reenvios simultâneos aguardam a mesma execução).
+@Service
+@Slf4j
+public class IdempotenciaVendaService {
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    private final VendaIdempotenciaRepository repository;
+    private final ObjectMapper objectMapper;
+    private final long esperaSegundos;
+    private final long retencaoHoras;
+
+    // LRU das respostas mais recentes (acesso sincronizado)
+    private final Map<String, VendaIdempotencia> cache;
+
+    // Execuções em andamento, por chave
+    private final ConcurrentHashMap<String, Execucao> emAndamento = new ConcurrentHashMap<>();
+
+    private record Execucao(String hashRequisicao, CompletableFuture<VendaResponseDTO> resultado) {
+    }
+
+    public IdempotenciaVendaService(VendaIdempotenciaRepository repository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${vendas.idempotencia.cache-tamanho:1000}") int tamanhoCache,
+                                    @Value("${vendas.idempotencia.espera-segundos:30}") long esperaSegundos,
+                                    @Value("${vendas.idempotencia.retencao-horas:48}") long retencaoHoras) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.esperaSegundos = esperaSegundos;
+        this.retencaoHoras = retencaoHoras;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VendaIdempotencia> eldest) {
+                return size() > tamanhoCache;
+            }
+        });
+    }
+
+    // Executa a ação uma única vez por chave. Reenvios recebem a resposta guardada.
+    public VendaResponseDTO executar(String chave, VendaDTO dto, Supplier<VendaResponseDTO> acao) {
+        validarChave(chave);
+        String hash = hashRequisicao(dto);
+
+        VendaResponseDTO salva = buscarResultado(chave, hash);
+        if (salva != null) return salva;
+
+        Execucao nova = new Execucao(hash, new CompletableFuture<>());
+        Execucao existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            // Reenvio chegou enquanto a primeira tentativa ainda está processando: aguarda o mesmo resultado
+            if (!existente.hashRequisicao().equals(hash)) throw chaveReutilizada(chave);
+            log.info("Idempotency-Key {} já em processamento. Aguardando a execução original.", chave);
+            return aguardar(existente.resultado());
+        }
+
+        try {
+            // A execução anterior pode ter terminado entre a primeira consulta e o registro em andamento
+            salva = buscarResultado(chave, hash);
+            if (salva == null) {
+                salva = acao.get();
+            }
+            nova.resultado().complete(salva);
+            return salva;
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância gravou a mesma chave primeiro (PK de venda_idempotencia): esta venda foi desfeita
+            salva = buscarResultado(chave, hash);
+            if (salva == null) {
+                nova.resultado().completeExceptionally(e);
+                throw e;
+            }
+            nova.resultado().complete(salva);
+            return salva;
+        } catch (RuntimeException e) {
+            nova.resultado().completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    // Resposta guardada para a chave, ou null se a chave ainda não foi usada.
+    // Usado pelo lote (/vendas/lote), que grava a chave de cada linha na transação do bloco.
+    public VendaResponseDTO buscarRegistrada(String chave, VendaDTO dto) {
+        validarChave(chave);
+        return buscarResultado(chave, hashRequisicao(dto));
+    }
+
+    // Grava o resultado na mesma transação da venda: se a venda for desfeita, a chave também é
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String chave, VendaDTO dto, VendaResponseDTO resposta) {
+        VendaIdempotencia registro = VendaIdempotencia.builder()
+                .chave(chave)
+                .hashRequisicao(hashRequisicao(dto))
+                .idVenda(resposta.getIdVenda())
+                .resposta(serializar(resposta))
+                .dataCriacao(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")))
+                .build();
+        // INSERT imediato: uma chave já gravada (ou sendo gravada por outra transação) falha aqui pela PK,
+        // desfazendo a venda, em vez de sobrescrever o registro existente no commit
+        repository.saveAndFlush(registro);
+
+        // Só entra no cache depois do commit (uma venda desfeita não pode virar resposta guardada)
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(chave, registro);
+            }
+        });
+    }
+
+    // Limpeza periódica das chaves antigas
+    @Scheduled(cron = "${vendas.idempotencia.limpeza-cron:0 30 3 * * *}")
+    @Transactional
+    public void limparChavesAntigas() {
+        int apagadas = repository.apagarAnterioresA(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).minusHours(retencaoHoras));
+        log.info("Limpeza de Idempotency-Key: {} registros removidos.", apagadas);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private VendaResponseDTO buscarResultado(String chave, String hash) {
+        VendaIdempotencia registro = cache.get(chave);
+        if (registro == null) {
+            registro = repository.findById(chave).orElse(null);
+            if (registro == null) return null;
+            cache.put(chave, registro);
+        }
+        if (!registro.getHashRequisicao().equals(hash)) throw chaveReutilizada(chave);
+
+        log.info("Idempotency-Key {} repetida. Devolvendo venda {} já registrada.", chave, registro.getIdVenda());
+        try {
+            return objectMapper.readValue(registro.getResposta(), VendaResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Erro ao ler resposta guardada para a Idempotency-Key " + chave, e);
+        }
+    }
+
+    private VendaResponseDTO aguardar(CompletableFuture<VendaResponseDTO> resultado) {
+        try {
+            return resultado.get(esperaSegundos, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("A venda original ainda está em processamento. Tente novamente em instantes.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Processamento interrompido.");
+        }
+    }
+
+    private void validarChave(String chave) {
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new RuntimeException("Idempotency-Key inválida (deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres).");
+        }
+    }
+
+    private RuntimeException chaveReutilizada(String chave) {
+        return new RuntimeException("Idempotency-Key " + chave + " já foi usada em uma venda com conteúdo diferente.");
+    }
+
+    private String hashRequisicao(VendaDTO dto) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(serializar(dto).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Erro ao serializar dados da venda.", e);
+        }
+    }
+}
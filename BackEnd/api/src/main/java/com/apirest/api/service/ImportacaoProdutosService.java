@@ -0,0 +1,655 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.CadastroProdutoDTO;
+import com.apirest.api.dto.ImportacaoProdutosResultadoDTO;
+import com.apirest.api.dto.ImportacaoProdutosResultadoDTO.ErroLinha;
+import com.apirest.api.service.ExportacaoService.Formato;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Importação do catálogo do fornecedor (POST /produtos/importacao), lido em fluxo direto do corpo da requisição.
+// CSV: cabeçalho com os nomes dos campos do CadastroProdutoDTO e uma variação por linha; linhas seguidas do mesmo
+// produto (nome, marca, NCM e categoria) viram um produto só. NDJSON: um produto por linha, no formato do POST /produtos.
+// As categorias são carregadas uma vez num mapa. Os produtos são gravados em blocos, uma transação por bloco, com os
+// IDs reservados antes na sequência e os INSERTs em JDBC batch. Se o bloco falhar, ele é refeito produto a produto;
+// as linhas com problema ficam de fora e voltam no resultado, sem interromper o arquivo.
+@Service
+@Slf4j
+public class ImportacaoProdutosService {
+
+    private static final String SQL_CATEGORIAS = "SELECT id_categoria, nome FROM categorias";
+
+    private static final String SQL_CRIAR_CATEGORIA = "INSERT INTO categorias (nome) VALUES (?) ON CONFLICT (nome) DO NOTHING";
+
+    private static final String SQL_BUSCAR_CATEGORIAS = "SELECT id_categoria, nome FROM categorias WHERE nome = ANY(?)";
+
+    private static final String SQL_CODIGOS_EXISTENTES = "SELECT codigo_barras FROM produtos_variacoes WHERE codigo_barras = ANY(?)";
+
+    // IDs reservados de uma vez na sequência da coluna identity, para ligar pai, variação e estoque sem RETURNING
+    private static final String SQL_IDS_PAI =
+            "SELECT nextval(pg_get_serial_sequence('public.produtos_pai', 'id')) FROM generate_series(1, ?)";
+
+    private static final String SQL_IDS_VARIACAO =
+            "SELECT nextval(pg_get_serial_sequence('public.produtos_variacoes', 'id')) FROM generate_series(1, ?)";
+
+    private static final String SQL_INSERIR_PAI = """
+            INSERT INTO produtos_pai (id, nome_generico, marca, descricao, ncm, ativo, categoria_id)
+            VALUES (?, ?, ?, ?, ?, true, ?)
+            """;
+
+    private static final String SQL_INSERIR_VARIACAO = """
+            INSERT INTO produtos_variacoes (id, nome_variacao, nome_completo_concatenado, codigo_barras, sku,
+                                            preco_custo, preco_venda, ativo, produto_pai_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, true, ?)
+            """;
+
+    private static final String SQL_INSERIR_ESTOQUE = """
+            INSERT INTO estoque_saldos (quantidade_atual, quantidade_minima, unidade_id, produto_variacao_id)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final List<String> COLUNAS_OBRIGATORIAS =
+            List.of("nomegenerico", "ncm", "nomecategoria", "nomevariacao", "precocusto", "precovenda");
+
+    // Preços aceitos no CSV (ver lerDecimal): só ponto ou só vírgula como separador decimal, ou milhar agrupado
+    // de três em três com o outro separador. Só com ponto vale o formato da exportação: "1.234" é lido com ponto decimal, não como mil.
+    private static final Pattern DECIMAL_PONTO = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final Pattern DECIMAL_VIRGULA = Pattern.compile("-?\\d+(,\\d+)?");
+    private static final Pattern MILHAR_PONTO = Pattern.compile("-?\\d{1,3}(\\.\\d{3})+(,\\d+)?");
+    private static final Pattern MILHAR_VIRGULA = Pattern.compile("-?\\d{1,3}(,\\d{3})+\\.\\d+");
+
+    private final ProdutoService produtoService;
+    private final IndiceCodigosService indiceCodigosService;
+    private final BuscaProdutosService buscaProdutosService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int tamanhoBloco;
+    private final int maximoLinhas;
+    private final int maximoErros;
+
+    // Produto lido do arquivo; linhas.get(i) é a linha de origem da variação i (no NDJSON, todas na linha do produto)
+    private record Produto(int linha, CadastroProdutoDTO dto, List<Integer> linhas) {
+    }
+
+    private record Variacao(long id, long idPai, String nomeCompleto, CadastroProdutoDTO.VariacaoDTO dto) {
+    }
+
+    // O que um bloco gravou; só entra no resultado depois do commit
+    private record Gravacao(int produtos, int variacoes, Map<String, Long> categoriasNovas, List<ErroLinha> erros) {
+    }
+
+    public ImportacaoProdutosService(ProdutoService produtoService,
+                                     IndiceCodigosService indiceCodigosService,
+                                     BuscaProdutosService buscaProdutosService,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper,
+                                     @Value("${produtos.importacao.tamanho-bloco:500}") int tamanhoBloco,
+                                     @Value("${produtos.importacao.maximo-linhas:200000}") int maximoLinhas,
+                                     @Value("${produtos.importacao.maximo-erros:1000}") int maximoErros) {
+        this.produtoService = produtoService;
+        this.indiceCodigosService = indiceCodigosService;
+        this.buscaProdutosService = buscaProdutosService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.tamanhoBloco = tamanhoBloco;
+        this.maximoLinhas = maximoLinhas;
+        this.maximoErros = maximoErros;
+    }
+
+    public ImportacaoProdutosResultadoDTO importar(Long idFuncionario, Formato formato, BufferedReader entrada) throws IOException {
+        long comeco = System.nanoTime();
+        Long idUnidade = produtoService.unidadeParaImportacao(idFuncionario);
+
+        Importacao importacao = new Importacao(idUnidade, carregarCategorias());
+        Leitor leitor = formato == Formato.CSV ? new LeitorCsv(entrada, importacao) : new LeitorNdjson(entrada, importacao);
+
+        List<Produto> bloco = new ArrayList<>(tamanhoBloco);
+        Produto produto;
+        while ((produto = leitor.proximo()) != null) {
+            Produto valido = validar(produto, importacao);
+            if (valido == null) continue;
+            bloco.add(valido);
+            if (bloco.size() >= tamanhoBloco) {
+                gravarBloco(bloco, importacao);
+                bloco.clear();
+            }
+        }
+        if (!bloco.isEmpty()) {
+            gravarBloco(bloco, importacao);
+        }
+
+        long tempoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco);
+        log.info("Importação de produtos: {} linhas lidas, {} produtos e {} variações gravados, {} linhas com erro, {} ms.",
+                leitor.linhasLidas(), importacao.produtos, importacao.variacoes, importacao.linhasComErro, tempoMs);
+
+        importacao.erros.sort(Comparator.comparingInt(ErroLinha::getLinha));
+        return ImportacaoProdutosResultadoDTO.builder()
+                .linhasLidas(leitor.linhasLidas())
+                .produtosImportados(importacao.produtos)
+                .variacoesImportadas(importacao.variacoes)
+                .categoriasCriadas(importacao.categoriasCriadas)
+                .linhasComErro(importacao.linhasComErro)
+                .errosTruncados(importacao.linhasComErro > importacao.erros.size())
+                .tempoMs(tempoMs)
+                .erros(importacao.erros)
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Estado de uma importação: mapa de categorias, códigos já vistos no arquivo e totais
+    private final class Importacao {
+        final Long idUnidade;
+        final Map<String, Long> categorias;
+        final Map<String, Integer> codigosNoArquivo = new HashMap<>();
+        final List<ErroLinha> erros = new ArrayList<>();
+        int produtos;
+        int variacoes;
+        int categoriasCriadas;
+        int linhasComErro;
+
+        Importacao(Long idUnidade, Map<String, Long> categorias) {
+            this.idUnidade = idUnidade;
+            this.categorias = categorias;
+        }
+
+        void erro(int linha, String mensagem) {
+            linhasComErro++;
+            if (erros.size() < maximoErros) {
+                erros.add(ErroLinha.builder().linha(linha).erro(mensagem).build());
+            }
+        }
+    }
+
+    private Map<String, Long> carregarCategorias() {
+        Map<String, Long> categorias = new HashMap<>();
+        jdbcTemplate.query(SQL_CATEGORIAS, rs -> {
+            categorias.put(rs.getString("nome"), rs.getLong("id_categoria"));
+        });
+        return categorias;
+    }
+
+    // Normaliza como o cadastro (nome e categoria em maiúsculas) e tira as variações inválidas.
+    // Erro no produto vale para todas as linhas dele; erro na variação, só para a linha da variação.
+    private Produto validar(Produto produto, Importacao importacao) {
+        CadastroProdutoDTO dto = produto.dto();
+        String erroProduto = validarProduto(dto);
+        if (erroProduto != null) {
+            linhasDoProduto(produto).forEach(linha -> importacao.erro(linha, erroProduto));
+            return null;
+        }
+        dto.setNomeGenerico(dto.getNomeGenerico().trim().toUpperCase());
+        dto.setNomeCategoria(dto.getNomeCategoria().trim().toUpperCase());
+        dto.setNcm(dto.getNcm().trim());
+        // Produto sem variação não entra: não teria SKU, preço nem estoque (mesma regra das variações inválidas abaixo)
+        if (dto.getVariacoes() == null) dto.setVariacoes(new ArrayList<>());
+        if (dto.getVariacoes().isEmpty()) {
+            importacao.erro(produto.linha(), "Produto sem variações");
+            return null;
+        }
+
+        List<CadastroProdutoDTO.VariacaoDTO> variacoes = new ArrayList<>(dto.getVariacoes().size());
+        List<Integer> linhas = new ArrayList<>(dto.getVariacoes().size());
+        for (int i = 0; i < dto.getVariacoes().size(); i++) {
+            CadastroProdutoDTO.VariacaoDTO v = dto.getVariacoes().get(i);
+            int linha = produto.linhas().get(i);
+            if (v != null && v.getCodigoBarras() != null) {
+                v.setCodigoBarras(v.getCodigoBarras().isBlank() ? null : v.getCodigoBarras().trim());
+            }
+            String erro = validarVariacao(dto, v, linha, importacao);
+            if (erro != null) {
+                importacao.erro(linha, erro);
+                continue;
+            }
+            v.setNomeVariacao(v.getNomeVariacao().trim());
+            variacoes.add(v);
+            linhas.add(linha);
+        }
+        // Sem nenhuma variação válida o produto também não entra
+        if (variacoes.isEmpty()) return null;
+        dto.setVariacoes(variacoes);
+        return new Produto(produto.linha(), dto, linhas);
+    }
+
+    private String validarProduto(CadastroProdutoDTO dto) {
+        if (vazio(dto.getNomeGenerico())) return "Nome genérico é obrigatório";
+        if (dto.getNomeGenerico().trim().length() > 200) return "Nome genérico deve ter até 200 caracteres";
+        if (dto.getMarca() != null && dto.getMarca().length() > 100) return "Marca deve ter até 100 caracteres";
+        if (vazio(dto.getNcm())) return "NCM é obrigatório";
+        if (dto.getNcm().trim().length() > 8) return "NCM deve ter até 8 caracteres";
+        if (vazio(dto.getNomeCategoria())) return "Categoria é obrigatória";
+        if (dto.getNomeCategoria().trim().length() > 255) return "Categoria deve ter até 255 caracteres";
+        return null;
+    }
+
+    private String validarVariacao(CadastroProdutoDTO pai, CadastroProdutoDTO.VariacaoDTO v, int linha, Importacao importacao) {
+        if (v == null || vazio(v.getNomeVariacao())) return "Nome da variação é obrigatório";
+        if (v.getNomeVariacao().trim().length() > 100) return "Nome da variação deve ter até 100 caracteres";
+        if ((pai.getNomeGenerico() + " - " + v.getNomeVariacao().trim()).length() > 255) {
+            return "Nome do produto com a variação deve ter até 255 caracteres";
+        }
+        if (v.getPrecoCusto() == null || v.getPrecoVenda() == null) return "Preço de custo e preço de venda são obrigatórios";
+        if (v.getPrecoCusto().compareTo(v.getPrecoVenda()) >= 0) {
+            return "Erro no item '" + v.getNomeVariacao() + "': Preço de venda deve ser maior que o custo.";
+        }
+        if (v.getEstoqueInicial() != null && v.getEstoqueInicial() < 0) return "Estoque inicial não pode ser negativo";
+        if (v.getCodigoBarras() != null) {
+            if (v.getCodigoBarras().length() > 50) return "Código de barras deve ter até 50 caracteres";
+            Integer anterior = importacao.codigosNoArquivo.putIfAbsent(v.getCodigoBarras(), linha);
+            if (anterior != null) {
+                return "Código de barras " + v.getCodigoBarras() + " repetido no arquivo (linha " + anterior + ")";
+            }
+        }
+        return null;
+    }
+
+    // Tenta o bloco inteiro em uma transação; se falhar, refaz cada produto na sua própria transação
+    private void gravarBloco(List<Produto> bloco, Importacao importacao) {
+        try {
+            aplicar(transactionTemplate.execute(status -> inserir(bloco, importacao)), importacao);
+            return;
+        } catch (RuntimeException e) {
+            log.info("Bloco de {} produtos da importação desfeito ({}). Refazendo produto a produto.", bloco.size(), mensagem(e));
+        }
+
+        for (Produto produto : bloco) {
+            try {
+                aplicar(transactionTemplate.execute(status -> inserir(List.of(produto), importacao)), importacao);
+            } catch (RuntimeException e) {
+                String erro = mensagem(e);
+                linhasDoProduto(produto).forEach(linha -> importacao.erro(linha, erro));
+            }
+        }
+    }
+
+    private void aplicar(Gravacao gravacao, Importacao importacao) {
+        importacao.produtos += gravacao.produtos();
+        importacao.variacoes += gravacao.variacoes();
+        importacao.categoriasCriadas += gravacao.categoriasNovas().size();
+        importacao.categorias.putAll(gravacao.categoriasNovas());
+        gravacao.erros().forEach(e -> importacao.erro(e.getLinha(), e.getErro()));
+    }
+
+    // Roda dentro da transação do bloco. Não mexe na importação: o que foi gravado só vale depois do commit.
+    private Gravacao inserir(List<Produto> bloco, Importacao importacao) {
+        Map<String, Long> categoriasNovas = criarCategorias(bloco, importacao.categorias);
+        Set<String> codigosExistentes = buscarCodigosExistentes(bloco);
+
+        // Variações com código já cadastrado ficam de fora; o produto só entra se sobrar alguma variação
+        List<ErroLinha> erros = new ArrayList<>();
+        List<Produto> produtos = new ArrayList<>(bloco.size());
+        List<List<Integer>> aceitas = new ArrayList<>(bloco.size());
+        int totalVariacoes = 0;
+        for (Produto p : bloco) {
+            List<Integer> indices = new ArrayList<>(p.dto().getVariacoes().size());
+            for (int i = 0; i < p.dto().getVariacoes().size(); i++) {
+                String codigo = p.dto().getVariacoes().get(i).getCodigoBarras();
+                if (codigo != null && codigosExistentes.contains(codigo)) {
+                    erros.add(ErroLinha.builder().linha(p.linhas().get(i)).erro("Código de barras " + codigo + " já cadastrado").build());
+                } else {
+                    indices.add(i);
+                }
+            }
+            if (indices.isEmpty()) continue;
+            produtos.add(p);
+            aceitas.add(indices);
+            totalVariacoes += indices.size();
+        }
+        if (produtos.isEmpty()) return new Gravacao(0, 0, categoriasNovas, erros);
+
+        List<Long> idsPai = jdbcTemplate.queryForList(SQL_IDS_PAI, Long.class, produtos.size());
+        List<Long> idsVariacao = totalVariacoes > 0
+                ? jdbcTemplate.queryForList(SQL_IDS_VARIACAO, Long.class, totalVariacoes)
+                : List.of();
+
+        List<Variacao> variacoes = new ArrayList<>(totalVariacoes);
+        for (int i = 0, v = 0; i < produtos.size(); i++) {
+            Produto p = produtos.get(i);
+            for (int indice : aceitas.get(i)) {
+                CadastroProdutoDTO.VariacaoDTO dto = p.dto().getVariacoes().get(indice);
+                variacoes.add(new Variacao(idsVariacao.get(v++), idsPai.get(i),
+                        p.dto().getNomeGenerico() + " - " + dto.getNomeVariacao(), dto));
+            }
+        }
+
+        List<Integer> posicoes = new ArrayList<>(produtos.size());
+        for (int i = 0; i < produtos.size(); i++) posicoes.add(i);
+
+        jdbcTemplate.batchUpdate(SQL_INSERIR_PAI, posicoes, tamanhoBloco, (ps, i) -> {
+            CadastroProdutoDTO dto = produtos.get(i).dto();
+            ps.setLong(1, idsPai.get(i));
+            ps.setString(2, dto.getNomeGenerico());
+            ps.setString(3, dto.getMarca());
+            ps.setString(4, dto.getDescricao());
+            ps.setString(5, dto.getNcm());
+            Long idCategoria = categoriasNovas.get(dto.getNomeCategoria());
+            ps.setLong(6, idCategoria != null ? idCategoria : importacao.categorias.get(dto.getNomeCategoria()));
+        });
+        if (!variacoes.isEmpty()) {
+            String prefixoSku = "SKU-" + System.currentTimeMillis() + "-";
+            jdbcTemplate.batchUpdate(SQL_INSERIR_VARIACAO, variacoes, tamanhoBloco, (ps, v) -> {
+                ps.setLong(1, v.id());
+                ps.setString(2, v.dto().getNomeVariacao());
+                ps.setString(3, v.nomeCompleto());
+                ps.setString(4, v.dto().getCodigoBarras());
+                ps.setString(5, prefixoSku + v.id()); // SKU Gerado (o ID da variação garante que não repete no lote)
+                ps.setBigDecimal(6, v.dto().getPrecoCusto());
+                ps.setBigDecimal(7, v.dto().getPrecoVenda());
+                ps.setLong(8, v.idPai());
+            });
+            jdbcTemplate.batchUpdate(SQL_INSERIR_ESTOQUE, variacoes, tamanhoBloco, (ps, v) -> {
+                ps.setInt(1, v.dto().getEstoqueInicial() != null ? v.dto().getEstoqueInicial() : 0);
+                ps.setInt(2, v.dto().getEstoqueMinimo() != null ? v.dto().getEstoqueMinimo() : 5);
+                ps.setLong(3, importacao.idUnidade);
+                ps.setLong(4, v.id());
+            });
+
+            // Leitor do caixa e busca por nome recebem as variações novas depois do commit do bloco
+            List<Long> ids = variacoes.stream().map(Variacao::id).toList();
+            indiceCodigosService.atualizar(ids);
+            buscaProdutosService.atualizar(ids);
+        }
+        return new Gravacao(produtos.size(), variacoes.size(), categoriasNovas, erros);
+    }
+
+    // Categorias que ainda não estão no mapa: criadas no bloco (ON CONFLICT cobre outra importação simultânea)
+    private Map<String, Long> criarCategorias(List<Produto> bloco, Map<String, Long> conhecidas) {
+        List<String> faltando = bloco.stream()
+                .map(p -> p.dto().getNomeCategoria())
+                .filter(nome -> !conhecidas.containsKey(nome))
+                .distinct()
+                .toList();
+        if (faltando.isEmpty()) return Map.of();
+
+        jdbcTemplate.batchUpdate(SQL_CRIAR_CATEGORIA, faltando, faltando.size(), (ps, nome) -> ps.setString(1, nome));
+        Map<String, Long> novas = new HashMap<>();
+        jdbcTemplate.query(SQL_BUSCAR_CATEGORIAS,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", faltando.toArray())),
+                rs -> {
+                    novas.put(rs.getString("nome"), rs.getLong("id_categoria"));
+                });
+        return novas;
+    }
+
+    private Set<String> buscarCodigosExistentes(List<Produto> bloco) {
+        Object[] codigos = bloco.stream()
+                .flatMap(p -> p.dto().getVariacoes().stream())
+                .map(CadastroProdutoDTO.VariacaoDTO::getCodigoBarras)
+                .filter(Objects::nonNull)
+                .toArray();
+        if (codigos.length == 0) return Set.of();
+        return new HashSet<>(jdbcTemplate.query(SQL_CODIGOS_EXISTENTES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", codigos)),
+                (rs, n) -> rs.getString(1)));
+    }
+
+    // Linhas do arquivo que formam o produto (no NDJSON, só a linha do produto)
+    private List<Integer> linhasDoProduto(Produto produto) {
+        return produto.linhas().isEmpty() ? List.of(produto.linha()) : produto.linhas().stream().distinct().toList();
+    }
+
+    // Violação de constraint etc.: a mensagem do banco diz qual valor conflitou
+    private String mensagem(RuntimeException e) {
+        if (e instanceof DataAccessException d && d.getMostSpecificCause() != null) {
+            return d.getMostSpecificCause().getMessage();
+        }
+        return e.getMessage();
+    }
+
+    // Valor decimal do CSV: 1234.56 (exportação), 1234,56 e 1.234,56 (planilha pt-BR), 1,234.56 (planilha en-US).
+    // "R$" e espaços são ignorados. Qualquer outro formato é recusado (null) em vez de lido pela metade.
+    static BigDecimal lerDecimal(String texto) {
+        String valor = texto.replace("R$", "").replaceAll("[\\s\u00A0]", "");
+        if (DECIMAL_PONTO.matcher(valor).matches()) return new BigDecimal(valor);
+        if (DECIMAL_VIRGULA.matcher(valor).matches()) return new BigDecimal(valor.replace(',', '.'));
+        if (MILHAR_PONTO.matcher(valor).matches()) return new BigDecimal(valor.replace(".", "").replace(',', '.'));
+        if (MILHAR_VIRGULA.matcher(valor).matches()) return new BigDecimal(valor.replace(",", ""));
+        return null;
+    }
+
+    private static boolean vazio(String valor) {
+        return valor == null || valor.isBlank();
+    }
+
+    // --- LEITORES ---
+
+    private interface Leitor {
+        // Próximo produto do arquivo, ou null no fim (ou ao passar do limite de linhas)
+        Produto proximo() throws IOException;
+
+        long linhasLidas();
+    }
+
+    // Um produto (com as variações) por linha, mesmo JSON do POST /produtos
+    private final class LeitorNdjson implements Leitor {
+        private final BufferedReader entrada;
+        private final Importacao importacao;
+        private int linha;
+
+        LeitorNdjson(BufferedReader entrada, Importacao importacao) {
+            this.entrada = entrada;
+            this.importacao = importacao;
+        }
+
+        @Override
+        public Produto proximo() throws IOException {
+            String texto;
+            while ((texto = entrada.readLine()) != null) {
+                linha++;
+                if (texto.isBlank()) continue;
+                if (linha > maximoLinhas) {
+                    importacao.erro(linha, "Limite de " + maximoLinhas + " linhas por importação excedido.");
+                    return null;
+                }
+                try {
+                    CadastroProdutoDTO dto = objectMapper.readValue(texto, CadastroProdutoDTO.class);
+                    int quantidade = dto.getVariacoes() != null ? dto.getVariacoes().size() : 0;
+                    return new Produto(linha, dto, new ArrayList<>(Collections.nCopies(quantidade, linha)));
+                } catch (JsonProcessingException e) {
+                    importacao.erro(linha, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long linhasLidas() {
+            return linha;
+        }
+    }
+
+    // CSV (RFC 4180, separador vírgula, como na exportação): uma variação por linha. Linhas seguidas com o mesmo
+    // nome, marca, NCM e categoria são agrupadas no mesmo produto. Decimais aceitam ponto ou vírgula.
+    private final class LeitorCsv implements Leitor {
+        private final BufferedReader entrada;
+        private final Importacao importacao;
+        private Map<String, Integer> colunas;
+        private Produto atual;
+        private int linha;
+        private int linhaRegistro;
+        private boolean fim;
+
+        LeitorCsv(BufferedReader entrada, Importacao importacao) {
+            this.entrada = entrada;
+            this.importacao = importacao;
+        }
+
+        @Override
+        public Produto proximo() throws IOException {
+            if (colunas == null) lerCabecalho();
+            while (!fim) {
+                List<String> campos = lerRegistro();
+                if (campos == null) {
+                    fim = true;
+                    break;
+                }
+                if (campos.size() == 1 && campos.get(0).isBlank()) continue;
+                if (linhaRegistro > maximoLinhas) {
+                    importacao.erro(linhaRegistro, "Limite de " + maximoLinhas + " linhas por importação excedido.");
+                    fim = true;
+                    break;
+                }
+                CadastroProdutoDTO dto;
+                try {
+                    dto = paraDTO(campos);
+                } catch (RuntimeException e) {
+                    importacao.erro(linhaRegistro, e.getMessage());
+                    continue;
+                }
+                if (atual != null && mesmoProduto(atual.dto(), dto)) {
+                    atual.dto().getVariacoes().add(dto.getVariacoes().get(0));
+                    atual.linhas().add(linhaRegistro);
+                    continue;
+                }
+                Produto anterior = atual;
+                atual = new Produto(linhaRegistro, dto, new ArrayList<>(List.of(linhaRegistro)));
+                if (anterior != null) return anterior;
+            }
+            Produto ultimo = atual;
+            atual = null;
+            return ultimo;
+        }
+
+        @Override
+        public long linhasLidas() {
+            return linha;
+        }
+
+        private void lerCabecalho() throws IOException {
+            List<String> nomes = lerRegistro();
+            if (nomes == null) throw new RuntimeException("Arquivo CSV vazio.");
+            colunas = new HashMap<>();
+            for (int i = 0; i < nomes.size(); i++) {
+                String nome = nomes.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                colunas.putIfAbsent(nome, i);
+            }
+            List<String> faltando = COLUNAS_OBRIGATORIAS.stream().filter(c -> !colunas.containsKey(c)).toList();
+            if (!faltando.isEmpty()) {
+                throw new RuntimeException("Cabeçalho do CSV sem as colunas obrigatórias: " + String.join(", ", faltando) + ".");
+            }
+        }
+
+        private CadastroProdutoDTO paraDTO(List<String> campos) {
+            CadastroProdutoDTO.VariacaoDTO variacao = new CadastroProdutoDTO.VariacaoDTO();
+            variacao.setNomeVariacao(campo(campos, "nomevariacao"));
+            variacao.setCodigoBarras(campo(campos, "codigobarras"));
+            variacao.setPrecoCusto(decimal(campos, "precocusto"));
+            variacao.setPrecoVenda(decimal(campos, "precovenda"));
+            variacao.setEstoqueInicial(inteiro(campos, "estoqueinicial"));
+            variacao.setEstoqueMinimo(inteiro(campos, "estoqueminimo"));
+
+            CadastroProdutoDTO dto = new CadastroProdutoDTO();
+            dto.setNomeGenerico(campo(campos, "nomegenerico"));
+            dto.setMarca(campo(campos, "marca"));
+            dto.setDescricao(campo(campos, "descricao"));
+            dto.setNcm(campo(campos, "ncm"));
+            dto.setNomeCategoria(campo(campos, "nomecategoria"));
+            dto.setVariacoes(new ArrayList<>(List.of(variacao)));
+            return dto;
+        }
+
+        private boolean mesmoProduto(CadastroProdutoDTO a, CadastroProdutoDTO b) {
+            return Objects.equals(a.getNomeGenerico(), b.getNomeGenerico())
+                    && Objects.equals(a.getMarca(), b.getMarca())
+                    && Objects.equals(a.getNcm(), b.getNcm())
+                    && Objects.equals(a.getNomeCategoria(), b.getNomeCategoria());
+        }
+
+        private String campo(List<String> campos, String coluna) {
+            Integer i = colunas.get(coluna);
+            if (i == null || i >= campos.size()) return null;
+            String valor = campos.get(i).trim();
+            return valor.isEmpty() ? null : valor;
+        }
+
+        private BigDecimal decimal(List<String> campos, String coluna) {
+            String valor = campo(campos, coluna);
+            if (valor == null) return null;
+            BigDecimal numero = lerDecimal(valor);
+            if (numero == null) throw new RuntimeException("Valor inválido em " + coluna + ": '" + valor + "'");
+            return numero;
+        }
+
+        private Integer inteiro(List<String> campos, String coluna) {
+            String valor = campo(campos, coluna);
+            if (valor == null) return null;
+            try {
+                return Integer.valueOf(valor);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Valor inválido em " + coluna + ": '" + valor + "'");
+            }
+        }
+
+        // Um registro; campo entre aspas pode ter vírgula, aspas dobradas e quebra de linha
+        private List<String> lerRegistro() throws IOException {
+            int c = entrada.read();
+            if (c < 0) return null;
+            linhaRegistro = ++linha;
+
+            List<String> campos = new ArrayList<>(colunas != null ? colunas.size() : 16);
+            StringBuilder campo = new StringBuilder();
+            boolean aspas = false;
+            while (true) {
+                if (c < 0) {
+                    if (aspas) {
+                        importacao.erro(linhaRegistro, "Aspas não fechadas até o fim do arquivo.");
+                        return null;
+                    }
+                    campos.add(campo.toString());
+                    return campos;
+                }
+                char ch = (char) c;
+                if (aspas) {
+                    if (ch == '"') {
+                        int proximo = entrada.read();
+                        if (proximo != '"') {
+                            aspas = false;
+                            c = proximo;
+                            continue;
+                        }
+                        campo.append('"');
+                    } else {
+                        if (ch == '\n') linha++;
+                        campo.append(ch);
+                    }
+                } else if (ch == '"' && campo.isEmpty()) {
+                    aspas = true;
+                } else if (ch == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (ch == '\n') {
+                    campos.add(campo.toString());
+                    return campos;
+                } else if (ch != '\r') {
+                    campo.append(ch);
+                }
+                c = entrada.read();
+            }
+        }
+    }
+}
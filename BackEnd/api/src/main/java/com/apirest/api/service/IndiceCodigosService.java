@@ -0,0 +1,404 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.LeituraProdutoDTO;
+import com.apirest.api.dto.MetricasIndiceCodigosDTO;
+import com.apirest.api.entity.ProdutoVariacao;
+import com.apirest.api.repository.ProdutoVariacaoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Índice em memória das variações ativas para o leitor do caixa: código de barras e SKU -> variação, sem ir ao banco.
+// - EAN/GTIN numérico vira long e fica numa tabela de endereçamento aberto (long[] + int[], sondagem linear),
+//   sem String nem Long por entrada. SKU e códigos não numéricos entram numa segunda tabela pelo hash de 64 bits do
+//   texto. Nas duas tabelas o texto lido é conferido com o da variação: colisão de hash não troca produto, e
+//   códigos que só diferem nos zeros à esquerda (mesmo long) não se confundem, como na busca exata do banco.
+// - O índice é imutável e a leitura não trava nada. Alteração do cadastro não copia as tabelas: as variações
+//   recarregadas vão para um mapa pequeno de alterações, consultado antes do índice (que ignora as variações
+//   alteradas). Só o mapa é copiado a cada alteração; passando de LIMITE_ALTERACOES ele é incorporado ao índice.
+// - A recarga no banco acontece fora da trava. Cada alteração recebe uma geração antes da consulta: a de geração
+//   menor que chegar depois (consulta mais lenta) não sobrescreve a mais nova.
+// - Construído em segundo plano na subida (até lá a leitura vai ao banco) e refeito de madrugada.
+@Service
+@Slf4j
+public class IndiceCodigosService {
+
+    private static final String SQL_VARIACOES = """
+            SELECT id, nome_completo_concatenado, sku, codigo_barras, preco_venda, versao_preco
+            FROM produtos_variacoes
+            WHERE ativo = true
+            """;
+
+    private static final int LIMITE_ALTERACOES = 1024;
+
+    private final ProdutoVariacaoRepository produtoVariacaoRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Estado estado = new Estado(null, Alteracoes.VAZIAS);
+
+    // Escritas (alterações e reconstrução) se ordenam pela trava; a leitura só lê 'estado'
+    private final Object trava = new Object();
+    private final AtomicLong geracoes = new AtomicLong();
+    private final Map<Long, Long> ultimaGeracao = new HashMap<>(); // Variação -> geração da última recarga aplicada
+    private long geracaoMinima; // Gerações até aqui já estão no índice da última construção
+    private boolean construindo;
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder naoEncontrados = new LongAdder();
+    private final LongAdder consultasAoBanco = new LongAdder();
+    private final LongAdder atualizacoes = new LongAdder();
+    private volatile long tempoConstrucaoMs;
+    private volatile LocalDateTime ultimaConstrucao;
+
+    // Índice (null até a primeira construção terminar) + alterações feitas depois dele
+    private record Estado(Indice indice, Alteracoes alteracoes) {
+    }
+
+    // Dados da variação que o caixa precisa ao ler o código
+    private record Item(long id, String nomeCompleto, String sku, String codigoBarras,
+                        BigDecimal precoVenda, Integer versaoPreco) {
+    }
+
+    public IndiceCodigosService(ProdutoVariacaoRepository produtoVariacaoRepository, JdbcTemplate jdbcTemplate) {
+        this.produtoVariacaoRepository = produtoVariacaoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirNaSubida() {
+        Thread.ofVirtual().name("indice-codigos").start(this::reconstruir);
+    }
+
+    // Reconstrução completa (corrige qualquer alteração feita direto no banco)
+    @Scheduled(cron = "${produtos.leitura.reconstrucao-cron:0 50 3 * * *}")
+    public void reconstruir() {
+        synchronized (trava) {
+            if (construindo) return;
+            construindo = true;
+        }
+        try {
+            long comeco = System.nanoTime();
+            // Alterações com geração até aqui foram confirmadas antes da consulta começar: já vêm nela
+            long geracao = geracoes.get();
+            List<Item> itens = jdbcTemplate.query(SQL_VARIACOES, this::lerItem);
+            Indice novo = new Indice(itens);
+            synchronized (trava) {
+                Alteracoes posteriores = estado.alteracoes().filtrar(id -> ultimaGeracao.getOrDefault(id, 0L) > geracao);
+                estado = new Estado(novo, posteriores);
+                geracaoMinima = geracao;
+                ultimaGeracao.values().removeIf(g -> g <= geracao);
+            }
+            tempoConstrucaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco);
+            ultimaConstrucao = LocalDateTime.now(ZoneId.of("America/Sao_Paulo"));
+            log.info("Índice de códigos construído: {} variações em {} ms.", novo.itens.length, tempoConstrucaoMs);
+        } catch (RuntimeException e) {
+            log.error("Falha ao construir o índice de códigos (leituras continuam no banco): {}", e.getMessage());
+        } finally {
+            synchronized (trava) {
+                construindo = false;
+            }
+        }
+    }
+
+    // Variação ativa pelo código lido (EAN/GTIN ou SKU)
+    public Optional<LeituraProdutoDTO> buscar(String codigo) {
+        consultas.increment();
+        String texto = codigo != null ? codigo.trim() : "";
+        if (texto.isEmpty()) {
+            naoEncontrados.increment();
+            return Optional.empty();
+        }
+
+        Estado atual = estado;
+        if (atual.indice() == null) {
+            consultasAoBanco.increment();
+            return buscarNoBanco(texto);
+        }
+
+        Alteracoes alteracoes = atual.alteracoes();
+        Item item = alteracoes.buscar(texto);
+        if (item == null) {
+            long numero = paraNumero(texto);
+            if (numero >= 0) item = atual.indice().porCodigo(numero, texto, alteracoes.porId);
+            if (item == null) item = atual.indice().porTexto(texto, alteracoes.porId);
+        }
+        if (item == null) {
+            naoEncontrados.increment();
+            return Optional.empty();
+        }
+        return Optional.of(paraDTO(item));
+    }
+
+    // Recarrega as variações alteradas no cadastro. Dentro de transação, só depois do commit.
+    public void atualizar(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        Set<Long> copia = Set.copyOf(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(copia);
+                }
+            });
+        } else {
+            aplicar(copia);
+        }
+    }
+
+    public MetricasIndiceCodigosDTO metricas() {
+        Indice atual = estado.indice();
+        return MetricasIndiceCodigosDTO.builder()
+                .pronto(atual != null)
+                .variacoes(atual != null ? atual.itens.length : 0)
+                .consultas(consultas.sum())
+                .naoEncontrados(naoEncontrados.sum())
+                .consultasAoBanco(consultasAoBanco.sum())
+                .atualizacoes(atualizacoes.sum())
+                .tempoConstrucaoMs(tempoConstrucaoMs)
+                .ultimaConstrucao(ultimaConstrucao)
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void aplicar(Set<Long> ids) {
+        try {
+            synchronized (trava) {
+                // Sem índice e sem construção em andamento: a próxima construção lê tudo do banco
+                if (estado.indice() == null && !construindo) return;
+            }
+            long geracao = geracoes.incrementAndGet();
+            Map<Long, Item> recarregados = new HashMap<>();
+            for (Item item : carregar(ids)) recarregados.put(item.id(), item);
+
+            int aplicadas = 0;
+            synchronized (trava) {
+                if (geracao <= geracaoMinima) return; // A construção terminada depois já leu esta alteração
+                Map<Long, Item> novas = new HashMap<>();
+                for (Long id : ids) {
+                    if (ultimaGeracao.getOrDefault(id, 0L) > geracao) continue; // Recarga mais nova já aplicada
+                    ultimaGeracao.put(id, geracao);
+                    novas.put(id, recarregados.get(id)); // null: removida ou inativa
+                    aplicadas++;
+                }
+                Estado atual = estado;
+                Alteracoes alteracoes = atual.alteracoes().com(novas);
+                if (alteracoes.porId.size() > LIMITE_ALTERACOES && atual.indice() != null) {
+                    estado = new Estado(atual.indice().substituir(alteracoes.porId), Alteracoes.VAZIAS);
+                } else {
+                    estado = new Estado(atual.indice(), alteracoes);
+                }
+            }
+            atualizacoes.add(aplicadas);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao atualizar o índice de códigos para as variações {}: {}", ids, e.getMessage());
+        }
+    }
+
+    private List<Item> carregar(Set<Long> ids) {
+        String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(SQL_VARIACOES + " AND id IN (" + marcadores + ")", this::lerItem, ids.toArray());
+    }
+
+    private Optional<LeituraProdutoDTO> buscarNoBanco(String texto) {
+        Optional<ProdutoVariacao> variacao = produtoVariacaoRepository.findByCodigoBarras(texto)
+                .or(() -> produtoVariacaoRepository.findBySku(texto))
+                .filter(ProdutoVariacao::isAtivo);
+        if (variacao.isEmpty()) naoEncontrados.increment();
+        return variacao.map(v -> paraDTO(new Item(v.getId(), v.getNomeCompletoConcatenado(), v.getSku(),
+                v.getCodigoBarras(), v.getPrecoVenda(), v.getVersaoPreco())));
+    }
+
+    private Item lerItem(ResultSet rs, int linha) throws SQLException {
+        return new Item(rs.getLong("id"), rs.getString("nome_completo_concatenado"), rs.getString("sku"),
+                rs.getString("codigo_barras"), rs.getBigDecimal("preco_venda"), rs.getInt("versao_preco"));
+    }
+
+    private LeituraProdutoDTO paraDTO(Item item) {
+        return LeituraProdutoDTO.builder()
+                .idVariacao(item.id())
+                .nomeCompleto(item.nomeCompleto())
+                .sku(item.sku())
+                .codigoBarras(item.codigoBarras())
+                .precoVenda(item.precoVenda())
+                .versaoPreco(item.versaoPreco())
+                .build();
+    }
+
+    // Código só com dígitos (até 18, cabe em long) -> número; qualquer outro -> -1
+    private static long paraNumero(String texto) {
+        if (texto == null || texto.isEmpty() || texto.length() > 18) return -1;
+        long numero = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+
+    // FNV-1a de 64 bits
+    private static long hashTexto(String texto) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < texto.length(); i++) {
+            h ^= texto.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Snapshot imutável: variações + as duas tabelas apontando para a posição delas no array
+    private static final class Indice {
+        final Item[] itens;
+        final TabelaLong porCodigo; // EAN/GTIN numérico
+        final TabelaLong porTexto;  // Hash do SKU e dos códigos de barras não numéricos
+
+        Indice(List<Item> lista) {
+            itens = lista.toArray(new Item[0]);
+            porCodigo = new TabelaLong(itens.length);
+            porTexto = new TabelaLong(itens.length * 2);
+            for (int i = 0; i < itens.length; i++) {
+                Item item = itens[i];
+                long numero = paraNumero(item.codigoBarras());
+                if (numero >= 0) porCodigo.inserir(numero, i);
+                else if (item.codigoBarras() != null) porTexto.inserir(hashTexto(item.codigoBarras()), i);
+                if (item.sku() != null) porTexto.inserir(hashTexto(item.sku()), i);
+            }
+        }
+
+        // Cópia com as alterações incorporadas (as que ficaram inativas simplesmente não voltam)
+        Indice substituir(Map<Long, Item> alterados) {
+            List<Item> lista = new ArrayList<>(itens.length + alterados.size());
+            for (Item item : itens) {
+                if (!alterados.containsKey(item.id())) lista.add(item);
+            }
+            for (Item item : alterados.values()) {
+                if (item != null) lista.add(item);
+            }
+            return new Indice(lista);
+        }
+
+        // 'ignorar': variações alteradas depois da construção (a versão atual está nas alterações)
+        Item porCodigo(long numero, String texto, Map<Long, Item> ignorar) {
+            for (int i = porCodigo.procurar(numero, porCodigo.inicio(numero)); i >= 0; i = porCodigo.procurar(numero, porCodigo.proxima(i))) {
+                Item item = itens[porCodigo.valores[i]];
+                if (texto.equals(item.codigoBarras()) && !ignorar.containsKey(item.id())) return item;
+            }
+            return null;
+        }
+
+        Item porTexto(String texto, Map<Long, Item> ignorar) {
+            long hash = hashTexto(texto);
+            for (int i = porTexto.procurar(hash, porTexto.inicio(hash)); i >= 0; i = porTexto.procurar(hash, porTexto.proxima(i))) {
+                Item item = itens[porTexto.valores[i]];
+                if ((texto.equals(item.sku()) || texto.equals(item.codigoBarras())) && !ignorar.containsKey(item.id())) return item;
+            }
+            return null;
+        }
+    }
+
+    // Variações recarregadas depois da construção do índice (valor null = removida ou inativa). Imutável como o índice.
+    private static final class Alteracoes {
+        static final Alteracoes VAZIAS = new Alteracoes(new HashMap<>());
+
+        final Map<Long, Item> porId;
+        private final Map<String, Item> porCodigoBarras = new HashMap<>();
+        private final Map<String, Item> porSku = new HashMap<>();
+
+        Alteracoes(Map<Long, Item> porId) {
+            this.porId = porId;
+            for (Item item : porId.values()) {
+                if (item == null) continue;
+                if (item.codigoBarras() != null) porCodigoBarras.put(item.codigoBarras(), item);
+                if (item.sku() != null) porSku.put(item.sku(), item);
+            }
+        }
+
+        Alteracoes com(Map<Long, Item> novas) {
+            if (novas.isEmpty()) return this;
+            Map<Long, Item> copia = new HashMap<>(porId);
+            copia.putAll(novas);
+            return new Alteracoes(copia);
+        }
+
+        Alteracoes filtrar(Predicate<Long> manter) {
+            Map<Long, Item> copia = new HashMap<>();
+            porId.forEach((id, item) -> {
+                if (manter.test(id)) copia.put(id, item);
+            });
+            return new Alteracoes(copia);
+        }
+
+        Item buscar(String texto) {
+            Item item = porCodigoBarras.get(texto);
+            return item != null ? item : porSku.get(texto);
+        }
+    }
+
+    // Mapa long -> int com endereçamento aberto e sondagem linear. Ocupação máxima de 50%, então sempre há vaga
+    // e as sondagens são curtas. Chaves repetidas são permitidas (o chamador confere qual é a certa).
+    private static final class TabelaLong {
+        private static final int VAZIO = -1;
+
+        final long[] chaves;
+        final int[] valores;
+        final int mascara;
+
+        TabelaLong(int quantidade) {
+            int capacidade = Integer.highestOneBit(Math.max(8, quantidade * 2 - 1)) << 1;
+            chaves = new long[capacidade];
+            valores = new int[capacidade];
+            Arrays.fill(valores, VAZIO);
+            mascara = capacidade - 1;
+        }
+
+        void inserir(long chave, int valor) {
+            int i = inicio(chave);
+            while (valores[i] != VAZIO) i = proxima(i);
+            chaves[i] = chave;
+            valores[i] = valor;
+        }
+
+        int inicio(long chave) {
+            long h = chave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+
+        int proxima(int i) {
+            return (i + 1) & mascara;
+        }
+
+        // Primeira posição a partir de i com a chave, ou -1 ao encontrar uma vaga (chave ausente)
+        int procurar(long chave, int i) {
+            while (valores[i] != VAZIO) {
+                if (chaves[i] == chave) return i;
+                i = proxima(i);
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.SaldoCaixaDTO;
+import com.apirest.api.entity.Caixa;
+import com.apirest.api.entity.MetodoPagamento;
+import com.apirest.api.entity.TipoLancamentoCaixa;
+import com.apirest.api.repository.CaixaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+// Livro do caixa: todo evento de dinheiro vira um lançamento numerado em caixa_lancamentos (só inserção).
+// 1. O lançamento e a soma no total corrente saem na mesma instrução (CaixaRepository.lancar), na transação de quem chama.
+// 2. A cada N lançamentos grava um snapshot dos saldos em caixa_saldos: o saldo num instante é uma leitura do
+//    snapshot anterior + no máximo N lançamentos relidos.
+// 3. No fechamento, uma leitura sequencial do livro do caixa confere os totais correntes e grava o snapshot final.
+@Service
+@Slf4j
+public class LivroCaixaService {
+
+    private static final String COLUNAS_SNAPSHOT =
+            "seq_ate, dinheiro, pix, debito, credito, crediario, sangrias, suprimentos, recebimentos, data_hora";
+
+    private static final String SQL_SNAPSHOT_ATE_SEQ = "SELECT " + COLUNAS_SNAPSHOT + """
+             FROM caixa_saldos
+            WHERE id_caixa = ? AND seq_ate <= ?
+            ORDER BY seq_ate DESC
+            LIMIT 1
+            """;
+
+    private static final String SQL_SNAPSHOT_ATE_MOMENTO = "SELECT " + COLUNAS_SNAPSHOT + """
+             FROM caixa_saldos
+            WHERE id_caixa = ? AND data_hora <= ?
+            ORDER BY seq_ate DESC
+            LIMIT 1
+            """;
+
+    private static final String SQL_LANCAMENTOS_ATE_SEQ = """
+            SELECT seq, tipo, metodo_pagamento, valor, data_hora FROM caixa_lancamentos
+            WHERE id_caixa = ? AND seq > ? AND seq <= ?
+            ORDER BY seq
+            """;
+
+    private static final String SQL_LANCAMENTOS_ATE_MOMENTO = """
+            SELECT seq, tipo, metodo_pagamento, valor, data_hora FROM caixa_lancamentos
+            WHERE id_caixa = ? AND seq > ? AND data_hora <= ?
+            ORDER BY seq
+            """;
+
+    private static final String SQL_GRAVAR_SNAPSHOT = "INSERT INTO caixa_saldos (id_caixa, " + COLUNAS_SNAPSHOT + """
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id_caixa, seq_ate) DO NOTHING
+            """;
+
+    // Fechamento: o livro inteiro do caixa numa passada (faixa da chave primária), somado por total
+    private static final String SQL_CONCILIAR = """
+            SELECT COUNT(*) AS quantidade,
+                   COALESCE(MAX(seq), 0) AS ultimo,
+                   MAX(data_hora) AS data_hora,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('VENDA', 'ESTORNO', 'REATIVACAO') AND metodo_pagamento = 'DINHEIRO'), 0) AS dinheiro,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('VENDA', 'ESTORNO', 'REATIVACAO') AND metodo_pagamento = 'PIX'), 0) AS pix,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('VENDA', 'ESTORNO', 'REATIVACAO') AND metodo_pagamento = 'DEBITO'), 0) AS debito,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('VENDA', 'ESTORNO', 'REATIVACAO') AND metodo_pagamento = 'CREDITO'), 0) AS credito,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('VENDA', 'ESTORNO', 'REATIVACAO') AND metodo_pagamento = 'CREDIARIO'), 0) AS crediario,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo = 'SANGRIA'), 0) AS sangrias,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo = 'SUPRIMENTO'), 0) AS suprimentos,
+                   COALESCE(SUM(valor) FILTER (WHERE tipo IN ('RECEBIMENTO_PARCELA', 'ENTRADA')), 0) AS recebimentos
+            FROM caixa_lancamentos
+            WHERE id_caixa = ? AND seq > 0
+            """;
+
+    private final CaixaRepository caixaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int snapshotACada;
+
+    public LivroCaixaService(CaixaRepository caixaRepository,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${caixa.livro.snapshot-a-cada:100}") int snapshotACada) {
+        this.caixaRepository = caixaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotACada = Math.max(1, snapshotACada);
+    }
+
+    // Grava o lançamento na transação de quem chama. Retorna false se o caixa já foi fechado.
+    public boolean lancar(Long idCaixa, TipoLancamentoCaixa tipo, MetodoPagamento metodo, BigDecimal valor, Long idReferencia) {
+        Long seq = caixaRepository.lancar(idCaixa, tipo, metodo, valor, idReferencia);
+        if (seq == null) return false;
+        if (seq % snapshotACada == 0) {
+            // A linha do caixa continua travada até o commit: nenhum lançamento novo entra durante a releitura
+            Saldos saldos = saldoAteSeq(idCaixa, seq);
+            gravarSnapshot(idCaixa, saldos);
+        }
+        return true;
+    }
+
+    // Saldo do caixa num instante (null = agora): snapshot anterior ao instante + lançamentos até ele
+    @Transactional(readOnly = true)
+    public SaldoCaixaDTO saldoEm(Long idCaixa, LocalDateTime momento) {
+        if (!caixaRepository.existsById(idCaixa)) {
+            throw new RuntimeException("Caixa não encontrado com ID: " + idCaixa);
+        }
+        LocalDateTime ate = momento != null ? momento : LocalDateTime.now(ZoneId.of("America/Sao_Paulo"));
+        Timestamp ateTs = Timestamp.valueOf(ate);
+
+        Saldos saldos = snapshot(jdbcTemplate.query(SQL_SNAPSHOT_ATE_MOMENTO, this::lerSnapshot, idCaixa, ateTs));
+        jdbcTemplate.query(SQL_LANCAMENTOS_ATE_MOMENTO, rs -> { saldos.aplicar(rs); }, idCaixa, saldos.seq, ateTs);
+
+        return SaldoCaixaDTO.builder()
+                .idCaixa(idCaixa)
+                .momento(ate)
+                .seq(saldos.seq)
+                .lancamentosRelidos(saldos.relidos)
+                .dinheiro(saldos.dinheiro)
+                .pix(saldos.pix)
+                .debito(saldos.debito)
+                .credito(saldos.credito)
+                .crediario(saldos.crediario)
+                .sangrias(saldos.sangrias)
+                .suprimentos(saldos.suprimentos)
+                .recebimentos(saldos.recebimentos)
+                .build();
+    }
+
+    // Chamado pelo fechamento com a linha do caixa travada: soma o livro inteiro numa passada, compara com os
+    // totais correntes e grava o snapshot final (o saldo de um caixa fechado passa a ser uma leitura só).
+    // Divergência não impede o fechamento: fica no log, como na verificação horária dos totais.
+    public void conciliarFechamento(Caixa caixa) {
+        Long idCaixa = caixa.getIdCaixa();
+        Saldos saldos = snapshot(jdbcTemplate.query(SQL_SNAPSHOT_ATE_SEQ, this::lerSnapshot, idCaixa, 0L)); // Carga inicial (V19)
+        long[] quantidade = new long[1];
+        jdbcTemplate.query(SQL_CONCILIAR, rs -> {
+            quantidade[0] = rs.getLong("quantidade");
+            saldos.seq = rs.getLong("ultimo");
+            Timestamp dataHora = rs.getTimestamp("data_hora");
+            if (dataHora != null) saldos.dataHora = dataHora.toLocalDateTime();
+            saldos.dinheiro = saldos.dinheiro.add(rs.getBigDecimal("dinheiro"));
+            saldos.pix = saldos.pix.add(rs.getBigDecimal("pix"));
+            saldos.debito = saldos.debito.add(rs.getBigDecimal("debito"));
+            saldos.credito = saldos.credito.add(rs.getBigDecimal("credito"));
+            saldos.crediario = saldos.crediario.add(rs.getBigDecimal("crediario"));
+            saldos.sangrias = saldos.sangrias.add(rs.getBigDecimal("sangrias"));
+            saldos.suprimentos = saldos.suprimentos.add(rs.getBigDecimal("suprimentos"));
+            saldos.recebimentos = saldos.recebimentos.add(rs.getBigDecimal("recebimentos"));
+        }, idCaixa);
+
+        if (quantidade[0] != saldos.seq) {
+            log.warn("Livro do caixa {} com lançamentos faltando: {} lançamentos até o número {}.", idCaixa, quantidade[0], saldos.seq);
+        }
+        if (diferente(saldos.dinheiro, caixa.getSistemaDinheiro())
+                || diferente(saldos.pix, caixa.getSistemaPix())
+                || diferente(saldos.debito, caixa.getSistemaDebito())
+                || diferente(saldos.credito, caixa.getSistemaCredito())
+                || diferente(saldos.crediario, caixa.getSistemaCrediario())
+                || diferente(saldos.sangrias, caixa.getSistemaSangrias())
+                || diferente(saldos.suprimentos, caixa.getSistemaSuprimentos())) {
+            log.warn("Livro do caixa {} diverge dos totais correntes no fechamento. Livro: dinheiro={} pix={} debito={} credito={} crediario={} sangrias={} suprimentos={}.",
+                    idCaixa, saldos.dinheiro, saldos.pix, saldos.debito, saldos.credito, saldos.crediario,
+                    saldos.sangrias, saldos.suprimentos);
+        }
+
+        if (saldos.seq > 0) gravarSnapshot(idCaixa, saldos);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private Saldos saldoAteSeq(Long idCaixa, long seq) {
+        Saldos saldos = snapshot(jdbcTemplate.query(SQL_SNAPSHOT_ATE_SEQ, this::lerSnapshot, idCaixa, seq));
+        jdbcTemplate.query(SQL_LANCAMENTOS_ATE_SEQ, rs -> { saldos.aplicar(rs); }, idCaixa, saldos.seq, seq);
+        return saldos;
+    }
+
+    private void gravarSnapshot(Long idCaixa, Saldos s) {
+        LocalDateTime dataHora = s.dataHora != null ? s.dataHora : LocalDateTime.now(ZoneId.of("America/Sao_Paulo"));
+        jdbcTemplate.update(SQL_GRAVAR_SNAPSHOT, idCaixa, s.seq,
+                s.dinheiro, s.pix, s.debito, s.credito, s.crediario, s.sangrias, s.suprimentos, s.recebimentos,
+                Timestamp.valueOf(dataHora));
+    }
+
+    // Sem snapshot o livro começa do zero
+    private Saldos snapshot(List<Saldos> encontrados) {
+        return encontrados.isEmpty() ? new Saldos() : encontrados.get(0);
+    }
+
+    private Saldos lerSnapshot(ResultSet rs, int linha) throws SQLException {
+        Saldos s = new Saldos();
+        s.seq = rs.getLong("seq_ate");
+        s.dataHora = rs.getTimestamp("data_hora").toLocalDateTime();
+        s.dinheiro = rs.getBigDecimal("dinheiro");
+        s.pix = rs.getBigDecimal("pix");
+        s.debito = rs.getBigDecimal("debito");
+        s.credito = rs.getBigDecimal("credito");
+        s.crediario = rs.getBigDecimal("crediario");
+        s.sangrias = rs.getBigDecimal("sangrias");
+        s.suprimentos = rs.getBigDecimal("suprimentos");
+        s.recebimentos = rs.getBigDecimal("recebimentos");
+        return s;
+    }
+
+    private boolean diferente(BigDecimal livro, BigDecimal total) {
+        return livro.compareTo(total != null ? total : BigDecimal.ZERO) != 0;
+    }
+
+    // Saldos acumulados até o lançamento seq
+    private static final class Saldos {
+        long seq;
+        LocalDateTime dataHora;
+        int relidos;
+        BigDecimal dinheiro = BigDecimal.ZERO;
+        BigDecimal pix = BigDecimal.ZERO;
+        BigDecimal debito = BigDecimal.ZERO;
+        BigDecimal credito = BigDecimal.ZERO;
+        BigDecimal crediario = BigDecimal.ZERO;
+        BigDecimal sangrias = BigDecimal.ZERO;
+        BigDecimal suprimentos = BigDecimal.ZERO;
+        BigDecimal recebimentos = BigDecimal.ZERO;
+
+        // Soma o lançamento da linha atual no total correspondente
+        void aplicar(ResultSet rs) throws SQLException {
+            BigDecimal valor = rs.getBigDecimal("valor");
+            switch (TipoLancamentoCaixa.valueOf(rs.getString("tipo"))) {
+                case VENDA, ESTORNO, REATIVACAO -> {
+                    switch (MetodoPagamento.valueOf(rs.getString("metodo_pagamento"))) {
+                        case DINHEIRO -> dinheiro = dinheiro.add(valor);
+                        case PIX -> pix = pix.add(valor);
+                        case DEBITO -> debito = debito.add(valor);
+                        case CREDITO -> credito = credito.add(valor);
+                        case CREDIARIO -> crediario = crediario.add(valor);
+                    }
+                }
+                case SANGRIA -> sangrias = sangrias.add(valor);
+                case SUPRIMENTO -> suprimentos = suprimentos.add(valor);
+                case RECEBIMENTO_PARCELA, ENTRADA -> recebimentos = recebimentos.add(valor);
+            }
+            seq = rs.getLong("seq");
+            dataHora = rs.getTimestamp("data_hora").toLocalDateTime();
+            relidos++;
+        }
+    }
+}
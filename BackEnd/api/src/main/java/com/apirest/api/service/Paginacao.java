@@ -0,0 +1,95 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.PaginaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Paginação por cursor (keyset): a próxima página começa depois da última linha entregue,
+// então o custo de uma página funda é o mesmo da primeira (sem OFFSET).
+// O cursor é opaco para o cliente: base64url de "data|id" da última linha.
+@Component
+public class Paginacao {
+
+    // Posição antes da primeira linha (ordem decrescente): uma consulta só serve para todas as páginas
+    private static final Posicao INICIO_DECRESCENTE = new Posicao(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    private final int limitePadrao;
+    private final int limiteMaximo;
+
+    public record Posicao(LocalDateTime data, Long id) {
+    }
+
+    public Paginacao(@Value("${paginacao.limite-padrao:50}") int limitePadrao,
+                     @Value("${paginacao.limite-maximo:200}") int limiteMaximo) {
+        this.limitePadrao = limitePadrao;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    // Tamanho da página pedido pelo cliente, limitado ao máximo configurado
+    public int limite(Integer pedido) {
+        if (pedido == null) return limitePadrao;
+        if (pedido < 1) throw new RuntimeException("O limite da página deve ser maior que zero.");
+        return Math.min(pedido, limiteMaximo);
+    }
+
+    // Posição de uma listagem ordenada por (data, id) decrescente
+    public Posicao posicaoDecrescente(String cursor) {
+        if (cursor == null || cursor.isBlank()) return INICIO_DECRESCENTE;
+        Posicao posicao = decodificar(cursor);
+        if (posicao.data() == null) throw cursorInvalido();
+        return posicao;
+    }
+
+    // Posição de uma listagem ordenada só por id crescente
+    public Long idCrescente(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        return decodificar(cursor).id();
+    }
+
+    // Monta a página a partir de uma busca com limite + 1 linhas (a linha extra indica que há próxima página)
+    public <E, T> PaginaDTO<T> montar(List<E> encontrados, int limite, Function<E, T> conversor,
+                                      Function<E, LocalDateTime> data, Function<E, Long> id) {
+        boolean temProxima = encontrados.size() > limite;
+        List<E> pagina = temProxima ? encontrados.subList(0, limite) : encontrados;
+
+        String proximoCursor = null;
+        if (temProxima) {
+            E ultimo = pagina.get(pagina.size() - 1);
+            proximoCursor = codificar(data.apply(ultimo), id.apply(ultimo));
+        }
+        return PaginaDTO.<T>builder()
+                .itens(pagina.stream().map(conversor).toList())
+                .proximoCursor(proximoCursor)
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private String codificar(LocalDateTime data, Long id) {
+        String conteudo = (data != null ? data.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Posicao decodificar(String cursor) {
+        try {
+            String conteudo = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = conteudo.indexOf('|');
+            if (separador < 0) throw cursorInvalido();
+            String data = conteudo.substring(0, separador);
+            return new Posicao(data.isEmpty() ? null : LocalDateTime.parse(data), Long.parseLong(conteudo.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw cursorInvalido();
+        }
+    }
+
+    private RuntimeException cursorInvalido() {
+        return new RuntimeException("Cursor de paginação inválido.");
+    }
+}
@@ -0,0 +1,210 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.DashboardResumoDTO;
+import com.apirest.api.dto.EventoCaixaDTO;
+import com.apirest.api.entity.Caixa;
+import com.apirest.api.entity.CaixaMovimentacao.TipoMovimentacao;
+import com.apirest.api.entity.MetodoPagamento;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Painel ao vivo dos caixas (Server-Sent Events): substitui o polling de GET /caixas e /caixas/relatorio.
+// Vendas, cancelamentos, reativações, movimentações e fechamentos publicam um delta depois do commit
+// (operação desfeita não aparece no painel). Cada assinante tem uma fila limitada e uma virtual thread
+// que escreve no socket: um cliente lento só enche a própria fila e, quando ela lota, é desconectado
+// (o EventSource do navegador reconecta sozinho e o painel recarrega GET /caixas).
+@Service
+@Slf4j
+public class PainelCaixasService {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    private static final Object HEARTBEAT = new Object();
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+    private final int capacidadeFila;
+    private final long timeoutMs;
+
+    public PainelCaixasService(@Value("${painel.caixas.capacidade-fila:256}") int capacidadeFila,
+                               @Value("${painel.caixas.timeout-ms:1800000}") long timeoutMs) {
+        this.capacidadeFila = capacidadeFila;
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Nova conexão do painel; idUnidade == null recebe os eventos de todas as lojas
+    public SseEmitter assinar(Long idUnidade) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Assinante assinante = new Assinante(emitter, idUnidade, new ArrayBlockingQueue<>(capacidadeFila));
+        emitter.onCompletion(assinante::encerrar);
+        emitter.onTimeout(assinante::encerrar);
+        emitter.onError(e -> assinante.encerrar());
+
+        assinantes.add(assinante);
+        assinante.envio = Thread.ofVirtual().name("painel-caixas-" + assinante.hashCode()).unstarted(assinante::enviar);
+        assinante.envio.start();
+        assinante.fila.offer(EventoCaixaDTO.builder().tipo("CONECTADO").idUnidade(idUnidade).momento(agora()).build());
+        log.debug("Painel de caixas conectado (unidade {}). Assinantes: {}", idUnidade, assinantes.size());
+        return emitter;
+    }
+
+    public int quantidadeAssinantes() {
+        return assinantes.size();
+    }
+
+    // --- PUBLICAÇÃO (chamada dentro da transação da operação) ---
+
+    // Venda (valor positivo), reativação (positivo) ou cancelamento (negativo) somados no caixa
+    public void publicarVenda(String tipo, Caixa caixa, Long idUnidade, MetodoPagamento metodo, BigDecimal valor) {
+        DashboardResumoDTO delta = DashboardResumoDTO.builder().totalPrevisto(valor).build();
+        switch (metodo) {
+            case DINHEIRO -> delta.setPrevistoDinheiro(valor);
+            case PIX -> delta.setPrevistoPix(valor);
+            case DEBITO -> delta.setPrevistoDebito(valor);
+            case CREDITO -> delta.setPrevistoCredito(valor);
+            case CREDIARIO -> delta.setPrevistoCrediario(valor);
+        }
+        publicarAposCommit(evento(tipo, caixa, idUnidade).delta(delta).build());
+    }
+
+    public void publicarMovimentacao(Caixa caixa, TipoMovimentacao tipo, BigDecimal valor) {
+        EventoCaixaDTO.EventoCaixaDTOBuilder evento = evento(tipo.name(), caixa, unidade(caixa));
+        if (tipo == TipoMovimentacao.SANGRIA) evento.sangrias(valor);
+        else if (tipo == TipoMovimentacao.SUPRIMENTO) evento.suprimentos(valor);
+        publicarAposCommit(evento.build());
+    }
+
+    // Fechamento: entra o conferido e a quebra do caixa
+    public void publicarFechamento(Caixa caixa) {
+        BigDecimal totalConferido = caixa.getConferidoDinheiro()
+                .add(caixa.getConferidoPix())
+                .add(caixa.getConferidoDebito())
+                .add(caixa.getConferidoCredito())
+                .add(caixa.getConferidoCrediario());
+        DashboardResumoDTO delta = DashboardResumoDTO.builder()
+                .totalConferido(totalConferido)
+                .totalQuebra(caixa.getQuebraDeCaixa())
+                .totalDinheiro(caixa.getConferidoDinheiro())
+                .totalPix(caixa.getConferidoPix())
+                .totalDebito(caixa.getConferidoDebito())
+                .totalCredito(caixa.getConferidoCredito())
+                .totalCrediario(caixa.getConferidoCrediario())
+                .build();
+        publicarAposCommit(evento("FECHAMENTO", caixa, unidade(caixa)).delta(delta).build());
+    }
+
+    // Comentário SSE periódico: mantém proxies abertos e descobre conexões mortas
+    @Scheduled(fixedDelayString = "${painel.caixas.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Assinante assinante : assinantes) {
+            assinante.entregar(HEARTBEAT);
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void publicarAposCommit(EventoCaixaDTO evento) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            distribuir(evento);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                distribuir(evento);
+            }
+        });
+    }
+
+    private void distribuir(EventoCaixaDTO evento) {
+        if (assinantes.isEmpty()) return;
+        for (Assinante assinante : assinantes) {
+            if (assinante.idUnidade == null || assinante.idUnidade.equals(evento.getIdUnidade())) {
+                assinante.entregar(evento);
+            }
+        }
+    }
+
+    private EventoCaixaDTO.EventoCaixaDTOBuilder evento(String tipo, Caixa caixa, Long idUnidade) {
+        return EventoCaixaDTO.builder()
+                .tipo(tipo)
+                .idCaixa(caixa.getIdCaixa())
+                .idFuncionario(caixa.getFuncionario().getIdFuncionario())
+                .idUnidade(idUnidade)
+                .momento(agora());
+    }
+
+    private Long unidade(Caixa caixa) {
+        return caixa.getFuncionario().getUnidade() != null ? caixa.getFuncionario().getUnidade().getIdUnidade() : null;
+    }
+
+    private LocalDateTime agora() {
+        return LocalDateTime.now(FUSO);
+    }
+
+    // Uma conexão do painel: fila limitada + virtual thread que escreve no socket
+    private final class Assinante {
+        private final SseEmitter emitter;
+        private final Long idUnidade;
+        private final BlockingQueue<Object> fila;
+        private final AtomicBoolean ativo = new AtomicBoolean(true);
+        private volatile Thread envio;
+
+        private Assinante(SseEmitter emitter, Long idUnidade, BlockingQueue<Object> fila) {
+            this.emitter = emitter;
+            this.idUnidade = idUnidade;
+            this.fila = fila;
+        }
+
+        // Nunca bloqueia quem publica: fila cheia = cliente parado, a conexão é derrubada
+        private void entregar(Object item) {
+            if (!ativo.get()) return;
+            if (!fila.offer(item)) {
+                log.warn("Painel de caixas sem leitura (fila de {} eventos cheia). Desconectando.", capacidadeFila);
+                encerrar();
+                emitter.complete();
+            }
+        }
+
+        private void enviar() {
+            try {
+                while (ativo.get()) {
+                    Object item = fila.take();
+                    if (item == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        EventoCaixaDTO evento = (EventoCaixaDTO) item;
+                        emitter.send(SseEmitter.event().name(evento.getTipo()).data(evento, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // Conexão fechada pelo cliente (ou emitter já concluído)
+                encerrar();
+            }
+        }
+
+        private void encerrar() {
+            if (!ativo.compareAndSet(true, false)) return;
+            assinantes.remove(this);
+            fila.clear();
+            Thread thread = envio;
+            if (thread != null) thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.PreAutorizacaoCrediarioDTO;
+import com.apirest.api.dto.PreAutorizacaoCrediarioResponseDTO;
+import com.apirest.api.entity.Cliente;
+import com.apirest.api.entity.Funcionario;
+import com.apirest.api.repository.ClienteRepository;
+import com.apirest.api.repository.ContaReceberRepository;
+import com.apirest.api.repository.FuncionarioRepository;
+import com.apirest.api.repository.ParcelaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+
+// Regras do crediário (vínculo, PIN, bloqueio, atraso, limite) e o token de pré-autorização.
+// O terminal chama POST /vendas/pre-autorizacao enquanto os itens são passados; no fechamento a venda
+// apresenta o token e não repete o BCrypt do PIN nem a busca de parcelas atrasadas.
+@Service
+@Slf4j
+public class PreAutorizacaoCrediarioService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+
+    // Uso único valendo para todas as instâncias: o nonce é gravado na transação da venda.
+    // Uma venda concorrente com o mesmo token espera a primeira terminar; se ela for desfeita, a segunda grava.
+    private static final String SQL_CONSUMIR = """
+            INSERT INTO crediario_tokens_usados (nonce, expira_em) VALUES (?, ?)
+            ON CONFLICT (nonce) DO NOTHING
+            """;
+
+    private static final String SQL_LIMPAR = "DELETE FROM crediario_tokens_usados WHERE expira_em < ?";
+
+    private final FuncionarioRepository funcionarioRepository;
+    private final ClienteRepository clienteRepository;
+    private final ParcelaRepository parcelaRepository;
+    private final ContaReceberRepository contaReceberRepository;
+    private final VerificacaoPinService verificacaoPinService;
+    private final JdbcTemplate jdbcTemplate;
+    private final SecretKeySpec chave;
+    private final long validadeSegundos;
+
+    public PreAutorizacaoCrediarioService(FuncionarioRepository funcionarioRepository,
+                                          ClienteRepository clienteRepository,
+                                          ParcelaRepository parcelaRepository,
+                                          ContaReceberRepository contaReceberRepository,
+                                          VerificacaoPinService verificacaoPinService,
+                                          JdbcTemplate jdbcTemplate,
+                                          @Value("${vendas.crediario.pre-autorizacao.segredo:}") String segredo,
+                                          @Value("${vendas.crediario.pre-autorizacao.validade-segundos:180}") long validadeSegundos) {
+        this.funcionarioRepository = funcionarioRepository;
+        this.clienteRepository = clienteRepository;
+        this.parcelaRepository = parcelaRepository;
+        this.contaReceberRepository = contaReceberRepository;
+        this.verificacaoPinService = verificacaoPinService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validadeSegundos = validadeSegundos;
+
+        byte[] bytesChave;
+        if (segredo == null || segredo.isBlank()) {
+            // Sem segredo configurado: chave aleatória (tokens deixam de valer quando a API reinicia)
+            bytesChave = new byte[32];
+            new SecureRandom().nextBytes(bytesChave);
+            log.warn("vendas.crediario.pre-autorizacao.segredo não configurado. Usando chave aleatória.");
+        } else {
+            bytesChave = segredo.getBytes(StandardCharsets.UTF_8);
+        }
+        this.chave = new SecretKeySpec(bytesChave, ALGORITMO);
+    }
+
+    // Sem @Transactional: o PIN é conferido antes de qualquer leitura JPA, sem segurar conexão durante o BCrypt
+    public PreAutorizacaoCrediarioResponseDTO preAutorizar(PreAutorizacaoCrediarioDTO dto) {
+        boolean pinConferido = verificacaoPinService.verificar(dto.getIdCliente(), dto.getIdFuncionario(), dto.getPin());
+
+        Funcionario operador = funcionarioRepository.findById(dto.getIdFuncionario())
+                .orElseThrow(() -> new RuntimeException("Funcionário não encontrado"));
+        if (!operador.isAtivo()) throw new RuntimeException("Funcionário inativo.");
+
+        Cliente cliente = clienteRepository.findById(dto.getIdCliente())
+                .orElseThrow(() -> new RuntimeException("Cliente não encontrado"));
+        if (!cliente.isAtivo()) throw new RuntimeException("Cliente inativo.");
+
+        validarComprador(cliente, pinConferido);
+
+        BigDecimal limiteDisponivel = limiteDisponivel(cliente);
+        if (limiteDisponivel.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("BLOQUEIO: Limite de crédito esgotado. Disponível: R$ " + limiteDisponivel);
+        }
+
+        long expiraEm = Instant.now().getEpochSecond() + validadeSegundos;
+        String token = emitirToken(cliente.getIdCliente(), operador.getIdFuncionario(), expiraEm);
+        log.info("Crediário pré-autorizado. Cliente ID: {}, Operador ID: {}", cliente.getIdCliente(), operador.getIdFuncionario());
+
+        return PreAutorizacaoCrediarioResponseDTO.builder()
+                .token(token)
+                .expiraEm(LocalDateTime.ofInstant(Instant.ofEpochSecond(expiraEm), FUSO))
+                .limiteDisponivel(limiteDisponivel)
+                .build();
+    }
+
+    // Validação completa do comprador (sem token): vínculo, bloqueio do RH e parcelas atrasadas.
+    // O PIN já foi conferido fora da transação pelo VerificacaoPinService (pinConferido).
+    public Funcionario validarComprador(Cliente cliente, boolean pinConferido) {
+        Funcionario comprador = validarVinculo(cliente);
+
+        if (!pinConferido) {
+            throw new RuntimeException("BLOQUEIO: PIN não conferido. Venda não autorizada.");
+        }
+
+        // Bloqueio por Atraso (Inadimplência)
+        if (parcelaRepository.existeParcelaAtrasada(cliente.getIdCliente(), LocalDate.now())) {
+            throw new RuntimeException("BLOQUEIO: Existem parcelas vencidas em aberto. Regularize para comprar novamente.");
+        }
+        return comprador;
+    }
+
+    // Validação com token: confere assinatura, validade, cliente/operador e uso único.
+    // Vínculo e bloqueio do RH são checados de novo (já estão em memória, não custam nada).
+    // Roda na transação da venda: o registro do uso só vale se a venda for gravada.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Funcionario validarComToken(String token, Cliente cliente, Funcionario operador) {
+        consumirToken(token, cliente.getIdCliente(), operador.getIdFuncionario());
+        return validarVinculo(cliente);
+    }
+
+    // O limite é sempre conferido no fechamento: é o que protege contra duas compras simultâneas do mesmo cliente
+    public void validarLimite(Cliente cliente, BigDecimal valorCompra) {
+        BigDecimal limite = cliente.getLimiteCredito() != null ? cliente.getLimiteCredito() : BigDecimal.ZERO;
+        BigDecimal dividaAtual = dividaAberta(cliente);
+        BigDecimal novaDivida = dividaAtual.add(valorCompra);
+
+        if (novaDivida.compareTo(limite) > 0) {
+            throw new RuntimeException(String.format("BLOQUEIO: Limite Excedido. Limite: R$ %s | Dívida Atual: R$ %s | Tentativa: R$ %s",
+                    limite, dividaAtual, valorCompra));
+        }
+    }
+
+    // Limpeza dos tokens usados que já expiraram (um token expirado é recusado antes de chegar ao registro)
+    @Scheduled(fixedDelayString = "${vendas.crediario.pre-autorizacao.limpeza-ms:60000}")
+    public void limparTokensExpirados() {
+        int removidos = jdbcTemplate.update(SQL_LIMPAR, Timestamp.valueOf(LocalDateTime.now(FUSO)));
+        if (removidos > 0) log.debug("Tokens de pré-autorização expirados removidos: {}", removidos);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private Funcionario validarVinculo(Cliente cliente) {
+        // Só funcionário pode comprar no crediário (Cliente vinculado a um Funcionário)
+        Funcionario comprador = cliente.getFuncionarioOrigem();
+        if (comprador == null) {
+            throw new RuntimeException("BLOQUEIO: Venda no Crediário permitida apenas para Funcionários (Cliente não vinculado).");
+        }
+        if (comprador.getStatusCrediario() == Funcionario.StatusCrediario.BLOQUEADO) {
+            throw new RuntimeException("BLOQUEIO: Funcionário bloqueado manualmente pelo RH para compras no crediário.");
+        }
+        return comprador;
+    }
+
+    private BigDecimal limiteDisponivel(Cliente cliente) {
+        BigDecimal limite = cliente.getLimiteCredito() != null ? cliente.getLimiteCredito() : BigDecimal.ZERO;
+        return limite.subtract(dividaAberta(cliente));
+    }
+
+    private BigDecimal dividaAberta(Cliente cliente) {
+        BigDecimal divida = contaReceberRepository.somarDividaAberta(cliente.getIdCliente());
+        return divida != null ? divida : BigDecimal.ZERO;
+    }
+
+    // Formato: base64url("idCliente:idOperador:expiraEm:nonce") + "." + base64url(HMAC-SHA256)
+    private String emitirToken(Long idCliente, Long idOperador, long expiraEm) {
+        byte[] nonce = new byte[12];
+        new SecureRandom().nextBytes(nonce);
+        String conteudo = idCliente + ":" + idOperador + ":" + expiraEm + ":" + HexFormat.of().formatHex(nonce);
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        return base64.encodeToString(conteudo.getBytes(StandardCharsets.UTF_8)) + "." + base64.encodeToString(assinar(conteudo));
+    }
+
+    private void consumirToken(String token, Long idCliente, Long idOperador) {
+        String[] partes = token.split("\\.");
+        if (partes.length != 2) throw tokenInvalido();
+
+        String conteudo;
+        byte[] assinatura;
+        try {
+            conteudo = new String(Base64.getUrlDecoder().decode(partes[0]), StandardCharsets.UTF_8);
+            assinatura = Base64.getUrlDecoder().decode(partes[1]);
+        } catch (IllegalArgumentException e) {
+            throw tokenInvalido();
+        }
+        if (!MessageDigest.isEqual(assinar(conteudo), assinatura)) throw tokenInvalido();
+
+        String[] campos = conteudo.split(":");
+        if (campos.length != 4) throw tokenInvalido();
+        long expiraEm = Long.parseLong(campos[2]);
+        String nonce = campos[3];
+
+        if (expiraEm < Instant.now().getEpochSecond()) {
+            throw new RuntimeException("BLOQUEIO: Pré-autorização do crediário expirada. Solicite uma nova.");
+        }
+        if (!campos[0].equals(String.valueOf(idCliente)) || !campos[1].equals(String.valueOf(idOperador))) {
+            throw new RuntimeException("BLOQUEIO: Pré-autorização emitida para outro cliente ou operador.");
+        }
+        // Se a venda for desfeita (ex: estoque insuficiente), o registro sai junto e o token volta a valer até expirar
+        Timestamp expiracao = Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochSecond(expiraEm), FUSO));
+        if (jdbcTemplate.update(SQL_CONSUMIR, nonce, expiracao) == 0) {
+            throw new RuntimeException("BLOQUEIO: Pré-autorização já utilizada.");
+        }
+    }
+
+    private byte[] assinar(String conteudo) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chave);
+            return mac.doFinal(conteudo.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RuntimeException tokenInvalido() {
+        return new RuntimeException("BLOQUEIO: Token de pré-autorização inválido.");
+    }
+}
@@ -4,10 +4,15 @@ import com.apirest.api.dto.*;
 import com.apirest.api.entity.*;
 import com.apirest.api.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -23,6 +28,10 @@ public class ProdutoService {
     //  AUXILIARES
     private final CategoriaService categoriaService;
     private final FuncionarioRepository funcionarioRepository;
+    private final ProdutoSnapshotCache produtoSnapshotCache; // Snapshots usados pelo caixa
+    private final Paginacao paginacao;
+    private final IndiceCodigosService indiceCodigosService; // Leitor do caixa (código de barras / SKU em memória)
+    private final BuscaProdutosService buscaProdutosService; // Busca por nome (trigramas em memória)
 
     // PERMISSÕES
     private static final Set<String> PERMISSAO_CRIAR = Set.of("DONO", "GERENTE", "LIDER_VENDA", "ADMIN");
@@ -53,11 +62,13 @@ public class ProdutoService {
         pai = produtoPaiRepository.save(pai);
 
         // Criar variações e estoques
+        List<Long> criadas = new ArrayList<>();
         if (dto.getVariacoes() != null) {
             for (CadastroProdutoDTO.VariacaoDTO varDto : dto.getVariacoes()) {
-                salvarVariacaoEEstoque(pai, varDto, unidadeAtual);
+                criadas.add(salvarVariacaoEEstoque(pai, varDto, unidadeAtual));
             }
         }
+        reindexar(criadas);
     }
 
     // ATUALIZAÇÃO (PUT)
@@ -88,6 +99,8 @@ public class ProdutoService {
         // Atualizar ou adicionar variações
         Funcionario func = funcionarioRepository.findById(dto.getIdFuncionario()).orElseThrow();
 
+        List<Long> alteradas = new ArrayList<>();
+        List<Long> criadas = new ArrayList<>();
         if (dto.getVariacoes() != null) {
             for (CadastroProdutoDTO.VariacaoDTO varDto : dto.getVariacoes()) {
                 // Verificar se a variação já existe
@@ -97,16 +110,25 @@ public class ProdutoService {
 
                 if (varExistente.isPresent()) {
                     ProdutoVariacao v = varExistente.get();
+                    // Preço de venda ou reativação mudam o que o caixa cobra: nova versão do preço
+                    if (!v.isAtivo() || v.getPrecoVenda().compareTo(varDto.getPrecoVenda()) != 0) {
+                        v.setVersaoPreco(v.getVersaoPreco() + 1);
+                    }
                     v.setPrecoCusto(varDto.getPrecoCusto());
                     v.setPrecoVenda(varDto.getPrecoVenda());
                     v.setCodigoBarras(varDto.getCodigoBarras());
                     if(!v.isAtivo()) v.setAtivo(true);
                     produtoVariacaoRepository.save(v);
+                    alteradas.add(v.getId());
                 } else {
-                    salvarVariacaoEEstoque(pai, varDto, func.getUnidade());
+                    criadas.add(salvarVariacaoEEstoque(pai, varDto, func.getUnidade()));
                 }
             }
         }
+        produtoSnapshotCache.invalidar(alteradas);
+        // Nome, marca e categoria do produto entram na busca de todas as variações dele
+        pai.getVariacoes().forEach(v -> criadas.add(v.getId()));
+        reindexar(criadas);
     }
 
     // DELETE LÓGICO
@@ -121,43 +143,72 @@ public class ProdutoService {
 
         pai.setAtivo(false);
         // Desativar todas as variações associadas
-        pai.getVariacoes().forEach(v -> v.setAtivo(false));
+        pai.getVariacoes().forEach(v -> {
+            if (v.isAtivo()) v.setVersaoPreco(v.getVersaoPreco() + 1);
+            v.setAtivo(false);
+        });
 
         produtoPaiRepository.save(pai);
+        List<Long> desativadas = pai.getVariacoes().stream().map(ProdutoVariacao::getId).toList();
+        produtoSnapshotCache.invalidar(desativadas);
+        reindexar(desativadas);
     }
 
-    // LISTAGEM (GET)
+    // LISTAGEM (GET /produtos) - catálogo ativo inteiro, no formato de lista de sempre.
+    // Percorre o catálogo em blocos de paginacao.limite-maximo produtos, com as mesmas três consultas por bloco da página.
+    @Transactional(readOnly = true)
     public List<ProdutoResponseDTO> listarTudo(Long idFuncionarioSolicitante) {
-        Long idUnidadeAlvo = null;
-        if (idFuncionarioSolicitante != null) {
-            Funcionario f = funcionarioRepository.findById(idFuncionarioSolicitante).orElse(null);
-            if (f != null) idUnidadeAlvo = f.getUnidade().getIdUnidade();
-        }
-        Long finalIdUnidade = idUnidadeAlvo;
+        Long idUnidade = idUnidadeDoFuncionario(idFuncionarioSolicitante);
+        int tamanhoBloco = paginacao.limite(Integer.MAX_VALUE);
+        List<ProdutoResponseDTO> produtos = new ArrayList<>();
+        List<ProdutoPai> bloco;
+        Long ultimoId = 0L;
+        do {
+            bloco = produtoPaiRepository.buscarPaginaAtivosApos(ultimoId, Limit.of(tamanhoBloco));
+            if (bloco.isEmpty()) break;
+            produtos.addAll(montarCatalogo(bloco, idUnidade).values());
+            ultimoId = bloco.get(bloco.size() - 1).getId();
+        } while (bloco.size() == tamanhoBloco);
+        return produtos;
+    }
 
-        // Filtrar apenas produtos ativos
-        return produtoPaiRepository.findAll().stream()
-                .filter(ProdutoPai::isAtivo)
-                .map(pai -> montarDTOResposta(pai, finalIdUnidade))
-                .collect(Collectors.toList());
+    // LISTAGEM PAGINADA (GET /produtos/pagina)
+    // Paginado por cursor (id crescente), só produtos ativos. Três consultas por página, qualquer que seja o tamanho:
+    // produtos (com categoria), variações ativas da página e saldos da unidade para essas variações.
+    // As variações não vêm no JOIN FETCH dos produtos porque fetch de coleção com limite pagina em memória.
+    @Transactional(readOnly = true)
+    public PaginaDTO<ProdutoResponseDTO> listarPagina(Long idFuncionarioSolicitante, String cursor, Integer limitePedido) {
+        int limite = paginacao.limite(limitePedido);
+        List<ProdutoPai> pais = produtoPaiRepository.buscarPaginaAtivosApos(paginacao.idCrescente(cursor), Limit.of(limite + 1));
+        List<ProdutoPai> pagina = pais.size() > limite ? pais.subList(0, limite) : pais;
+
+        Map<Long, ProdutoResponseDTO> catalogo = montarCatalogo(pagina, idUnidadeDoFuncionario(idFuncionarioSolicitante));
+        return paginacao.montar(pais, limite, pai -> catalogo.get(pai.getId()), pai -> null, ProdutoPai::getId);
     }
 
+    @Transactional(readOnly = true)
     public ProdutoResponseDTO buscarPorId(Long id, Long idFuncionario) {
         ProdutoPai pai = produtoPaiRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
 
-        Long idUnidade = null;
-        if(idFuncionario != null){
-            Funcionario f = funcionarioRepository.findById(idFuncionario).orElse(null);
-            if(f != null) idUnidade = f.getUnidade().getIdUnidade();
-        }
+        List<ProdutoVariacao> variacoes = pai.getVariacoes().stream().filter(ProdutoVariacao::isAtivo).toList();
+        Map<Long, EstoqueSaldo> saldos = buscarSaldos(idUnidadeDoFuncionario(idFuncionario),
+                variacoes.stream().map(ProdutoVariacao::getId).toList());
+        return montarDTOResposta(pai, variacoes, saldos);
+    }
 
-        return montarDTOResposta(pai, idUnidade);
+    // IMPORTAÇÃO - o cargo é validado uma vez para o arquivo todo; devolve a unidade que recebe o estoque inicial
+    @Transactional(readOnly = true)
+    public Long unidadeParaImportacao(Long idFuncionario) {
+        if (idFuncionario == null) throw new RuntimeException("ID do Funcionário é obrigatório");
+        validarPermissao(idFuncionario, PERMISSAO_CRIAR, "importar produtos");
+        return idUnidadeDoFuncionario(idFuncionario);
     }
 
     // AUXILIARES
 
-    private void salvarVariacaoEEstoque(ProdutoPai pai, CadastroProdutoDTO.VariacaoDTO varDto, Unidade unidade) {
+    // Retorna o ID da variação criada
+    private Long salvarVariacaoEEstoque(ProdutoPai pai, CadastroProdutoDTO.VariacaoDTO varDto, Unidade unidade) {
         ProdutoVariacao variacao = ProdutoVariacao.builder()
                 .produtoPai(pai)
                 .nomeVariacao(varDto.getNomeVariacao())
@@ -179,22 +230,56 @@ public class ProdutoService {
                 .quantidadeMinima(varDto.getEstoqueMinimo() != null ? varDto.getEstoqueMinimo() : 5)
                 .build();
         estoqueSaldoRepository.save(saldo);
+        return variacao.getId();
+    }
+
+    // Respostas dos produtos (na ordem recebida), com variações ativas e saldos buscados em lote
+    private Map<Long, ProdutoResponseDTO> montarCatalogo(List<ProdutoPai> pais, Long idUnidade) {
+        Map<Long, List<ProdutoVariacao>> variacoesPorProduto = new HashMap<>();
+        if (!pais.isEmpty()) {
+            List<Long> idsProdutos = pais.stream().map(ProdutoPai::getId).toList();
+            for (ProdutoVariacao v : produtoVariacaoRepository.buscarAtivasDosProdutos(idsProdutos)) {
+                variacoesPorProduto.computeIfAbsent(v.getProdutoPai().getId(), id -> new ArrayList<>()).add(v);
+            }
+        }
+        Map<Long, EstoqueSaldo> saldos = buscarSaldos(idUnidade,
+                variacoesPorProduto.values().stream().flatMap(List::stream).map(ProdutoVariacao::getId).toList());
+
+        Map<Long, ProdutoResponseDTO> catalogo = new LinkedHashMap<>();
+        for (ProdutoPai pai : pais) {
+            catalogo.put(pai.getId(), montarDTOResposta(pai, variacoesPorProduto.getOrDefault(pai.getId(), List.of()), saldos));
+        }
+        return catalogo;
     }
 
-    private ProdutoResponseDTO montarDTOResposta(ProdutoPai pai, Long idUnidade) {
-        List<VariacaoResponseDTO> variacoesDTO = pai.getVariacoes().stream()
-                .filter(ProdutoVariacao::isAtivo)
+    private Long idUnidadeDoFuncionario(Long idFuncionario) {
+        if (idFuncionario == null) return null;
+        return funcionarioRepository.findById(idFuncionario)
+                .map(f -> f.getUnidade().getIdUnidade())
+                .orElse(null);
+    }
+
+    // Saldos da unidade para todas as variações de uma vez, por ID da variação (sem unidade = sem saldos)
+    private Map<Long, EstoqueSaldo> buscarSaldos(Long idUnidade, List<Long> idsVariacoes) {
+        if (idUnidade == null || idsVariacoes.isEmpty()) return Map.of();
+        Map<Long, EstoqueSaldo> saldos = new HashMap<>();
+        for (EstoqueSaldo saldo : estoqueSaldoRepository.findByUnidadeIdAndProdutoVariacaoIdIn(idUnidade, idsVariacoes)) {
+            saldos.put(saldo.getProdutoVariacao().getId(), saldo);
+        }
+        return saldos;
+    }
+
+    // variacoes: só as ativas, já carregadas
+    private ProdutoResponseDTO montarDTOResposta(ProdutoPai pai, List<ProdutoVariacao> variacoes, Map<Long, EstoqueSaldo> saldos) {
+        List<VariacaoResponseDTO> variacoesDTO = variacoes.stream()
                 .map(v -> {
                     Integer qtd = 0;
                     Integer min = 5;
 
-                    // Buscar saldo se idUnidade for fornecido
-                    if (idUnidade != null) {
-                        Optional<EstoqueSaldo> saldoOpt = estoqueSaldoRepository.findByUnidadeIdAndProdutoVariacaoId(idUnidade, v.getId());
-                        if (saldoOpt.isPresent()) {
-                            qtd = saldoOpt.get().getQuantidadeAtual();
-                            min = saldoOpt.get().getQuantidadeMinima();
-                        }
+                    EstoqueSaldo saldo = saldos.get(v.getId());
+                    if (saldo != null) {
+                        qtd = saldo.getQuantidadeAtual();
+                        min = saldo.getQuantidadeMinima();
                     }
 
                     return VariacaoResponseDTO.builder()
@@ -231,6 +316,12 @@ public class ProdutoService {
         return "Disponível";
     }
 
+    // Índices em memória do caixa: recarregam as variações depois do commit
+    private void reindexar(List<Long> idsVariacoes) {
+        indiceCodigosService.atualizar(idsVariacoes);
+        buscaProdutosService.atualizar(idsVariacoes);
+    }
+
     private void validarPermissao(Long idFuncionario, Set<String> cargos, String acao) {
         if(idFuncionario == null) return;
         Funcionario f = funcionarioRepository.findById(idFuncionario)
@@ -0,0 +1,203 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.MetricasProdutoCacheDTO;
+import com.apirest.api.entity.ProdutoVariacao;
+import com.apirest.api.repository.ProdutoVariacaoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Snapshot em memória do que o caixa precisa da variação (nome, preço, ativo, versão do preço).
+// Preços mudam poucas vezes por dia: a venda lê daqui e só vai ao banco nas variações que não estão no cache.
+// Tamanho limitado (LRU) e validade de produtos.cache.ttl-segundos. O ProdutoService invalida as variações alteradas
+// depois do commit, mas só nesta instância da API: por isso o fechamento da venda (buscarConferido) confere a
+// versao_preco dos snapshots com o banco e recarrega os que mudaram (preço, ativação e desativação mudam a versão).
+@Service
+@Slf4j
+public class ProdutoSnapshotCache {
+
+    private static final String SQL_VERSOES = "SELECT id, versao_preco FROM produtos_variacoes WHERE id = ANY(?)";
+
+    private final ProdutoVariacaoRepository produtoVariacaoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanhoMaximo;
+    private final long ttlMs;
+
+    // LRU dos snapshots por ID da variação (acesso sincronizado)
+    private final LinkedHashMap<Long, Entrada> cache;
+
+    // Incrementada a cada invalidação: uma leitura do banco que começou antes dela não entra no cache
+    private final AtomicLong geracao = new AtomicLong();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+    private final LongAdder expirados = new LongAdder();
+    private final LongAdder versoesDivergentes = new LongAdder();
+
+    public record Snapshot(Long id, String nomeCompleto, BigDecimal precoVenda, boolean ativo, Integer versaoPreco) {
+    }
+
+    private record Entrada(Snapshot snapshot, long carregadoEm) {
+    }
+
+    public ProdutoSnapshotCache(ProdutoVariacaoRepository produtoVariacaoRepository,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${produtos.cache.tamanho:10000}") int tamanhoMaximo,
+                                @Value("${produtos.cache.ttl-segundos:60}") long ttlSegundos) {
+        this.produtoVariacaoRepository = produtoVariacaoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.ttlMs = ttlSegundos * 1000;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> eldest) {
+                if (size() > ProdutoSnapshotCache.this.tamanhoMaximo) {
+                    despejos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Snapshots das variações pedidas. As que faltam no cache (ou venceram) são lidas numa consulta só.
+    // IDs inexistentes simplesmente não aparecem no mapa devolvido.
+    public Map<Long, Snapshot> buscar(Collection<Long> ids) {
+        Map<Long, Snapshot> encontrados = new HashMap<>();
+        List<Long> ausentes = new ArrayList<>();
+        long agora = System.currentTimeMillis();
+        synchronized (cache) {
+            for (Long id : ids) {
+                Entrada entrada = cache.get(id);
+                if (entrada != null && agora - entrada.carregadoEm() >= ttlMs) {
+                    cache.remove(id);
+                    expirados.increment();
+                    entrada = null;
+                }
+                if (entrada != null) encontrados.put(id, entrada.snapshot());
+                else ausentes.add(id);
+            }
+        }
+        acertos.add(encontrados.size());
+        if (!ausentes.isEmpty()) carregar(ausentes, encontrados);
+        return encontrados;
+    }
+
+    // Igual a buscar, para o fechamento da venda: os snapshots que vieram do cache têm a versão do preço conferida
+    // com o banco (uma consulta só, pelos IDs) e os divergentes são recarregados. Assim uma alteração feita em outra
+    // instância da API vale na venda seguinte, sem esperar o TTL.
+    public Map<Long, Snapshot> buscarConferido(Collection<Long> ids) {
+        Map<Long, Snapshot> encontrados = buscar(ids);
+        if (encontrados.isEmpty()) return encontrados;
+
+        Map<Long, Integer> versoes = new HashMap<>();
+        jdbcTemplate.query(SQL_VERSOES, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", encontrados.keySet().toArray())),
+                rs -> {
+                    versoes.put(rs.getLong("id"), rs.getInt("versao_preco"));
+                });
+
+        List<Long> divergentes = new ArrayList<>();
+        for (Snapshot snapshot : encontrados.values()) {
+            if (!Objects.equals(versoes.get(snapshot.id()), snapshot.versaoPreco())) divergentes.add(snapshot.id());
+        }
+        if (divergentes.isEmpty()) return encontrados;
+
+        versoesDivergentes.add(divergentes.size());
+        remover(Set.copyOf(divergentes));
+        divergentes.forEach(encontrados::remove);
+        carregar(divergentes, encontrados);
+        return encontrados;
+    }
+
+    // Remove as variações do cache. Dentro de transação, só depois que ela terminar
+    // (antes disso o banco ainda tem o valor antigo e uma leitura concorrente o colocaria de volta).
+    public void invalidar(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        Set<Long> copia = Set.copyOf(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remover(copia);
+                }
+            });
+        } else {
+            remover(copia);
+        }
+    }
+
+    public MetricasProdutoCacheDTO metricas() {
+        long totalAcertos = acertos.sum();
+        long totalFaltas = faltas.sum();
+        long consultas = totalAcertos + totalFaltas;
+        int entradas;
+        synchronized (cache) {
+            entradas = cache.size();
+        }
+        return MetricasProdutoCacheDTO.builder()
+                .entradas(entradas)
+                .capacidade(tamanhoMaximo)
+                .acertos(totalAcertos)
+                .faltas(totalFaltas)
+                .taxaAcerto(consultas == 0 ? 0 : (double) totalAcertos / consultas)
+                .despejos(despejos.sum())
+                .invalidacoes(invalidacoes.sum())
+                .expirados(expirados.sum())
+                .versoesDivergentes(versoesDivergentes.sum())
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void carregar(List<Long> ausentes, Map<Long, Snapshot> encontrados) {
+        faltas.add(ausentes.size());
+        long geracaoLeitura = geracao.get();
+        List<Snapshot> carregados = new ArrayList<>(ausentes.size());
+        for (ProdutoVariacao variacao : produtoVariacaoRepository.findAllById(ausentes)) {
+            carregados.add(paraSnapshot(variacao));
+        }
+
+        long agora = System.currentTimeMillis();
+        synchronized (cache) {
+            // Se houve invalidação durante a leitura, o que foi lido pode estar velho: usa nesta venda, mas não guarda
+            boolean guardar = geracao.get() == geracaoLeitura;
+            for (Snapshot snapshot : carregados) {
+                encontrados.put(snapshot.id(), snapshot);
+                if (guardar) cache.put(snapshot.id(), new Entrada(snapshot, agora));
+            }
+        }
+    }
+
+    private void remover(Set<Long> ids) {
+        synchronized (cache) {
+            geracao.incrementAndGet();
+            for (Long id : ids) {
+                cache.remove(id);
+            }
+        }
+        invalidacoes.add(ids.size());
+        log.debug("Snapshots de produto invalidados: {}", ids);
+    }
+
+    private Snapshot paraSnapshot(ProdutoVariacao variacao) {
+        return new Snapshot(variacao.getId(), variacao.getNomeCompletoConcatenado(), variacao.getPrecoVenda(),
+                variacao.isAtivo(), variacao.getVersaoPreco());
+    }
+}
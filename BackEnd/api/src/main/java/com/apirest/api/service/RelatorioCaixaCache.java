@@ -0,0 +1,165 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.MetricasRelatorioCacheDTO;
+import com.apirest.api.entity.StatusCaixa;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Cache dos relatórios de caixa por (relatório, período, filtros, quem pediu).
+// Caixa FECHADO não muda mais: o relatório de um período encerrado (e sem caixa aberto dentro dele) é guardado
+// sem expiração. Períodos que incluem hoje ou caixas abertos ficam pouco tempo (TTL) e são descartados quando
+// um caixa fecha. Tamanho limitado (LRU), acesso sincronizado como no ProdutoSnapshotCache.
+@Service
+@Slf4j
+public class RelatorioCaixaCache {
+
+    private static final long SEM_EXPIRACAO = Long.MAX_VALUE;
+
+    private final int tamanhoMaximo;
+    private final long ttlMs;
+    private final long margemMinutos;
+
+    private final LinkedHashMap<Chave, Entrada> cache;
+
+    // Incrementada a cada fechamento: relatório em aberto calculado antes dele não entra no cache
+    private final AtomicLong geracao = new AtomicLong();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder expiracoes = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+
+    // Campos que não se aplicam ao relatório ficam null
+    public record Chave(String relatorio, LocalDateTime inicio, LocalDateTime fim,
+                        Long idFuncionario, StatusCaixa status, Long idSolicitante) {
+    }
+
+    private record Entrada(Object valor, long expiraEm) {
+        boolean imutavel() {
+            return expiraEm == SEM_EXPIRACAO;
+        }
+    }
+
+    public RelatorioCaixaCache(@Value("${relatorios.cache.tamanho:500}") int tamanhoMaximo,
+                               @Value("${relatorios.cache.ttl-segundos:30}") long ttlSegundos,
+                               @Value("${relatorios.cache.margem-minutos:10}") long margemMinutos) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.ttlMs = ttlSegundos * 1000;
+        this.margemMinutos = margemMinutos;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> eldest) {
+                if (size() > RelatorioCaixaCache.this.tamanhoMaximo) {
+                    despejos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Período terminado há mais que a margem (um fechamento commitado agora não cai mais dentro dele)
+    public boolean periodoEncerrado(LocalDateTime fim) {
+        return fim.isBefore(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).minusMinutes(margemMinutos));
+    }
+
+    // Devolve o relatório do cache ou calcula e guarda. imutavel = período encerrado, guardado sem expiração.
+    @SuppressWarnings("unchecked")
+    public <T> T obter(Chave chave, boolean imutavel, Supplier<T> calcular) {
+        long agora = System.currentTimeMillis();
+        synchronized (cache) {
+            Entrada entrada = cache.get(chave);
+            if (entrada != null) {
+                if (entrada.expiraEm() > agora) {
+                    acertos.increment();
+                    return (T) entrada.valor();
+                }
+                cache.remove(chave);
+                expiracoes.increment();
+            }
+        }
+        faltas.increment();
+
+        long geracaoLeitura = geracao.get();
+        T valor = calcular.get();
+
+        synchronized (cache) {
+            if (imutavel) {
+                cache.put(chave, new Entrada(valor, SEM_EXPIRACAO));
+            } else if (geracao.get() == geracaoLeitura) {
+                cache.put(chave, new Entrada(valor, System.currentTimeMillis() + ttlMs));
+            }
+        }
+        return valor;
+    }
+
+    // Chamado no fechamento de um caixa: descarta os relatórios de períodos em aberto depois do commit
+    public void invalidarPeriodosAbertos() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) removerAbertos();
+                }
+            });
+        } else {
+            removerAbertos();
+        }
+    }
+
+    public MetricasRelatorioCacheDTO metricas() {
+        long totalAcertos = acertos.sum();
+        long totalFaltas = faltas.sum();
+        long consultas = totalAcertos + totalFaltas;
+        int entradas;
+        int imutaveis = 0;
+        synchronized (cache) {
+            entradas = cache.size();
+            for (Entrada entrada : cache.values()) {
+                if (entrada.imutavel()) imutaveis++;
+            }
+        }
+        return MetricasRelatorioCacheDTO.builder()
+                .entradas(entradas)
+                .imutaveis(imutaveis)
+                .capacidade(tamanhoMaximo)
+                .acertos(totalAcertos)
+                .faltas(totalFaltas)
+                .taxaAcerto(consultas == 0 ? 0 : (double) totalAcertos / consultas)
+                .despejos(despejos.sum())
+                .expiracoes(expiracoes.sum())
+                .invalidacoes(invalidacoes.sum())
+                .build();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void removerAbertos() {
+        int removidos = 0;
+        synchronized (cache) {
+            geracao.incrementAndGet();
+            Iterator<Entrada> it = cache.values().iterator();
+            while (it.hasNext()) {
+                if (!it.next().imutavel()) {
+                    it.remove();
+                    removidos++;
+                }
+            }
+        }
+        invalidacoes.add(removidos);
+        log.debug("Relatórios de períodos em aberto invalidados: {}", removidos);
+    }
+}
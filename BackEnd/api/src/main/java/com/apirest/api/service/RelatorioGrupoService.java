@@ -0,0 +1,151 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.RelatorioGrupoDTO;
+import com.apirest.api.dto.RelatorioUnidadeDTO;
+import com.apirest.api.entity.Unidade;
+import com.apirest.api.repository.CaixaRepository.ResumoCaixas;
+import com.apirest.api.repository.UnidadeRepository;
+import com.apirest.api.service.ResumoVendasService.ResumoCaixasTotais;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Relatório do mês do grupo econômico: cada unidade é somada numa virtual thread própria.
+// Um semáforo limita quantas unidades usam conexão ao mesmo tempo (somado entre todas as requisições),
+// então o relatório do grupo não esgota o pool do caixa. O tempo total fica perto do da unidade mais lenta;
+// passado o prazo, o relatório sai com as unidades que terminaram e as demais marcadas como TEMPO_ESGOTADO.
+@Service
+@Slf4j
+public class RelatorioGrupoService {
+
+    private final UnidadeRepository unidadeRepository;
+    private final ResumoVendasService resumoVendasService;
+    private final PlatformTransactionManager transactionManager;
+    private final Semaphore conexoes;
+    private final long prazoMs;
+
+    private record Parte(ResumoCaixas resumo, long tempoMs) {
+    }
+
+    public RelatorioGrupoService(UnidadeRepository unidadeRepository,
+                                 ResumoVendasService resumoVendasService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${relatorios.grupo.conexoes:4}") int conexoes,
+                                 @Value("${relatorios.grupo.prazo-ms:10000}") long prazoMs) {
+        this.unidadeRepository = unidadeRepository;
+        this.resumoVendasService = resumoVendasService;
+        this.transactionManager = transactionManager;
+        this.conexoes = new Semaphore(conexoes, true);
+        this.prazoMs = prazoMs;
+    }
+
+    public RelatorioGrupoDTO gerarRelatorioDoMes(Long grupoEconomicoId, int ano, int mes) {
+        List<Unidade> unidades = unidadeRepository.findByGrupoEconomicoIdOrderByIdUnidade(grupoEconomicoId);
+        if (unidades.isEmpty()) {
+            throw new RuntimeException("Nenhuma unidade encontrada para o grupo econômico " + grupoEconomicoId + ".");
+        }
+        LocalDate inicio = LocalDate.of(ano, mes, 1);
+        LocalDate fim = inicio.withDayOfMonth(inicio.lengthOfMonth());
+        String periodo = mes + "/" + ano;
+
+        long comeco = System.nanoTime();
+        long limite = comeco + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+
+        // Sem try-with-resources: close() esperaria as unidades atrasadas, e o prazo é justamente não esperar
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<Parte>> futuros = new ArrayList<>(unidades.size());
+        try {
+            for (Unidade unidade : unidades) {
+                futuros.add(executor.submit(() -> somarUnidade(unidade.getIdUnidade(), inicio, fim, limite)));
+            }
+
+            ResumoCaixasTotais consolidado = new ResumoCaixasTotais();
+            List<RelatorioUnidadeDTO> partes = new ArrayList<>(unidades.size());
+            boolean completo = true;
+            for (int i = 0; i < unidades.size(); i++) {
+                Unidade unidade = unidades.get(i);
+                RelatorioUnidadeDTO.RelatorioUnidadeDTOBuilder parte = RelatorioUnidadeDTO.builder()
+                        .idUnidade(unidade.getIdUnidade())
+                        .nomeUnidade(unidade.getNomeFantasia());
+                try {
+                    Parte resultado = futuros.get(i).get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    consolidado.adicionar(resultado.resumo());
+                    parte.status("OK").tempoMs(resultado.tempoMs()).relatorio(CaixaService.paraRelatorio(periodo, resultado.resumo()));
+                } catch (TimeoutException e) {
+                    completo = false;
+                    parte.status("TEMPO_ESGOTADO");
+                } catch (ExecutionException e) {
+                    completo = false;
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    if (estourouPrazo(causa)) {
+                        parte.status("TEMPO_ESGOTADO");
+                    } else {
+                        log.warn("Relatório do grupo {}: falha na unidade {}: {}", grupoEconomicoId, unidade.getIdUnidade(), causa.getMessage());
+                        parte.status("ERRO").erro(causa.getMessage());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Relatório do grupo interrompido.");
+                }
+                partes.add(parte.build());
+            }
+
+            long tempoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco);
+            if (!completo) log.warn("Relatório do grupo {} ({}) saiu parcial após {} ms.", grupoEconomicoId, periodo, tempoMs);
+
+            return RelatorioGrupoDTO.builder()
+                    .grupoEconomicoId(grupoEconomicoId)
+                    .completo(completo)
+                    .tempoMs(tempoMs)
+                    .consolidado(CaixaService.paraRelatorio(periodo, consolidado))
+                    .unidades(partes)
+                    .build();
+        } finally {
+            // Unidades atrasadas são interrompidas (esperando o semáforo) ou param no timeout da transação
+            futuros.forEach(f -> f.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Roda numa virtual thread: espera vaga no semáforo até o prazo e consulta numa transação com timeout
+    private Parte somarUnidade(Long idUnidade, LocalDate inicio, LocalDate fim, long limite) throws Exception {
+        long restante = limite - System.nanoTime();
+        if (!conexoes.tryAcquire(Math.max(0, restante), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("Sem conexão disponível dentro do prazo.");
+        }
+        try {
+            long comeco = System.nanoTime();
+            TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+            transacao.setReadOnly(true);
+            transacao.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(limite - comeco)));
+            ResumoCaixas resumo = transacao.execute(status -> resumoVendasService.resumirUnidade(idUnidade, inicio, fim));
+            return new Parte(resumo, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco));
+        } finally {
+            conexoes.release();
+        }
+    }
+
+    // Sem vaga no semáforo a tempo, ou consulta cortada pelo timeout da transação
+    private boolean estourouPrazo(Throwable causa) {
+        return causa instanceof TimeoutException
+                || causa instanceof TransactionTimedOutException
+                || causa instanceof QueryTimeoutException;
+    }
+}
@@ -0,0 +1,260 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.MetricasReservasDTO;
+import com.apirest.api.dto.ReservaEstoqueDTO;
+import com.apirest.api.dto.ReservaEstoqueResponseDTO;
+import com.apirest.api.entity.Funcionario;
+import com.apirest.api.repository.FuncionarioRepository;
+import com.apirest.api.service.ProdutoSnapshotCache.Snapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reservas de estoque dos carrinhos em andamento: cada item passado no caixa segura a quantidade na unidade
+// por estoque.reservas.validade-segundos (renovada a cada item). Disponível para venda = saldo - reservado.
+// 1. As reservas ficam no banco: estoque_carrinhos (unidade e vencimento do carrinho), estoque_reservas (itens)
+//    e o total reservado em estoque_saldos.quantidade_reservada, valendo para todas as instâncias da API.
+// 2. A reserva confere o saldo com a linha de estoque_saldos travada (FOR UPDATE), e a baixa da venda exige
+//    saldo - reservado na mesma linha, no UPDATE condicional de sempre: reserva e venda se ordenam pelo banco.
+// 3. Toda operação de um carrinho trava antes a linha dele em estoque_carrinhos e só depois as linhas de saldo
+//    (em ordem de variação), então reserva, venda, cancelamento e vencimento do mesmo carrinho não se cruzam.
+// No fechamento a venda retira as reservas do carrinho na própria transação: venda desfeita devolve as reservas.
+@Service
+@Slf4j
+public class ReservaEstoqueService {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    private static final int CARRINHOS_POR_RODADA = 500;
+
+    // Saldo travado junto com a reserva atual deste carrinho no item
+    private static final String SQL_TRAVAR_SALDO = """
+            SELECT s.quantidade_atual, s.quantidade_reservada, COALESCE(r.quantidade, 0) AS anterior
+            FROM estoque_saldos s
+            LEFT JOIN estoque_reservas r ON r.id_carrinho = ? AND r.produto_variacao_id = s.produto_variacao_id
+            WHERE s.unidade_id = ? AND s.produto_variacao_id = ?
+            FOR UPDATE OF s
+            """;
+
+    // Cria ou renova o carrinho (trava a linha dele até o fim da transação)
+    private static final String SQL_RENOVAR_CARRINHO = """
+            INSERT INTO estoque_carrinhos (id_carrinho, unidade_id, expira_em) VALUES (?, ?, ?)
+            ON CONFLICT (id_carrinho) DO UPDATE SET expira_em = EXCLUDED.expira_em
+            RETURNING unidade_id
+            """;
+
+    private static final String SQL_GRAVAR_RESERVADO =
+            "UPDATE estoque_saldos SET quantidade_reservada = ? WHERE unidade_id = ? AND produto_variacao_id = ?";
+
+    private static final String SQL_GRAVAR_ITEM = """
+            INSERT INTO estoque_reservas (id_carrinho, produto_variacao_id, quantidade) VALUES (?, ?, ?)
+            ON CONFLICT (id_carrinho, produto_variacao_id) DO UPDATE SET quantidade = EXCLUDED.quantidade
+            """;
+
+    private static final String SQL_REMOVER_ITEM =
+            "DELETE FROM estoque_reservas WHERE id_carrinho = ? AND produto_variacao_id = ?";
+
+    private static final String SQL_REMOVER_CARRINHO =
+            "DELETE FROM estoque_carrinhos WHERE id_carrinho = ? RETURNING unidade_id";
+
+    private static final String SQL_REMOVER_CARRINHO_DA_UNIDADE =
+            "DELETE FROM estoque_carrinhos WHERE id_carrinho = ? AND unidade_id = ? RETURNING unidade_id";
+
+    // Renovado entre a busca e o DELETE: a condição é conferida de novo na linha travada e o carrinho fica
+    private static final String SQL_REMOVER_CARRINHO_VENCIDO =
+            "DELETE FROM estoque_carrinhos WHERE id_carrinho = ? AND expira_em <= ? RETURNING unidade_id";
+
+    private static final String SQL_REMOVER_ITENS =
+            "DELETE FROM estoque_reservas WHERE id_carrinho = ? RETURNING produto_variacao_id, quantidade";
+
+    private static final String SQL_LIBERAR = """
+            UPDATE estoque_saldos SET quantidade_reservada = GREATEST(quantidade_reservada - ?, 0)
+            WHERE unidade_id = ? AND produto_variacao_id = ?
+            """;
+
+    private static final String SQL_VENCIDOS = "SELECT id_carrinho FROM estoque_carrinhos WHERE expira_em <= ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FuncionarioRepository funcionarioRepository;
+    private final ProdutoSnapshotCache produtoSnapshotCache;
+    private final long validadeSegundos;
+
+    // Contadores desta instância (os totais de carrinhos e itens vêm do banco)
+    private final LongAdder reservas = new LongAdder();
+    private final LongAdder recusas = new LongAdder();
+    private final LongAdder convertidas = new LongAdder();
+    private final LongAdder canceladas = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+
+    public ReservaEstoqueService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 FuncionarioRepository funcionarioRepository,
+                                 ProdutoSnapshotCache produtoSnapshotCache,
+                                 @Value("${estoque.reservas.validade-segundos:300}") long validadeSegundos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.funcionarioRepository = funcionarioRepository;
+        this.produtoSnapshotCache = produtoSnapshotCache;
+        this.validadeSegundos = validadeSegundos;
+    }
+
+    // Define a quantidade reservada do item no carrinho (cria o carrinho no primeiro item) e renova a validade
+    public ReservaEstoqueResponseDTO reservar(String idCarrinho, ReservaEstoqueDTO dto) {
+        if (idCarrinho == null || idCarrinho.isBlank() || idCarrinho.length() > 64) {
+            throw new RuntimeException("Identificador do carrinho inválido (até 64 caracteres).");
+        }
+        Long idProduto = dto.getIdProduto();
+        int desejada = dto.getQuantidade();
+        Snapshot produto = produtoSnapshotCache.buscar(List.of(idProduto)).get(idProduto);
+        if (produto == null) {
+            throw new RuntimeException("Produto/Variação ID " + idProduto + " não encontrado.");
+        }
+        if (!produto.ativo() && desejada > 0) {
+            throw new RuntimeException("Produto " + produto.nomeCompleto() + " está inativo.");
+        }
+
+        Funcionario funcionario = funcionarioRepository.findById(dto.getIdFuncionario())
+                .orElseThrow(() -> new RuntimeException("Funcionário não encontrado"));
+        if (!funcionario.isAtivo()) throw new RuntimeException("Funcionário inativo.");
+        Long idUnidade = funcionario.getUnidade().getIdUnidade();
+
+        return transactionTemplate.execute(status -> {
+            LocalDateTime expiraEm = LocalDateTime.now(FUSO).plusSeconds(validadeSegundos);
+            Long unidadeCarrinho = jdbcTemplate.queryForObject(SQL_RENOVAR_CARRINHO, Long.class,
+                    idCarrinho, idUnidade, Timestamp.valueOf(expiraEm));
+            if (!idUnidade.equals(unidadeCarrinho)) {
+                throw new RuntimeException("Carrinho aberto em outra unidade.");
+            }
+
+            int[] saldo = jdbcTemplate.query(SQL_TRAVAR_SALDO, rs -> rs.next()
+                    ? new int[]{rs.getInt("quantidade_atual"), rs.getInt("quantidade_reservada"), rs.getInt("anterior")}
+                    : null, idCarrinho, idUnidade, idProduto);
+            if (saldo == null) {
+                throw new RuntimeException("Produto sem cadastro de estoque nesta unidade.");
+            }
+
+            // Diminuir sempre pode; aumentar só se o total reservado continuar cabendo no saldo
+            int atual = saldo[0];
+            int anterior = saldo[2];
+            int outros = Math.max(0, saldo[1] - anterior);
+            if (desejada > anterior && outros + desejada > atual) {
+                recusas.increment();
+                throw new RuntimeException("Estoque insuficiente para: " + produto.nomeCompleto()
+                        + ". Disponível: " + Math.max(0, atual - outros));
+            }
+
+            jdbcTemplate.update(SQL_GRAVAR_RESERVADO, outros + desejada, idUnidade, idProduto);
+            if (desejada == 0) {
+                jdbcTemplate.update(SQL_REMOVER_ITEM, idCarrinho, idProduto);
+            } else {
+                jdbcTemplate.update(SQL_GRAVAR_ITEM, idCarrinho, idProduto, desejada);
+            }
+            reservas.increment();
+
+            return ReservaEstoqueResponseDTO.builder()
+                    .idCarrinho(idCarrinho)
+                    .idProduto(idProduto)
+                    .quantidadeReservada(desejada)
+                    .disponivel(Math.max(0, atual - outros - desejada))
+                    .expiraEm(expiraEm)
+                    .build();
+        });
+    }
+
+    // Carrinho abandonado no terminal: devolve tudo na hora, sem esperar o vencimento
+    public void cancelar(String idCarrinho) {
+        boolean cancelado = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                liberar(idCarrinho, jdbcTemplate.query(SQL_REMOVER_CARRINHO, rs -> rs.next() ? rs.getLong(1) : null, idCarrinho))));
+        if (cancelado) canceladas.increment();
+    }
+
+    // Chamado na transação da venda, antes da baixa: tira o carrinho e devolve as reservas dele na unidade
+    // (ID da variação -> reservado), que a baixa desconta de quantidade_reservada no mesmo UPDATE.
+    // Venda desfeita desfaz também a retirada, e o terminal pode tentar fechar de novo.
+    public Map<Long, Integer> retirarParaVenda(Long idUnidade, String idCarrinho) {
+        if (idCarrinho == null || idCarrinho.isBlank()) return Map.of();
+        Long unidadeCarrinho = jdbcTemplate.query(SQL_REMOVER_CARRINHO_DA_UNIDADE,
+                rs -> rs.next() ? rs.getLong(1) : null, idCarrinho, idUnidade);
+        if (unidadeCarrinho == null) return Map.of(); // Sem reservas (vencido, cancelado ou de outra unidade)
+
+        Map<Long, Integer> itens = removerItens(idCarrinho);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    convertidas.increment();
+                }
+            });
+        }
+        return itens;
+    }
+
+    public MetricasReservasDTO metricas() {
+        return MetricasReservasDTO.builder()
+                .carrinhosAtivos(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM estoque_carrinhos", Integer.class))
+                .itensReservados(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM estoque_reservas", Integer.class))
+                .reservas(reservas.sum())
+                .recusas(recusas.sum())
+                .convertidas(convertidas.sum())
+                .canceladas(canceladas.sum())
+                .expiradas(expiradas.sum())
+                .build();
+    }
+
+    // Libera os carrinhos vencidos (cada um na sua transação). Várias instâncias podem rodar ao mesmo tempo:
+    // o DELETE do carrinho só devolve a linha para uma delas.
+    @Scheduled(fixedDelayString = "${estoque.reservas.tique-ms:1000}")
+    public void liberarVencidos() {
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now(FUSO));
+        for (String idCarrinho : jdbcTemplate.queryForList(SQL_VENCIDOS, String.class, agora, CARRINHOS_POR_RODADA)) {
+            try {
+                boolean vencido = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        liberar(idCarrinho, jdbcTemplate.query(SQL_REMOVER_CARRINHO_VENCIDO,
+                                rs -> rs.next() ? rs.getLong(1) : null, idCarrinho, agora))));
+                if (vencido) expiradas.increment();
+            } catch (RuntimeException e) {
+                // Fica para a próxima rodada
+                log.warn("Falha ao liberar o carrinho {}: {}", idCarrinho, e.getMessage());
+            }
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Carrinho já removido (linha travada): apaga os itens e devolve o reservado ao saldo, em ordem de variação
+    private boolean liberar(String idCarrinho, Long idUnidade) {
+        if (idUnidade == null) return false;
+        List<Map.Entry<Long, Integer>> itens = new ArrayList<>(new TreeMap<>(removerItens(idCarrinho)).entrySet());
+        if (!itens.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_LIBERAR, itens, itens.size(), (ps, item) -> {
+                ps.setInt(1, item.getValue());
+                ps.setLong(2, idUnidade);
+                ps.setLong(3, item.getKey());
+            });
+        }
+        return true;
+    }
+
+    private Map<Long, Integer> removerItens(String idCarrinho) {
+        Map<Long, Integer> itens = new HashMap<>();
+        jdbcTemplate.query(SQL_REMOVER_ITENS, rs -> {
+            itens.put(rs.getLong("produto_variacao_id"), rs.getInt("quantidade"));
+        }, idCarrinho);
+        return itens;
+    }
+}
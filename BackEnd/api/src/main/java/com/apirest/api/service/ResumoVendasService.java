@@ -0,0 +1,236 @@
+package com.apirest.api.service;
+
+import com.apirest.api.repository.CaixaRepository;
+import com.apirest.api.repository.CaixaRepository.ResumoCaixas;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// Consolidação diária dos caixas fechados (resumo_vendas_diario / resumo_caixas_diario).
+// Um job incremental refaz só os dias em que algum caixa fechou desde a última marca d'água.
+// Os relatórios leem os dias já consolidados das tabelas de resumo e só o trecho recente direto dos caixas.
+@Service
+@Slf4j
+public class ResumoVendasService {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+
+    private static final String SQL_MARCA = "SELECT processado_ate FROM resumo_vendas_controle WHERE id = 1";
+
+    private static final String SQL_DIAS_ALTERADOS = """
+            SELECT DISTINCT CAST(data_fechamento AS date) FROM caixas
+            WHERE status = 'FECHADO' AND data_fechamento >= ?
+            """;
+
+    // Uma linha por caixa e forma de pagamento (LATERAL VALUES), agrupada por unidade/funcionário
+    private static final String SQL_CONSOLIDAR_VENDAS = """
+            WITH fechados AS (
+                SELECT c.*, COALESCE(f.unidade_id, 0) AS id_unidade
+                FROM caixas c JOIN funcionarios f ON f.id_funcionario = c.id_funcionario
+                WHERE c.status = 'FECHADO' AND c.data_fechamento >= ? AND c.data_fechamento < ?
+            ), vendas AS (
+                SELECT v.id_caixa, v.metodo_pagamento, COUNT(*) AS quantidade
+                FROM venda v JOIN fechados c ON c.id_caixa = v.id_caixa
+                WHERE v.status_venda = 'REALIZADA'
+                GROUP BY v.id_caixa, v.metodo_pagamento
+            )
+            INSERT INTO resumo_vendas_diario
+                (dia, id_unidade, id_funcionario, metodo_pagamento, quantidade_vendas, valor_previsto, valor_conferido)
+            SELECT ?, c.id_unidade, c.id_funcionario, m.metodo,
+                   COALESCE(SUM(v.quantidade), 0), SUM(m.previsto), SUM(m.conferido)
+            FROM fechados c
+            CROSS JOIN LATERAL (VALUES
+                ('DINHEIRO', c.sistema_dinheiro, COALESCE(c.conferido_dinheiro, 0)),
+                ('PIX', c.sistema_pix, COALESCE(c.conferido_pix, 0)),
+                ('DEBITO', c.sistema_debito, COALESCE(c.conferido_debito, 0)),
+                ('CREDITO', c.sistema_credito, COALESCE(c.conferido_credito, 0)),
+                ('CREDIARIO', c.sistema_crediario, COALESCE(c.conferido_crediario, 0))
+            ) AS m(metodo, previsto, conferido)
+            LEFT JOIN vendas v ON v.id_caixa = c.id_caixa AND v.metodo_pagamento = m.metodo
+            GROUP BY c.id_unidade, c.id_funcionario, m.metodo
+            HAVING COALESCE(SUM(v.quantidade), 0) > 0 OR SUM(m.previsto) <> 0 OR SUM(m.conferido) <> 0
+            """;
+
+    private static final String SQL_CONSOLIDAR_CAIXAS = """
+            INSERT INTO resumo_caixas_diario (dia, id_unidade, id_funcionario, quantidade_caixas, quebra)
+            SELECT ?, COALESCE(f.unidade_id, 0), c.id_funcionario, COUNT(*), COALESCE(SUM(c.quebra_de_caixa), 0)
+            FROM caixas c JOIN funcionarios f ON f.id_funcionario = c.id_funcionario
+            WHERE c.status = 'FECHADO' AND c.data_fechamento >= ? AND c.data_fechamento < ?
+            GROUP BY COALESCE(f.unidade_id, 0), c.id_funcionario
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CaixaRepository caixaRepository;
+    private final long margemMinutos;
+
+    // Soma de caixas fechados; também recebe o resumo ao vivo (projeção do CaixaRepository)
+    @Data
+    public static class ResumoCaixasTotais implements ResumoCaixas {
+        private Long quantidade = 0L;
+        private BigDecimal conferidoDinheiro = BigDecimal.ZERO;
+        private BigDecimal conferidoPix = BigDecimal.ZERO;
+        private BigDecimal conferidoDebito = BigDecimal.ZERO;
+        private BigDecimal conferidoCredito = BigDecimal.ZERO;
+        private BigDecimal conferidoCrediario = BigDecimal.ZERO;
+        private BigDecimal quebra = BigDecimal.ZERO;
+        private BigDecimal sistemaDinheiro = BigDecimal.ZERO;
+        private BigDecimal sistemaPix = BigDecimal.ZERO;
+        private BigDecimal sistemaDebito = BigDecimal.ZERO;
+        private BigDecimal sistemaCredito = BigDecimal.ZERO;
+        private BigDecimal sistemaCrediario = BigDecimal.ZERO;
+
+        void adicionar(ResumoCaixas r) {
+            quantidade += r.getQuantidade() != null ? r.getQuantidade() : 0;
+            conferidoDinheiro = conferidoDinheiro.add(valor(r.getConferidoDinheiro()));
+            conferidoPix = conferidoPix.add(valor(r.getConferidoPix()));
+            conferidoDebito = conferidoDebito.add(valor(r.getConferidoDebito()));
+            conferidoCredito = conferidoCredito.add(valor(r.getConferidoCredito()));
+            conferidoCrediario = conferidoCrediario.add(valor(r.getConferidoCrediario()));
+            quebra = quebra.add(valor(r.getQuebra()));
+            sistemaDinheiro = sistemaDinheiro.add(valor(r.getSistemaDinheiro()));
+            sistemaPix = sistemaPix.add(valor(r.getSistemaPix()));
+            sistemaDebito = sistemaDebito.add(valor(r.getSistemaDebito()));
+            sistemaCredito = sistemaCredito.add(valor(r.getSistemaCredito()));
+            sistemaCrediario = sistemaCrediario.add(valor(r.getSistemaCrediario()));
+        }
+
+        private static BigDecimal valor(BigDecimal v) {
+            return v != null ? v : BigDecimal.ZERO;
+        }
+    }
+
+    public ResumoVendasService(JdbcTemplate jdbcTemplate,
+                               CaixaRepository caixaRepository,
+                               @Value("${relatorios.resumo.margem-minutos:10}") long margemMinutos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.caixaRepository = caixaRepository;
+        this.margemMinutos = margemMinutos;
+    }
+
+    // Resumo dos caixas fechados entre os dias (inclusive). idFuncionario nulo = todos.
+    // Dias antes do limite consolidado vêm das tabelas de resumo; o restante é somado direto nos caixas.
+    @Transactional(readOnly = true)
+    public ResumoCaixas resumir(Long idFuncionario, LocalDate inicio, LocalDate fim) {
+        return resumir("id_funcionario", idFuncionario, inicio, fim,
+                (de, ate) -> caixaRepository.resumirCaixasFechadosPorPeriodo(idFuncionario, de, ate));
+    }
+
+    // Mesmo resumo, só dos caixas de uma unidade (relatório do grupo econômico)
+    @Transactional(readOnly = true)
+    public ResumoCaixas resumirUnidade(Long idUnidade, LocalDate inicio, LocalDate fim) {
+        return resumir("id_unidade", idUnidade, inicio, fim,
+                (de, ate) -> caixaRepository.resumirCaixasFechadosDaUnidade(idUnidade, de, ate));
+    }
+
+    // Job incremental: refaz os dias com fechamentos desde a marca d'água (menos a margem para
+    // transações de fechamento que ainda não tinham sido confirmadas na execução anterior)
+    @Scheduled(fixedDelayString = "${relatorios.resumo.intervalo-ms:300000}")
+    @Transactional
+    public void consolidar() {
+        // Trava a linha de controle: duas instâncias da API não consolidam ao mesmo tempo
+        LocalDateTime marca = jdbcTemplate.queryForObject(SQL_MARCA + " FOR UPDATE", LocalDateTime.class);
+        LocalDateTime agora = LocalDateTime.now(FUSO);
+
+        List<LocalDate> dias = jdbcTemplate.queryForList(SQL_DIAS_ALTERADOS, LocalDate.class,
+                Timestamp.valueOf(marca.minusMinutes(margemMinutos)));
+        for (LocalDate dia : dias) {
+            consolidarDia(dia);
+        }
+
+        jdbcTemplate.update("UPDATE resumo_vendas_controle SET processado_ate = ? WHERE id = 1", Timestamp.valueOf(agora));
+        if (!dias.isEmpty()) log.info("Resumo de vendas consolidado para {} dia(s): {}", dias.size(), dias);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Primeiro dia que ainda pode receber fechamentos não consolidados
+    private LocalDate diaConsolidado() {
+        LocalDateTime marca = jdbcTemplate.queryForObject(SQL_MARCA, LocalDateTime.class);
+        return marca.minusMinutes(margemMinutos).toLocalDate();
+    }
+
+    private void consolidarDia(LocalDate dia) {
+        Date data = Date.valueOf(dia);
+        Timestamp inicio = Timestamp.valueOf(dia.atStartOfDay());
+        Timestamp fim = Timestamp.valueOf(dia.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM resumo_vendas_diario WHERE dia = ?", data);
+        jdbcTemplate.update("DELETE FROM resumo_caixas_diario WHERE dia = ?", data);
+        jdbcTemplate.update(SQL_CONSOLIDAR_VENDAS, inicio, fim, data);
+        jdbcTemplate.update(SQL_CONSOLIDAR_CAIXAS, data, inicio, fim);
+    }
+
+    private ResumoCaixas resumir(String coluna, Long id, LocalDate inicio, LocalDate fim,
+                                 BiFunction<LocalDateTime, LocalDateTime, ResumoCaixas> aoVivo) {
+        LocalDate limite = diaConsolidado();
+        ResumoCaixasTotais totais = new ResumoCaixasTotais();
+
+        if (inicio.isBefore(limite)) {
+            LocalDate fimConsolidado = fim.isBefore(limite) ? fim : limite.minusDays(1);
+            somarConsolidado(totais, coluna, id, inicio, fimConsolidado);
+        }
+        if (!fim.isBefore(limite)) {
+            LocalDate inicioAoVivo = inicio.isBefore(limite) ? limite : inicio;
+            totais.adicionar(aoVivo.apply(inicioAoVivo.atStartOfDay(), fim.atTime(LocalTime.MAX)));
+        }
+        return totais;
+    }
+
+    // coluna: id_funcionario ou id_unidade (constantes desta classe, nunca vindas da requisição)
+    private void somarConsolidado(ResumoCaixasTotais totais, String coluna, Long id, LocalDate inicio, LocalDate fim) {
+        String filtro = "WHERE dia BETWEEN ? AND ?" + (id != null ? " AND " + coluna + " = ?" : "");
+        List<Object> parametros = new ArrayList<>(List.of(Date.valueOf(inicio), Date.valueOf(fim)));
+        if (id != null) parametros.add(id);
+        Object[] args = parametros.toArray();
+
+        jdbcTemplate.query("SELECT metodo_pagamento, SUM(valor_previsto), SUM(valor_conferido) FROM resumo_vendas_diario "
+                + filtro + " GROUP BY metodo_pagamento", rs -> {
+            BigDecimal previsto = rs.getBigDecimal(2);
+            BigDecimal conferido = rs.getBigDecimal(3);
+            switch (rs.getString(1)) {
+                case "DINHEIRO" -> {
+                    totais.setSistemaDinheiro(totais.getSistemaDinheiro().add(previsto));
+                    totais.setConferidoDinheiro(totais.getConferidoDinheiro().add(conferido));
+                }
+                case "PIX" -> {
+                    totais.setSistemaPix(totais.getSistemaPix().add(previsto));
+                    totais.setConferidoPix(totais.getConferidoPix().add(conferido));
+                }
+                case "DEBITO" -> {
+                    totais.setSistemaDebito(totais.getSistemaDebito().add(previsto));
+                    totais.setConferidoDebito(totais.getConferidoDebito().add(conferido));
+                }
+                case "CREDITO" -> {
+                    totais.setSistemaCredito(totais.getSistemaCredito().add(previsto));
+                    totais.setConferidoCredito(totais.getConferidoCredito().add(conferido));
+                }
+                case "CREDIARIO" -> {
+                    totais.setSistemaCrediario(totais.getSistemaCrediario().add(previsto));
+                    totais.setConferidoCrediario(totais.getConferidoCrediario().add(conferido));
+                }
+                default -> log.warn("Forma de pagamento desconhecida no resumo: {}", rs.getString(1));
+            }
+        }, args);
+
+        jdbcTemplate.query("SELECT COALESCE(SUM(quantidade_caixas), 0), COALESCE(SUM(quebra), 0) FROM resumo_caixas_diario "
+                + filtro, rs -> {
+            totais.setQuantidade(totais.getQuantidade() + rs.getLong(1));
+            totais.setQuebra(totais.getQuebra().add(rs.getBigDecimal(2)));
+        }, args);
+    }
+}
@@ -0,0 +1,218 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.VendaDTO;
+import com.apirest.api.dto.VendaLoteResultadoDTO;
+import com.apirest.api.dto.VendaResponseDTO;
+import com.apirest.api.service.VendaService.PreparoVenda;
+import com.apirest.api.service.VendaService.ReferenciasVenda;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Recebe as vendas que os terminais guardaram durante uma queda de conexão (NDJSON: um VendaDTO por linha).
+// As vendas são gravadas em blocos: uma transação por bloco, com funcionário/cliente/caixa resolvidos uma vez só.
+// Se alguma venda do bloco falhar, o bloco é desfeito e refeito linha a linha, para que só a linha com
+// problema fique de fora. Os resultados são devolvidos bloco a bloco, na ordem das linhas.
+// Cada linha traz a sua chaveIdempotencia, gravada na mesma transação da venda (como o Idempotency-Key de
+// POST /vendas): reenviar o arquivo depois de uma resposta perdida devolve as vendas já gravadas como
+// "repetida" em vez de duplicá-las. A chave vale enquanto não for limpa (vendas.idempotencia.retencao-horas).
+// A venda guarda o horário original do terminal (dataVenda; sem ele, o horário do servidor), mas entra sempre
+// no caixa que o vendedor tem aberto AGORA: o caixa da hora da venda pode já ter sido fechado e conferido, e
+// caixa fechado não recebe lançamentos. Sem caixa aberto a linha volta com erro ("Não existe um caixa aberto");
+// o terminal abre o caixa e reenvia o arquivo inteiro, e as linhas já gravadas voltam como repetidas.
+// A análise de vendas (/relatorios/vendas/...) anda pela data da venda e já pode ter passado do horário original:
+// cada venda com dataVenda é intercalada no snapshot na atualização seguinte ao commit do bloco, nesta instância
+// (nas outras, na reconstrução noturna).
+@Service
+@Slf4j
+public class VendaLoteService {
+
+    private final VendaService vendaService;
+    private final IdempotenciaVendaService idempotenciaVendaService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int tamanhoBloco;
+    private final int maximoLinhas;
+    private final long toleranciaRelogioMinutos;
+
+    // Linha já lida e validada, aguardando o bloco
+    private record Pendente(int linha, VendaDTO dto, PreparoVenda preparo) {
+    }
+
+    public VendaLoteService(VendaService vendaService,
+                            IdempotenciaVendaService idempotenciaVendaService,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            Validator validator,
+                            @Value("${vendas.lote.tamanho-bloco:50}") int tamanhoBloco,
+                            @Value("${vendas.lote.maximo-linhas:10000}") int maximoLinhas,
+                            @Value("${vendas.lote.tolerancia-relogio-minutos:5}") long toleranciaRelogioMinutos) {
+        this.vendaService = vendaService;
+        this.idempotenciaVendaService = idempotenciaVendaService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.tamanhoBloco = tamanhoBloco;
+        this.maximoLinhas = maximoLinhas;
+        this.toleranciaRelogioMinutos = toleranciaRelogioMinutos;
+    }
+
+    // Lê o NDJSON e entrega os resultados a cada bloco processado
+    public void processar(BufferedReader entrada, Consumer<List<VendaLoteResultadoDTO>> saida) throws IOException {
+        List<Pendente> bloco = new ArrayList<>(tamanhoBloco);
+        List<VendaLoteResultadoDTO> resultados = new ArrayList<>();
+        int numeroLinha = 0;
+        int recebidas = 0;
+        int gravadas = 0;
+
+        String texto;
+        while ((texto = entrada.readLine()) != null) {
+            numeroLinha++;
+            if (texto.isBlank()) continue;
+            recebidas++;
+            if (recebidas > maximoLinhas) {
+                resultados.add(erro(numeroLinha, "Limite de " + maximoLinhas + " vendas por lote excedido."));
+                break;
+            }
+
+            // Validação, PIN e arquivo da assinatura ficam fora da transação do bloco
+            try {
+                VendaDTO dto = ler(texto);
+                VendaResponseDTO registrada = idempotenciaVendaService.buscarRegistrada(dto.getChaveIdempotencia(), dto);
+                if (registrada != null) {
+                    resultados.add(repetida(numeroLinha, registrada));
+                } else {
+                    bloco.add(new Pendente(numeroLinha, dto, vendaService.prepararVenda(dto).comDataVenda(dto.getDataVenda())));
+                }
+            } catch (RuntimeException e) {
+                resultados.add(erro(numeroLinha, e.getMessage()));
+            }
+
+            if (bloco.size() >= tamanhoBloco) {
+                gravadas += gravarBloco(bloco, resultados);
+                bloco.clear();
+            }
+            // Só entrega quando não há linha anterior pendente (a resposta sai na ordem das linhas)
+            if (bloco.isEmpty() && resultados.size() >= tamanhoBloco) {
+                entregar(resultados, saida);
+            }
+        }
+        if (!bloco.isEmpty()) {
+            gravadas += gravarBloco(bloco, resultados);
+        }
+        entregar(resultados, saida);
+
+        log.info("Lote de vendas processado: {} recebidas, {} gravadas.", recebidas, gravadas);
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    // Tenta o bloco inteiro em uma transação; se falhar, refaz cada linha na sua própria transação
+    private int gravarBloco(List<Pendente> bloco, List<VendaLoteResultadoDTO> resultados) {
+        try {
+            List<VendaLoteResultadoDTO> doBloco = transactionTemplate.execute(status -> {
+                ReferenciasVenda referencias = new ReferenciasVenda();
+                List<VendaLoteResultadoDTO> ok = new ArrayList<>(bloco.size());
+                for (Pendente p : bloco) {
+                    ok.add(sucesso(p.linha(), vendaService.gravarVenda(
+                            p.dto(), p.dto().getChaveIdempotencia(), p.preparo(), referencias)));
+                }
+                return ok;
+            });
+            resultados.addAll(doBloco);
+            return doBloco.size();
+        } catch (RuntimeException e) {
+            log.info("Bloco de {} vendas desfeito ({}). Refazendo linha a linha.", bloco.size(), e.getMessage());
+        }
+
+        int gravadas = 0;
+        for (Pendente p : bloco) {
+            try {
+                // A chave pode ter sido gravada nesse meio tempo (linha repetida no arquivo ou outro envio do mesmo lote)
+                VendaResponseDTO registrada = idempotenciaVendaService.buscarRegistrada(p.dto().getChaveIdempotencia(), p.dto());
+                if (registrada != null) {
+                    resultados.add(repetida(p.linha(), registrada));
+                    continue;
+                }
+                VendaResponseDTO venda = transactionTemplate.execute(status ->
+                        vendaService.gravarVenda(p.dto(), p.dto().getChaveIdempotencia(), p.preparo(), new ReferenciasVenda()));
+                resultados.add(sucesso(p.linha(), venda));
+                gravadas++;
+            } catch (RuntimeException e) {
+                resultados.add(erro(p.linha(), e.getMessage()));
+            }
+        }
+        return gravadas;
+    }
+
+    private VendaDTO ler(String texto) {
+        VendaDTO dto;
+        try {
+            dto = objectMapper.readValue(texto, VendaDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON inválido: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<VendaDTO>> violacoes = validator.validate(dto);
+        if (!violacoes.isEmpty()) {
+            throw new RuntimeException(violacoes.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        if (dto.getChaveIdempotencia() == null || dto.getChaveIdempotencia().isBlank()) {
+            throw new RuntimeException("chaveIdempotencia é obrigatória em cada linha do lote.");
+        }
+        // Relógio do terminal adiantado além da tolerância: recusa em vez de gravar uma venda "no futuro"
+        if (dto.getDataVenda() != null && dto.getDataVenda().isAfter(
+                LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).plusMinutes(toleranciaRelogioMinutos))) {
+            throw new RuntimeException("dataVenda no futuro. Confira o relógio do terminal.");
+        }
+        return dto;
+    }
+
+    private void entregar(List<VendaLoteResultadoDTO> resultados, Consumer<List<VendaLoteResultadoDTO>> saida) {
+        if (resultados.isEmpty()) return;
+        resultados.sort((a, b) -> Integer.compare(a.getLinha(), b.getLinha()));
+        saida.accept(List.copyOf(resultados));
+        resultados.clear();
+    }
+
+    private VendaLoteResultadoDTO sucesso(int linha, VendaResponseDTO venda) {
+        return VendaLoteResultadoDTO.builder()
+                .linha(linha)
+                .status("OK")
+                .idVenda(venda.getIdVenda())
+                .valorTotal(venda.getValorTotal())
+                .build();
+    }
+
+    private VendaLoteResultadoDTO repetida(int linha, VendaResponseDTO venda) {
+        VendaLoteResultadoDTO resultado = sucesso(linha, venda);
+        resultado.setRepetida(true);
+        return resultado;
+    }
+
+    private VendaLoteResultadoDTO erro(int linha, String mensagem) {
+        return VendaLoteResultadoDTO.builder()
+                .linha(linha)
+                .status("ERRO")
+                .erro(mensagem)
+                .build();
+    }
+}
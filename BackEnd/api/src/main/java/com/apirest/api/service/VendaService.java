@@ -5,9 +5,13 @@ import com.apirest.api.entity.*;
 import com.apirest.api.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.apirest.api.service.ArmazenamentoBlobService.BlobSalvo;
+import com.apirest.api.service.ProdutoSnapshotCache.Snapshot;
 import com.apirest.api.entity.VendaPagamento;
 import com.apirest.api.repository.VendaPagamentoRepository;
 
@@ -15,7 +19,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -30,6 +37,7 @@ public class VendaService {
 
     private final ProdutoVariacaoRepository produtoVariacaoRepository;
     private final EstoqueSaldoRepository estoqueSaldoRepository;
+    private final ProdutoSnapshotCache produtoSnapshotCache; // Preço/nome/ativo sem ir ao banco a cada venda
 
     private final DescontoService descontoService;
     private final VendaDescontoRepository vendaDescontoRepository;
@@ -38,31 +46,111 @@ public class VendaService {
 
     private final ParcelaRepository parcelaRepository;
 
-    private final PasswordEncoder passwordEncoder; // Para validar o PIN
+    private final PreAutorizacaoCrediarioService preAutorizacaoCrediarioService; // Regras do crediário (atraso, limite, token)
+    private final VerificacaoPinService verificacaoPinService; // BCrypt do PIN fora da transação
     private final VendaEvidenciaRepository vendaEvidenciaRepository; // Para salvar a assinatura
-    private final ContaReceberRepository contaReceberRepository; // Para checar a dívida
+    private final ArmazenamentoBlobService armazenamentoBlobService; // Arquivo da assinatura (fora do banco)
+    private final ContaReceberRepository contaReceberRepository; // Para gerar a conta do crediário
+
+    private final IdempotenciaVendaService idempotenciaVendaService;
+    private final ComissaoService comissaoService;
+    private final PainelCaixasService painelCaixasService; // Deltas do painel ao vivo (depois do commit)
+    private final LivroCaixaService livroCaixaService; // Lançamento no livro + total corrente do caixa
+    private final AnaliseVendasService analiseVendasService; // Status e vendas atrasadas no snapshot de análise
+    private final ReservaEstoqueService reservaEstoqueService; // Reservas dos carrinhos em andamento
+
+    private final TransactionTemplate transactionTemplate;
+    private final Paginacao paginacao;
 
     private static final Set<String> PERMISSAO_GERENCIAR_VENDA = Set.of("DONO", "GERENTE", "LIDER_VENDA", "ADMIN");
 
-    @Transactional
-    public VendaResponseDTO registrarVenda(VendaDTO dto) {
+    // chaveIdempotencia: Idempotency-Key do terminal (opcional), gravada na mesma transação da venda.
+    // Sem @Transactional: o PIN do crediário (BCrypt) e a gravação do arquivo da assinatura acontecem
+    // antes de abrir a transação, sem segurar conexão.
+    public VendaResponseDTO registrarVenda(VendaDTO dto, String chaveIdempotencia) {
+        PreparoVenda preparo = prepararVenda(dto);
+        return transactionTemplate.execute(status -> gravarVenda(dto, chaveIdempotencia, preparo, new ReferenciasVenda()));
+    }
+
+    // Resultado das etapas feitas fora da transação (PIN conferido, arquivo da assinatura gravado).
+    // dataVenda: horário original informado pelo terminal no lote offline; nulo = agora.
+    record PreparoVenda(boolean pinConferido, BlobSalvo assinatura, LocalDateTime dataVenda) {
+        PreparoVenda comDataVenda(LocalDateTime data) {
+            return new PreparoVenda(pinConferido, assinatura, data);
+        }
+    }
+
+    // Funcionário, cliente e caixa já resolvidos dentro da transação atual.
+    // Na venda avulsa vive uma venda só; no lote (VendaLoteService) é compartilhado pelo bloco inteiro.
+    static class ReferenciasVenda {
+        private final Map<Long, Funcionario> funcionarios = new HashMap<>();
+        private final Map<Long, Cliente> clientes = new HashMap<>();
+        private final Map<Long, Caixa> caixasAbertos = new HashMap<>();
+    }
+
+    // Etapas caras que não precisam de conexão: BCrypt do PIN e gravação do arquivo da assinatura
+    PreparoVenda prepararVenda(VendaDTO dto) {
+        boolean pinConferido = false;
+        BlobSalvo assinatura = null;
+        if (dto.getMetodoPagamento() == MetodoPagamento.CREDIARIO) {
+            boolean temHash = dto.getAssinaturaHash() != null && !dto.getAssinaturaHash().isBlank();
+            boolean temBase64 = dto.getAssinaturaBase64() != null && !dto.getAssinaturaBase64().isBlank();
+            if (!temHash && !temBase64) {
+                throw new RuntimeException("BLOQUEIO: Assinatura obrigatória para Crediário.");
+            }
+
+            if (dto.getTokenPreAutorizacao() == null || dto.getTokenPreAutorizacao().isBlank()) {
+                pinConferido = verificacaoPinService.verificar(dto.getIdCliente(), dto.getIdFuncionario(), dto.getPin());
+            }
+
+            // Assinatura já enviada em POST /evidencias (hash) ou, no formato antigo, em base64 no corpo da venda.
+            // Se a venda for desfeita o arquivo fica órfão, mas é endereçado por conteúdo e não duplica.
+            if (temHash) {
+                if (!armazenamentoBlobService.existe(dto.getAssinaturaHash())) {
+                    throw new RuntimeException("BLOQUEIO: Assinatura não encontrada. Envie o arquivo em /evidencias.");
+                }
+                assinatura = new BlobSalvo(dto.getAssinaturaHash(), armazenamentoBlobService.tamanho(dto.getAssinaturaHash()));
+            } else {
+                assinatura = armazenamentoBlobService.salvarBase64(dto.getAssinaturaBase64());
+            }
+        }
+
+        return new PreparoVenda(pinConferido, assinatura, null);
+    }
+
+    // Grava a venda na transação corrente (aberta por registrarVenda ou pelo bloco do lote)
+    VendaResponseDTO gravarVenda(VendaDTO dto, String chaveIdempotencia, PreparoVenda preparo, ReferenciasVenda referencias) {
         log.info("Iniciando registro de venda. Funcionario ID: {}, Cliente ID: {}", dto.getIdFuncionario(), dto.getIdCliente());
+        boolean pinConferido = preparo.pinConferido();
+        BlobSalvo assinatura = preparo.assinatura();
 
         // busca funcionário, validando ativo
-        Funcionario funcionario = funcionarioRepository.findById(dto.getIdFuncionario())
-                .orElseThrow(() -> new RuntimeException("Funcionário não encontrado"));
+        Funcionario funcionario = referencias.funcionarios.computeIfAbsent(dto.getIdFuncionario(),
+                id -> funcionarioRepository.findById(id).orElseThrow(() -> new RuntimeException("Funcionário não encontrado")));
         if (!funcionario.isAtivo()) throw new RuntimeException("Funcionário inativo.");
 
         Unidade unidadeVenda = funcionario.getUnidade();
 
         // busca cliente, validando ativo
-        Cliente cliente = clienteRepository.findById(dto.getIdCliente())
-                .orElseThrow(() -> new RuntimeException("Cliente não encontrado"));
+        Cliente cliente = referencias.clientes.computeIfAbsent(dto.getIdCliente(),
+                id -> clienteRepository.findById(id).orElseThrow(() -> new RuntimeException("Cliente não encontrado")));
         if (!cliente.isAtivo()) throw new RuntimeException("Cliente inativo.");
 
         // busca caixa aberto do funcionário
-        Caixa caixaAberto = caixaRepository.findByFuncionarioAndStatus(funcionario, StatusCaixa.ABERTO)
-                .orElseThrow(() -> new RuntimeException("Não existe um caixa aberto. Abra o caixa antes de vender."));
+        Caixa caixaAberto = referencias.caixasAbertos.computeIfAbsent(funcionario.getIdFuncionario(),
+                id -> caixaRepository.findByFuncionarioAndStatus(funcionario, StatusCaixa.ABERTO)
+                        .orElseThrow(() -> new RuntimeException("Não existe um caixa aberto. Abra o caixa antes de vender.")));
+
+        // Crediário: valida o comprador antes de baixar estoque ou gravar qualquer coisa
+        boolean crediario = dto.getMetodoPagamento() == MetodoPagamento.CREDIARIO;
+        if (crediario) {
+            if (dto.getTokenPreAutorizacao() != null && !dto.getTokenPreAutorizacao().isBlank()) {
+                // Pré-autorizado durante a passagem dos itens: PIN e atraso já foram conferidos
+                preAutorizacaoCrediarioService.validarComToken(dto.getTokenPreAutorizacao(), cliente, funcionario);
+            } else {
+                preAutorizacaoCrediarioService.validarComprador(cliente, pinConferido);
+            }
+        }
 
         // cria venda
         Venda venda = Venda.builder()
@@ -71,40 +159,30 @@ public class VendaService {
                 .caixa(caixaAberto)
                 .metodoPagamento(dto.getMetodoPagamento())
                 .observacoes(dto.getObservacoes())
-                .dataVenda(LocalDateTime.now(ZoneId.of("America/Sao_Paulo")))
+                .dataVenda(preparo.dataVenda() != null ? preparo.dataVenda() : LocalDateTime.now(ZoneId.of("America/Sao_Paulo")))
                 .statusVenda(StatusVenda.REALIZADA)
                 .build();
 
         BigDecimal valorBruto = BigDecimal.ZERO;
         List<VendaItem> itensVenda = new ArrayList<>();
 
+        // resolve o carrinho inteiro pelos snapshots (preço, nome, ativo) antes de montar os itens
+        Map<Long, Integer> quantidades = agruparQuantidades(dto.getItens());
+        Map<Long, Snapshot> produtos = resolverCarrinho(quantidades);
+
         // processa cada item da venda
         for (VendaItemDTO itemDTO : dto.getItens()) {
-            ProdutoVariacao variacao = produtoVariacaoRepository.findById(itemDTO.getIdProduto())
-                    .orElseThrow(() -> new RuntimeException("Produto/Variação ID " + itemDTO.getIdProduto() + " não encontrado."));
+            Snapshot produto = produtos.get(itemDTO.getIdProduto());
 
-            if (!variacao.isAtivo()) {
-                throw new RuntimeException("Produto " + variacao.getNomeCompletoConcatenado() + " está inativo.");
-            }
-
-            EstoqueSaldo saldo = estoqueSaldoRepository.findByUnidadeIdAndProdutoVariacaoId(unidadeVenda.getIdUnidade(), variacao.getId())
-                    .orElseThrow(() -> new RuntimeException("Produto sem cadastro de estoque nesta unidade."));
-
-            if (saldo.getQuantidadeAtual() < itemDTO.getQuantidade()) {
-                throw new RuntimeException("Estoque insuficiente para: " + variacao.getNomeCompletoConcatenado() +
-                        ". Disponível: " + saldo.getQuantidadeAtual());
-            }
-
-            saldo.setQuantidadeAtual(saldo.getQuantidadeAtual() - itemDTO.getQuantidade());
-            estoqueSaldoRepository.save(saldo);
-
-            BigDecimal subtotal = variacao.getPrecoVenda().multiply(BigDecimal.valueOf(itemDTO.getQuantidade()));
+            BigDecimal subtotal = produto.precoVenda().multiply(BigDecimal.valueOf(itemDTO.getQuantidade()));
 
+            // Referência sem SELECT: o INSERT do item só precisa do ID da variação
             VendaItem vendaItem = VendaItem.builder()
                     .venda(venda)
-                    .produtoVariacao(variacao)
+                    .produtoVariacao(produtoVariacaoRepository.getReferenceById(produto.id()))
                     .quantidade(itemDTO.getQuantidade())
-                    .precoUnitario(variacao.getPrecoVenda())
+                    .precoUnitario(produto.precoVenda())
+                    .versaoPreco(produto.versaoPreco())
                     .subtotal(subtotal)
                     .build();
 
@@ -128,8 +206,6 @@ public class VendaService {
                     .codigoReferencia(dto.getCodigoCupom())
                     .valorDescontoAplicado(valorDescCupom)
                     .build());
-
-            descontoService.consumirVoucher(dto.getCodigoCupom());
         }
 
         // Aplica Manual (COM SEGURANÇA E ALÇADA)
@@ -174,15 +250,12 @@ public class VendaService {
         venda.setValorTotal(valorLiquido); // O cliente paga o líquido
 
         // Calcula comissão (Exemplo: 5% do valor líquido para cargos com comissão)
-        BigDecimal percentualComissao = new BigDecimal("0.05"); // 5%
-        venda.setValorComissao(valorLiquido.multiply(percentualComissao));
-
-        Venda vendaSalva = vendaRepository.save(venda);
-
-
-        for (VendaDesconto vd : descontosParaSalvar) {
-            vd.setVenda(vendaSalva);
-            vendaDescontoRepository.save(vd);
+        // Crediário não gera comissão (Venda interna)
+        if (venda.getMetodoPagamento() == MetodoPagamento.CREDIARIO) {
+            venda.setValorComissao(BigDecimal.ZERO);
+        } else {
+            BigDecimal percentualComissao = new BigDecimal("0.05"); // 5%
+            venda.setValorComissao(valorLiquido.multiply(percentualComissao));
         }
 
         BigDecimal valorPago = dto.getValorPagoCliente();
@@ -190,21 +263,46 @@ public class VendaService {
 
         // Se não informou valor (ex: cartão), assume pagamento exato
         if (valorPago == null || valorPago.compareTo(BigDecimal.ZERO) == 0) {
-            valorPago = vendaSalva.getValorTotal();
+            valorPago = valorLiquido;
         }
 
         // Validação básica
-        if (valorPago.compareTo(vendaSalva.getValorTotal()) < 0) {
-            throw new RuntimeException("Valor pago insuficiente. Total: " + vendaSalva.getValorTotal() + ", Pago: " + valorPago);
+        if (valorPago.compareTo(valorLiquido) < 0) {
+            throw new RuntimeException("Valor pago insuficiente. Total: " + valorLiquido + ", Pago: " + valorPago);
         }
 
         // Se for DINHEIRO, calcula troco. Se for PIX/CARTÃO, troco é zero.
-        if (vendaSalva.getMetodoPagamento() == MetodoPagamento.DINHEIRO) {
-            troco = valorPago.subtract(vendaSalva.getValorTotal());
+        if (venda.getMetodoPagamento() == MetodoPagamento.DINHEIRO) {
+            troco = valorPago.subtract(valorLiquido);
         } else {
-            valorPago = vendaSalva.getValorTotal(); // Ajusta para não registrar pagamento maior que a venda em cartão
+            valorPago = valorLiquido; // Ajusta para não registrar pagamento maior que a venda em cartão
         }
 
+        // Troco já vai no INSERT da venda (evita um UPDATE logo depois)
+        venda.setTrocoTotal(troco);
+
+        // Limite de crédito (depende do total líquido, por isso fica depois dos descontos)
+        if (crediario) {
+            preAutorizacaoCrediarioService.validarLimite(cliente, valorLiquido);
+        }
+
+        // Validações concluídas: baixa atômica do carrinho inteiro (um lote de UPDATEs condicionais)
+        Map<Long, String> nomes = new HashMap<>();
+        produtos.forEach((id, produto) -> nomes.put(id, produto.nomeCompleto()));
+        baixarEstoque(unidadeVenda.getIdUnidade(), quantidades, dto.getIdCarrinho(), nomes, "Estoque insuficiente para: ");
+
+        if (dto.getCodigoCupom() != null && !dto.getCodigoCupom().isBlank()) {
+            descontoService.consumirVoucher(dto.getCodigoCupom());
+        }
+
+        Venda vendaSalva = vendaRepository.save(venda);
+        somarNoCaixa(TipoLancamentoCaixa.VENDA, vendaSalva, unidadeVenda, valorLiquido); // Depois do save: o livro guarda o ID da venda
+
+        for (VendaDesconto vd : descontosParaSalvar) {
+            vd.setVenda(vendaSalva);
+        }
+        vendaDescontoRepository.saveAll(descontosParaSalvar);
+
         // Salva o detalhe do pagamento
         VendaPagamento pagamento = VendaPagamento.builder()
                 .venda(vendaSalva)
@@ -217,67 +315,24 @@ public class VendaService {
 
         vendaPagamentoRepository.save(pagamento);
 
-        // Atualiza o troco na Venda (para consulta rápida)
-        vendaSalva.setTrocoTotal(troco);
-        vendaRepository.save(vendaSalva);
-
-        if (vendaSalva.getMetodoPagamento() == MetodoPagamento.CREDIARIO) {
-
-            // Só funcionário pode comprar no crediário
-            // Verificamos se o Cliente tem vínculo com um Funcionário (campo funcionarioOrigem)
-            if (cliente.getFuncionarioOrigem() == null) {
-                throw new RuntimeException("BLOQUEIO: Venda no Crediário permitida apenas para Funcionários (Cliente não vinculado).");
-            }
-            Funcionario funcionarioComprador = cliente.getFuncionarioOrigem();
-
-            // Validar PIN (Assinatura Digital)
-            if (dto.getPin() == null || dto.getPin().isBlank()) {
-                throw new RuntimeException("BLOQUEIO: O PIN é obrigatório para vendas no Crediário.");
-            }
-            // O PIN no banco já deve estar Hasheado (BCrypt). O match verifica se bate.
-            if (!passwordEncoder.matches(dto.getPin(), funcionarioComprador.getPinHash())) {
-                throw new RuntimeException("BLOQUEIO: PIN incorreto. Venda não autorizada.");
-            }
-
-            if (funcionarioComprador.getStatusCrediario() == Funcionario.StatusCrediario.BLOQUEADO) {
-                throw new RuntimeException("BLOQUEIO: Funcionário bloqueado manualmente pelo RH para compras no crediário.");
-            }
-
-            // Bloqueio por Atraso (Inadimplência)
-            // Verificamos se existem parcelas vencidas em aberto para este cliente. Se sim, bloqueamos a venda até que regularize.
-            boolean temAtraso = parcelaRepository.existeParcelaAtrasada(cliente.getIdCliente(), java.time.LocalDate.now());
-            if (temAtraso) {
-                throw new RuntimeException("BLOQUEIO: Existem parcelas vencidas em aberto. Regularize para comprar novamente.");
-            }
-
-            //  Validar Limite de Crédito
-            BigDecimal limiteDisponivel = cliente.getLimiteCredito();
-            if (limiteDisponivel == null) limiteDisponivel = BigDecimal.ZERO;
-
-            BigDecimal dividaAtual = contaReceberRepository.somarDividaAberta(cliente.getIdCliente());
-            if (dividaAtual == null) dividaAtual = BigDecimal.ZERO;
+        // Comissão vai para o livro (o acumulado do vendedor é atualizado em lote pelo ComissaoService)
+        comissaoService.registrar(vendaSalva);
 
-            BigDecimal novaDivida = dividaAtual.add(vendaSalva.getValorTotal());
+        // Horário original do terminal (lote offline): a análise pode já ter passado dessa data
+        if (preparo.dataVenda() != null) {
+            analiseVendasService.incluirAtrasadaAposCommit(vendaSalva);
+        }
 
-            if (novaDivida.compareTo(limiteDisponivel) > 0) {
-                throw new RuntimeException(String.format("BLOQUEIO: Limite Excedido. Limite: R$ %s | Dívida Atual: R$ %s | Tentativa: R$ %s",
-                        limiteDisponivel, dividaAtual, vendaSalva.getValorTotal()));
-            }
+        if (crediario) {
 
             // Salvar Evidência (Assinatura)
-            if (dto.getAssinaturaBase64() != null && !dto.getAssinaturaBase64().isBlank()) {
-                VendaEvidencia evidencia = VendaEvidencia.builder()
-                        .venda(vendaSalva)
-                        .assinaturaBase64(dto.getAssinaturaBase64())
-                        .dataRegistro(LocalDateTime.now())
-                        .build();
-                vendaEvidenciaRepository.save(evidencia);
-            } else {
-                throw new RuntimeException("BLOQUEIO: Assinatura obrigatória para Crediário.");
-            }
-
-            // Não gera comissão (Venda interna)
-            vendaSalva.setValorComissao(BigDecimal.ZERO);
+            VendaEvidencia evidencia = VendaEvidencia.builder()
+                    .venda(vendaSalva)
+                    .assinaturaHash(assinatura.hash())
+                    .assinaturaTamanho(assinatura.tamanho())
+                    .dataRegistro(LocalDateTime.now())
+                    .build();
+            vendaEvidenciaRepository.save(evidencia);
 
             // --- GERAÇÃO DAS PARCELAS ---
             int qtdParcelas = (dto.getNumeroParcelas() != null) ? dto.getNumeroParcelas() : 1;
@@ -297,6 +352,7 @@ public class VendaService {
             BigDecimal totalParcelado = valorBaseParcela.multiply(BigDecimal.valueOf(qtdParcelas));
             BigDecimal diferencaCentavos = valorTotalCrediario.subtract(totalParcelado);
             java.time.LocalDate dataBaseVencimento = java.time.LocalDate.now();
+            List<Parcela> parcelas = new ArrayList<>(qtdParcelas);
 
             for (int i = 1; i <= qtdParcelas; i++) {
                 BigDecimal valorParcela = valorBaseParcela;
@@ -310,12 +366,17 @@ public class VendaService {
                         .status(Parcela.StatusParcela.PENDENTE)
                         .dataVencimento(dataBaseVencimento.plusDays(30L * i))
                         .build();
-                parcelaRepository.save(parcela);
+                parcelas.add(parcela);
             }
+            parcelaRepository.saveAll(parcelas);
             log.info("Crediário Funcionário autorizado: Conta ID {}", conta.getId());
         }
 
-        return toResponseDTO(vendaSalva);
+        VendaResponseDTO resposta = toResponseDTO(vendaSalva);
+        if (chaveIdempotencia != null) {
+            idempotenciaVendaService.registrar(chaveIdempotencia, dto, resposta);
+        }
+        return resposta;
     }
 
     @Transactional
@@ -329,18 +390,16 @@ public class VendaService {
         // Unidade onde a venda ocorreu
         Unidade unidadeVenda = venda.getFuncionario().getUnidade();
 
-        // Estorno
-        for (VendaItem item : venda.getItens()) {
-            ProdutoVariacao variacao = item.getProdutoVariacao();
-
-            EstoqueSaldo saldo = estoqueSaldoRepository.findByUnidadeIdAndProdutoVariacaoId(unidadeVenda.getIdUnidade(), variacao.getId())
-                    .orElseThrow(() -> new RuntimeException("Erro crítico: Estoque não encontrado para estorno."));
-
-            saldo.setQuantidadeAtual(saldo.getQuantidadeAtual() + item.getQuantidade());
-            estoqueSaldoRepository.save(saldo);
+        // Estorno atômico de todos os itens
+        List<Long> semEstoque = estoqueSaldoRepository.estornarEstoque(unidadeVenda.getIdUnidade(), agruparQuantidadesItens(venda.getItens()));
+        if (!semEstoque.isEmpty()) {
+            throw new RuntimeException("Erro crítico: Estoque não encontrado para estorno.");
         }
 
         venda.setStatusVenda(StatusVenda.CANCELADA);
+        somarNoCaixa(TipoLancamentoCaixa.ESTORNO, venda, unidadeVenda, venda.getValorTotal().negate());
+        comissaoService.estornar(venda);
+        analiseVendasService.alterarStatusAposCommit(venda);
         return toResponseDTO(vendaRepository.save(venda));
     }
 
@@ -354,33 +413,103 @@ public class VendaService {
 
         Unidade unidadeVenda = venda.getFuncionario().getUnidade();
 
+        Map<Long, String> nomes = new HashMap<>();
         for (VendaItem item : venda.getItens()) {
             ProdutoVariacao variacao = item.getProdutoVariacao();
             if (variacao == null || !variacao.isAtivo()) {
                 throw new RuntimeException("Produto não existe ou está inativo. Impossível reativar.");
             }
+            nomes.put(variacao.getId(), variacao.getNomeCompletoConcatenado());
+        }
+
+        baixarEstoque(unidadeVenda.getIdUnidade(), agruparQuantidadesItens(venda.getItens()), null, nomes, "Estoque insuficiente para reativar: ");
+
+        venda.setStatusVenda(StatusVenda.REALIZADA);
+        somarNoCaixa(TipoLancamentoCaixa.REATIVACAO, venda, unidadeVenda, venda.getValorTotal());
+        comissaoService.registrar(venda);
+        analiseVendasService.alterarStatusAposCommit(venda);
+        return toResponseDTO(vendaRepository.save(venda));
+    }
+
+    // RESOLUÇÃO DO CARRINHO
+
+    // Soma as quantidades por produto (o mesmo item pode ser bipado mais de uma vez)
+    private Map<Long, Integer> agruparQuantidades(List<VendaItemDTO> itens) {
+        Map<Long, Integer> quantidades = new LinkedHashMap<>();
+        for (VendaItemDTO item : itens) {
+            quantidades.merge(item.getIdProduto(), item.getQuantidade(), Integer::sum);
+        }
+        return quantidades;
+    }
 
-            EstoqueSaldo saldo = estoqueSaldoRepository.findByUnidadeIdAndProdutoVariacaoId(unidadeVenda.getIdUnidade(), variacao.getId())
-                    .orElseThrow(() -> new RuntimeException("Estoque não encontrado para reativar."));
+    // Resolve as variações do carrinho pelo cache de snapshots (versão do preço conferida com o banco) e valida em memória.
+    // O saldo não é lido aqui: quem garante o estoque é o UPDATE condicional em baixarEstoque.
+    private Map<Long, Snapshot> resolverCarrinho(Map<Long, Integer> quantidades) {
+        Map<Long, Snapshot> produtos = produtoSnapshotCache.buscarConferido(quantidades.keySet());
 
-            if (saldo.getQuantidadeAtual() < item.getQuantidade()) {
-                throw new RuntimeException("Estoque insuficiente para reativar: " + variacao.getNomeCompletoConcatenado());
+        for (Long idProduto : quantidades.keySet()) {
+            Snapshot produto = produtos.get(idProduto);
+            if (produto == null) {
+                throw new RuntimeException("Produto/Variação ID " + idProduto + " não encontrado.");
             }
+            if (!produto.ativo()) {
+                throw new RuntimeException("Produto " + produto.nomeCompleto() + " está inativo.");
+            }
+        }
+        return produtos;
+    }
 
-            saldo.setQuantidadeAtual(saldo.getQuantidadeAtual() - item.getQuantidade());
-            estoqueSaldoRepository.save(saldo);
+    // Baixa atômica: se outro terminal consumiu o saldo entre a leitura e a baixa, a venda é recusada
+    // (a transação desfaz as baixas que já tinham sido aplicadas no lote).
+    // O que outros carrinhos reservaram não pode ser vendido; as reservas do próprio carrinho (idCarrinho) são
+    // retiradas aqui e viram a baixa da venda no mesmo UPDATE.
+    private void baixarEstoque(Long idUnidade, Map<Long, Integer> quantidades, String idCarrinho, Map<Long, String> nomes, String mensagem) {
+        Map<Long, Integer> proprias = reservaEstoqueService.retirarParaVenda(idUnidade, idCarrinho);
+        List<Long> semSaldo = estoqueSaldoRepository.baixarEstoque(idUnidade, quantidades, proprias);
+        if (semSaldo.isEmpty()) return;
+
+        // Só na recusa consulta os saldos, para diferenciar "sem cadastro" de "insuficiente"
+        Map<Long, Integer> disponiveis = new HashMap<>();
+        estoqueSaldoRepository.disponiveis(idUnidade, semSaldo).forEach((id, disponivel) ->
+                disponiveis.put(id, Math.max(0, disponivel + proprias.getOrDefault(id, 0))));
+        if (disponiveis.size() < semSaldo.size()) {
+            throw new RuntimeException("Produto sem cadastro de estoque nesta unidade.");
         }
+        throw new RuntimeException(mensagem + semSaldo.stream()
+                .map(id -> nomes.get(id) + ". Disponível: " + disponiveis.get(id))
+                .collect(Collectors.joining(", ")));
+    }
 
-        venda.setStatusVenda(StatusVenda.REALIZADA);
-        return toResponseDTO(vendaRepository.save(venda));
+    // Total corrente do caixa por forma de pagamento (UPDATE atômico, só em caixa aberto)
+    private void somarNoCaixa(TipoLancamentoCaixa tipo, Venda venda, Unidade unidade, BigDecimal valor) {
+        if (!livroCaixaService.lancar(venda.getCaixa().getIdCaixa(), tipo, venda.getMetodoPagamento(), valor, venda.getIdVenda())) {
+            throw new RuntimeException("Caixa já fechado.");
+        }
+        String evento = tipo == TipoLancamentoCaixa.ESTORNO ? "CANCELAMENTO" : tipo.name();
+        painelCaixasService.publicarVenda(evento, venda.getCaixa(), unidade.getIdUnidade(), venda.getMetodoPagamento(), valor);
+    }
+
+    private Map<Long, Integer> agruparQuantidadesItens(List<VendaItem> itens) {
+        Map<Long, Integer> quantidades = new LinkedHashMap<>();
+        for (VendaItem item : itens) {
+            quantidades.merge(item.getProdutoVariacao().getId(), item.getQuantidade(), Integer::sum);
+        }
+        return quantidades;
     }
 
     // LISTAR E AUXILIARES
-    public List<VendaResponseDTO> listarVendas(StatusVenda status) {
-        List<Venda> vendas = (status != null) ? vendaRepository.findByStatusVenda(status) : vendaRepository.findAll();
-        return vendas.stream().map(this::toResponseDTO).collect(Collectors.toList());
+    // Paginado por cursor (data da venda, ID), mais recentes primeiro
+    @Transactional(readOnly = true)
+    public PaginaDTO<VendaResponseDTO> listarVendas(StatusVenda status, String cursor, Integer limitePedido) {
+        int limite = paginacao.limite(limitePedido);
+        Paginacao.Posicao posicao = paginacao.posicaoDecrescente(cursor);
+        List<Venda> vendas = (status != null)
+                ? vendaRepository.buscarPaginaAposPorStatus(status, posicao.data(), posicao.id(), Limit.of(limite + 1))
+                : vendaRepository.buscarPaginaApos(posicao.data(), posicao.id(), Limit.of(limite + 1));
+        return paginacao.montar(vendas, limite, this::toResponseDTO, Venda::getDataVenda, Venda::getIdVenda);
     }
 
+    @Transactional(readOnly = true)
     public VendaResponseDTO buscarPorId(Long id) {
         return toResponseDTO(findVendaById(id));
     }
@@ -398,7 +527,7 @@ public class VendaService {
     private VendaResponseDTO toResponseDTO(Venda v) {
         List<VendaItemResponseDTO> itensDTO = v.getItens().stream().map(item -> new VendaItemResponseDTO(
                 item.getProdutoVariacao().getId(),
-                item.getProdutoVariacao().getNomeCompletoConcatenado(),
+                nomeProduto(item.getProdutoVariacao()),
                 item.getQuantidade(),
                 item.getPrecoUnitario(),
                 item.getSubtotal()
@@ -418,4 +547,11 @@ public class VendaService {
                 v.getObservacoes()
         );
     }
-}
\ No newline at end of file
+
+    // Variação ainda como referência (venda recém-gravada): usa o nome do snapshot em vez de carregar a entidade
+    private String nomeProduto(ProdutoVariacao variacao) {
+        if (Hibernate.isInitialized(variacao)) return variacao.getNomeCompletoConcatenado();
+        Snapshot produto = produtoSnapshotCache.buscar(List.of(variacao.getId())).get(variacao.getId());
+        return produto != null ? produto.nomeCompleto() : null;
+    }
+}
@@ -0,0 +1,195 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.MetricasPinDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Verificação do PIN do crediário fora da transação da venda.
+// O BCrypt (~100 ms) roda em um pool limitado; fila cheia recusa na hora em vez de empilhar requisições.
+// PINs conferidos ficam em cache por (comprador, operador) durante alguns minutos, para compras seguidas no mesmo caixa.
+@Service
+@Slf4j
+public class VerificacaoPinService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private static final String SQL_PIN_COMPRADOR = """
+            SELECT f.id_funcionario, f.pin_hash
+            FROM clientes c
+            JOIN funcionarios f ON f.id_funcionario = c.funcionario_origem_id
+            WHERE c.id_cliente = ?
+            """;
+
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int capacidadeFila;
+    private final long timeoutMs;
+    private final long ttlCacheMs;
+
+    // Chave aleatória por processo: o cache guarda só um HMAC do PIN, nunca o PIN
+    private final SecretKeySpec chaveCache;
+    private final ConcurrentHashMap<String, PinConferido> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder verificacoes = new LongAdder();
+    private final LongAdder rejeitadas = new LongAdder();
+    private final LongAdder acertosCache = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final LongAdder hashTotalNanos = new LongAdder();
+
+    private record PinConferido(byte[] assinatura, long expiraEm) {
+    }
+
+    public VerificacaoPinService(PasswordEncoder passwordEncoder,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${vendas.pin.threads:4}") int threads,
+                                 @Value("${vendas.pin.fila:64}") int capacidadeFila,
+                                 @Value("${vendas.pin.timeout-ms:2000}") long timeoutMs,
+                                 @Value("${vendas.pin.cache-ttl-segundos:300}") long ttlCacheSegundos) {
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacidadeFila = capacidadeFila;
+        this.timeoutMs = timeoutMs;
+        this.ttlCacheMs = TimeUnit.SECONDS.toMillis(ttlCacheSegundos);
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                r -> {
+                    Thread t = new Thread(r, "verificacao-pin-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        byte[] bytesChave = new byte[32];
+        new SecureRandom().nextBytes(bytesChave);
+        this.chaveCache = new SecretKeySpec(bytesChave, ALGORITMO);
+    }
+
+    // Confere o PIN do funcionário vinculado ao cliente. Deve ser chamado FORA de transação:
+    // a leitura do hash usa uma conexão só durante o SELECT e o BCrypt não segura conexão nenhuma.
+    // Retorna false se o cliente não tem funcionário vinculado (a regra de vínculo dá o erro adequado depois).
+    public boolean verificar(Long idCliente, Long idOperador, String pin) {
+        if (pin == null || pin.isBlank()) {
+            throw new RuntimeException("BLOQUEIO: O PIN é obrigatório para vendas no Crediário.");
+        }
+
+        List<Object[]> linhas = jdbcTemplate.query(SQL_PIN_COMPRADOR,
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2)}, idCliente);
+        if (linhas.isEmpty()) return false;
+        Long idComprador = (Long) linhas.get(0)[0];
+        String pinHash = (String) linhas.get(0)[1];
+        if (pinHash == null) {
+            throw new RuntimeException("BLOQUEIO: Funcionário sem PIN cadastrado para o Crediário.");
+        }
+
+        // O hash entra na assinatura: se o RH trocar o PIN, a entrada antiga deixa de bater
+        String chave = idComprador + ":" + idOperador;
+        byte[] assinatura = assinar(pin + ":" + pinHash);
+        PinConferido conferido = cache.get(chave);
+        if (conferido != null && conferido.expiraEm() > System.currentTimeMillis()
+                && MessageDigest.isEqual(conferido.assinatura(), assinatura)) {
+            acertosCache.increment();
+            return true;
+        }
+
+        if (!executarBcrypt(pin, pinHash)) {
+            cache.remove(chave);
+            throw new RuntimeException("BLOQUEIO: PIN incorreto. Venda não autorizada.");
+        }
+        cache.put(chave, new PinConferido(assinatura, System.currentTimeMillis() + ttlCacheMs));
+        return true;
+    }
+
+    public MetricasPinDTO metricas() {
+        long total = verificacoes.sum();
+        return MetricasPinDTO.builder()
+                .threads(executor.getMaximumPoolSize())
+                .threadsAtivas(executor.getActiveCount())
+                .fila(executor.getQueue().size())
+                .capacidadeFila(capacidadeFila)
+                .verificacoes(total)
+                .rejeitadas(rejeitadas.sum())
+                .acertosCache(acertosCache.sum())
+                .entradasCache(cache.size())
+                .esperaMediaMs(total == 0 ? 0 : esperaTotalNanos.sum() / 1_000_000.0 / total)
+                .hashMedioMs(total == 0 ? 0 : hashTotalNanos.sum() / 1_000_000.0 / total)
+                .build();
+    }
+
+    // Limpeza das entradas vencidas do cache
+    @Scheduled(fixedDelayString = "${vendas.pin.limpeza-ms:60000}")
+    public void limparCacheExpirado() {
+        long agora = System.currentTimeMillis();
+        cache.values().removeIf(conferido -> conferido.expiraEm() < agora);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private boolean executarBcrypt(String pin, String pinHash) {
+        long enfileirado = System.nanoTime();
+        Future<Boolean> resultado;
+        try {
+            resultado = executor.submit(() -> {
+                long inicio = System.nanoTime();
+                esperaTotalNanos.add(inicio - enfileirado);
+                try {
+                    return passwordEncoder.matches(pin, pinHash);
+                } finally {
+                    hashTotalNanos.add(System.nanoTime() - inicio);
+                    verificacoes.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+            log.warn("Fila de verificação de PIN cheia ({} aguardando).", executor.getQueue().size());
+            throw new RuntimeException("Servidor ocupado verificando PINs. Tente novamente em instantes.");
+        }
+
+        try {
+            return resultado.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            rejeitadas.increment();
+            throw new RuntimeException("Tempo esgotado verificando o PIN. Tente novamente.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Verificação de PIN interrompida.");
+        }
+    }
+
+    private byte[] assinar(String conteudo) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chaveCache);
+            return mac.doFinal(conteudo.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- V11__Evidencias_Remove_Base64.sql
+-- Remove as colunas base64 depois que a V10 copiou todo o conteúdo para o armazenamento de arquivos.
+
+ALTER TABLE public.venda_evidencias
+DROP COLUMN IF EXISTS assinatura_base64,
+DROP COLUMN IF EXISTS foto_comprovante_base64;
+
+-- Busca da assinatura pela venda
+CREATE INDEX IF NOT EXISTS idx_venda_evidencias_venda ON public.venda_evidencias (id_venda);
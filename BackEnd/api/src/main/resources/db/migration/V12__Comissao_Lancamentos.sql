@@ -0,0 +1,29 @@
+-- V12__Comissao_Lancamentos.sql
+
+-- Livro de comissões: uma linha por venda (negativa no cancelamento).
+-- funcionarios.valor_comissao_acumulado passa a ser a soma das linhas já aplicadas (aplicado = true),
+-- atualizada em lote pelo ComissaoService, sem UPDATE na linha do vendedor durante a venda.
+CREATE SEQUENCE IF NOT EXISTS public.comissao_lancamentos_seq INCREMENT BY 50;
+
+CREATE TABLE public.comissao_lancamentos (
+    id bigint PRIMARY KEY DEFAULT nextval('public.comissao_lancamentos_seq'),
+    id_funcionario bigint NOT NULL,
+    id_venda bigint NOT NULL,
+    valor numeric(12,2) NOT NULL, -- Negativo quando é estorno (venda cancelada)
+    aplicado boolean NOT NULL DEFAULT false, -- Já somado em funcionarios.valor_comissao_acumulado
+    data_lancamento timestamp without time zone DEFAULT NOW(),
+    CONSTRAINT fk_comissao_funcionario FOREIGN KEY (id_funcionario) REFERENCES public.funcionarios(id_funcionario),
+    CONSTRAINT fk_comissao_venda FOREIGN KEY (id_venda) REFERENCES public.venda(id_venda)
+);
+
+-- Lançamentos pendentes de aplicação (o índice parcial fica pequeno: só o que ainda não foi descarregado)
+CREATE INDEX idx_comissao_pendentes ON public.comissao_lancamentos (id) WHERE NOT aplicado;
+CREATE INDEX idx_comissao_funcionario ON public.comissao_lancamentos (id_funcionario);
+
+-- Histórico: o acumulado nunca foi mantido; as vendas realizadas entram como pendentes e a primeira descarga soma tudo
+INSERT INTO public.comissao_lancamentos (id_funcionario, id_venda, valor, data_lancamento)
+SELECT id_funcionario, id_venda, valor_comissao, data_venda
+FROM public.venda
+WHERE status_venda = 'REALIZADA' AND valor_comissao > 0;
+
+UPDATE public.funcionarios SET valor_comissao_acumulado = 0;
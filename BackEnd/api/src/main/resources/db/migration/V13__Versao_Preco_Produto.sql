@@ -0,0 +1,8 @@
+-- V13__Versao_Preco_Produto.sql
+
+-- Versão do preço da variação: incrementada a cada alteração de preço/ativação pelo ProdutoService.
+-- A venda guarda em venda_item a versão usada no cálculo (o caixa trabalha com um snapshot em memória).
+ALTER TABLE public.produtos_variacoes ADD COLUMN IF NOT EXISTS versao_preco integer NOT NULL DEFAULT 1;
+
+-- Vendas anteriores a esta migração ficam sem versão (NULL)
+ALTER TABLE public.venda_item ADD COLUMN IF NOT EXISTS versao_preco integer;
@@ -0,0 +1,50 @@
+-- V14__Totais_Correntes_Caixa.sql
+
+-- Totais correntes do caixa por forma de pagamento, sangrias e suprimentos.
+-- Atualizados de forma atômica (UPDATE ... SET x = x + ?) a cada venda, cancelamento, reativação e movimentação,
+-- para o fechamento e os painéis lerem colunas em vez de percorrer todas as vendas do turno.
+ALTER TABLE public.caixas
+    ADD COLUMN IF NOT EXISTS sistema_dinheiro numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_pix numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_debito numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_credito numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_crediario numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_sangrias numeric(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS sistema_suprimentos numeric(12,2) NOT NULL DEFAULT 0;
+
+-- Carga inicial a partir das vendas realizadas
+UPDATE public.caixas c
+SET sistema_dinheiro = v.dinheiro,
+    sistema_pix = v.pix,
+    sistema_debito = v.debito,
+    sistema_credito = v.credito,
+    sistema_crediario = v.crediario
+FROM (
+    SELECT id_caixa,
+           COALESCE(SUM(valor_total) FILTER (WHERE metodo_pagamento = 'DINHEIRO'), 0) AS dinheiro,
+           COALESCE(SUM(valor_total) FILTER (WHERE metodo_pagamento = 'PIX'), 0) AS pix,
+           COALESCE(SUM(valor_total) FILTER (WHERE metodo_pagamento = 'DEBITO'), 0) AS debito,
+           COALESCE(SUM(valor_total) FILTER (WHERE metodo_pagamento = 'CREDITO'), 0) AS credito,
+           COALESCE(SUM(valor_total) FILTER (WHERE metodo_pagamento = 'CREDIARIO'), 0) AS crediario
+    FROM public.venda
+    WHERE status_venda = 'REALIZADA'
+    GROUP BY id_caixa
+) v
+WHERE c.id_caixa = v.id_caixa;
+
+-- Carga inicial a partir das movimentações
+UPDATE public.caixas c
+SET sistema_sangrias = m.sangrias,
+    sistema_suprimentos = m.suprimentos
+FROM (
+    SELECT id_caixa,
+           COALESCE(SUM(valor) FILTER (WHERE tipo = 'SANGRIA'), 0) AS sangrias,
+           COALESCE(SUM(valor) FILTER (WHERE tipo = 'SUPRIMENTO'), 0) AS suprimentos
+    FROM public.caixa_movimentacoes
+    GROUP BY id_caixa
+) m
+WHERE c.id_caixa = m.id_caixa;
+
+-- A verificação periódica soma as vendas de cada caixa
+CREATE INDEX IF NOT EXISTS idx_venda_caixa ON public.venda (id_caixa);
+CREATE INDEX IF NOT EXISTS idx_caixa_movimentacoes_caixa ON public.caixa_movimentacoes (id_caixa);
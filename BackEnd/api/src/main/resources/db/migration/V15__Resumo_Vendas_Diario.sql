@@ -0,0 +1,39 @@
+-- V15__Resumo_Vendas_Diario.sql
+
+-- Consolidação diária dos caixas fechados, mantida pelo ResumoVendasService.
+-- Os dias são os da data de fechamento do caixa (mesma regra dos relatórios diário/mensal).
+-- Caixa fechado não muda mais: um dia consolidado só é refeito se algum caixa fechar nele depois da marca d'água.
+
+-- Valores por forma de pagamento
+CREATE TABLE public.resumo_vendas_diario (
+    dia date NOT NULL,
+    id_unidade bigint NOT NULL, -- 0 = funcionário sem unidade
+    id_funcionario bigint NOT NULL,
+    metodo_pagamento character varying(50) NOT NULL,
+    quantidade_vendas integer NOT NULL,
+    valor_previsto numeric(14,2) NOT NULL,  -- Total do sistema (vendas realizadas)
+    valor_conferido numeric(14,2) NOT NULL, -- Total informado no fechamento
+    CONSTRAINT pk_resumo_vendas_diario PRIMARY KEY (dia, id_unidade, id_funcionario, metodo_pagamento)
+);
+
+-- Valores que são do caixa e não da forma de pagamento
+CREATE TABLE public.resumo_caixas_diario (
+    dia date NOT NULL,
+    id_unidade bigint NOT NULL,
+    id_funcionario bigint NOT NULL,
+    quantidade_caixas integer NOT NULL,
+    quebra numeric(14,2) NOT NULL,
+    CONSTRAINT pk_resumo_caixas_diario PRIMARY KEY (dia, id_unidade, id_funcionario)
+);
+
+CREATE INDEX idx_resumo_vendas_funcionario ON public.resumo_vendas_diario (id_funcionario, dia);
+CREATE INDEX idx_resumo_caixas_funcionario ON public.resumo_caixas_diario (id_funcionario, dia);
+
+-- Marca d'água: fechamentos até este instante já estão consolidados.
+-- Começa no passado distante para a primeira execução consolidar o histórico inteiro.
+CREATE TABLE public.resumo_vendas_controle (
+    id integer PRIMARY KEY,
+    processado_ate timestamp without time zone NOT NULL
+);
+
+INSERT INTO public.resumo_vendas_controle (id, processado_ate) VALUES (1, '1970-01-01 00:00:00');
@@ -0,0 +1,4 @@
+-- V16__Indice_Data_Venda.sql
+
+-- Exportação de vendas por período (varredura por intervalo de data_venda)
+CREATE INDEX IF NOT EXISTS idx_venda_data ON public.venda (data_venda);
@@ -0,0 +1,18 @@
+-- V17__Indices_Paginacao.sql
+
+-- Paginação por cursor (keyset): cada listagem tem um índice na mesma ordem do ORDER BY,
+-- então uma página funda custa o mesmo que a primeira.
+
+-- GET /vendas (data_venda DESC, id_venda DESC), com e sem filtro de status
+CREATE INDEX IF NOT EXISTS idx_venda_data_id ON public.venda (data_venda, id_venda);
+CREATE INDEX IF NOT EXISTS idx_venda_status_data_id ON public.venda (status_venda, data_venda, id_venda);
+
+-- Coberto pelo índice composto (também serve à exportação por período)
+DROP INDEX IF EXISTS public.idx_venda_data;
+DROP INDEX IF EXISTS public.idx_venda_status;
+
+-- GET /caixas (data_abertura DESC, id_caixa DESC)
+CREATE INDEX IF NOT EXISTS idx_caixas_abertura_id ON public.caixas (data_abertura, id_caixa);
+
+-- GET /clientes (só ativos, id crescente)
+CREATE INDEX IF NOT EXISTS idx_clientes_ativos ON public.clientes (id_cliente) WHERE ativo;
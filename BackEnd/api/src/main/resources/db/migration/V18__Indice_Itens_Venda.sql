@@ -0,0 +1,5 @@
+-- V18__Indice_Itens_Venda.sql
+
+-- Itens por venda: usado pela carga incremental da análise de vendas (faixa de vendas -> itens)
+-- e pelo carregamento em lote de Venda.itens (@BatchSize)
+CREATE INDEX IF NOT EXISTS idx_venda_item_venda ON public.venda_item (id_venda);
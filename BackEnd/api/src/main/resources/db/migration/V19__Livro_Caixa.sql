@@ -0,0 +1,51 @@
+-- V19__Livro_Caixa.sql
+
+-- Livro do caixa: um lançamento por evento de dinheiro (venda, estorno, reativação, sangria, suprimento,
+-- recebimento de parcela), só inserido, numerado por caixa (1, 2, 3...). O número vem de caixas.livro_seq,
+-- incrementado no mesmo UPDATE que soma os totais correntes, então não há buraco nem repetição.
+ALTER TABLE public.caixas ADD COLUMN IF NOT EXISTS livro_seq bigint NOT NULL DEFAULT 0;
+
+CREATE TABLE public.caixa_lancamentos (
+    id_caixa bigint NOT NULL,
+    seq bigint NOT NULL,
+    tipo character varying(30) NOT NULL, -- VENDA, ESTORNO, REATIVACAO, SANGRIA, SUPRIMENTO, RECEBIMENTO_PARCELA
+    metodo_pagamento character varying(50), -- Só vendas, estornos, reativações e recebimentos
+    valor numeric(12,2) NOT NULL, -- Negativo no estorno
+    id_referencia bigint, -- Venda, movimentação ou parcela de origem
+    data_hora timestamp without time zone NOT NULL,
+    CONSTRAINT pk_caixa_lancamentos PRIMARY KEY (id_caixa, seq),
+    CONSTRAINT fk_lancamento_caixa FOREIGN KEY (id_caixa) REFERENCES public.caixas(id_caixa)
+);
+
+-- Saldos acumulados do livro até o lançamento seq_ate (gravados a cada N lançamentos e no fechamento).
+-- Saldo num instante = snapshot anterior + releitura dos poucos lançamentos depois dele.
+CREATE TABLE public.caixa_saldos (
+    id_caixa bigint NOT NULL,
+    seq_ate bigint NOT NULL,
+    dinheiro numeric(14,2) NOT NULL,
+    pix numeric(14,2) NOT NULL,
+    debito numeric(14,2) NOT NULL,
+    credito numeric(14,2) NOT NULL,
+    crediario numeric(14,2) NOT NULL,
+    sangrias numeric(14,2) NOT NULL,
+    suprimentos numeric(14,2) NOT NULL,
+    recebimentos numeric(14,2) NOT NULL,
+    data_hora timestamp without time zone NOT NULL,
+    CONSTRAINT pk_caixa_saldos PRIMARY KEY (id_caixa, seq_ate),
+    CONSTRAINT fk_saldo_caixa FOREIGN KEY (id_caixa) REFERENCES public.caixas(id_caixa)
+);
+
+-- Carga inicial: os caixas existentes começam o livro com um snapshot seq 0 com os totais atuais
+-- (o histórico anterior a esta migração não é relançado)
+INSERT INTO public.caixa_saldos (id_caixa, seq_ate, dinheiro, pix, debito, credito, crediario,
+                                 sangrias, suprimentos, recebimentos, data_hora)
+SELECT c.id_caixa, 0, c.sistema_dinheiro, c.sistema_pix, c.sistema_debito, c.sistema_credito, c.sistema_crediario,
+       c.sistema_sangrias, c.sistema_suprimentos, COALESCE(m.recebimentos, 0),
+       CAST(NOW() AT TIME ZONE 'America/Sao_Paulo' AS timestamp)
+FROM public.caixas c
+LEFT JOIN (
+    SELECT id_caixa, SUM(valor) AS recebimentos
+    FROM public.caixa_movimentacoes
+    WHERE tipo = 'ENTRADA'
+    GROUP BY id_caixa
+) m ON m.id_caixa = c.id_caixa;
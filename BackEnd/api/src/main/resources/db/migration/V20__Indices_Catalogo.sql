@@ -0,0 +1,7 @@
+-- V20__Indices_Catalogo.sql
+
+-- GET /produtos: página de produtos ativos por id crescente (keyset, como GET /clientes)
+CREATE INDEX IF NOT EXISTS idx_produtos_pai_ativos ON public.produtos_pai (id) WHERE ativo;
+
+-- Variações da página numa consulta só (produto_pai_id IN ...)
+CREATE INDEX IF NOT EXISTS idx_produtos_variacoes_pai ON public.produtos_variacoes (produto_pai_id);
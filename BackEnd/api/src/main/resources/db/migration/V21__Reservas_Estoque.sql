@@ -0,0 +1,16 @@
+-- V21__Reservas_Estoque.sql
+
+-- Reservas de estoque dos carrinhos em andamento (cada item passado no caixa segura a quantidade por alguns minutos).
+-- A fonte da verdade é a memória da API; esta tabela é uma cópia gravada em segundo plano, usada só para
+-- recarregar as reservas ainda válidas quando a API reinicia.
+CREATE TABLE public.estoque_reservas (
+    id_carrinho character varying(64) NOT NULL, -- Identificador gerado pelo terminal para o carrinho
+    produto_variacao_id bigint NOT NULL,
+    unidade_id bigint NOT NULL,
+    quantidade integer NOT NULL,
+    expira_em timestamp without time zone NOT NULL,
+    PRIMARY KEY (id_carrinho, produto_variacao_id)
+);
+
+-- Limpeza das reservas vencidas na subida
+CREATE INDEX idx_estoque_reservas_expira ON public.estoque_reservas (expira_em);
@@ -0,0 +1,4 @@
+-- V22__Comissao_Pendentes_Por_Funcionario.sql
+
+-- Comissão ao vivo (GET /funcionarios/{id}/comissao): soma os lançamentos ainda não descarregados do vendedor
+CREATE INDEX IF NOT EXISTS idx_comissao_pendentes_funcionario ON public.comissao_lancamentos (id_funcionario) WHERE NOT aplicado;
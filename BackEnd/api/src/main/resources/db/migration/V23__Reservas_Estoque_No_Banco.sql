@@ -0,0 +1,29 @@
+-- V23__Reservas_Estoque_No_Banco.sql
+
+-- As reservas dos carrinhos passam a valer no banco (antes a memória da API era a fonte da verdade e
+-- estoque_reservas era só uma cópia). Assim valem para todas as instâncias da API.
+
+-- Total segurado por carrinhos na linha do saldo: a reserva e a baixa da venda alteram a mesma linha de
+-- estoque_saldos, então não vendem a mesma unidade.
+ALTER TABLE public.estoque_saldos
+    ADD COLUMN quantidade_reservada integer NOT NULL DEFAULT 0,
+    ADD CONSTRAINT ck_estoque_saldos_reservada CHECK (quantidade_reservada >= 0);
+
+-- Carrinho em andamento: a linha é travada antes de mexer nos itens dele (reserva, venda, cancelamento e
+-- vencimento), o que ordena as operações do mesmo carrinho entre si.
+CREATE TABLE public.estoque_carrinhos (
+    id_carrinho character varying(64) NOT NULL PRIMARY KEY, -- Identificador gerado pelo terminal para o carrinho
+    unidade_id bigint NOT NULL,
+    expira_em timestamp without time zone NOT NULL
+);
+
+-- Busca dos carrinhos vencidos
+CREATE INDEX idx_estoque_carrinhos_expira ON public.estoque_carrinhos (expira_em);
+
+-- Itens do carrinho: unidade e vencimento passam a ser do carrinho. As cópias antigas são descartadas
+-- (não estão somadas em quantidade_reservada).
+DELETE FROM public.estoque_reservas;
+DROP INDEX public.idx_estoque_reservas_expira;
+ALTER TABLE public.estoque_reservas
+    DROP COLUMN unidade_id,
+    DROP COLUMN expira_em;
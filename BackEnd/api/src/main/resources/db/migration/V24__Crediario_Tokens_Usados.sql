@@ -0,0 +1,11 @@
+-- V24__Crediario_Tokens_Usados.sql
+
+-- Tokens de pré-autorização do crediário já usados em uma venda (uso único entre todas as instâncias da API).
+-- A linha é gravada na transação da venda: se a venda for desfeita, o token volta a valer até expirar.
+CREATE TABLE public.crediario_tokens_usados (
+    nonce character varying(32) PRIMARY KEY, -- Nonce aleatório embutido no token assinado
+    expira_em timestamp without time zone NOT NULL -- Depois disso o token é recusado pela validade e a linha pode sair
+);
+
+-- Usado pela limpeza periódica dos tokens expirados
+CREATE INDEX idx_crediario_tokens_usados_expira ON public.crediario_tokens_usados (expira_em);
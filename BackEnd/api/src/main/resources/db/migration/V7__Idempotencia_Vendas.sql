@@ -0,0 +1,14 @@
+-- V7__Idempotencia_Vendas.sql
+
+-- Resultado das vendas registradas com cabeçalho Idempotency-Key (reenvios do terminal devolvem a mesma resposta)
+CREATE TABLE public.venda_idempotencia (
+    chave character varying(100) PRIMARY KEY, -- Valor do cabeçalho Idempotency-Key enviado pelo terminal
+    hash_requisicao character varying(64) NOT NULL, -- SHA-256 do corpo da venda (detecta reuso da chave com outro conteúdo)
+    id_venda bigint NOT NULL,
+    resposta text NOT NULL, -- VendaResponseDTO serializado em JSON
+    data_criacao timestamp without time zone DEFAULT NOW(),
+    CONSTRAINT fk_idempotencia_venda FOREIGN KEY (id_venda) REFERENCES public.venda(id_venda)
+);
+
+-- Usado pela limpeza periódica das chaves antigas
+CREATE INDEX idx_venda_idempotencia_data ON public.venda_idempotencia (data_criacao);
@@ -0,0 +1,31 @@
+-- V8__Sequencias_Vendas.sql
+
+-- Sequências com incremento 50 para as tabelas da venda.
+-- Com IDENTITY o Hibernate precisa fazer cada INSERT na hora para descobrir o ID (sem JDBC batch).
+-- Com sequência "pooled" ele reserva blocos de 50 IDs e envia os INSERTs da venda em lote.
+-- Cada valor N da sequência representa o bloco (N-49 .. N), por isso o setval começa em MAX(id) + 50.
+
+CREATE SEQUENCE public.venda_seq INCREMENT BY 50;
+SELECT setval('public.venda_seq', COALESCE((SELECT MAX(id_venda) FROM public.venda), 0) + 50, false);
+ALTER TABLE public.venda ALTER COLUMN id_venda DROP IDENTITY IF EXISTS;
+ALTER TABLE public.venda ALTER COLUMN id_venda SET DEFAULT nextval('public.venda_seq');
+
+CREATE SEQUENCE public.venda_item_seq INCREMENT BY 50;
+SELECT setval('public.venda_item_seq', COALESCE((SELECT MAX(id_venda_item) FROM public.venda_item), 0) + 50, false);
+ALTER TABLE public.venda_item ALTER COLUMN id_venda_item DROP IDENTITY IF EXISTS;
+ALTER TABLE public.venda_item ALTER COLUMN id_venda_item SET DEFAULT nextval('public.venda_item_seq');
+
+CREATE SEQUENCE public.venda_descontos_seq INCREMENT BY 50;
+SELECT setval('public.venda_descontos_seq', COALESCE((SELECT MAX(id) FROM public.venda_descontos), 0) + 50, false);
+ALTER TABLE public.venda_descontos ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE public.venda_descontos ALTER COLUMN id SET DEFAULT nextval('public.venda_descontos_seq');
+
+CREATE SEQUENCE public.venda_pagamentos_seq INCREMENT BY 50;
+SELECT setval('public.venda_pagamentos_seq', COALESCE((SELECT MAX(id) FROM public.venda_pagamentos), 0) + 50, false);
+ALTER TABLE public.venda_pagamentos ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE public.venda_pagamentos ALTER COLUMN id SET DEFAULT nextval('public.venda_pagamentos_seq');
+
+CREATE SEQUENCE public.parcelas_seq INCREMENT BY 50;
+SELECT setval('public.parcelas_seq', COALESCE((SELECT MAX(id) FROM public.parcelas), 0) + 50, false);
+ALTER TABLE public.parcelas ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE public.parcelas ALTER COLUMN id SET DEFAULT nextval('public.parcelas_seq');
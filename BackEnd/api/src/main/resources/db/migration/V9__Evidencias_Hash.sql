@@ -0,0 +1,9 @@
+-- V9__Evidencias_Hash.sql
+-- Assinaturas e comprovantes passam para o armazenamento de arquivos (endereçado por SHA-256).
+-- A tabela guarda só o hash e o tamanho. A cópia dos dados antigos é feita pela V10 (migração Java).
+
+ALTER TABLE public.venda_evidencias
+ADD COLUMN IF NOT EXISTS assinatura_hash character varying(64),
+ADD COLUMN IF NOT EXISTS assinatura_tamanho bigint,
+ADD COLUMN IF NOT EXISTS foto_comprovante_hash character varying(64),
+ADD COLUMN IF NOT EXISTS foto_comprovante_tamanho bigint;
@@ -0,0 +1,137 @@
+package com.apirest.api.repository;
+
+import com.apirest.api.entity.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class EstoqueSaldoRepositoryTests {
+
+    private static final int ESTOQUE_INICIAL = 50;
+    private static final int TERMINAIS = 16;
+    private static final int VENDAS_POR_TERMINAL = 10;
+
+    @Autowired private EstoqueSaldoRepository estoqueSaldoRepository;
+    @Autowired private ProdutoVariacaoRepository produtoVariacaoRepository;
+    @Autowired private ProdutoPaiRepository produtoPaiRepository;
+    @Autowired private CategoriaRepository categoriaRepository;
+    @Autowired private UnidadeRepository unidadeRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private Unidade unidade;
+    private Categoria categoria;
+    private ProdutoPai pai;
+    private final List<ProdutoVariacao> variacoes = new ArrayList<>();
+    private final List<EstoqueSaldo> saldos = new ArrayList<>();
+
+    @BeforeEach
+    void prepararEstoque() {
+        String sufixo = UUID.randomUUID().toString().substring(0, 8);
+        unidade = unidadeRepository.save(Unidade.builder()
+                .grupoEconomicoId(99L)
+                .nomeFantasia("Unidade Teste " + sufixo)
+                .documentoNumero("TESTE-" + sufixo)
+                .tipoDocumento(TipoDocumento.CNPJ)
+                .build());
+        categoria = categoriaRepository.save(Categoria.builder().nome("TESTE CONCORRENCIA " + sufixo).build());
+        pai = produtoPaiRepository.save(ProdutoPai.builder()
+                .nomeGenerico("PRODUTO TESTE")
+                .ncm("61091000")
+                .categoria(categoria)
+                .build());
+
+        for (String nome : List.of("A", "B")) {
+            ProdutoVariacao variacao = produtoVariacaoRepository.save(ProdutoVariacao.builder()
+                    .produtoPai(pai)
+                    .nomeVariacao(nome)
+                    .nomeCompletoConcatenado("PRODUTO TESTE - " + nome)
+                    .sku("SKU-TESTE-" + sufixo + "-" + nome)
+                    .precoCusto(new BigDecimal("5.00"))
+                    .precoVenda(new BigDecimal("10.00"))
+                    .build());
+            variacoes.add(variacao);
+            saldos.add(estoqueSaldoRepository.save(EstoqueSaldo.builder()
+                    .unidade(unidade)
+                    .produtoVariacao(variacao)
+                    .quantidadeAtual(ESTOQUE_INICIAL)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void limpar() {
+        estoqueSaldoRepository.deleteAll(saldos);
+        produtoVariacaoRepository.deleteAll(variacoes);
+        produtoPaiRepository.delete(pai);
+        categoriaRepository.delete(categoria);
+        unidadeRepository.delete(unidade);
+    }
+
+    // Vários terminais disputando o mesmo par de produtos: nenhuma venda pode passar do saldo
+    @Test
+    void baixaConcorrenteNaoVendeAlemDoSaldo() throws Exception {
+        Long idA = variacoes.get(0).getId();
+        Long idB = variacoes.get(1).getId();
+        AtomicInteger vendasAprovadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService terminais = Executors.newFixedThreadPool(TERMINAIS);
+        List<Future<?>> execucoes = new ArrayList<>();
+        for (int t = 0; t < TERMINAIS; t++) {
+            // Metade dos terminais monta o carrinho em ordem invertida, para exercitar a ordenação anti-deadlock
+            Map<Long, Integer> carrinho = new LinkedHashMap<>();
+            if (t % 2 == 0) {
+                carrinho.put(idA, 1);
+                carrinho.put(idB, 1);
+            } else {
+                carrinho.put(idB, 1);
+                carrinho.put(idA, 1);
+            }
+            execucoes.add(terminais.submit(() -> {
+                largada.await();
+                for (int i = 0; i < VENDAS_POR_TERMINAL; i++) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (estoqueSaldoRepository.baixarEstoque(unidade.getIdUnidade(), carrinho).isEmpty()) {
+                            vendasAprovadas.incrementAndGet();
+                        } else {
+                            status.setRollbackOnly();
+                        }
+                    });
+                }
+                return null;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<?> execucao : execucoes) {
+            execucao.get(60, TimeUnit.SECONDS);
+        }
+        terminais.shutdown();
+
+        assertEquals(ESTOQUE_INICIAL, vendasAprovadas.get());
+        for (EstoqueSaldo saldo : saldos) {
+            assertEquals(0, estoqueSaldoRepository.findById(saldo.getId()).orElseThrow().getQuantidadeAtual());
+        }
+    }
+
+    @Test
+    void estornoDevolveQuantidade() {
+        Long idA = variacoes.get(0).getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            estoqueSaldoRepository.baixarEstoque(unidade.getIdUnidade(), Map.of(idA, 7));
+            estoqueSaldoRepository.estornarEstoque(unidade.getIdUnidade(), Map.of(idA, 7));
+        });
+        assertEquals(ESTOQUE_INICIAL, estoqueSaldoRepository.findById(saldos.get(0).getId()).orElseThrow().getQuantidadeAtual());
+    }
+}
@@ -0,0 +1,181 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.VendaDTO;
+import com.apirest.api.dto.VendaItemDTO;
+import com.apirest.api.dto.VendaResponseDTO;
+import com.apirest.api.entity.*;
+import com.apirest.api.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IdempotenciaVendaServiceTests {
+
+    private static final int TERMINAIS = 8;
+
+    @Autowired private IdempotenciaVendaService idempotenciaVendaService;
+    @Autowired private VendaIdempotenciaRepository vendaIdempotenciaRepository;
+    @Autowired private VendaRepository vendaRepository;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private CaixaRepository caixaRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final List<String> chaves = new ArrayList<>();
+    private final List<Venda> vendas = new ArrayList<>();
+    private Caixa caixaCriado;
+    private Funcionario funcionario;
+    private Cliente cliente;
+    private Caixa caixa;
+
+    @BeforeEach
+    void prepararVendas() {
+        // Cliente espelho do admin criado pelo DataLoader
+        cliente = clienteRepository.findByCpf("25285178908").orElseThrow();
+        funcionario = cliente.getFuncionarioOrigem();
+        caixa = caixaRepository.findByFuncionarioAndStatus(funcionario, StatusCaixa.ABERTO).orElse(null);
+        if (caixa == null) {
+            caixa = caixaCriado = caixaRepository.save(Caixa.builder()
+                    .funcionario(funcionario)
+                    .saldoInicial(BigDecimal.ZERO)
+                    .build());
+        }
+        for (int i = 0; i < TERMINAIS; i++) {
+            vendas.add(vendaRepository.save(Venda.builder()
+                    .funcionario(funcionario)
+                    .cliente(cliente)
+                    .caixa(caixa)
+                    .metodoPagamento(MetodoPagamento.DINHEIRO)
+                    .valorBruto(new BigDecimal("10.00"))
+                    .valorTotal(new BigDecimal("10.00"))
+                    .dataVenda(LocalDateTime.now())
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void limpar() {
+        vendaIdempotenciaRepository.deleteAllById(chaves);
+        vendaRepository.deleteAll(vendas);
+        if (caixaCriado != null) caixaRepository.delete(caixaCriado);
+    }
+
+    // Segunda gravação da mesma chave tem de violar a PK, nunca sobrescrever a primeira
+    @Test
+    void registroRepetidoFalhaSemSobrescrever() {
+        String chave = novaChave();
+        VendaDTO dto = dto(1L);
+
+        transactionTemplate.executeWithoutResult(status ->
+                idempotenciaVendaService.registrar(chave, dto, resposta(vendas.get(0))));
+        assertThrows(DataIntegrityViolationException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                idempotenciaVendaService.registrar(chave, dto, resposta(vendas.get(1)))));
+
+        assertEquals(vendas.get(0).getIdVenda(), vendaIdempotenciaRepository.findById(chave).orElseThrow().getIdVenda());
+    }
+
+    // Terminais gravando a mesma chave ao mesmo tempo (ex: duas instâncias da API): só uma transação confirma
+    @Test
+    void registrosConcorrentesConfirmamUmaVezSo() throws Exception {
+        String chave = novaChave();
+        VendaDTO dto = dto(1L);
+        AtomicInteger confirmadas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService terminais = Executors.newFixedThreadPool(TERMINAIS);
+        List<Future<?>> execucoes = new ArrayList<>();
+        for (Venda venda : vendas) {
+            execucoes.add(terminais.submit(() -> {
+                largada.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            idempotenciaVendaService.registrar(chave, dto, resposta(venda)));
+                    confirmadas.incrementAndGet();
+                } catch (DataIntegrityViolationException e) {
+                    recusadas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<?> execucao : execucoes) {
+            execucao.get(60, TimeUnit.SECONDS);
+        }
+        terminais.shutdown();
+
+        assertEquals(1, confirmadas.get());
+        assertEquals(TERMINAIS - 1, recusadas.get());
+        Long idGravado = vendaIdempotenciaRepository.findById(chave).orElseThrow().getIdVenda();
+        assertTrue(vendas.stream().anyMatch(v -> v.getIdVenda().equals(idGravado)));
+    }
+
+    // Reenvio com a mesma chave devolve a resposta guardada sem executar a venda de novo
+    @Test
+    void reenvioDevolveVendaOriginal() {
+        String chave = novaChave();
+        VendaDTO dto = dto(1L);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        VendaResponseDTO primeira = idempotenciaVendaService.executar(chave, dto, () -> gravar(chave, dto, execucoes));
+        VendaResponseDTO reenvio = idempotenciaVendaService.executar(chave, dto, () -> gravar(chave, dto, execucoes));
+
+        assertEquals(1, execucoes.get());
+        assertEquals(primeira.getIdVenda(), reenvio.getIdVenda());
+        assertEquals(primeira.getIdVenda(), idempotenciaVendaService.buscarRegistrada(chave, dto).getIdVenda());
+
+        // Mesma chave com outro conteúdo é recusada
+        VendaDTO outra = dto(2L);
+        assertThrows(RuntimeException.class,
+                () -> idempotenciaVendaService.executar(chave, outra, () -> gravar(chave, outra, execucoes)));
+        assertEquals(1, execucoes.get());
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private VendaResponseDTO gravar(String chave, VendaDTO dto, AtomicInteger execucoes) {
+        execucoes.incrementAndGet();
+        return transactionTemplate.execute(status -> {
+            VendaResponseDTO resposta = resposta(vendas.get(0));
+            idempotenciaVendaService.registrar(chave, dto, resposta);
+            return resposta;
+        });
+    }
+
+    private String novaChave() {
+        String chave = "TESTE-" + UUID.randomUUID();
+        chaves.add(chave);
+        return chave;
+    }
+
+    private VendaDTO dto(Long idProduto) {
+        VendaDTO dto = new VendaDTO();
+        dto.setIdFuncionario(funcionario.getIdFuncionario());
+        dto.setIdCliente(cliente.getIdCliente());
+        dto.setItens(List.of(new VendaItemDTO(idProduto, 1)));
+        dto.setMetodoPagamento(MetodoPagamento.DINHEIRO);
+        return dto;
+    }
+
+    private VendaResponseDTO resposta(Venda venda) {
+        VendaResponseDTO resposta = new VendaResponseDTO();
+        resposta.setIdVenda(venda.getIdVenda());
+        resposta.setValorTotal(venda.getValorTotal());
+        return resposta;
+    }
+}
@@ -0,0 +1,44 @@
+package com.apirest.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Formatos de preço aceitos no CSV da importação (sem contexto Spring: só a leitura do valor)
+class ImportacaoProdutosServiceTests {
+
+    @Test
+    void aceitaFormatosDaExportacaoEDasPlanilhas() {
+        assertDecimal("1234.56", "1234.56");    // Exportação
+        assertDecimal("1234.56", "1234,56");    // pt-BR sem milhar
+        assertDecimal("1234.56", "1.234,56");   // pt-BR com milhar
+        assertDecimal("1234567.8", "1.234.567,8");
+        assertDecimal("1234.56", "1,234.56");   // en-US com milhar
+        assertDecimal("1234.56", "R$ 1.234,56");
+        assertDecimal("-10.5", "-10,5");
+    }
+
+    // Só ponto vale o formato da exportação: ponto decimal
+    @Test
+    void pontoSozinhoEhSeparadorDecimal() {
+        assertDecimal("1.234", "1.234");
+        assertDecimal("1.234", "1,234");
+    }
+
+    @Test
+    void recusaFormatosAmbiguos() {
+        assertNull(ImportacaoProdutosService.lerDecimal("1.234,"));
+        assertNull(ImportacaoProdutosService.lerDecimal("12.34,56"));
+        assertNull(ImportacaoProdutosService.lerDecimal("1,234,56"));
+        assertNull(ImportacaoProdutosService.lerDecimal("1.2.3"));
+        assertNull(ImportacaoProdutosService.lerDecimal("dez"));
+    }
+
+    private static void assertDecimal(String esperado, String texto) {
+        BigDecimal valor = ImportacaoProdutosService.lerDecimal(texto);
+        assertNotNull(valor, texto);
+        assertEquals(0, new BigDecimal(esperado).compareTo(valor), texto);
+    }
+}
@@ -0,0 +1,135 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.SaldoCaixaDTO;
+import com.apirest.api.entity.*;
+import com.apirest.api.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Snapshot a cada 3 lançamentos para exercitar snapshot + releitura com poucos lançamentos
+@SpringBootTest(properties = "caixa.livro.snapshot-a-cada=3")
+class LivroCaixaServiceTests {
+
+    @Autowired private LivroCaixaService livroCaixaService;
+    @Autowired private CaixaService caixaService;
+    @Autowired private CaixaRepository caixaRepository;
+    @Autowired private FuncionarioRepository funcionarioRepository;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private Funcionario funcionario;
+    private Caixa caixa;
+
+    @BeforeEach
+    void abrirCaixa() {
+        // Operador próprio do teste: o caixa aberto não disputa com o do admin criado pelo DataLoader
+        Funcionario admin = clienteRepository.findByCpf("25285178908").orElseThrow().getFuncionarioOrigem();
+        String sufixo = UUID.randomUUID().toString().substring(0, 8);
+        funcionario = funcionarioRepository.save(Funcionario.builder()
+                .perfilAcesso(admin.getPerfilAcesso())
+                .unidade(admin.getUnidade())
+                .cargo(Cargo.RECEPCIONISTA_TESTE)
+                .nomeCompleto("OPERADOR LIVRO " + sufixo)
+                .nomeRegistro("OPERADOR LIVRO")
+                .cpf(String.format("%011d", ThreadLocalRandom.current().nextLong(100_000_000_000L)))
+                .email("livro-" + sufixo + "@teste.local")
+                .dataNascimento(LocalDate.of(1990, 1, 1))
+                .telefone("11999999999")
+                .login("livro-" + sufixo)
+                .senhaCriptografada("-")
+                .build());
+        caixa = caixaRepository.save(Caixa.builder()
+                .funcionario(funcionario)
+                .saldoInicial(BigDecimal.ZERO)
+                .build());
+    }
+
+    @AfterEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM caixa_saldos WHERE id_caixa = ?", caixa.getIdCaixa());
+        jdbcTemplate.update("DELETE FROM caixa_lancamentos WHERE id_caixa = ?", caixa.getIdCaixa());
+        jdbcTemplate.update("DELETE FROM caixa_movimentacoes WHERE id_caixa = ?", caixa.getIdCaixa());
+        caixaRepository.deleteById(caixa.getIdCaixa());
+        funcionarioRepository.delete(funcionario);
+    }
+
+    // Lançamentos numerados sem buraco, totais correntes iguais ao livro e saldo = snapshot + releitura
+    @Test
+    void livroConfereComTotaisCorrentes() {
+        Long id = caixa.getIdCaixa();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(livroCaixaService.lancar(id, TipoLancamentoCaixa.VENDA, MetodoPagamento.DINHEIRO, new BigDecimal("10.00"), null));
+            }
+            livroCaixaService.lancar(id, TipoLancamentoCaixa.VENDA, MetodoPagamento.PIX, new BigDecimal("5.00"), null);
+            livroCaixaService.lancar(id, TipoLancamentoCaixa.ESTORNO, MetodoPagamento.DINHEIRO, new BigDecimal("-10.00"), null);
+            livroCaixaService.lancar(id, TipoLancamentoCaixa.SANGRIA, null, new BigDecimal("8.00"), null);
+        });
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), jdbcTemplate.queryForList(
+                "SELECT seq FROM caixa_lancamentos WHERE id_caixa = ? ORDER BY seq", Long.class, id));
+        assertEquals(List.of(3L, 6L), jdbcTemplate.queryForList(
+                "SELECT seq_ate FROM caixa_saldos WHERE id_caixa = ? ORDER BY seq_ate", Long.class, id));
+
+        Caixa atual = caixaRepository.findById(id).orElseThrow();
+        assertEquals(0, new BigDecimal("30.00").compareTo(atual.getSistemaDinheiro()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(atual.getSistemaPix()));
+        assertEquals(0, new BigDecimal("8.00").compareTo(atual.getSistemaSangrias()));
+
+        SaldoCaixaDTO saldo = livroCaixaService.saldoEm(id, null);
+        assertEquals(7L, saldo.getSeq());
+        assertEquals(1, saldo.getLancamentosRelidos()); // Snapshot do 6 + o lançamento 7
+        assertEquals(0, atual.getSistemaDinheiro().compareTo(saldo.getDinheiro()));
+        assertEquals(0, atual.getSistemaPix().compareTo(saldo.getPix()));
+        assertEquals(0, atual.getSistemaSangrias().compareTo(saldo.getSangrias()));
+
+        // Fechamento: soma o livro inteiro e grava o snapshot final com os mesmos totais
+        transactionTemplate.executeWithoutResult(status -> livroCaixaService.conciliarFechamento(atual));
+        BigDecimal dinheiroFinal = jdbcTemplate.queryForObject(
+                "SELECT dinheiro FROM caixa_saldos WHERE id_caixa = ? AND seq_ate = 7", BigDecimal.class, id);
+        assertEquals(0, atual.getSistemaDinheiro().compareTo(dinheiroFinal));
+    }
+
+    // Entrada manual continua aceita: vai para o livro (junto dos recebimentos) sem mexer nos totais correntes
+    @Test
+    void entradaManualEntraNoLivro() {
+        Long id = caixa.getIdCaixa();
+        caixaService.adicionarMovimentacao(id, "entrada", new BigDecimal("15.00"), "Troco devolvido");
+
+        assertEquals(List.of("ENTRADA"), jdbcTemplate.queryForList(
+                "SELECT tipo FROM caixa_lancamentos WHERE id_caixa = ?", String.class, id));
+        SaldoCaixaDTO saldo = livroCaixaService.saldoEm(id, null);
+        assertEquals(0, new BigDecimal("15.00").compareTo(saldo.getRecebimentos()));
+        Caixa atual = caixaRepository.findById(id).orElseThrow();
+        assertEquals(0, BigDecimal.ZERO.compareTo(atual.getSistemaSuprimentos()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(atual.getSistemaDinheiro()));
+    }
+
+    // Caixa fechado não recebe lançamento: nem o livro nem os totais mudam
+    @Test
+    void caixaFechadoRecusaLancamento() {
+        Long id = caixa.getIdCaixa();
+        jdbcTemplate.update("UPDATE caixas SET status = 'FECHADO' WHERE id_caixa = ?", id);
+
+        Boolean lancado = transactionTemplate.execute(status ->
+                livroCaixaService.lancar(id, TipoLancamentoCaixa.VENDA, MetodoPagamento.DINHEIRO, new BigDecimal("10.00"), null));
+
+        assertFalse(lancado);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM caixa_lancamentos WHERE id_caixa = ?", Integer.class, id));
+        assertEquals(0, BigDecimal.ZERO.compareTo(caixaRepository.findById(id).orElseThrow().getSistemaDinheiro()));
+    }
+}
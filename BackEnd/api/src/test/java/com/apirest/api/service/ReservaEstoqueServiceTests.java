@@ -0,0 +1,204 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.ReservaEstoqueDTO;
+import com.apirest.api.entity.*;
+import com.apirest.api.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Validade curta para os carrinhos vencerem durante o teste; a liberação agendada fica parada e o teste a chama
+@SpringBootTest(properties = {
+        "estoque.reservas.validade-segundos=2",
+        "estoque.reservas.tique-ms=3600000"
+})
+class ReservaEstoqueServiceTests {
+
+    private static final int ESTOQUE_INICIAL = 10;
+
+    @Autowired private ReservaEstoqueService reservaEstoqueService;
+    @Autowired private EstoqueSaldoRepository estoqueSaldoRepository;
+    @Autowired private ProdutoVariacaoRepository produtoVariacaoRepository;
+    @Autowired private ProdutoPaiRepository produtoPaiRepository;
+    @Autowired private CategoriaRepository categoriaRepository;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private String sufixo;
+    private Funcionario funcionario;
+    private Long idUnidade;
+    private Categoria categoria;
+    private ProdutoPai pai;
+    private ProdutoVariacao variacao;
+    private EstoqueSaldo saldo;
+
+    @BeforeEach
+    void prepararEstoque() {
+        sufixo = UUID.randomUUID().toString().substring(0, 8);
+        // Admin criado pelo DataLoader: define a unidade das reservas
+        funcionario = clienteRepository.findByCpf("25285178908").orElseThrow().getFuncionarioOrigem();
+        idUnidade = funcionario.getUnidade().getIdUnidade();
+
+        categoria = categoriaRepository.save(Categoria.builder().nome("TESTE RESERVA " + sufixo).build());
+        pai = produtoPaiRepository.save(ProdutoPai.builder()
+                .nomeGenerico("PRODUTO RESERVA")
+                .ncm("61091000")
+                .categoria(categoria)
+                .build());
+        variacao = produtoVariacaoRepository.save(ProdutoVariacao.builder()
+                .produtoPai(pai)
+                .nomeVariacao("UNICA")
+                .nomeCompletoConcatenado("PRODUTO RESERVA - UNICA")
+                .sku("SKU-RESERVA-" + sufixo)
+                .precoCusto(new BigDecimal("5.00"))
+                .precoVenda(new BigDecimal("10.00"))
+                .build());
+        saldo = estoqueSaldoRepository.save(EstoqueSaldo.builder()
+                .unidade(funcionario.getUnidade())
+                .produtoVariacao(variacao)
+                .quantidadeAtual(ESTOQUE_INICIAL)
+                .build());
+    }
+
+    @AfterEach
+    void limpar() {
+        for (String carrinho : List.of(carrinho("A"), carrinho("B"))) {
+            reservaEstoqueService.cancelar(carrinho);
+        }
+        estoqueSaldoRepository.delete(saldo);
+        produtoVariacaoRepository.delete(variacao);
+        produtoPaiRepository.delete(pai);
+        categoriaRepository.delete(categoria);
+    }
+
+    // Reservas dos outros carrinhos contam contra o saldo; as do próprio carrinho viram a baixa da venda
+    @Test
+    void vendaRespeitaReservasDosOutrosCarrinhos() {
+        Long id = variacao.getId();
+        reservar(carrinho("A"), 6);
+        assertThrows(RuntimeException.class, () -> reservar(carrinho("B"), 5));
+        reservar(carrinho("B"), 4);
+        assertEquals(10, reservado());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Venda sem carrinho: tudo está reservado
+            assertFalse(estoqueSaldoRepository.baixarEstoque(idUnidade, Map.of(id, 1)).isEmpty());
+
+            // Fechamento do carrinho A: as 6 unidades dele saem do reservado e do saldo no mesmo UPDATE
+            Map<Long, Integer> proprias = reservaEstoqueService.retirarParaVenda(idUnidade, carrinho("A"));
+            assertEquals(Map.of(id, 6), proprias);
+            assertTrue(estoqueSaldoRepository.baixarEstoque(idUnidade, Map.of(id, 6), proprias).isEmpty());
+            assertEquals(4, quantidadeAtual());
+            assertEquals(4, reservado());
+            status.setRollbackOnly();
+        });
+
+        // Venda desfeita: o carrinho A continua com as reservas
+        assertEquals(10, reservado());
+        assertEquals(ESTOQUE_INICIAL, quantidadeAtual());
+        assertEquals(1, contar("SELECT COUNT(*) FROM estoque_carrinhos WHERE id_carrinho = ?", carrinho("A")));
+
+        reservaEstoqueService.cancelar(carrinho("A"));
+        assertEquals(4, reservado());
+        assertEquals(0, contar("SELECT COUNT(*) FROM estoque_reservas WHERE id_carrinho = ?", carrinho("A")));
+    }
+
+    // Venda sem carrinho e reserva disputando a última unidade livre: só uma das duas leva
+    @Test
+    void vendaEReservaNaoLevamAMesmaUnidade() throws Exception {
+        Long id = variacao.getId();
+        reservar(carrinho("A"), ESTOQUE_INICIAL - 1);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService terminais = Executors.newFixedThreadPool(2);
+
+        Future<Boolean> reserva = terminais.submit(() -> {
+            largada.await();
+            try {
+                reservar(carrinho("B"), 1);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        });
+        Future<Boolean> venda = terminais.submit(() -> {
+            largada.await();
+            return transactionTemplate.execute(status -> {
+                if (estoqueSaldoRepository.baixarEstoque(idUnidade, Map.of(id, 1), Map.of()).isEmpty()) return true;
+                status.setRollbackOnly();
+                return false;
+            });
+        });
+
+        largada.countDown();
+        boolean reservou = reserva.get(30, TimeUnit.SECONDS);
+        boolean vendeu = venda.get(30, TimeUnit.SECONDS);
+        terminais.shutdown();
+
+        assertTrue(reservou ^ vendeu);
+        assertTrue(quantidadeAtual() >= reservado());
+    }
+
+    // Carrinho parado vence; o renovado por um novo item continua reservado
+    @Test
+    void vencimentoRespeitaRenovacao() throws InterruptedException {
+        reservar(carrinho("A"), 2);
+        reservar(carrinho("B"), 1);
+
+        Thread.sleep(1200);
+        reservar(carrinho("A"), 3); // Renova A por mais 2 s
+        Thread.sleep(1300);
+
+        // B venceu (2,5 s parado); A foi renovado há 1,3 s
+        reservaEstoqueService.liberarVencidos();
+        assertEquals(3, reservado());
+        assertEquals(0, contar("SELECT COUNT(*) FROM estoque_carrinhos WHERE id_carrinho = ?", carrinho("B")));
+
+        Thread.sleep(1000);
+        reservaEstoqueService.liberarVencidos();
+        assertEquals(0, reservado());
+        assertEquals(0, contar("SELECT COUNT(*) FROM estoque_reservas WHERE id_carrinho = ?", carrinho("A")));
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private void reservar(String idCarrinho, int quantidade) {
+        ReservaEstoqueDTO dto = new ReservaEstoqueDTO();
+        dto.setIdFuncionario(funcionario.getIdFuncionario());
+        dto.setIdProduto(variacao.getId());
+        dto.setQuantidade(quantidade);
+        reservaEstoqueService.reservar(idCarrinho, dto);
+    }
+
+    private int reservado() {
+        return contar("SELECT quantidade_reservada FROM estoque_saldos WHERE id = ?", saldo.getId());
+    }
+
+    private int quantidadeAtual() {
+        return contar("SELECT quantidade_atual FROM estoque_saldos WHERE id = ?", saldo.getId());
+    }
+
+    private int contar(String sql, Object parametro) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, parametro);
+    }
+
+    private String carrinho(String nome) {
+        return "TESTE-" + sufixo + "-" + nome;
+    }
+}
@@ -0,0 +1,104 @@
+package com.apirest.api.service;
+
+import com.apirest.api.entity.*;
+import com.apirest.api.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Job agendado praticamente parado: a marca d'água só anda quando o teste chama consolidar()
+@SpringBootTest(properties = {
+        "relatorios.resumo.intervalo-ms=3600000",
+        "relatorios.resumo.margem-minutos=10"
+})
+class ResumoVendasServiceTests {
+
+    private static final String SQL_RESUMO_DO_DIA =
+            "SELECT quantidade_caixas, quebra FROM resumo_caixas_diario WHERE dia = ? AND id_funcionario = ?";
+
+    @Autowired private ResumoVendasService resumoVendasService;
+    @Autowired private CaixaRepository caixaRepository;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private LocalDateTime marcaOriginal;
+    private Funcionario funcionario;
+    private LocalDate dia;
+    private LocalDateTime fechamento;
+    private Caixa caixa;
+
+    @BeforeEach
+    void fecharCaixaAntigo() {
+        marcaOriginal = jdbcTemplate.queryForObject(
+                "SELECT processado_ate FROM resumo_vendas_controle WHERE id = 1", LocalDateTime.class);
+        funcionario = clienteRepository.findByCpf("25285178908").orElseThrow().getFuncionarioOrigem();
+
+        // Dia sorteado bem no passado: nenhum outro caixa fechado cai nele
+        dia = LocalDate.now().minusYears(20).plusDays(ThreadLocalRandom.current().nextInt(3650));
+        fechamento = dia.atTime(18, 0);
+        caixa = caixaRepository.save(Caixa.builder()
+                .funcionario(funcionario)
+                .dataAbertura(dia.atTime(8, 0))
+                .dataFechamento(fechamento)
+                .status(StatusCaixa.FECHADO)
+                .saldoInicial(BigDecimal.ZERO)
+                .sistemaDinheiro(new BigDecimal("100.00"))
+                .conferidoDinheiro(new BigDecimal("90.00"))
+                .quebraDeCaixa(new BigDecimal("-10.00"))
+                .build());
+    }
+
+    @AfterEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM resumo_vendas_diario WHERE dia = ?", Date.valueOf(dia));
+        jdbcTemplate.update("DELETE FROM resumo_caixas_diario WHERE dia = ?", Date.valueOf(dia));
+        caixaRepository.delete(caixa);
+        jdbcTemplate.update("UPDATE resumo_vendas_controle SET processado_ate = ? WHERE id = 1", Timestamp.valueOf(marcaOriginal));
+    }
+
+    // Fechamento antes da marca (menos a margem) já foi consolidado: o job não refaz o dia
+    @Test
+    void fechamentoAnteriorAMarcaNaoEhRefeito() {
+        marcar(fechamento.plusMinutes(11));
+        resumoVendasService.consolidar();
+
+        assertTrue(jdbcTemplate.queryForList(SQL_RESUMO_DO_DIA, Date.valueOf(dia), funcionario.getIdFuncionario()).isEmpty());
+    }
+
+    // Fechamento dentro da margem (transação confirmada depois da execução anterior) ainda entra
+    @Test
+    void fechamentoDentroDaMargemEntraNoResumo() {
+        LocalDateTime antes = LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).minusMinutes(1);
+        marcar(fechamento.plusMinutes(5));
+        resumoVendasService.consolidar();
+
+        List<Map<String, Object>> linhas = jdbcTemplate.queryForList(SQL_RESUMO_DO_DIA, Date.valueOf(dia), funcionario.getIdFuncionario());
+        assertEquals(1, linhas.size());
+        assertEquals(1, ((Number) linhas.get(0).get("quantidade_caixas")).intValue());
+        assertEquals(0, new BigDecimal("-10.00").compareTo((BigDecimal) linhas.get(0).get("quebra")));
+
+        // A marca avança para a hora da execução
+        LocalDateTime marca = jdbcTemplate.queryForObject(
+                "SELECT processado_ate FROM resumo_vendas_controle WHERE id = 1", LocalDateTime.class);
+        assertTrue(marca.isAfter(antes));
+    }
+
+    private void marcar(LocalDateTime marca) {
+        jdbcTemplate.update("UPDATE resumo_vendas_controle SET processado_ate = ? WHERE id = 1", Timestamp.valueOf(marca));
+    }
+}
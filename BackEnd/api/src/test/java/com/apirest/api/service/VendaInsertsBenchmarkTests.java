@@ -0,0 +1,186 @@
+package com.apirest.api.service;
+
+import com.apirest.api.dto.VendaDTO;
+import com.apirest.api.dto.VendaItemDTO;
+import com.apirest.api.entity.*;
+import com.apirest.api.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Mede quantos comandos JDBC uma venda grande gera (30 itens + crediário em 12x).
+// Com IDENTITY cada linha era um INSERT isolado (~46 por venda); com sequências pooled os INSERTs vão em lote.
+// Sem @Transactional no teste: o PIN é conferido em outra thread, que só enxerga dados confirmados, e a venda
+// passa pelo commit de verdade. Por isso o cenário é gravado antes e apagado depois.
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=" + VendaInsertsBenchmarkTests.TAMANHO_LOTE,
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.apirest.api.service.VendaInsertsBenchmarkTests$ContadorInserts"
+})
+@Slf4j
+class VendaInsertsBenchmarkTests {
+
+    static final int TAMANHO_LOTE = 50; // Mesmo valor de hibernate.jdbc.batch_size em application.properties
+    private static final int ITENS = 30;
+    private static final int PARCELAS = 12;
+
+    // Conta os comandos INSERT preparados por tabela (em lote, um comando leva até TAMANHO_LOTE linhas)
+    public static class ContadorInserts implements StatementInspector {
+        static final Map<String, Integer> COMANDOS = new ConcurrentHashMap<>();
+
+        @Override
+        public String inspect(String sql) {
+            String comando = sql.stripLeading().toLowerCase(Locale.ROOT);
+            if (comando.startsWith("insert into ")) {
+                String tabela = comando.substring("insert into ".length()).split("[\\s(]", 2)[0];
+                COMANDOS.merge(tabela, 1, Integer::sum);
+            }
+            return sql;
+        }
+    }
+
+    @Autowired private VendaService vendaService;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private CaixaRepository caixaRepository;
+    @Autowired private EstoqueSaldoRepository estoqueSaldoRepository;
+    @Autowired private ProdutoVariacaoRepository produtoVariacaoRepository;
+    @Autowired private ProdutoPaiRepository produtoPaiRepository;
+    @Autowired private CategoriaRepository categoriaRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Cliente cliente;
+    private Funcionario funcionario;
+    private Caixa caixaCriado;
+    private Categoria categoria;
+    private ProdutoPai pai;
+    private final List<ProdutoVariacao> variacoes = new ArrayList<>();
+    private final List<EstoqueSaldo> saldos = new ArrayList<>();
+    private Long idVenda;
+
+    @BeforeEach
+    void prepararProdutos() {
+        // Cliente espelho do admin criado pelo DataLoader (PIN 1234)
+        cliente = clienteRepository.findByCpf("25285178908").orElseThrow();
+        funcionario = cliente.getFuncionarioOrigem();
+        if (caixaRepository.findByFuncionarioAndStatus(funcionario, StatusCaixa.ABERTO).isEmpty()) {
+            caixaCriado = caixaRepository.save(Caixa.builder()
+                    .funcionario(funcionario)
+                    .saldoInicial(BigDecimal.ZERO)
+                    .build());
+        }
+
+        String sufixo = UUID.randomUUID().toString().substring(0, 8);
+        categoria = categoriaRepository.save(Categoria.builder().nome("TESTE BENCHMARK " + sufixo).build());
+        pai = produtoPaiRepository.save(ProdutoPai.builder()
+                .nomeGenerico("PRODUTO BENCHMARK")
+                .ncm("61091000")
+                .categoria(categoria)
+                .build());
+
+        for (int i = 0; i < ITENS; i++) {
+            ProdutoVariacao variacao = produtoVariacaoRepository.save(ProdutoVariacao.builder()
+                    .produtoPai(pai)
+                    .nomeVariacao("V" + i)
+                    .nomeCompletoConcatenado("PRODUTO BENCHMARK - V" + i)
+                    .sku("SKU-BENCH-" + sufixo + "-" + i)
+                    .precoCusto(new BigDecimal("5.00"))
+                    .precoVenda(new BigDecimal("10.00"))
+                    .build());
+            variacoes.add(variacao);
+            saldos.add(estoqueSaldoRepository.save(EstoqueSaldo.builder()
+                    .unidade(funcionario.getUnidade())
+                    .produtoVariacao(variacao)
+                    .quantidadeAtual(10)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void limpar() {
+        if (idVenda != null) apagarVenda(idVenda);
+        estoqueSaldoRepository.deleteAll(saldos);
+        produtoVariacaoRepository.deleteAll(variacoes);
+        produtoPaiRepository.delete(pai);
+        categoriaRepository.delete(categoria);
+        if (caixaCriado != null) {
+            Long idCaixa = caixaCriado.getIdCaixa();
+            jdbcTemplate.update("DELETE FROM caixa_saldos WHERE id_caixa = ?", idCaixa);
+            jdbcTemplate.update("DELETE FROM caixa_lancamentos WHERE id_caixa = ?", idCaixa);
+            caixaRepository.deleteById(idCaixa);
+        }
+    }
+
+    @Test
+    void vendaCrediarioComTrintaItensUsaInsertsEmLote() {
+        List<VendaItemDTO> itens = new ArrayList<>();
+        for (ProdutoVariacao variacao : variacoes) {
+            itens.add(new VendaItemDTO(variacao.getId(), 1));
+        }
+
+        VendaDTO dto = new VendaDTO();
+        dto.setIdFuncionario(funcionario.getIdFuncionario());
+        dto.setIdCliente(cliente.getIdCliente());
+        dto.setItens(itens);
+        dto.setMetodoPagamento(MetodoPagamento.CREDIARIO);
+        dto.setNumeroParcelas(PARCELAS);
+        dto.setPin("1234");
+        dto.setAssinaturaBase64("data:image/png;base64,AAAA");
+
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+        ContadorInserts.COMANDOS.clear();
+
+        idVenda = vendaService.registrarVenda(dto, null).getIdVenda();
+
+        log.info("Venda com {} itens e {} parcelas: {} entidades inseridas, {} comandos preparados, INSERTs por tabela {}",
+                ITENS, PARCELAS, estatisticas.getEntityInsertCount(), estatisticas.getPrepareStatementCount(),
+                ContadorInserts.COMANDOS);
+
+        // Um comando por lote de TAMANHO_LOTE linhas: 30 itens e 12 parcelas cabem em um comando cada
+        assertEquals(ITENS, estatisticas.getEntityStatistics(VendaItem.class.getName()).getInsertCount());
+        assertEquals(PARCELAS, estatisticas.getEntityStatistics(Parcela.class.getName()).getInsertCount());
+        assertEquals(lotes(ITENS), ContadorInserts.COMANDOS.getOrDefault("venda_item", 0));
+        assertEquals(lotes(PARCELAS), ContadorInserts.COMANDOS.getOrDefault("parcelas", 0));
+    }
+
+    // Desfaz a venda confirmada (o crediário do admin não pode ir acumulando dívida a cada execução).
+    // Se a descarga já tiver aplicado a comissão, o acumulado do vendedor é devolvido no mesmo comando.
+    private void apagarVenda(Long id) {
+        jdbcTemplate.update("""
+                WITH removidos AS (DELETE FROM comissao_lancamentos WHERE id_venda = ? RETURNING id_funcionario, valor, aplicado)
+                UPDATE funcionarios f SET valor_comissao_acumulado = f.valor_comissao_acumulado - r.total
+                FROM (SELECT id_funcionario, SUM(valor) AS total FROM removidos WHERE aplicado GROUP BY id_funcionario) r
+                WHERE f.id_funcionario = r.id_funcionario
+                """, id);
+        jdbcTemplate.update("DELETE FROM parcelas WHERE id_conta_receber IN (SELECT id FROM contas_receber WHERE id_venda = ?)", id);
+        jdbcTemplate.update("DELETE FROM contas_receber WHERE id_venda = ?", id);
+        jdbcTemplate.update("DELETE FROM venda_evidencias WHERE id_venda = ?", id);
+        jdbcTemplate.update("DELETE FROM venda_pagamentos WHERE id_venda = ?", id);
+        jdbcTemplate.update("DELETE FROM venda_descontos WHERE venda_id = ?", id);
+        jdbcTemplate.update("DELETE FROM venda_item WHERE id_venda = ?", id);
+        jdbcTemplate.update("DELETE FROM venda WHERE id_venda = ?", id);
+    }
+
+    private static int lotes(int linhas) {
+        return (linhas + TAMANHO_LOTE - 1) / TAMANHO_LOTE;
+    }
+}